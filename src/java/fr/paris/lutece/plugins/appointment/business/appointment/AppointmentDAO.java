@@ -38,13 +38,16 @@ import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 
 import fr.paris.lutece.plugins.appointment.business.UtilDAO;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.business.user.User;
+import fr.paris.lutece.plugins.appointment.business.user.UserSearchNormalizer;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
@@ -71,19 +74,59 @@ public final class AppointmentDAO extends UtilDAO implements IAppointmentDAO
     private static final String SQL_QUERY_SELECT_BY_FILTER = "SELECT "
             + "app.id_appointment, app.reference, app.nb_places, app.is_cancelled, app.id_action_cancelled, app.notification, app.id_admin_user, app.admin_access_code_create, app.id_user, app.id_slot, app.date_appointment_create, "
             + "user.id_user, user.guid, user.first_name, user.last_name, user.email, user.phone_number, "
-            + "slot.id_slot, slot.starting_date_time, slot.ending_date_time, slot.is_open, slot.is_specific, slot.max_capacity, slot.nb_remaining_places, slot.id_form "
-            + "FROM appointment_appointment app " + "INNER JOIN appointment_user user ON app.id_user = user.id_user "
+            + "slot.id_slot, slot.starting_date_time, slot.ending_date_time, slot.is_open, slot.is_specific, slot.max_capacity, slot.nb_remaining_places, slot.id_form ";
+    private static final String SQL_QUERY_FROM_BY_FILTER = "FROM appointment_appointment app " + "INNER JOIN appointment_user user ON app.id_user = user.id_user "
             + "INNER JOIN appointment_slot slot ON app.id_slot = slot.id_slot " + "WHERE slot.id_form = ?";
+    private static final String SQL_QUERY_COUNT_BY_FILTER = "SELECT COUNT(*) ";
+    private static final String SQL_QUERY_SELECT_ID_BY_FILTER = "SELECT app.id_appointment ";
+    private static final String SQL_QUERY_SELECT_BY_LIST_ID = SQL_QUERY_SELECT_BY_FILTER
+            + "FROM appointment_appointment app INNER JOIN appointment_user user ON app.id_user = user.id_user "
+            + "INNER JOIN appointment_slot slot ON app.id_slot = slot.id_slot WHERE app.id_appointment IN ( ";
+    private static final String SQL_QUERY_SELECT_STARTING_DATE_BY_EMAIL_AND_FORM = "SELECT slot.starting_date_time "
+            + "FROM appointment_appointment app INNER JOIN appointment_user user ON app.id_user = user.id_user "
+            + "INNER JOIN appointment_slot slot ON app.id_slot = slot.id_slot "
+            + "WHERE user.email = ? AND slot.id_form = ? AND app.is_cancelled = 0 AND app.id_appointment <> ? "
+            + "AND slot.starting_date_time >= ? AND slot.starting_date_time < ? ORDER BY slot.starting_date_time";
 
-    private static final String SQL_FILTER_FIRST_NAME = "UPPER(user.first_name) LIKE ?";
-    private static final String SQL_FILTER_LAST_NAME = "UPPER(user.last_name) LIKE ?";
-    private static final String SQL_FILTER_EMAIL = "UPPER(user.email) LIKE ?";
+    private static final String SQL_COLUMN_FIRST_NAME_SEARCH = "user.first_name_search";
+    private static final String SQL_COLUMN_LAST_NAME_SEARCH = "user.last_name_search";
+    private static final String SQL_COLUMN_EMAIL_SEARCH = "user.email_search";
+    private static final String SQL_COLUMN_EMAIL_SEARCH_REVERSED = "user.email_search_reversed";
+    private static final String SQL_FILTER_LIKE = " LIKE ?";
+    private static final String SQL_FILTER_EQUALS = " = ?";
     private static final String SQL_FILTER_STATUS = "app.is_cancelled = ?";
     private static final String SQL_FILTER_DATE_APPOINTMENT_MIN = "slot.starting_date_time >= ?";
     private static final String SQL_FILTER_DATE_APPOINTMENT_MAX = "slot.starting_date_time < ?";
 
+    private static final String SQL_ORDER_BY = " ORDER BY ";
+    private static final String SQL_ASC = " ASC";
+    private static final String SQL_DESC = " DESC";
+    private static final String SQL_ORDER_BY_ID_APPOINTMENT = ", app.id_appointment";
+    private static final String SQL_LIMIT = " LIMIT ? OFFSET ?";
+    private static final String SQL_COLUMN_DATE_APPOINTMENT = "slot.starting_date_time";
+
+    /**
+     * The columns of the sorts of the filter
+     */
+    private static final Map<String, String> MAP_ORDER_BY_COLUMNS = new HashMap<>( );
+
+    static
+    {
+        MAP_ORDER_BY_COLUMNS.put( AppointmentFilterDTO.ORDER_BY_LAST_NAME, "user.last_name" );
+        MAP_ORDER_BY_COLUMNS.put( AppointmentFilterDTO.ORDER_BY_FIRST_NAME, "user.first_name" );
+        MAP_ORDER_BY_COLUMNS.put( AppointmentFilterDTO.ORDER_BY_EMAIL, "user.email" );
+        MAP_ORDER_BY_COLUMNS.put( AppointmentFilterDTO.ORDER_BY_NB_BOOKED_SEATS, "app.nb_places" );
+        MAP_ORDER_BY_COLUMNS.put( AppointmentFilterDTO.ORDER_BY_DATE_APPOINTMENT, SQL_COLUMN_DATE_APPOINTMENT );
+        MAP_ORDER_BY_COLUMNS.put( AppointmentFilterDTO.ORDER_BY_ADMIN, "app.id_admin_user" );
+        MAP_ORDER_BY_COLUMNS.put( AppointmentFilterDTO.ORDER_BY_STATUS, "app.is_cancelled" );
+    }
+
     private static final String CONSTANT_AND = " AND ";
+    private static final String CONSTANT_QUESTION_MARK = "?";
+    private static final String CONSTANT_COMMA = ", ";
+    private static final String CONSTANT_CLOSE_PARENTHESIS = " )";
     private static final String CONSTANT_PERCENT = "%";
+    private static final String CONSTANT_AT = "@";
 
     @Override
     public void insert( Appointment appointment, Plugin plugin )
@@ -222,15 +265,170 @@ public final class AppointmentDAO extends UtilDAO implements IAppointmentDAO
     @Override
     public List<Appointment> findByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin )
     {
-        List<Appointment> listAppointment = new ArrayList<Appointment>( );
-        DAOUtil daoUtil = new DAOUtil( getSqlQueryFromFilter( appointmentFilter ), plugin );
-        addFilterParametersToDAOUtil( appointmentFilter, daoUtil );
-        daoUtil.executeQuery( );
-        while ( daoUtil.next( ) )
+        return findByFilter( appointmentFilter, 0, 0, plugin );
+    }
+
+    @Override
+    public List<Appointment> findByFilter( AppointmentFilterDTO appointmentFilter, int nOffset, int nLimit, Plugin plugin )
+    {
+        StringBuilder sbSql = new StringBuilder( getSqlQueryFromFilter( SQL_QUERY_SELECT_BY_FILTER, appointmentFilter ) );
+        // A page is only meaningful on sorted appointments
+        if ( appointmentFilter.getOrderBy( ) != null || nLimit > 0 )
+        {
+            sbSql.append( getSqlOrderByFromFilter( appointmentFilter ) );
+        }
+        if ( nLimit > 0 )
+        {
+            sbSql.append( SQL_LIMIT );
+        }
+        DAOUtil daoUtil = null;
+        List<Appointment> listAppointment = new ArrayList<>( );
+        try
+        {
+            daoUtil = new DAOUtil( sbSql.toString( ), plugin );
+            int nIndex = addFilterParametersToDAOUtil( appointmentFilter, daoUtil );
+            if ( nLimit > 0 )
+            {
+                daoUtil.setInt( nIndex++, nLimit );
+                daoUtil.setInt( nIndex, Math.max( 0, nOffset ) );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listAppointment.add( buildAppointmentHeavy( daoUtil ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listAppointment;
+    }
+
+    @Override
+    public List<LocalDateTime> findListStartingDateTimeByEmailAndForm( String strEmail, int nIdForm, int nIdAppointmentExcluded,
+            LocalDateTime startingDateTime, LocalDateTime endingDateTime, Plugin plugin )
+    {
+        List<LocalDateTime> listStartingDateTime = new ArrayList<>( );
+        DAOUtil daoUtil = null;
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_STARTING_DATE_BY_EMAIL_AND_FORM, plugin );
+            daoUtil.setString( 1, strEmail );
+            daoUtil.setInt( 2, nIdForm );
+            daoUtil.setInt( 3, nIdAppointmentExcluded );
+            daoUtil.setTimestamp( 4, Timestamp.valueOf( startingDateTime ) );
+            daoUtil.setTimestamp( 5, Timestamp.valueOf( endingDateTime ) );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listStartingDateTime.add( daoUtil.getTimestamp( 1 ).toLocalDateTime( ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listStartingDateTime;
+    }
+
+    @Override
+    public int countByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        int nCount = 0;
+        try
+        {
+            daoUtil = new DAOUtil( getSqlQueryFromFilter( SQL_QUERY_COUNT_BY_FILTER, appointmentFilter ), plugin );
+            addFilterParametersToDAOUtil( appointmentFilter, daoUtil );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                nCount = daoUtil.getInt( 1 );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return nCount;
+    }
+
+    @Override
+    public List<Integer> findListIdByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        List<Integer> listIdAppointment = new ArrayList<>( );
+        try
+        {
+            daoUtil = new DAOUtil( getSqlQueryFromFilter( SQL_QUERY_SELECT_ID_BY_FILTER, appointmentFilter ) + getSqlOrderByFromFilter( appointmentFilter ),
+                    plugin );
+            addFilterParametersToDAOUtil( appointmentFilter, daoUtil );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listIdAppointment.add( daoUtil.getInt( 1 ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listIdAppointment;
+    }
+
+    @Override
+    public List<Appointment> findByListId( List<Integer> listIdAppointment, Plugin plugin )
+    {
+        List<Appointment> listAppointment = new ArrayList<>( );
+        if ( listIdAppointment.isEmpty( ) )
         {
-            listAppointment.add( buildAppointmentHeavy( daoUtil ) );
+            return listAppointment;
+        }
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_BY_LIST_ID );
+        for ( int i = 0; i < listIdAppointment.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbSql.append( CONSTANT_COMMA );
+            }
+            sbSql.append( CONSTANT_QUESTION_MARK );
+        }
+        sbSql.append( CONSTANT_CLOSE_PARENTHESIS );
+        DAOUtil daoUtil = null;
+        try
+        {
+            daoUtil = new DAOUtil( sbSql.toString( ), plugin );
+            int nIndex = 1;
+            for ( Integer nIdAppointment : listIdAppointment )
+            {
+                daoUtil.setInt( nIndex++, nIdAppointment );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listAppointment.add( buildAppointmentHeavy( daoUtil ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
         }
-        daoUtil.free( );
         return listAppointment;
     }
 
@@ -241,22 +439,31 @@ public final class AppointmentDAO extends UtilDAO implements IAppointmentDAO
      *            the filter
      * @param daoUtil
      *            the daoutil
+     * @return the index of the next parameter of the query
      */
-    private void addFilterParametersToDAOUtil( AppointmentFilterDTO appointmentFilter, DAOUtil daoUtil )
+    private int addFilterParametersToDAOUtil( AppointmentFilterDTO appointmentFilter, DAOUtil daoUtil )
     {
         int nIndex = 1;
         daoUtil.setInt( nIndex++, appointmentFilter.getIdForm( ) );
-        if ( appointmentFilter.getFirstName( ) != null )
+        String strSearchMode = appointmentFilter.getSearchMode( );
+        if ( StringUtils.isNotBlank( appointmentFilter.getFirstName( ) ) )
         {
-            daoUtil.setString( nIndex++, CONSTANT_PERCENT + appointmentFilter.getFirstName( ).toUpperCase( ) + CONSTANT_PERCENT );
+            daoUtil.setString( nIndex++, getSearchParameter( UserSearchNormalizer.normalize( appointmentFilter.getFirstName( ) ), strSearchMode ) );
         }
-        if ( appointmentFilter.getLastName( ) != null )
+        if ( StringUtils.isNotBlank( appointmentFilter.getLastName( ) ) )
         {
-            daoUtil.setString( nIndex++, CONSTANT_PERCENT + appointmentFilter.getLastName( ).toUpperCase( ) + CONSTANT_PERCENT );
+            daoUtil.setString( nIndex++, getSearchParameter( UserSearchNormalizer.normalize( appointmentFilter.getLastName( ) ), strSearchMode ) );
         }
-        if ( appointmentFilter.getEmail( ) != null )
+        if ( StringUtils.isNotBlank( appointmentFilter.getEmail( ) ) )
         {
-            daoUtil.setString( nIndex++, CONSTANT_PERCENT + appointmentFilter.getEmail( ).toUpperCase( ) + CONSTANT_PERCENT );
+            if ( isEmailDomainSearch( appointmentFilter ) )
+            {
+                daoUtil.setString( nIndex++, getSearchParameter( UserSearchNormalizer.normalizeReversed( appointmentFilter.getEmail( ) ), strSearchMode ) );
+            }
+            else
+            {
+                daoUtil.setString( nIndex++, getSearchParameter( UserSearchNormalizer.normalize( appointmentFilter.getEmail( ) ), strSearchMode ) );
+            }
         }
         if ( appointmentFilter.getStatus( ) != -1 )
         {
@@ -290,32 +497,71 @@ public final class AppointmentDAO extends UtilDAO implements IAppointmentDAO
             }
             daoUtil.setTimestamp( nIndex++, endingTimestamp );
         }
+        return nIndex;
+    }
+
+    /**
+     * Get the parameter of a search on a search column of the user
+     * 
+     * @param strNormalizedValue
+     *            the value searched, normalized
+     * @param strSearchMode
+     *            the mode of the search
+     * @return the parameter
+     */
+    private static String getSearchParameter( String strNormalizedValue, String strSearchMode )
+    {
+        if ( AppointmentFilterDTO.SEARCH_MODE_EXACT.equals( strSearchMode ) )
+        {
+            return strNormalizedValue;
+        }
+        if ( AppointmentFilterDTO.SEARCH_MODE_PREFIX.equals( strSearchMode ) )
+        {
+            return strNormalizedValue + CONSTANT_PERCENT;
+        }
+        return CONSTANT_PERCENT + strNormalizedValue + CONSTANT_PERCENT;
+    }
+
+    /**
+     * Check if the search on the email is a search on the end of the email (the domain), done on the reversed email
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @return true if the email is searched by its end
+     */
+    private static boolean isEmailDomainSearch( AppointmentFilterDTO appointmentFilter )
+    {
+        return AppointmentFilterDTO.SEARCH_MODE_PREFIX.equals( appointmentFilter.getSearchMode( ) )
+                && appointmentFilter.getEmail( ).trim( ).startsWith( CONSTANT_AT );
     }
 
     /**
      * Build the sql query with the elements of the filter
      * 
+     * @param strSelect
+     *            the select clause of the query
      * @param appointmentFilter
      *            the filter
      * @return the query
      */
-    private String getSqlQueryFromFilter( AppointmentFilterDTO appointmentFilter )
+    private String getSqlQueryFromFilter( String strSelect, AppointmentFilterDTO appointmentFilter )
     {
-        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_BY_FILTER );
-        if ( appointmentFilter.getFirstName( ) != null )
+        StringBuilder sbSql = new StringBuilder( strSelect ).append( SQL_QUERY_FROM_BY_FILTER );
+        String strSearchOperator = AppointmentFilterDTO.SEARCH_MODE_EXACT.equals( appointmentFilter.getSearchMode( ) ) ? SQL_FILTER_EQUALS : SQL_FILTER_LIKE;
+        if ( StringUtils.isNotBlank( appointmentFilter.getFirstName( ) ) )
         {
             sbSql.append( CONSTANT_AND );
-            sbSql.append( SQL_FILTER_FIRST_NAME );
+            sbSql.append( SQL_COLUMN_FIRST_NAME_SEARCH ).append( strSearchOperator );
         }
-        if ( appointmentFilter.getLastName( ) != null )
+        if ( StringUtils.isNotBlank( appointmentFilter.getLastName( ) ) )
         {
             sbSql.append( CONSTANT_AND );
-            sbSql.append( SQL_FILTER_LAST_NAME );
+            sbSql.append( SQL_COLUMN_LAST_NAME_SEARCH ).append( strSearchOperator );
         }
-        if ( appointmentFilter.getEmail( ) != null )
+        if ( StringUtils.isNotBlank( appointmentFilter.getEmail( ) ) )
         {
             sbSql.append( CONSTANT_AND );
-            sbSql.append( SQL_FILTER_EMAIL );
+            sbSql.append( isEmailDomainSearch( appointmentFilter ) ? SQL_COLUMN_EMAIL_SEARCH_REVERSED : SQL_COLUMN_EMAIL_SEARCH ).append( strSearchOperator );
         }
         if ( appointmentFilter.getStatus( ) != -1 )
         {
@@ -335,6 +581,26 @@ public final class AppointmentDAO extends UtilDAO implements IAppointmentDAO
         return sbSql.toString( );
     }
 
+    /**
+     * Build the order by clause of the sort of the filter. The appointments are sorted by date if the sort is unknown, and by id in the last place so that
+     * the pages do not overlap
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @return the order by clause
+     */
+    private String getSqlOrderByFromFilter( AppointmentFilterDTO appointmentFilter )
+    {
+        String strColumn = MAP_ORDER_BY_COLUMNS.get( appointmentFilter.getOrderBy( ) );
+        if ( strColumn == null )
+        {
+            strColumn = SQL_COLUMN_DATE_APPOINTMENT;
+        }
+        String strDirection = appointmentFilter.getOrderAsc( ) ? SQL_ASC : SQL_DESC;
+        return new StringBuilder( SQL_ORDER_BY ).append( strColumn ).append( strDirection ).append( SQL_ORDER_BY_ID_APPOINTMENT ).append( strDirection )
+                .toString( );
+    }
+
     @Override
     public List<Appointment> findByIdForm( int nIdForm, Plugin plugin )
     {
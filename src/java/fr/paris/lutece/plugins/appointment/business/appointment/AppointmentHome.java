@@ -33,6 +33,7 @@
  */
 package fr.paris.lutece.plugins.appointment.business.appointment;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
@@ -170,4 +171,77 @@ public final class AppointmentHome
     {
         return _dao.findByFilter( appointmentFilter, _plugin );
     }
+
+    /**
+     * Returns a page of the appointments matching the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @param nOffset
+     *            the number of appointments to skip
+     * @param nLimit
+     *            the maximum number of appointments to return
+     * @return a list of appointments
+     */
+    public static List<Appointment> findByFilter( AppointmentFilterDTO appointmentFilter, int nOffset, int nLimit )
+    {
+        return _dao.findByFilter( appointmentFilter, nOffset, nLimit, _plugin );
+    }
+
+    /**
+     * Returns the number of appointments matching the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @return the number of appointments
+     */
+    public static int countByFilter( AppointmentFilterDTO appointmentFilter )
+    {
+        return _dao.countByFilter( appointmentFilter, _plugin );
+    }
+
+    /**
+     * Returns the ids of the appointments matching the filter, sorted as specified by the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @return the list of the ids of the appointments
+     */
+    public static List<Integer> findListIdByFilter( AppointmentFilterDTO appointmentFilter )
+    {
+        return _dao.findListIdByFilter( appointmentFilter, _plugin );
+    }
+
+    /**
+     * Returns the appointments of a list of ids, with their complete user and their complete slot
+     * 
+     * @param listIdAppointment
+     *            the ids of the appointments
+     * @return the list of the appointments, in no particular order
+     */
+    public static List<Appointment> findByListId( List<Integer> listIdAppointment )
+    {
+        return _dao.findByListId( listIdAppointment, _plugin );
+    }
+
+    /**
+     * Returns the starting dates of the slots of the appointments not cancelled of an email on a form, in a period
+     * 
+     * @param strEmail
+     *            the email of the user
+     * @param nIdForm
+     *            the id of the form
+     * @param nIdAppointmentExcluded
+     *            the id of an appointment to ignore (the one being modified), or 0
+     * @param startingDateTime
+     *            the starting date time of the period (included)
+     * @param endingDateTime
+     *            the ending date time of the period (excluded)
+     * @return the list of the starting dates, sorted in ascending order
+     */
+    public static List<LocalDateTime> findListStartingDateTimeByEmailAndForm( String strEmail, int nIdForm, int nIdAppointmentExcluded,
+            LocalDateTime startingDateTime, LocalDateTime endingDateTime )
+    {
+        return _dao.findListStartingDateTimeByEmailAndForm( strEmail, nIdForm, nIdAppointmentExcluded, startingDateTime, endingDateTime, _plugin );
+    }
 }
@@ -35,9 +35,14 @@ package fr.paris.lutece.plugins.appointment.business.appointment;
 
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import fr.paris.lutece.plugins.appointment.business.UtilDAO;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.Field;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
 
@@ -54,6 +59,13 @@ public final class AppointmentResponseDAO extends UtilDAO implements IAppointmen
     private static final String SQL_QUERY_INSERT_APPOINTMENT_RESPONSE = "INSERT INTO appointment_appointment_response ( id_appointment, id_response) VALUES (?,?)";
     private static final String SQL_QUERY_REMOVE_FROM_ID_RESPONSE = "DELETE FROM appointment_appointment_response WHERE id_response = ?";
     private static final String SQL_QUERY_SELECT_APPOINTMENT_RESPONSE_LIST = "SELECT id_response FROM appointment_appointment_response WHERE id_appointment = ?";
+    private static final String SQL_QUERY_SELECT_RESPONSE_BY_LIST_ID_APPOINTMENT = "SELECT app_resp.id_appointment, resp.id_response, resp.id_entry, resp.id_field, resp.response_value "
+            + "FROM appointment_appointment_response app_resp INNER JOIN genatt_response resp ON app_resp.id_response = resp.id_response "
+            + "WHERE app_resp.id_appointment IN ( ";
+    private static final String SQL_ORDER_BY_ID_RESPONSE = " ) ORDER BY resp.id_response";
+
+    private static final String CONSTANT_QUESTION_MARK = "?";
+    private static final String CONSTANT_COMMA = ", ";
 
     @Override
     public void insertAppointmentResponse( int nIdAppointment, int nIdResponse, Plugin plugin )
@@ -76,6 +88,30 @@ public final class AppointmentResponseDAO extends UtilDAO implements IAppointmen
         }
     }
 
+    @Override
+    public void insertBatch( int nIdAppointment, List<Integer> listIdResponse, Plugin plugin )
+    {
+        if ( listIdResponse.isEmpty( ) )
+        {
+            return;
+        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_APPOINTMENT_RESPONSE, plugin );
+        try
+        {
+            for ( Integer nIdResponse : listIdResponse )
+            {
+                daoUtil.setInt( 1, nIdAppointment );
+                daoUtil.setInt( 2, nIdResponse );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
     @Override
     public void removeAppointmentResponseByIdResponse( int nIdResponse, Plugin plugin )
     {
@@ -95,6 +131,29 @@ public final class AppointmentResponseDAO extends UtilDAO implements IAppointmen
         }
     }
 
+    @Override
+    public void deleteBatch( List<Integer> listIdResponse, Plugin plugin )
+    {
+        if ( listIdResponse.isEmpty( ) )
+        {
+            return;
+        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_REMOVE_FROM_ID_RESPONSE, plugin );
+        try
+        {
+            for ( Integer nIdResponse : listIdResponse )
+            {
+                daoUtil.setInt( 1, nIdResponse );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
     @Override
     public List<Integer> findListIdResponse( int nIdAppointment, Plugin plugin )
     {
@@ -120,4 +179,62 @@ public final class AppointmentResponseDAO extends UtilDAO implements IAppointmen
         return listIdResponse;
     }
 
+    @Override
+    public Map<Integer, List<Response>> findListResponseByListIdAppointment( List<Integer> listIdAppointment, Plugin plugin )
+    {
+        Map<Integer, List<Response>> mapResponse = new HashMap<>( );
+        if ( listIdAppointment.isEmpty( ) )
+        {
+            return mapResponse;
+        }
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_RESPONSE_BY_LIST_ID_APPOINTMENT );
+        for ( int i = 0; i < listIdAppointment.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                sbSql.append( CONSTANT_COMMA );
+            }
+            sbSql.append( CONSTANT_QUESTION_MARK );
+        }
+        sbSql.append( SQL_ORDER_BY_ID_RESPONSE );
+        DAOUtil daoUtil = null;
+        try
+        {
+            daoUtil = new DAOUtil( sbSql.toString( ), plugin );
+            int nIndex = 1;
+            for ( Integer nIdAppointment : listIdAppointment )
+            {
+                daoUtil.setInt( nIndex++, nIdAppointment );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                nIndex = 1;
+                int nIdAppointment = daoUtil.getInt( nIndex++ );
+                Response response = new Response( );
+                response.setIdResponse( daoUtil.getInt( nIndex++ ) );
+                Entry entry = new Entry( );
+                entry.setIdEntry( daoUtil.getInt( nIndex++ ) );
+                response.setEntry( entry );
+                int nIdField = daoUtil.getInt( nIndex++ );
+                if ( nIdField != 0 )
+                {
+                    Field field = new Field( );
+                    field.setIdField( nIdField );
+                    response.setField( field );
+                }
+                response.setResponseValue( daoUtil.getString( nIndex ) );
+                mapResponse.computeIfAbsent( nIdAppointment, k -> new ArrayList<>( ) ).add( response );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return mapResponse;
+    }
+
 }
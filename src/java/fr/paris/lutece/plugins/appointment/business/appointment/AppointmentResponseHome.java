@@ -35,6 +35,7 @@ package fr.paris.lutece.plugins.appointment.business.appointment;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
 import fr.paris.lutece.plugins.genericattributes.business.FieldHome;
@@ -77,6 +78,19 @@ public final class AppointmentResponseHome
         _dao.insertAppointmentResponse( nIdAppointment, nIdResponse, _plugin );
     }
 
+    /**
+     * Associate a list of responses to an appointment, with a single batch
+     * 
+     * @param nIdAppointment
+     *            the appointment
+     * @param listIdResponse
+     *            the responses
+     */
+    public static void insertAppointmentResponses( int nIdAppointment, List<Integer> listIdResponse )
+    {
+        _dao.insertBatch( nIdAppointment, listIdResponse, _plugin );
+    }
+
     /**
      * Remove every appointment responses associated with a given entry.
      * 
@@ -89,6 +103,21 @@ public final class AppointmentResponseHome
         ResponseHome.remove( nIdResponse );
     }
 
+    /**
+     * Remove a list of responses and their association with an appointment. The associations are removed with a single batch
+     * 
+     * @param listIdResponse
+     *            the ids of the responses
+     */
+    public static void removeResponsesByListId( List<Integer> listIdResponse )
+    {
+        _dao.deleteBatch( listIdResponse, _plugin );
+        for ( Integer nIdResponse : listIdResponse )
+        {
+            ResponseHome.remove( nIdResponse );
+        }
+    }
+
     /**
      * Get the list of responses associated with an appointment
      * 
@@ -124,4 +153,16 @@ public final class AppointmentResponseHome
         return _dao.findListIdResponse( nIdAppointment, _plugin );
     }
 
+    /**
+     * Get the responses of a list of appointments, with the id of their entry and of their field. The entries and the fields are not loaded
+     * 
+     * @param listIdAppointment
+     *            the ids of the appointments
+     * @return the map of the responses by id of appointment
+     */
+    public static Map<Integer, List<Response>> findListResponseByListIdAppointment( List<Integer> listIdAppointment )
+    {
+        return _dao.findListResponseByListIdAppointment( listIdAppointment, _plugin );
+    }
+
 }
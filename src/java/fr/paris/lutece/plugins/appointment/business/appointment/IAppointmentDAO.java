@@ -33,6 +33,7 @@
  */
 package fr.paris.lutece.plugins.appointment.business.appointment;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
@@ -147,4 +148,72 @@ public interface IAppointmentDAO
      * @return a list of appointments
      */
     List<Appointment> findByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin );
+
+    /**
+     * Returns a page of the appointments matching the filter, sorted as specified by the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @param nOffset
+     *            the number of appointments to skip
+     * @param nLimit
+     *            the maximum number of appointments to return
+     * @param plugin
+     *            the plugin
+     * @return a list of appointments
+     */
+    List<Appointment> findByFilter( AppointmentFilterDTO appointmentFilter, int nOffset, int nLimit, Plugin plugin );
+
+    /**
+     * Returns the number of appointments matching the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @param plugin
+     *            the plugin
+     * @return the number of appointments
+     */
+    int countByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin );
+
+    /**
+     * Returns the ids of the appointments matching the filter, sorted as specified by the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @param plugin
+     *            the plugin
+     * @return the list of the ids of the appointments
+     */
+    List<Integer> findListIdByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin );
+
+    /**
+     * Returns the appointments of a list of ids, with their complete user and their complete slot
+     * 
+     * @param listIdAppointment
+     *            the ids of the appointments
+     * @param plugin
+     *            the plugin
+     * @return the list of the appointments, in no particular order
+     */
+    List<Appointment> findByListId( List<Integer> listIdAppointment, Plugin plugin );
+
+    /**
+     * Returns the starting dates of the slots of the appointments not cancelled of an email on a form, in a period
+     * 
+     * @param strEmail
+     *            the email of the user
+     * @param nIdForm
+     *            the id of the form
+     * @param nIdAppointmentExcluded
+     *            the id of an appointment to ignore (the one being modified), or 0
+     * @param startingDateTime
+     *            the starting date time of the period (included)
+     * @param endingDateTime
+     *            the ending date time of the period (excluded)
+     * @param plugin
+     *            the plugin
+     * @return the list of the starting dates, sorted in ascending order
+     */
+    List<LocalDateTime> findListStartingDateTimeByEmailAndForm( String strEmail, int nIdForm, int nIdAppointmentExcluded, LocalDateTime startingDateTime,
+            LocalDateTime endingDateTime, Plugin plugin );
 }
@@ -34,7 +34,9 @@
 package fr.paris.lutece.plugins.appointment.business.appointment;
 
 import java.util.List;
+import java.util.Map;
 
+import fr.paris.lutece.plugins.genericattributes.business.Response;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 
 /**
@@ -63,6 +65,18 @@ public interface IAppointmentResponseDAO
      */
     void insertAppointmentResponse( int nIdAppointment, int nIdResponse, Plugin plugin );
 
+    /**
+     * Associates a list of responses to an appointment, with a single batch
+     * 
+     * @param nIdAppointment
+     *            The id of the appointment
+     * @param listIdResponse
+     *            The ids of the responses
+     * @param plugin
+     *            The plugin
+     */
+    void insertBatch( int nIdAppointment, List<Integer> listIdResponse, Plugin plugin );
+
     /**
      * Remove an appointment responses from the id of a response.
      * 
@@ -73,6 +87,16 @@ public interface IAppointmentResponseDAO
      */
     void removeAppointmentResponseByIdResponse( int nIdResponse, Plugin plugin );
 
+    /**
+     * Remove the appointment responses of a list of responses, with a single batch
+     * 
+     * @param listIdResponse
+     *            The ids of the responses
+     * @param plugin
+     *            The plugin
+     */
+    void deleteBatch( List<Integer> listIdResponse, Plugin plugin );
+
     /**
      * Get the list of id of responses associated with an appointment
      * 
@@ -84,4 +108,15 @@ public interface IAppointmentResponseDAO
      */
     List<Integer> findListIdResponse( int nIdAppointment, Plugin plugin );
 
+    /**
+     * Get the responses of a list of appointments, with the id of their entry and of their field. The entries and the fields are not loaded
+     * 
+     * @param listIdAppointment
+     *            the ids of the appointments
+     * @param plugin
+     *            the plugin
+     * @return the map of the responses by id of appointment. The appointments without response are not in the map
+     */
+    Map<Integer, List<Response>> findListResponseByListIdAppointment( List<Integer> listIdAppointment, Plugin plugin );
+
 }
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.event;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Business class of an event to deliver to the listeners of the plugin. The events are written in the same transaction as the change they notify, and
+ * delivered later by the dispatcher, in the order of their creation for a same resource
+ */
+public final class Event implements Serializable
+{
+
+    /**
+     * Resource type of the events on the slots
+     */
+    public static final String RESOURCE_SLOT = "SLOT";
+
+    /**
+     * Resource type of the events on the appointments
+     */
+    public static final String RESOURCE_APPOINTMENT = "APPOINTMENT";
+
+    /**
+     * Resource type of the events on the forms
+     */
+    public static final String RESOURCE_FORM = "FORM";
+
+    /**
+     * Resource type of the events on the week definitions
+     */
+    public static final String RESOURCE_WEEK_DEFINITION = "WEEK_DEFINITION";
+
+    /**
+     * Resource type of the events on several slots of a form (the resource is the form, the ids of the slots are the data of the event)
+     */
+    public static final String RESOURCE_SLOTS_OF_FORM = "SLOTS_OF_FORM";
+
+    /**
+     * Creation of the resource
+     */
+    public static final String TYPE_CREATION = "CREATION";
+
+    /**
+     * Change of the resource
+     */
+    public static final String TYPE_CHANGE = "CHANGE";
+
+    /**
+     * Removal of the resource
+     */
+    public static final String TYPE_REMOVAL = "REMOVAL";
+
+    /**
+     * Removal of the appointments of a form
+     */
+    public static final String TYPE_APPOINTMENT_FORM_REMOVAL = "APPOINTMENT_FORM_REMOVAL";
+
+    /**
+     * Removal of the week definitions of a form
+     */
+    public static final String TYPE_WEEK_DEFINITION_REMOVAL = "WEEK_DEFINITION_REMOVAL";
+
+    /**
+     * Action of the workflow triggered on an appointment
+     */
+    public static final String TYPE_WORKFLOW_ACTION = "WORKFLOW_ACTION";
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 3018423315271893605L;
+
+    /**
+     * Event Id
+     */
+    private int _nIdEvent;
+
+    /**
+     * Type of the resource
+     */
+    private String _strResourceType;
+
+    /**
+     * Id of the resource
+     */
+    private int _nIdResource;
+
+    /**
+     * Type of the event
+     */
+    private String _strEventType;
+
+    /**
+     * Id of the workflow action (for the workflow action events)
+     */
+    private int _nIdAction;
+
+    /**
+     * Data of the event
+     */
+    private String _strData;
+
+    /**
+     * Date of creation of the event
+     */
+    private LocalDateTime _dateCreation;
+
+    /**
+     * Get the id of the event
+     * 
+     * @return the id of the event
+     */
+    public int getIdEvent( )
+    {
+        return _nIdEvent;
+    }
+
+    /**
+     * Set the id of the event
+     * 
+     * @param nIdEvent
+     *            the id to set
+     */
+    public void setIdEvent( int nIdEvent )
+    {
+        this._nIdEvent = nIdEvent;
+    }
+
+    /**
+     * Get the type of the resource
+     * 
+     * @return the type of the resource
+     */
+    public String getResourceType( )
+    {
+        return _strResourceType;
+    }
+
+    /**
+     * Set the type of the resource
+     * 
+     * @param strResourceType
+     *            the type of the resource to set
+     */
+    public void setResourceType( String strResourceType )
+    {
+        this._strResourceType = strResourceType;
+    }
+
+    /**
+     * Get the id of the resource
+     * 
+     * @return the id of the resource
+     */
+    public int getIdResource( )
+    {
+        return _nIdResource;
+    }
+
+    /**
+     * Set the id of the resource
+     * 
+     * @param nIdResource
+     *            the id of the resource to set
+     */
+    public void setIdResource( int nIdResource )
+    {
+        this._nIdResource = nIdResource;
+    }
+
+    /**
+     * Get the type of the event
+     * 
+     * @return the type of the event
+     */
+    public String getEventType( )
+    {
+        return _strEventType;
+    }
+
+    /**
+     * Set the type of the event
+     * 
+     * @param strEventType
+     *            the type of the event to set
+     */
+    public void setEventType( String strEventType )
+    {
+        this._strEventType = strEventType;
+    }
+
+    /**
+     * Get the id of the workflow action
+     * 
+     * @return the id of the workflow action
+     */
+    public int getIdAction( )
+    {
+        return _nIdAction;
+    }
+
+    /**
+     * Set the id of the workflow action
+     * 
+     * @param nIdAction
+     *            the id of the workflow action to set
+     */
+    public void setIdAction( int nIdAction )
+    {
+        this._nIdAction = nIdAction;
+    }
+
+    /**
+     * Get the data of the event
+     * 
+     * @return the data of the event
+     */
+    public String getData( )
+    {
+        return _strData;
+    }
+
+    /**
+     * Set the data of the event
+     * 
+     * @param strData
+     *            the data to set
+     */
+    public void setData( String strData )
+    {
+        this._strData = strData;
+    }
+
+    /**
+     * Get the date of creation of the event
+     * 
+     * @return the date of creation
+     */
+    public LocalDateTime getDateCreation( )
+    {
+        return _dateCreation;
+    }
+
+    /**
+     * Set the date of creation of the event
+     * 
+     * @param dateCreation
+     *            the date of creation to set
+     */
+    public void setDateCreation( LocalDateTime dateCreation )
+    {
+        this._dateCreation = dateCreation;
+    }
+}
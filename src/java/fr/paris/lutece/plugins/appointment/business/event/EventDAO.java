@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.event;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.UtilDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for Event objects
+ *
+ */
+public final class EventDAO extends UtilDAO implements IEventDAO
+{
+
+    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_event (resource_type, id_resource, event_type, id_action, data, date_creation) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_QUERY_CLAIM = "UPDATE appointment_event SET claim_token = ?, date_claim = ? WHERE claim_token IS NULL ORDER BY id_event LIMIT ?";
+    private static final String SQL_QUERY_SELECT_BY_CLAIM_TOKEN = "SELECT id_event, resource_type, id_resource, event_type, id_action, data, date_creation FROM appointment_event WHERE claim_token = ? ORDER BY id_event";
+    private static final String SQL_QUERY_DELETE_BY_CLAIM_TOKEN = "DELETE FROM appointment_event WHERE claim_token = ?";
+    private static final String SQL_QUERY_RELEASE_CLAIMS_BEFORE = "UPDATE appointment_event SET claim_token = NULL, date_claim = NULL WHERE claim_token IS NOT NULL AND date_claim < ?";
+    private static final String SQL_QUERY_COUNT_PENDING = "SELECT COUNT(*) FROM appointment_event WHERE claim_token IS NULL";
+    private static final String SQL_QUERY_ACQUIRE_LEASE = "UPDATE appointment_event_lease SET node_id = ?, date_expiry = ? WHERE id_lease = 1 AND ( node_id = ? OR node_id IS NULL OR date_expiry < ? )";
+    private static final String SQL_QUERY_RELEASE_LEASE = "UPDATE appointment_event_lease SET node_id = NULL, date_expiry = NULL WHERE id_lease = 1 AND node_id = ?";
+
+    @Override
+    public void insert( Event event, Plugin plugin )
+    {
+        int nIndex = 1;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin );
+        try
+        {
+            daoUtil.setString( nIndex++, event.getResourceType( ) );
+            daoUtil.setInt( nIndex++, event.getIdResource( ) );
+            daoUtil.setString( nIndex++, event.getEventType( ) );
+            daoUtil.setInt( nIndex++, event.getIdAction( ) );
+            daoUtil.setString( nIndex++, event.getData( ) );
+            daoUtil.setTimestamp( nIndex, Timestamp.valueOf( event.getDateCreation( ) ) );
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                event.setIdEvent( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
+    @Override
+    public int claim( String strClaimToken, LocalDateTime dateNow, int nLimit, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_CLAIM, plugin );
+        daoUtil.setString( 1, strClaimToken );
+        daoUtil.setTimestamp( 2, Timestamp.valueOf( dateNow ) );
+        daoUtil.setInt( 3, nLimit );
+        return executeUpdate( daoUtil );
+    }
+
+    @Override
+    public List<Event> findByClaimToken( String strClaimToken, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        List<Event> listEvents = new ArrayList<>( );
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_CLAIM_TOKEN, plugin );
+            daoUtil.setString( 1, strClaimToken );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listEvents.add( buildEvent( daoUtil ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listEvents;
+    }
+
+    @Override
+    public void deleteByClaimToken( String strClaimToken, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_CLAIM_TOKEN, plugin );
+        daoUtil.setString( 1, strClaimToken );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void releaseClaimsBefore( LocalDateTime dateLimit, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE_CLAIMS_BEFORE, plugin );
+        daoUtil.setTimestamp( 1, Timestamp.valueOf( dateLimit ) );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public boolean acquireLease( String strNodeId, LocalDateTime dateNow, LocalDateTime dateExpiry, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_ACQUIRE_LEASE, plugin );
+        daoUtil.setString( 1, strNodeId );
+        daoUtil.setTimestamp( 2, Timestamp.valueOf( dateExpiry ) );
+        daoUtil.setString( 3, strNodeId );
+        daoUtil.setTimestamp( 4, Timestamp.valueOf( dateNow ) );
+        return executeUpdate( daoUtil ) == 1;
+    }
+
+    @Override
+    public void releaseLease( String strNodeId, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE_LEASE, plugin );
+        daoUtil.setString( 1, strNodeId );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public int countPending( Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        int nCount = 0;
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_COUNT_PENDING, plugin );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                nCount = daoUtil.getInt( 1 );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return nCount;
+    }
+
+    /**
+     * Build an Event business object from the resultset
+     * 
+     * @param daoUtil
+     *            the prepare statement util object
+     * @return a new Event with all its attributes assigned
+     */
+    private Event buildEvent( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        Event event = new Event( );
+        event.setIdEvent( daoUtil.getInt( nIndex++ ) );
+        event.setResourceType( daoUtil.getString( nIndex++ ) );
+        event.setIdResource( daoUtil.getInt( nIndex++ ) );
+        event.setEventType( daoUtil.getString( nIndex++ ) );
+        event.setIdAction( daoUtil.getInt( nIndex++ ) );
+        event.setData( daoUtil.getString( nIndex++ ) );
+        Timestamp dateCreation = daoUtil.getTimestamp( nIndex );
+        if ( dateCreation != null )
+        {
+            event.setDateCreation( dateCreation.toLocalDateTime( ) );
+        }
+        return event;
+    }
+
+    /**
+     * Execute a safe update (Free the connection in case of error when execute the query)
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @return the number of rows updated
+     */
+    private int executeUpdate( DAOUtil daoUtil )
+    {
+        try
+        {
+            return daoUtil.executeUpdate( );
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+    }
+
+}
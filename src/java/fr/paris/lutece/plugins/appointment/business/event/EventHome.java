@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for Event objects
+ *
+ */
+public final class EventHome
+{
+
+    // Static variable pointed at the DAO instance
+    private static IEventDAO _dao = SpringContextService.getBean( IEventDAO.BEAN_NAME );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private EventHome( )
+    {
+    }
+
+    /**
+     * Create an instance of the Event class
+     * 
+     * @param event
+     *            The instance of the Event which contains the informations to store
+     * @return The instance of Event which has been created with its primary key.
+     */
+    public static Event create( Event event )
+    {
+        _dao.insert( event, _plugin );
+
+        return event;
+    }
+
+    /**
+     * Claim the oldest events not claimed yet
+     * 
+     * @param strClaimToken
+     *            the token identifying the claim
+     * @param dateNow
+     *            the current date
+     * @param nLimit
+     *            the maximum number of events to claim
+     * @return the number of events claimed
+     */
+    public static int claim( String strClaimToken, LocalDateTime dateNow, int nLimit )
+    {
+        return _dao.claim( strClaimToken, dateNow, nLimit, _plugin );
+    }
+
+    /**
+     * Find the events of a claim, in the order of their creation
+     * 
+     * @param strClaimToken
+     *            the token identifying the claim
+     * @return the list of the events
+     */
+    public static List<Event> findByClaimToken( String strClaimToken )
+    {
+        return _dao.findByClaimToken( strClaimToken, _plugin );
+    }
+
+    /**
+     * Delete the events of a claim
+     * 
+     * @param strClaimToken
+     *            the token identifying the claim
+     */
+    public static void deleteByClaimToken( String strClaimToken )
+    {
+        _dao.deleteByClaimToken( strClaimToken, _plugin );
+    }
+
+    /**
+     * Release the claims whose delivery has been interrupted
+     * 
+     * @param dateLimit
+     *            the claims made before this date are released
+     */
+    public static void releaseClaimsBefore( LocalDateTime dateLimit )
+    {
+        _dao.releaseClaimsBefore( dateLimit, _plugin );
+    }
+
+    /**
+     * Take or renew the lease of the dispatch of the events. A single node of a cluster holds the lease at a time
+     * 
+     * @param strNodeId
+     *            the id of the node
+     * @param dateNow
+     *            the current date
+     * @param dateExpiry
+     *            the date until which the lease is held if it is taken
+     * @return true if the node holds the lease
+     */
+    public static boolean acquireLease( String strNodeId, LocalDateTime dateNow, LocalDateTime dateExpiry )
+    {
+        return _dao.acquireLease( strNodeId, dateNow, dateExpiry, _plugin );
+    }
+
+    /**
+     * Free the lease of the dispatch of the events, so that another node can take it at once
+     * 
+     * @param strNodeId
+     *            the id of the node
+     */
+    public static void releaseLease( String strNodeId )
+    {
+        _dao.releaseLease( strNodeId, _plugin );
+    }
+
+    /**
+     * Count the events not claimed yet
+     * 
+     * @return the number of events
+     */
+    public static int countPending( )
+    {
+        return _dao.countPending( _plugin );
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Event DAO Interface
+ *
+ */
+public interface IEventDAO
+{
+
+    /**
+     * The name of the bean of the DAO
+     */
+    static String BEAN_NAME = "appointment.eventDAO";
+
+    /**
+     * Insert a new record in the table.
+     * 
+     * @param event
+     *            instance of the Event object to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insert( Event event, Plugin plugin );
+
+    /**
+     * Claim the oldest events not claimed yet
+     * 
+     * @param strClaimToken
+     *            the token identifying the claim
+     * @param dateNow
+     *            the current date
+     * @param nLimit
+     *            the maximum number of events to claim
+     * @param plugin
+     *            the Plugin
+     * @return the number of events claimed
+     */
+    int claim( String strClaimToken, LocalDateTime dateNow, int nLimit, Plugin plugin );
+
+    /**
+     * Find the events of a claim, in the order of their creation
+     * 
+     * @param strClaimToken
+     *            the token identifying the claim
+     * @param plugin
+     *            the Plugin
+     * @return the list of the events
+     */
+    List<Event> findByClaimToken( String strClaimToken, Plugin plugin );
+
+    /**
+     * Delete the events of a claim
+     * 
+     * @param strClaimToken
+     *            the token identifying the claim
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteByClaimToken( String strClaimToken, Plugin plugin );
+
+    /**
+     * Release the claims made before the given date (their delivery has been interrupted)
+     * 
+     * @param dateLimit
+     *            the date limit
+     * @param plugin
+     *            the Plugin
+     */
+    void releaseClaimsBefore( LocalDateTime dateLimit, Plugin plugin );
+
+    /**
+     * Take or renew the lease of the dispatch of the events, if it is free, expired or already held by the node
+     * 
+     * @param strNodeId
+     *            the id of the node
+     * @param dateNow
+     *            the current date
+     * @param dateExpiry
+     *            the expiry date of the lease
+     * @param plugin
+     *            the Plugin
+     * @return true if the node holds the lease
+     */
+    boolean acquireLease( String strNodeId, LocalDateTime dateNow, LocalDateTime dateExpiry, Plugin plugin );
+
+    /**
+     * Free the lease of the dispatch of the events, if it is held by the node
+     * 
+     * @param strNodeId
+     *            the id of the node
+     * @param plugin
+     *            the Plugin
+     */
+    void releaseLease( String strNodeId, Plugin plugin );
+
+    /**
+     * Count the events not claimed yet
+     * 
+     * @param plugin
+     *            the Plugin
+     * @return the number of events
+     */
+    int countPending( Plugin plugin );
+}
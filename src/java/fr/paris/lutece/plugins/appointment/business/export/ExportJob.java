@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.export;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Business class of an export run in the background. The file produced is kept on the server until it is downloaded or expires
+ */
+public final class ExportJob implements Serializable
+{
+
+    /**
+     * Type of the export of the appointments of a form
+     */
+    public static final String TYPE_APPOINTMENTS = "appointments";
+
+    /**
+     * Type of the export of the definition of a form
+     */
+    public static final String TYPE_FORM = "form";
+
+    /**
+     * Status of an export waiting to be processed
+     */
+    public static final int STATUS_PENDING = 0;
+
+    /**
+     * Status of an export being processed
+     */
+    public static final int STATUS_IN_PROGRESS = 1;
+
+    /**
+     * Status of an export whose file is ready
+     */
+    public static final int STATUS_DONE = 2;
+
+    /**
+     * Status of an export that failed
+     */
+    public static final int STATUS_FAILED = 3;
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 4419632754180315647L;
+
+    /**
+     * Id of the export job
+     */
+    private int _nIdExportJob;
+
+    /**
+     * Type of the export (appointments of a form, or form)
+     */
+    private String _strType;
+
+    /**
+     * Id of the form exported
+     */
+    private int _nIdForm;
+
+    /**
+     * Format of the file
+     */
+    private String _strFormat;
+
+    /**
+     * Filter of the appointments to export, in JSON
+     */
+    private String _strFilter;
+
+    /**
+     * Id of the admin user who requested the export
+     */
+    private int _nIdAdminUser;
+
+    /**
+     * Locale of the admin user who requested the export
+     */
+    private String _strLocale;
+
+    /**
+     * Status of the export
+     */
+    private int _nStatus;
+
+    /**
+     * Progress of the export, in percent
+     */
+    private int _nProgress;
+
+    /**
+     * Number of items exported
+     */
+    private int _nNbItems;
+
+    /**
+     * Name of the file downloaded
+     */
+    private String _strFileName;
+
+    /**
+     * Date of creation of the export
+     */
+    private LocalDateTime _dateCreation;
+
+    /**
+     * Date of the last change of status or of progress of the export
+     */
+    private LocalDateTime _dateStatus;
+
+    /**
+     * Error of the export if it failed
+     */
+    private String _strError;
+
+    /**
+     * Get the id of the export job
+     * 
+     * @return the id of the export job
+     */
+    public int getIdExportJob( )
+    {
+        return _nIdExportJob;
+    }
+
+    /**
+     * Set the id of the export job
+     * 
+     * @param nIdExportJob
+     *            the id of the export job
+     */
+    public void setIdExportJob( int nIdExportJob )
+    {
+        this._nIdExportJob = nIdExportJob;
+    }
+
+    /**
+     * Get the type of the export
+     * 
+     * @return the type of the export
+     */
+    public String getType( )
+    {
+        return _strType;
+    }
+
+    /**
+     * Set the type of the export
+     * 
+     * @param strType
+     *            the type of the export
+     */
+    public void setType( String strType )
+    {
+        this._strType = strType;
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Set the id of the form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public void setIdForm( int nIdForm )
+    {
+        this._nIdForm = nIdForm;
+    }
+
+    /**
+     * Get the format of the file
+     * 
+     * @return the format of the file
+     */
+    public String getFormat( )
+    {
+        return _strFormat;
+    }
+
+    /**
+     * Set the format of the file
+     * 
+     * @param strFormat
+     *            the format of the file
+     */
+    public void setFormat( String strFormat )
+    {
+        this._strFormat = strFormat;
+    }
+
+    /**
+     * Get the filter of the appointments, in JSON
+     * 
+     * @return the filter of the appointments, in JSON
+     */
+    public String getFilter( )
+    {
+        return _strFilter;
+    }
+
+    /**
+     * Set the filter of the appointments, in JSON
+     * 
+     * @param strFilter
+     *            the filter of the appointments, in JSON
+     */
+    public void setFilter( String strFilter )
+    {
+        this._strFilter = strFilter;
+    }
+
+    /**
+     * Get the id of the admin user
+     * 
+     * @return the id of the admin user
+     */
+    public int getIdAdminUser( )
+    {
+        return _nIdAdminUser;
+    }
+
+    /**
+     * Set the id of the admin user
+     * 
+     * @param nIdAdminUser
+     *            the id of the admin user
+     */
+    public void setIdAdminUser( int nIdAdminUser )
+    {
+        this._nIdAdminUser = nIdAdminUser;
+    }
+
+    /**
+     * Get the locale
+     * 
+     * @return the locale
+     */
+    public String getLocale( )
+    {
+        return _strLocale;
+    }
+
+    /**
+     * Set the locale
+     * 
+     * @param strLocale
+     *            the locale
+     */
+    public void setLocale( String strLocale )
+    {
+        this._strLocale = strLocale;
+    }
+
+    /**
+     * Get the status of the export
+     * 
+     * @return the status of the export
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Set the status of the export
+     * 
+     * @param nStatus
+     *            the status of the export
+     */
+    public void setStatus( int nStatus )
+    {
+        this._nStatus = nStatus;
+    }
+
+    /**
+     * Get the progress of the export, in percent
+     * 
+     * @return the progress of the export, in percent
+     */
+    public int getProgress( )
+    {
+        return _nProgress;
+    }
+
+    /**
+     * Set the progress of the export, in percent
+     * 
+     * @param nProgress
+     *            the progress of the export, in percent
+     */
+    public void setProgress( int nProgress )
+    {
+        this._nProgress = nProgress;
+    }
+
+    /**
+     * Get the number of items exported
+     * 
+     * @return the number of items exported
+     */
+    public int getNbItems( )
+    {
+        return _nNbItems;
+    }
+
+    /**
+     * Set the number of items exported
+     * 
+     * @param nNbItems
+     *            the number of items exported
+     */
+    public void setNbItems( int nNbItems )
+    {
+        this._nNbItems = nNbItems;
+    }
+
+    /**
+     * Get the name of the file
+     * 
+     * @return the name of the file
+     */
+    public String getFileName( )
+    {
+        return _strFileName;
+    }
+
+    /**
+     * Set the name of the file
+     * 
+     * @param strFileName
+     *            the name of the file
+     */
+    public void setFileName( String strFileName )
+    {
+        this._strFileName = strFileName;
+    }
+
+    /**
+     * Get the date of creation
+     * 
+     * @return the date of creation
+     */
+    public LocalDateTime getDateCreation( )
+    {
+        return _dateCreation;
+    }
+
+    /**
+     * Set the date of creation
+     * 
+     * @param dateCreation
+     *            the date of creation
+     */
+    public void setDateCreation( LocalDateTime dateCreation )
+    {
+        this._dateCreation = dateCreation;
+    }
+
+    /**
+     * Get the date of the last change
+     * 
+     * @return the date of the last change
+     */
+    public LocalDateTime getDateStatus( )
+    {
+        return _dateStatus;
+    }
+
+    /**
+     * Set the date of the last change
+     * 
+     * @param dateStatus
+     *            the date of the last change
+     */
+    public void setDateStatus( LocalDateTime dateStatus )
+    {
+        this._dateStatus = dateStatus;
+    }
+
+    /**
+     * Get the error
+     * 
+     * @return the error
+     */
+    public String getError( )
+    {
+        return _strError;
+    }
+
+    /**
+     * Set the error
+     * 
+     * @param strError
+     *            the error
+     */
+    public void setError( String strError )
+    {
+        this._strError = strError;
+    }
+
+    /**
+     * Check if the export is finished, successfully or not
+     * 
+     * @return true if the export is finished
+     */
+    public boolean isFinished( )
+    {
+        return _nStatus == STATUS_DONE || _nStatus == STATUS_FAILED;
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+import fr.paris.lutece.plugins.appointment.business.UtilDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for ExportJob objects
+ *
+ */
+public final class ExportJobDAO extends UtilDAO implements IExportJobDAO
+{
+
+    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_export_job (type, id_form, format, filter_json, id_admin_user, locale, status, progress, nb_items, file_name, date_creation, date_status, error) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_QUERY_UPDATE = "UPDATE appointment_export_job SET type = ?, id_form = ?, format = ?, filter_json = ?, id_admin_user = ?, locale = ?, status = ?, progress = ?, nb_items = ?, file_name = ?, date_creation = ?, date_status = ?, error = ? WHERE id_export_job = ?";
+    // The export is only inserted if its user has less exports waiting or in progress than the limit, with a single statement
+    private static final String SQL_QUERY_INSERT_IF_BELOW_LIMIT = "INSERT INTO appointment_export_job (type, id_form, format, filter_json, id_admin_user, locale, status, progress, nb_items, file_name, date_creation, date_status, error)"
+            + " SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? FROM ( SELECT COUNT(*) AS nb_jobs FROM appointment_export_job WHERE id_admin_user = ? AND status IN ("
+            + ExportJob.STATUS_PENDING + ", " + ExportJob.STATUS_IN_PROGRESS + ") ) jobs WHERE jobs.nb_jobs < ?";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_export_job WHERE id_export_job = ?";
+    private static final String SQL_QUERY_INSERT_FILE = "INSERT INTO appointment_export_file (id_export_job, file_size, file_content) VALUES (?, ?, ?)";
+    private static final String SQL_QUERY_DELETE_FILE = "DELETE FROM appointment_export_file WHERE id_export_job = ?";
+    private static final String SQL_QUERY_SELECT_FILE = "SELECT file_content FROM appointment_export_file WHERE id_export_job = ?";
+    private static final String SQL_QUERY_SELECT_FILE_SIZE = "SELECT file_size FROM appointment_export_file WHERE id_export_job = ?";
+    private static final String SQL_QUERY_LOCK = "UPDATE appointment_export_job SET status = " + ExportJob.STATUS_IN_PROGRESS
+            + ", progress = 0, date_status = ? WHERE id_export_job = ? AND status = " + ExportJob.STATUS_PENDING;
+    private static final String SQL_QUERY_UPDATE_PROGRESS = "UPDATE appointment_export_job SET progress = ?, date_status = ? WHERE id_export_job = ? AND status = "
+            + ExportJob.STATUS_IN_PROGRESS;
+    private static final String SQL_QUERY_UNLOCK_BEFORE = "UPDATE appointment_export_job SET status = " + ExportJob.STATUS_PENDING + " WHERE status = "
+            + ExportJob.STATUS_IN_PROGRESS + " AND date_status < ?";
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_export_job, type, id_form, format, filter_json, id_admin_user, locale, status, progress, nb_items, file_name, date_creation, date_status, error FROM appointment_export_job";
+    private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_export_job = ?";
+    private static final String SQL_QUERY_SELECT_BY_ID_ADMIN_USER = SQL_QUERY_SELECT_COLUMNS + " WHERE id_admin_user = ? ORDER BY id_export_job DESC";
+    private static final String SQL_QUERY_SELECT_FINISHED_BEFORE = SQL_QUERY_SELECT_COLUMNS + " WHERE status IN (" + ExportJob.STATUS_DONE + ", "
+            + ExportJob.STATUS_FAILED + ") AND date_status < ?";
+    private static final String SQL_QUERY_SELECT_ID_TO_PROCESS = "SELECT id_export_job FROM appointment_export_job WHERE status = " + ExportJob.STATUS_PENDING
+            + " ORDER BY id_export_job LIMIT ?";
+
+    @Override
+    public void insert( ExportJob exportJob, Plugin plugin )
+    {
+        DAOUtil daoUtil = buildDaoUtil( SQL_QUERY_INSERT, exportJob, plugin, true );
+        try
+        {
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                exportJob.setIdExportJob( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
+    @Override
+    public boolean insertIfBelowLimit( ExportJob exportJob, int nMaxJobsPerUser, Plugin plugin )
+    {
+        DAOUtil daoUtil = buildDaoUtil( SQL_QUERY_INSERT_IF_BELOW_LIMIT, exportJob, plugin, true );
+        try
+        {
+            int nIndex = 14;
+            daoUtil.setInt( nIndex++, exportJob.getIdAdminUser( ) );
+            daoUtil.setInt( nIndex, nMaxJobsPerUser );
+            if ( daoUtil.executeUpdate( ) == 0 )
+            {
+                return false;
+            }
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                exportJob.setIdExportJob( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+            return true;
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
+    @Override
+    public void update( ExportJob exportJob, Plugin plugin )
+    {
+        DAOUtil daoUtil = buildDaoUtil( SQL_QUERY_UPDATE, exportJob, plugin, false );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void delete( int nIdExportJob, Plugin plugin )
+    {
+        deleteFile( nIdExportJob, plugin );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin );
+        daoUtil.setInt( 1, nIdExportJob );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void insertFile( int nIdExportJob, InputStream inputStream, int nFileSize, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_FILE, plugin );
+        daoUtil.setInt( 1, nIdExportJob );
+        daoUtil.setInt( 2, nFileSize );
+        daoUtil.setBinaryStream( 3, inputStream, nFileSize );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void deleteFile( int nIdExportJob, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_FILE, plugin );
+        daoUtil.setInt( 1, nIdExportJob );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public int selectFileSize( int nIdExportJob, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        int nFileSize = -1;
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_FILE_SIZE, plugin );
+            daoUtil.setInt( 1, nIdExportJob );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                nFileSize = daoUtil.getInt( 1 );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return nFileSize;
+    }
+
+    @Override
+    public boolean copyFile( int nIdExportJob, OutputStream outputStream, Plugin plugin ) throws IOException
+    {
+        DAOUtil daoUtil = null;
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_FILE, plugin );
+            daoUtil.setInt( 1, nIdExportJob );
+            daoUtil.executeQuery( );
+            if ( !daoUtil.next( ) )
+            {
+                return false;
+            }
+            // The content is streamed from the result set, that must stay open until it is copied
+            try ( InputStream inputStream = daoUtil.getBinaryStream( 1 ) )
+            {
+                if ( inputStream != null )
+                {
+                    IOUtils.copy( inputStream, outputStream );
+                }
+            }
+            return true;
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+    }
+
+    @Override
+    public ExportJob select( int nIdExportJob, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        ExportJob exportJob = null;
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin );
+            daoUtil.setInt( 1, nIdExportJob );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                exportJob = buildExportJob( daoUtil );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return exportJob;
+    }
+
+    @Override
+    public boolean lock( int nIdExportJob, LocalDateTime dateNow, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_LOCK, plugin );
+        daoUtil.setTimestamp( 1, Timestamp.valueOf( dateNow ) );
+        daoUtil.setInt( 2, nIdExportJob );
+        return executeUpdate( daoUtil ) > 0;
+    }
+
+    @Override
+    public void updateProgress( int nIdExportJob, int nProgress, LocalDateTime dateNow, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_PROGRESS, plugin );
+        daoUtil.setInt( 1, nProgress );
+        daoUtil.setTimestamp( 2, Timestamp.valueOf( dateNow ) );
+        daoUtil.setInt( 3, nIdExportJob );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void unlockJobsInProgressBefore( LocalDateTime dateLimit, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UNLOCK_BEFORE, plugin );
+        daoUtil.setTimestamp( 1, Timestamp.valueOf( dateLimit ) );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public List<Integer> findIdJobsToProcess( int nLimit, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        List<Integer> listIdJobs = new ArrayList<>( );
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_ID_TO_PROCESS, plugin );
+            daoUtil.setInt( 1, nLimit );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listIdJobs.add( daoUtil.getInt( 1 ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listIdJobs;
+    }
+
+    @Override
+    public List<ExportJob> findByIdAdminUser( int nIdAdminUser, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        List<ExportJob> listExportJobs = new ArrayList<>( );
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_ID_ADMIN_USER, plugin );
+            daoUtil.setInt( 1, nIdAdminUser );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listExportJobs.add( buildExportJob( daoUtil ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listExportJobs;
+    }
+
+    @Override
+    public List<ExportJob> findFinishedBefore( LocalDateTime dateLimit, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        List<ExportJob> listExportJobs = new ArrayList<>( );
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_FINISHED_BEFORE, plugin );
+            daoUtil.setTimestamp( 1, Timestamp.valueOf( dateLimit ) );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listExportJobs.add( buildExportJob( daoUtil ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listExportJobs;
+    }
+
+    /**
+     * Build an ExportJob business object from the resultset
+     * 
+     * @param daoUtil
+     *            the prepare statement util object
+     * @return a new ExportJob with all its attributes assigned
+     */
+    private ExportJob buildExportJob( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        ExportJob exportJob = new ExportJob( );
+        exportJob.setIdExportJob( daoUtil.getInt( nIndex++ ) );
+        exportJob.setType( daoUtil.getString( nIndex++ ) );
+        exportJob.setIdForm( daoUtil.getInt( nIndex++ ) );
+        exportJob.setFormat( daoUtil.getString( nIndex++ ) );
+        exportJob.setFilter( daoUtil.getString( nIndex++ ) );
+        exportJob.setIdAdminUser( daoUtil.getInt( nIndex++ ) );
+        exportJob.setLocale( daoUtil.getString( nIndex++ ) );
+        exportJob.setStatus( daoUtil.getInt( nIndex++ ) );
+        exportJob.setProgress( daoUtil.getInt( nIndex++ ) );
+        exportJob.setNbItems( daoUtil.getInt( nIndex++ ) );
+        exportJob.setFileName( daoUtil.getString( nIndex++ ) );
+        exportJob.setDateCreation( toLocalDateTime( daoUtil.getTimestamp( nIndex++ ) ) );
+        exportJob.setDateStatus( toLocalDateTime( daoUtil.getTimestamp( nIndex++ ) ) );
+        exportJob.setError( daoUtil.getString( nIndex ) );
+        return exportJob;
+    }
+
+    /**
+     * Build a daoUtil object with the ExportJob business object
+     * 
+     * @param query
+     *            the query
+     * @param exportJob
+     *            the ExportJob
+     * @param plugin
+     *            the plugin
+     * @param isInsert
+     *            true if it is an insert query (in this case, need to set the id). If false, it is an update, in this case, there is a where parameter id to
+     *            set
+     * @return a new daoUtil with all its values assigned
+     */
+    private DAOUtil buildDaoUtil( String query, ExportJob exportJob, Plugin plugin, boolean isInsert )
+    {
+        int nIndex = 1;
+        DAOUtil daoUtil = null;
+        if ( isInsert )
+        {
+            daoUtil = new DAOUtil( query, Statement.RETURN_GENERATED_KEYS, plugin );
+        }
+        else
+        {
+            daoUtil = new DAOUtil( query, plugin );
+        }
+        daoUtil.setString( nIndex++, exportJob.getType( ) );
+        daoUtil.setInt( nIndex++, exportJob.getIdForm( ) );
+        daoUtil.setString( nIndex++, exportJob.getFormat( ) );
+        daoUtil.setString( nIndex++, exportJob.getFilter( ) );
+        daoUtil.setInt( nIndex++, exportJob.getIdAdminUser( ) );
+        daoUtil.setString( nIndex++, exportJob.getLocale( ) );
+        daoUtil.setInt( nIndex++, exportJob.getStatus( ) );
+        daoUtil.setInt( nIndex++, exportJob.getProgress( ) );
+        daoUtil.setInt( nIndex++, exportJob.getNbItems( ) );
+        daoUtil.setString( nIndex++, exportJob.getFileName( ) );
+        daoUtil.setTimestamp( nIndex++, toTimestamp( exportJob.getDateCreation( ) ) );
+        daoUtil.setTimestamp( nIndex++, toTimestamp( exportJob.getDateStatus( ) ) );
+        daoUtil.setString( nIndex++, exportJob.getError( ) );
+        if ( !isInsert )
+        {
+            daoUtil.setInt( nIndex, exportJob.getIdExportJob( ) );
+        }
+        return daoUtil;
+    }
+
+    /**
+     * Convert a date to a timestamp
+     * 
+     * @param date
+     *            the date (can be null)
+     * @return the timestamp, or null if the date is null
+     */
+    private static Timestamp toTimestamp( LocalDateTime date )
+    {
+        return ( date != null ) ? Timestamp.valueOf( date ) : null;
+    }
+
+    /**
+     * Convert a timestamp to a date
+     * 
+     * @param timestamp
+     *            the timestamp (can be null)
+     * @return the date, or null if the timestamp is null
+     */
+    private static LocalDateTime toLocalDateTime( Timestamp timestamp )
+    {
+        return ( timestamp != null ) ? timestamp.toLocalDateTime( ) : null;
+    }
+
+    /**
+     * Execute a safe update (Free the connection in case of error when execute the query)
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @return the number of rows updated
+     */
+    private int executeUpdate( DAOUtil daoUtil )
+    {
+        try
+        {
+            return daoUtil.executeUpdate( );
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+    }
+
+}
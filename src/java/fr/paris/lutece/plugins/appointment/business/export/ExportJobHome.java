@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for ExportJob objects
+ *
+ */
+public final class ExportJobHome
+{
+
+    // Static variable pointed at the DAO instance
+    private static IExportJobDAO _dao = SpringContextService.getBean( IExportJobDAO.BEAN_NAME );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private ExportJobHome( )
+    {
+    }
+
+    /**
+     * Create an instance of the ExportJob class
+     * 
+     * @param exportJob
+     *            The instance of the ExportJob which contains the informations to store
+     * @return The instance of ExportJob which has been created with its primary key.
+     */
+    public static ExportJob create( ExportJob exportJob )
+    {
+        _dao.insert( exportJob, _plugin );
+
+        return exportJob;
+    }
+
+    /**
+     * Create an instance of the ExportJob class, only if its admin user has less exports waiting or in progress than a limit
+     * 
+     * @param exportJob
+     *            The instance of the ExportJob which contains the informations to store
+     * @param nMaxJobsPerUser
+     *            the maximum number of exports waiting or in progress of a user
+     * @return true if the export has been created with its primary key, false if the user has reached the limit
+     */
+    public static boolean createIfBelowLimit( ExportJob exportJob, int nMaxJobsPerUser )
+    {
+        return _dao.insertIfBelowLimit( exportJob, nMaxJobsPerUser, _plugin );
+    }
+
+    /**
+     * Update of the ExportJob which is specified in parameter
+     * 
+     * @param exportJob
+     *            The instance of the ExportJob which contains the data to store
+     * @return The instance of the ExportJob which has been updated
+     */
+    public static ExportJob update( ExportJob exportJob )
+    {
+        _dao.update( exportJob, _plugin );
+
+        return exportJob;
+    }
+
+    /**
+     * Delete the ExportJob whose identifier is specified in parameter
+     * 
+     * @param nIdExportJob
+     *            The export job Id
+     */
+    public static void delete( int nIdExportJob )
+    {
+        _dao.delete( nIdExportJob, _plugin );
+    }
+
+    /**
+     * Returns an instance of a ExportJob whose identifier is specified in parameter
+     * 
+     * @param nIdExportJob
+     *            The export job primary key
+     * @return an instance of ExportJob
+     */
+    public static ExportJob findByPrimaryKey( int nIdExportJob )
+    {
+        return _dao.select( nIdExportJob, _plugin );
+    }
+
+    /**
+     * Take an export waiting to be processed
+     * 
+     * @param nIdExportJob
+     *            the id of the export job
+     * @param dateNow
+     *            the current date
+     * @return true if the export has been taken, false if it has already been taken
+     */
+    public static boolean lock( int nIdExportJob, LocalDateTime dateNow )
+    {
+        return _dao.lock( nIdExportJob, dateNow, _plugin );
+    }
+
+    /**
+     * Update the progress of an export in progress
+     * 
+     * @param nIdExportJob
+     *            the id of the export job
+     * @param nProgress
+     *            the progress, in percent
+     * @param dateNow
+     *            the current date
+     */
+    public static void updateProgress( int nIdExportJob, int nProgress, LocalDateTime dateNow )
+    {
+        _dao.updateProgress( nIdExportJob, nProgress, dateNow, _plugin );
+    }
+
+    /**
+     * Put back in the queue the exports in progress whose progress has not changed since a date
+     * 
+     * @param dateLimit
+     *            the date
+     */
+    public static void unlockJobsInProgressBefore( LocalDateTime dateLimit )
+    {
+        _dao.unlockJobsInProgressBefore( dateLimit, _plugin );
+    }
+
+    /**
+     * Find the ids of the exports waiting to be processed
+     * 
+     * @param nLimit
+     *            the maximum number of ids
+     * @return the list of the ids
+     */
+    public static List<Integer> findIdJobsToProcess( int nLimit )
+    {
+        return _dao.findIdJobsToProcess( nLimit, _plugin );
+    }
+
+    /**
+     * Find the exports of an admin user
+     * 
+     * @param nIdAdminUser
+     *            the id of the admin user
+     * @return the list of the exports
+     */
+    public static List<ExportJob> findByIdAdminUser( int nIdAdminUser )
+    {
+        return _dao.findByIdAdminUser( nIdAdminUser, _plugin );
+    }
+
+    /**
+     * Find the exports finished before a date
+     * 
+     * @param dateLimit
+     *            the date
+     * @return the list of the exports
+     */
+    public static List<ExportJob> findFinishedBefore( LocalDateTime dateLimit )
+    {
+        return _dao.findFinishedBefore( dateLimit, _plugin );
+    }
+
+    /**
+     * Store the file of an export, replacing the file already stored if any
+     * 
+     * @param nIdExportJob
+     *            the id of the export
+     * @param inputStream
+     *            the content of the file
+     * @param nFileSize
+     *            the size of the file
+     */
+    public static void storeFile( int nIdExportJob, InputStream inputStream, int nFileSize )
+    {
+        _dao.deleteFile( nIdExportJob, _plugin );
+        _dao.insertFile( nIdExportJob, inputStream, nFileSize, _plugin );
+    }
+
+    /**
+     * Get the size of the file of an export
+     * 
+     * @param nIdExportJob
+     *            the id of the export
+     * @return the size of the file, -1 if the export has no file
+     */
+    public static int getFileSize( int nIdExportJob )
+    {
+        return _dao.selectFileSize( nIdExportJob, _plugin );
+    }
+
+    /**
+     * Copy the file of an export to a stream
+     * 
+     * @param nIdExportJob
+     *            the id of the export
+     * @param outputStream
+     *            the stream
+     * @return true if the file has been copied, false if the export has no file
+     * @throws IOException
+     *             if the file can not be copied
+     */
+    public static boolean copyFile( int nIdExportJob, OutputStream outputStream ) throws IOException
+    {
+        return _dao.copyFile( nIdExportJob, outputStream, _plugin );
+    }
+}
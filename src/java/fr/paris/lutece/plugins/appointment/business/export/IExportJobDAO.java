@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Export Job DAO Interface
+ *
+ */
+public interface IExportJobDAO
+{
+
+    /**
+     * The name of the bean of the DAO
+     */
+    static String BEAN_NAME = "appointment.exportJobDAO";
+
+    /**
+     * Insert a new record in the table.
+     * 
+     * @param exportJob
+     *            instance of the ExportJob object to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insert( ExportJob exportJob, Plugin plugin );
+
+    /**
+     * Insert a new record in the table, only if the admin user of the export has less exports waiting or in progress than a limit. The count and the
+     * insertion are done with a single statement
+     * 
+     * @param exportJob
+     *            instance of the ExportJob object to insert
+     * @param nMaxJobsPerUser
+     *            the maximum number of exports waiting or in progress of a user
+     * @param plugin
+     *            the Plugin
+     * @return true if the export has been inserted, false if the user has reached the limit
+     */
+    boolean insertIfBelowLimit( ExportJob exportJob, int nMaxJobsPerUser, Plugin plugin );
+
+    /**
+     * Update the record in the table
+     * 
+     * @param exportJob
+     *            the reference of the ExportJob
+     * @param plugin
+     *            the Plugin
+     */
+    void update( ExportJob exportJob, Plugin plugin );
+
+    /**
+     * Delete a record from the table
+     * 
+     * @param nIdExportJob
+     *            the id of the export job
+     * @param plugin
+     *            the Plugin
+     */
+    void delete( int nIdExportJob, Plugin plugin );
+
+    /**
+     * Load the data from the table
+     * 
+     * @param nIdExportJob
+     *            the id of the export job
+     * @param plugin
+     *            the Plugin
+     * @return the export job, or null if it does not exist
+     */
+    ExportJob select( int nIdExportJob, Plugin plugin );
+
+    /**
+     * Take an export waiting to be processed. The export is marked in progress only if it is still waiting, so that it is processed only once
+     * 
+     * @param nIdExportJob
+     *            the id of the export job
+     * @param dateNow
+     *            the current date
+     * @param plugin
+     *            the Plugin
+     * @return true if the export has been taken, false if it has already been taken by another thread
+     */
+    boolean lock( int nIdExportJob, LocalDateTime dateNow, Plugin plugin );
+
+    /**
+     * Update the progress of an export in progress
+     * 
+     * @param nIdExportJob
+     *            the id of the export job
+     * @param nProgress
+     *            the progress, in percent
+     * @param dateNow
+     *            the current date
+     * @param plugin
+     *            the Plugin
+     */
+    void updateProgress( int nIdExportJob, int nProgress, LocalDateTime dateNow, Plugin plugin );
+
+    /**
+     * Put back in the queue the exports in progress whose progress has not changed since a date (the processing has been interrupted)
+     * 
+     * @param dateLimit
+     *            the date
+     * @param plugin
+     *            the Plugin
+     */
+    void unlockJobsInProgressBefore( LocalDateTime dateLimit, Plugin plugin );
+
+    /**
+     * Find the ids of the exports waiting to be processed, the oldest first
+     * 
+     * @param nLimit
+     *            the maximum number of ids
+     * @param plugin
+     *            the Plugin
+     * @return the list of the ids
+     */
+    List<Integer> findIdJobsToProcess( int nLimit, Plugin plugin );
+
+    /**
+     * Find the exports of an admin user, the newest first
+     * 
+     * @param nIdAdminUser
+     *            the id of the admin user
+     * @param plugin
+     *            the Plugin
+     * @return the list of the exports
+     */
+    List<ExportJob> findByIdAdminUser( int nIdAdminUser, Plugin plugin );
+
+    /**
+     * Find the exports finished before a date
+     * 
+     * @param dateLimit
+     *            the date
+     * @param plugin
+     *            the Plugin
+     * @return the list of the exports
+     */
+    List<ExportJob> findFinishedBefore( LocalDateTime dateLimit, Plugin plugin );
+
+    /**
+     * Insert the file of an export. The file is stored in database, so that it can be downloaded from any node of a cluster
+     * 
+     * @param nIdExportJob
+     *            the id of the export
+     * @param inputStream
+     *            the content of the file
+     * @param nFileSize
+     *            the size of the file
+     * @param plugin
+     *            the Plugin
+     */
+    void insertFile( int nIdExportJob, InputStream inputStream, int nFileSize, Plugin plugin );
+
+    /**
+     * Delete the file of an export
+     * 
+     * @param nIdExportJob
+     *            the id of the export
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteFile( int nIdExportJob, Plugin plugin );
+
+    /**
+     * Get the size of the file of an export
+     * 
+     * @param nIdExportJob
+     *            the id of the export
+     * @param plugin
+     *            the Plugin
+     * @return the size of the file, -1 if the export has no file
+     */
+    int selectFileSize( int nIdExportJob, Plugin plugin );
+
+    /**
+     * Copy the file of an export to a stream
+     * 
+     * @param nIdExportJob
+     *            the id of the export
+     * @param outputStream
+     *            the stream
+     * @param plugin
+     *            the Plugin
+     * @return true if the file has been copied, false if the export has no file
+     * @throws IOException
+     *             if the file can not be copied
+     */
+    boolean copyFile( int nIdExportJob, OutputStream outputStream, Plugin plugin ) throws IOException;
+}
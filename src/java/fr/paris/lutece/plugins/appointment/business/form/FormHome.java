@@ -76,6 +76,7 @@ public final class FormHome
     public static Form create( Form form )
     {
         _dao.insert( form, _plugin );
+        FormVersionHome.createAvailabilityVersion( form.getIdForm( ) );
 
         return form;
     }
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.form;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * Business class of the versions of a form, stored in database. The availability version is incremented in database each time the availability of
+ * the form changes, the planning version each time its planning changes and the entry version each time its entries or their fields change, so that
+ * all the nodes of a cluster see the same versions. The availability version, incremented by each booking, is stored apart from the row of the form
+ * which is locked while the slots of the form are created
+ *
+ */
+public final class FormVersion implements Serializable
+{
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -2165874351954132476L;
+
+    /**
+     * Id of the form
+     */
+    private int _nIdForm;
+
+    /**
+     * Version of the availability of the form
+     */
+    private long _lAvailabilityVersion;
+
+    /**
+     * Date of the last change of the availability of the form (null if it has never changed)
+     */
+    private Timestamp _dateAvailabilityUpdate;
+
+    /**
+     * Version of the planning of the form
+     */
+    private long _lPlanningVersion;
+
+    /**
+     * Version of the entries of the form
+     */
+    private long _lEntryVersion;
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Set the id of the form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public void setIdForm( int nIdForm )
+    {
+        this._nIdForm = nIdForm;
+    }
+
+    /**
+     * Get the version of the availability of the form
+     * 
+     * @return the version of the availability
+     */
+    public long getAvailabilityVersion( )
+    {
+        return _lAvailabilityVersion;
+    }
+
+    /**
+     * Set the version of the availability of the form
+     * 
+     * @param lAvailabilityVersion
+     *            the version of the availability
+     */
+    public void setAvailabilityVersion( long lAvailabilityVersion )
+    {
+        this._lAvailabilityVersion = lAvailabilityVersion;
+    }
+
+    /**
+     * Get the date of the last change of the availability of the form
+     * 
+     * @return the date of the last change, null if it has never changed
+     */
+    public Timestamp getDateAvailabilityUpdate( )
+    {
+        if ( _dateAvailabilityUpdate != null )
+        {
+            return (Timestamp) _dateAvailabilityUpdate.clone( );
+        }
+        return null;
+    }
+
+    /**
+     * Set the date of the last change of the availability of the form
+     * 
+     * @param dateAvailabilityUpdate
+     *            the date of the last change
+     */
+    public void setDateAvailabilityUpdate( Timestamp dateAvailabilityUpdate )
+    {
+        if ( dateAvailabilityUpdate != null )
+        {
+            this._dateAvailabilityUpdate = (Timestamp) dateAvailabilityUpdate.clone( );
+        }
+        else
+        {
+            this._dateAvailabilityUpdate = null;
+        }
+    }
+
+    /**
+     * Get the version of the planning of the form
+     * 
+     * @return the version of the planning
+     */
+    public long getPlanningVersion( )
+    {
+        return _lPlanningVersion;
+    }
+
+    /**
+     * Set the version of the planning of the form
+     * 
+     * @param lPlanningVersion
+     *            the version of the planning
+     */
+    public void setPlanningVersion( long lPlanningVersion )
+    {
+        this._lPlanningVersion = lPlanningVersion;
+    }
+
+    /**
+     * Get the version of the entries of the form
+     * 
+     * @return the version of the entries
+     */
+    public long getEntryVersion( )
+    {
+        return _lEntryVersion;
+    }
+
+    /**
+     * Set the version of the entries of the form
+     * 
+     * @param lEntryVersion
+     *            the version of the entries
+     */
+    public void setEntryVersion( long lEntryVersion )
+    {
+        this._lEntryVersion = lEntryVersion;
+    }
+}
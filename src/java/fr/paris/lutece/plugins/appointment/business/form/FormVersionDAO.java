@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.form;
+
+import fr.paris.lutece.plugins.appointment.business.UtilDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for the versions of the forms
+ *
+ */
+public final class FormVersionDAO extends UtilDAO implements IFormVersionDAO
+{
+
+    private static final String SQL_QUERY_INSERT_AVAILABILITY_VERSION = "INSERT INTO appointment_form_availability ( id_form ) VALUES ( ? )";
+    private static final String SQL_QUERY_INCREMENT_AVAILABILITY_VERSION = "UPDATE appointment_form_availability SET availability_version = availability_version + 1, date_availability_update = CURRENT_TIMESTAMP";
+    private static final String SQL_QUERY_INCREMENT_AVAILABILITY_VERSION_BY_ID_FORM = SQL_QUERY_INCREMENT_AVAILABILITY_VERSION + " WHERE id_form = ?";
+    private static final String SQL_QUERY_INCREMENT_AVAILABILITY_VERSION_BY_ID_SLOT = SQL_QUERY_INCREMENT_AVAILABILITY_VERSION
+            + " WHERE id_form = ( SELECT id_form FROM appointment_slot WHERE id_slot = ? )";
+    private static final String SQL_QUERY_INCREMENT_PLANNING_VERSION = "UPDATE appointment_form SET planning_version = planning_version + 1";
+    private static final String SQL_QUERY_INCREMENT_PLANNING_VERSION_BY_ID_FORM = SQL_QUERY_INCREMENT_PLANNING_VERSION + " WHERE id_form = ?";
+    private static final String SQL_QUERY_INCREMENT_ENTRY_VERSION = "UPDATE appointment_form SET entry_version = entry_version + 1";
+    private static final String SQL_QUERY_INCREMENT_ENTRY_VERSION_BY_ID_FORM = SQL_QUERY_INCREMENT_ENTRY_VERSION + " WHERE id_form = ?";
+    private static final String SQL_QUERY_LOCK = "SELECT id_form FROM appointment_form WHERE id_form = ? FOR UPDATE";
+    private static final String SQL_QUERY_SELECT = "SELECT form.id_form, availability.availability_version, availability.date_availability_update, form.planning_version, form.entry_version FROM appointment_form form"
+            + " LEFT JOIN appointment_form_availability availability ON availability.id_form = form.id_form WHERE form.id_form = ?";
+
+    @Override
+    public void insertAvailabilityVersion( int nIdForm, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_AVAILABILITY_VERSION, plugin );
+        daoUtil.setInt( 1, nIdForm );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void incrementAvailabilityVersion( int nIdForm, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_AVAILABILITY_VERSION_BY_ID_FORM, plugin );
+        daoUtil.setInt( 1, nIdForm );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void incrementAvailabilityVersionOfSlot( int nIdSlot, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_AVAILABILITY_VERSION_BY_ID_SLOT, plugin );
+        daoUtil.setInt( 1, nIdSlot );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void incrementAvailabilityVersionOfAllForms( Plugin plugin )
+    {
+        executeUpdate( new DAOUtil( SQL_QUERY_INCREMENT_AVAILABILITY_VERSION, plugin ) );
+    }
+
+    @Override
+    public void incrementPlanningVersion( int nIdForm, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_PLANNING_VERSION_BY_ID_FORM, plugin );
+        daoUtil.setInt( 1, nIdForm );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void incrementPlanningVersionOfAllForms( Plugin plugin )
+    {
+        executeUpdate( new DAOUtil( SQL_QUERY_INCREMENT_PLANNING_VERSION, plugin ) );
+    }
+
+    @Override
+    public void incrementEntryVersion( int nIdForm, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_ENTRY_VERSION_BY_ID_FORM, plugin );
+        daoUtil.setInt( 1, nIdForm );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void incrementEntryVersionOfAllForms( Plugin plugin )
+    {
+        executeUpdate( new DAOUtil( SQL_QUERY_INCREMENT_ENTRY_VERSION, plugin ) );
+    }
+
+    @Override
+    public boolean lock( int nIdForm, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_LOCK, plugin );
+            daoUtil.setInt( 1, nIdForm );
+            daoUtil.executeQuery( );
+            return daoUtil.next( );
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+    }
+
+    @Override
+    public FormVersion select( int nIdForm, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        FormVersion formVersion = null;
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin );
+            daoUtil.setInt( 1, nIdForm );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                int nIndex = 1;
+                formVersion = new FormVersion( );
+                formVersion.setIdForm( daoUtil.getInt( nIndex++ ) );
+                formVersion.setAvailabilityVersion( daoUtil.getLong( nIndex++ ) );
+                formVersion.setDateAvailabilityUpdate( daoUtil.getTimestamp( nIndex++ ) );
+                formVersion.setPlanningVersion( daoUtil.getLong( nIndex++ ) );
+                formVersion.setEntryVersion( daoUtil.getLong( nIndex ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return formVersion;
+    }
+
+    /**
+     * Execute a safe update (Free the connection in case of error when execute the query)
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     */
+    private void executeUpdate( DAOUtil daoUtil )
+    {
+        try
+        {
+            daoUtil.executeUpdate( );
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+    }
+}
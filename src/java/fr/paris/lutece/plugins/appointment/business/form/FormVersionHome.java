@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.form;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for the versions of the forms
+ *
+ */
+public final class FormVersionHome
+{
+
+    // Static variable pointed at the DAO instance
+    private static IFormVersionDAO _dao = SpringContextService.getBean( IFormVersionDAO.BEAN_NAME );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private FormVersionHome( )
+    {
+    }
+
+    /**
+     * Create the availability version of a new form. The availability version is stored apart from the row of the form, which is locked while the slots
+     * of the form are created : the bookings, which increment it, do not wait for the creation of the slots
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void createAvailabilityVersion( int nIdForm )
+    {
+        _dao.insertAvailabilityVersion( nIdForm, _plugin );
+    }
+
+    /**
+     * Increment the availability version of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void incrementAvailabilityVersion( int nIdForm )
+    {
+        _dao.incrementAvailabilityVersion( nIdForm, _plugin );
+    }
+
+    /**
+     * Increment the availability version of the form of a slot
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    public static void incrementAvailabilityVersionOfSlot( int nIdSlot )
+    {
+        _dao.incrementAvailabilityVersionOfSlot( nIdSlot, _plugin );
+    }
+
+    /**
+     * Increment the availability version of all the forms
+     */
+    public static void incrementAvailabilityVersionOfAllForms( )
+    {
+        _dao.incrementAvailabilityVersionOfAllForms( _plugin );
+    }
+
+    /**
+     * Increment the planning version of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void incrementPlanningVersion( int nIdForm )
+    {
+        _dao.incrementPlanningVersion( nIdForm, _plugin );
+    }
+
+    /**
+     * Increment the planning version of all the forms
+     */
+    public static void incrementPlanningVersionOfAllForms( )
+    {
+        _dao.incrementPlanningVersionOfAllForms( _plugin );
+    }
+
+    /**
+     * Increment the entry version of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void incrementEntryVersion( int nIdForm )
+    {
+        _dao.incrementEntryVersion( nIdForm, _plugin );
+    }
+
+    /**
+     * Increment the entry version of all the forms
+     */
+    public static void incrementEntryVersionOfAllForms( )
+    {
+        _dao.incrementEntryVersionOfAllForms( _plugin );
+    }
+
+    /**
+     * Lock the row of a form in database until the end of the current transaction, so that the nodes of a cluster do not modify the form concurrently.
+     * Must be called inside a transaction
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return false if the form does not exist
+     */
+    public static boolean lock( int nIdForm )
+    {
+        return _dao.lock( nIdForm, _plugin );
+    }
+
+    /**
+     * Returns the versions of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the versions of the form, null if the form does not exist
+     */
+    public static FormVersion findByPrimaryKey( int nIdForm )
+    {
+        return _dao.select( nIdForm, _plugin );
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.form;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Form Version DAO Interface
+ *
+ */
+public interface IFormVersionDAO
+{
+
+    /**
+     * The name of the bean of the DAO
+     */
+    static String BEAN_NAME = "appointment.formVersionDAO";
+
+    /**
+     * Create the availability version of a new form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param plugin
+     *            the Plugin
+     */
+    void insertAvailabilityVersion( int nIdForm, Plugin plugin );
+
+    /**
+     * Increment the availability version of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param plugin
+     *            the Plugin
+     */
+    void incrementAvailabilityVersion( int nIdForm, Plugin plugin );
+
+    /**
+     * Increment the availability version of the form of a slot, with a single statement
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param plugin
+     *            the Plugin
+     */
+    void incrementAvailabilityVersionOfSlot( int nIdSlot, Plugin plugin );
+
+    /**
+     * Increment the availability version of all the forms
+     * 
+     * @param plugin
+     *            the Plugin
+     */
+    void incrementAvailabilityVersionOfAllForms( Plugin plugin );
+
+    /**
+     * Increment the planning version of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param plugin
+     *            the Plugin
+     */
+    void incrementPlanningVersion( int nIdForm, Plugin plugin );
+
+    /**
+     * Increment the planning version of all the forms
+     * 
+     * @param plugin
+     *            the Plugin
+     */
+    void incrementPlanningVersionOfAllForms( Plugin plugin );
+
+    /**
+     * Increment the entry version of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param plugin
+     *            the Plugin
+     */
+    void incrementEntryVersion( int nIdForm, Plugin plugin );
+
+    /**
+     * Increment the entry version of all the forms
+     * 
+     * @param plugin
+     *            the Plugin
+     */
+    void incrementEntryVersionOfAllForms( Plugin plugin );
+
+    /**
+     * Lock the row of a form in database until the end of the current transaction. Must be called inside a transaction
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param plugin
+     *            the Plugin
+     * @return false if the form does not exist
+     */
+    boolean lock( int nIdForm, Plugin plugin );
+
+    /**
+     * Returns the versions of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param plugin
+     *            the Plugin
+     * @return the versions of the form, null if the form does not exist
+     */
+    FormVersion select( int nIdForm, Plugin plugin );
+}
@@ -79,6 +79,36 @@ public final class ClosingDayDAO extends UtilDAO implements IClosingDayDAO
         }
     }
 
+    @Override
+    public void insertBatch( List<ClosingDay> listClosingDay, Plugin plugin )
+    {
+        if ( listClosingDay.isEmpty( ) )
+        {
+            return;
+        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin );
+        try
+        {
+            for ( ClosingDay closingDay : listClosingDay )
+            {
+                setClosingDayValues( daoUtil, closingDay, true );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+            for ( ClosingDay closingDay : listClosingDay )
+            {
+                if ( daoUtil.nextGeneratedKey( ) )
+                {
+                    closingDay.setIdClosingDay( daoUtil.getGeneratedKeyInt( 1 ) );
+                }
+            }
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
     @Override
     public void update( ClosingDay closingDay, Plugin plugin )
     {
@@ -86,6 +116,29 @@ public final class ClosingDayDAO extends UtilDAO implements IClosingDayDAO
         executeUpdate( daoUtil );
     }
 
+    @Override
+    public void updateBatch( List<ClosingDay> listClosingDay, Plugin plugin )
+    {
+        if ( listClosingDay.isEmpty( ) )
+        {
+            return;
+        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin );
+        try
+        {
+            for ( ClosingDay closingDay : listClosingDay )
+            {
+                setClosingDayValues( daoUtil, closingDay, false );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
     @Override
     public void delete( int nIdClosingDay, Plugin plugin )
     {
@@ -94,6 +147,29 @@ public final class ClosingDayDAO extends UtilDAO implements IClosingDayDAO
         executeUpdate( daoUtil );
     }
 
+    @Override
+    public void deleteBatch( List<Integer> listIdClosingDay, Plugin plugin )
+    {
+        if ( listIdClosingDay.isEmpty( ) )
+        {
+            return;
+        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin );
+        try
+        {
+            for ( Integer nIdClosingDay : listIdClosingDay )
+            {
+                daoUtil.setInt( 1, nIdClosingDay );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
     @Override
     public ClosingDay select( int nIdClosingDay, Plugin plugin )
     {
@@ -230,21 +306,36 @@ public final class ClosingDayDAO extends UtilDAO implements IClosingDayDAO
      */
     private DAOUtil buildDaoUtil( String query, ClosingDay closingDay, Plugin plugin, boolean isInsert )
     {
-        int nIndex = 1;
-        DAOUtil daoUtil = new DAOUtil( query, plugin );
+        DAOUtil daoUtil = null;
         if ( isInsert )
         {
         	daoUtil = new DAOUtil( query, Statement.RETURN_GENERATED_KEYS, plugin );
         }else{
         	daoUtil = new DAOUtil( query, plugin );
         }
+        setClosingDayValues( daoUtil, closingDay, isInsert );
+        return daoUtil;
+    }
+
+    /**
+     * Set the values of a Closing Day business object on a daoUtil
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @param closingDay
+     *            the closing day
+     * @param isInsert
+     *            true if it is an insert query. If false, it is an update, in this case, there is a where parameter id to set
+     */
+    private void setClosingDayValues( DAOUtil daoUtil, ClosingDay closingDay, boolean isInsert )
+    {
+        int nIndex = 1;
         daoUtil.setDate( nIndex++, closingDay.getSqlDateOfClosingDay( ) );
         daoUtil.setInt( nIndex++, closingDay.getIdForm( ) );
         if ( !isInsert )
         {
             daoUtil.setInt( nIndex, closingDay.getIdClosingDay( ) );
         }
-        return daoUtil;
     }
 
     /**
@@ -75,6 +75,17 @@ public final class ClosingDayHome
         return closingDay;
     }
 
+    /**
+     * Create a list of ClosingDay with a single batch
+     * 
+     * @param listClosingDay
+     *            the closing days to create. Their primary key is set once created
+     */
+    public static void createBatch( List<ClosingDay> listClosingDay )
+    {
+        _dao.insertBatch( listClosingDay, _plugin );
+    }
+
     /**
      * Update of the ClosingDay which is specified in parameter
      * 
@@ -89,6 +100,17 @@ public final class ClosingDayHome
         return closingDay;
     }
 
+    /**
+     * Update a list of ClosingDay with a single batch
+     * 
+     * @param listClosingDay
+     *            the closing days to update
+     */
+    public static void updateBatch( List<ClosingDay> listClosingDay )
+    {
+        _dao.updateBatch( listClosingDay, _plugin );
+    }
+
     /**
      * Delete the ClosingDay whose identifier is specified in parameter
      * 
@@ -100,6 +122,17 @@ public final class ClosingDayHome
         _dao.delete( nKey, _plugin );
     }
 
+    /**
+     * Delete the ClosingDays whose identifiers are specified in parameter, with a single batch
+     * 
+     * @param listIdClosingDay
+     *            the ClosingDay Ids
+     */
+    public static void deleteBatch( List<Integer> listIdClosingDay )
+    {
+        _dao.deleteBatch( listIdClosingDay, _plugin );
+    }
+
     /**
      * Returns an instance of the ClosingDay whose identifier is specified in parameter
      * 
@@ -62,6 +62,16 @@ public interface IClosingDayDAO
      */
     void insert( ClosingDay closingDay, Plugin plugin );
 
+    /**
+     * Insert new records in the table, with a single batch. The generated ids are set on the closing days
+     * 
+     * @param listClosingDay
+     *            the closing days to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insertBatch( List<ClosingDay> listClosingDay, Plugin plugin );
+
     /**
      * Update the record in the table
      * 
@@ -72,6 +82,16 @@ public interface IClosingDayDAO
      */
     void update( ClosingDay closingDay, Plugin plugin );
 
+    /**
+     * Update records in the table, with a single batch
+     * 
+     * @param listClosingDay
+     *            the closing days to update
+     * @param plugin
+     *            the Plugin
+     */
+    void updateBatch( List<ClosingDay> listClosingDay, Plugin plugin );
+
     /**
      * Delete a record from the table
      * 
@@ -82,6 +102,16 @@ public interface IClosingDayDAO
      */
     void delete( int nIdClosingDay, Plugin plugin );
 
+    /**
+     * Delete records from the table, with a single batch
+     * 
+     * @param listIdClosingDay
+     *            the identifiers of the Closing Days to delete
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteBatch( List<Integer> listIdClosingDay, Plugin plugin );
+
     /**
      * Load the data from the table
      * 
@@ -71,6 +71,36 @@ public interface ITimeSlotDAO
      */
     void update( TimeSlot timeSlot, Plugin plugin );
 
+    /**
+     * Insert new records in the table, with a single batch of statements. The ids generated are set on the time slots
+     * 
+     * @param listTimeSlot
+     *            the time slots to insert
+     * @param plugin
+     *            the plugin
+     */
+    void insertBatch( List<TimeSlot> listTimeSlot, Plugin plugin );
+
+    /**
+     * Update records in the table, with a single batch of statements executed in the order of the list
+     * 
+     * @param listTimeSlot
+     *            the time slots to update
+     * @param plugin
+     *            the plugin
+     */
+    void updateBatch( List<TimeSlot> listTimeSlot, Plugin plugin );
+
+    /**
+     * Delete records from the table, with a single batch of statements
+     * 
+     * @param listIdTimeSlot
+     *            the identifiers of the time slots to delete
+     * @param plugin
+     *            the plugin
+     */
+    void deleteBatch( List<Integer> listIdTimeSlot, Plugin plugin );
+
     /**
      * Delete a record from the table
      * 
@@ -82,6 +82,82 @@ public final class TimeSlotDAO extends UtilDAO implements ITimeSlotDAO
         executeUpdate( daoUtil );
     }
 
+    @Override
+    public void insertBatch( List<TimeSlot> listTimeSlot, Plugin plugin )
+    {
+        if ( listTimeSlot.isEmpty( ) )
+        {
+            return;
+        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin );
+        try
+        {
+            for ( TimeSlot timeSlot : listTimeSlot )
+            {
+                setTimeSlotValues( daoUtil, timeSlot, true );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+            for ( TimeSlot timeSlot : listTimeSlot )
+            {
+                if ( daoUtil.nextGeneratedKey( ) )
+                {
+                    timeSlot.setIdTimeSlot( daoUtil.getGeneratedKeyInt( 1 ) );
+                }
+            }
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
+    @Override
+    public void updateBatch( List<TimeSlot> listTimeSlot, Plugin plugin )
+    {
+        if ( listTimeSlot.isEmpty( ) )
+        {
+            return;
+        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin );
+        try
+        {
+            for ( TimeSlot timeSlot : listTimeSlot )
+            {
+                setTimeSlotValues( daoUtil, timeSlot, false );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
+    @Override
+    public void deleteBatch( List<Integer> listIdTimeSlot, Plugin plugin )
+    {
+        if ( listIdTimeSlot.isEmpty( ) )
+        {
+            return;
+        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin );
+        try
+        {
+            for ( Integer nIdTimeSlot : listIdTimeSlot )
+            {
+                daoUtil.setInt( 1, nIdTimeSlot );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
     @Override
     public void delete( int nIdTimeSlot, Plugin plugin )
     {
@@ -176,7 +252,6 @@ public final class TimeSlotDAO extends UtilDAO implements ITimeSlotDAO
      */
     private DAOUtil buildDaoUtil( String query, TimeSlot timeSlot, Plugin plugin, boolean isInsert )
     {
-        int nIndex = 1;
         DAOUtil daoUtil = null;
         if ( isInsert )
         {
@@ -184,6 +259,23 @@ public final class TimeSlotDAO extends UtilDAO implements ITimeSlotDAO
         }else{
         	daoUtil = new DAOUtil( query, plugin );
         }
+        setTimeSlotValues( daoUtil, timeSlot, isInsert );
+        return daoUtil;
+    }
+
+    /**
+     * Set the values of a time slot business object on a daoUtil
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @param timeSlot
+     *            the time slot
+     * @param isInsert
+     *            true if it is an insert query. If false, it is an update, in this case, there is a where parameter id to set
+     */
+    private void setTimeSlotValues( DAOUtil daoUtil, TimeSlot timeSlot, boolean isInsert )
+    {
+        int nIndex = 1;
         daoUtil.setTime( nIndex++, timeSlot.getStartingTimeSqlTime( ) );
         daoUtil.setTime( nIndex++, timeSlot.getEndingTimeSqlTime( ) );
         daoUtil.setBoolean( nIndex++, timeSlot.getIsOpen( ) );
@@ -193,7 +285,6 @@ public final class TimeSlotDAO extends UtilDAO implements ITimeSlotDAO
         {
             daoUtil.setInt( nIndex, timeSlot.getIdTimeSlot( ) );
         }
-        return daoUtil;
     }
 
     /**
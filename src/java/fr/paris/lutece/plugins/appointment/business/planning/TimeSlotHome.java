@@ -88,6 +88,39 @@ public final class TimeSlotHome
         return timeSlot;
     }
 
+    /**
+     * Create several time slots with a single batch of statements
+     * 
+     * @param listTimeSlot
+     *            the time slots to create. Their primary keys are set
+     */
+    public static void createBatch( List<TimeSlot> listTimeSlot )
+    {
+        _dao.insertBatch( listTimeSlot, _plugin );
+    }
+
+    /**
+     * Update several time slots with a single batch of statements, in the order of the list
+     * 
+     * @param listTimeSlot
+     *            the time slots to update
+     */
+    public static void updateBatch( List<TimeSlot> listTimeSlot )
+    {
+        _dao.updateBatch( listTimeSlot, _plugin );
+    }
+
+    /**
+     * Delete several time slots with a single batch of statements
+     * 
+     * @param listIdTimeSlot
+     *            the ids of the time slots to delete
+     */
+    public static void deleteBatch( List<Integer> listIdTimeSlot )
+    {
+        _dao.deleteBatch( listIdTimeSlot, _plugin );
+    }
+
     /**
      * Delete the TimeSlot whose identifier is specified in parameter
      * 
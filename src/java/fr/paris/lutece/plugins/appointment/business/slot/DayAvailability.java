@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Business class of the summary of the availability of a form on a day
+ *
+ */
+public final class DayAvailability implements Serializable
+{
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 3516215845437896541L;
+
+    /**
+     * Id of the form
+     */
+    private int _nIdForm;
+
+    /**
+     * Date of the day
+     */
+    private LocalDate _date;
+
+    /**
+     * Number of remaining places on the open slots of the day
+     */
+    private int _nNbOpenPlaces;
+
+    /**
+     * Starting time of the first open slot of the day with remaining places (null if there is none)
+     */
+    private LocalTime _firstFreeTime;
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Set the id of the form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public void setIdForm( int nIdForm )
+    {
+        this._nIdForm = nIdForm;
+    }
+
+    /**
+     * Get the date of the day
+     * 
+     * @return the date of the day
+     */
+    public LocalDate getDate( )
+    {
+        return _date;
+    }
+
+    /**
+     * Set the date of the day
+     * 
+     * @param date
+     *            the date of the day
+     */
+    public void setDate( LocalDate date )
+    {
+        this._date = date;
+    }
+
+    /**
+     * Get the number of remaining places on the open slots of the day
+     * 
+     * @return the number of open places
+     */
+    public int getNbOpenPlaces( )
+    {
+        return _nNbOpenPlaces;
+    }
+
+    /**
+     * Set the number of remaining places on the open slots of the day
+     * 
+     * @param nNbOpenPlaces
+     *            the number of open places
+     */
+    public void setNbOpenPlaces( int nNbOpenPlaces )
+    {
+        this._nNbOpenPlaces = nNbOpenPlaces;
+    }
+
+    /**
+     * Get the starting time of the first open slot of the day with remaining places
+     * 
+     * @return the starting time, null if there is no free slot on the day
+     */
+    public LocalTime getFirstFreeTime( )
+    {
+        return _firstFreeTime;
+    }
+
+    /**
+     * Set the starting time of the first open slot of the day with remaining places
+     * 
+     * @param firstFreeTime
+     *            the starting time
+     */
+    public void setFirstFreeTime( LocalTime firstFreeTime )
+    {
+        this._firstFreeTime = firstFreeTime;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.UtilDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for Day Availability objects
+ *
+ */
+public final class DayAvailabilityDAO extends UtilDAO implements IDayAvailabilityDAO
+{
+
+    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_day_availability ( id_form, date_day, nb_open_places, first_free_time, date_update) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)";
+    private static final String SQL_QUERY_DELETE_BY_ID_FORM = "DELETE FROM appointment_day_availability WHERE id_form = ?";
+    private static final String SQL_QUERY_DELETE_BY_ID_FORM_AND_DATE_RANGE = SQL_QUERY_DELETE_BY_ID_FORM + " AND date_day >= ? AND date_day <= ?";
+    private static final String SQL_QUERY_DELETE_FROM_DATE = "DELETE FROM appointment_day_availability WHERE date_day >= ?";
+    private static final String SQL_QUERY_DELETE_BEFORE_DATE = "DELETE FROM appointment_day_availability WHERE date_day < ?";
+    private static final String SQL_QUERY_DELETE_BY_ID_FORM_AND_DATE_AND_FIRST_FREE_TIME = "DELETE FROM appointment_day_availability WHERE id_form = ? AND date_day = ? AND first_free_time = ?";
+    private static final String SQL_QUERY_UPDATE_NB_OPEN_PLACES = "UPDATE appointment_day_availability SET nb_open_places = GREATEST( 0, nb_open_places + ? ), date_update = CURRENT_TIMESTAMP WHERE id_form = ? AND date_day = ?";
+    private static final String SQL_QUERY_UPDATE_NB_OPEN_PLACES_AND_FIRST_FREE_TIME = "UPDATE appointment_day_availability SET nb_open_places = GREATEST( 0, nb_open_places + ? ),"
+            + " first_free_time = CASE WHEN first_free_time IS NULL OR first_free_time > ? THEN ? ELSE first_free_time END, date_update = CURRENT_TIMESTAMP WHERE id_form = ? AND date_day = ?";
+    private static final String SQL_QUERY_SELECT_BY_ID_FORM_AND_DATE_RANGE = "SELECT id_form, date_day, nb_open_places, first_free_time FROM appointment_day_availability WHERE id_form = ? AND date_day >= ? AND date_day <= ? ORDER BY date_day";
+
+    @Override
+    public void insert( DayAvailability dayAvailability, Plugin plugin )
+    {
+        int nIndex = 1;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin );
+        daoUtil.setInt( nIndex++, dayAvailability.getIdForm( ) );
+        daoUtil.setDate( nIndex++, Date.valueOf( dayAvailability.getDate( ) ) );
+        daoUtil.setInt( nIndex++, dayAvailability.getNbOpenPlaces( ) );
+        if ( dayAvailability.getFirstFreeTime( ) != null )
+        {
+            daoUtil.setTime( nIndex, Time.valueOf( dayAvailability.getFirstFreeTime( ) ) );
+        }
+        else
+        {
+            daoUtil.setTime( nIndex, null );
+        }
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void updateNbOpenPlaces( int nIdForm, LocalDate date, int nbPlaces, LocalTime freeTime, Plugin plugin )
+    {
+        int nIndex = 1;
+        DAOUtil daoUtil;
+        if ( freeTime != null )
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_UPDATE_NB_OPEN_PLACES_AND_FIRST_FREE_TIME, plugin );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setTime( nIndex++, Time.valueOf( freeTime ) );
+            daoUtil.setTime( nIndex++, Time.valueOf( freeTime ) );
+        }
+        else
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_UPDATE_NB_OPEN_PLACES, plugin );
+            daoUtil.setInt( nIndex++, nbPlaces );
+        }
+        daoUtil.setInt( nIndex++, nIdForm );
+        daoUtil.setDate( nIndex, Date.valueOf( date ) );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void deleteByIdFormAndDateAndFirstFreeTime( int nIdForm, LocalDate date, LocalTime firstFreeTime, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_ID_FORM_AND_DATE_AND_FIRST_FREE_TIME, plugin );
+        daoUtil.setInt( 1, nIdForm );
+        daoUtil.setDate( 2, Date.valueOf( date ) );
+        daoUtil.setTime( 3, Time.valueOf( firstFreeTime ) );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void deleteByIdFormAndDateRange( int nIdForm, LocalDate startingDate, LocalDate endingDate, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_ID_FORM_AND_DATE_RANGE, plugin );
+        daoUtil.setInt( 1, nIdForm );
+        daoUtil.setDate( 2, Date.valueOf( startingDate ) );
+        daoUtil.setDate( 3, Date.valueOf( endingDate ) );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void deleteByIdForm( int nIdForm, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_ID_FORM, plugin );
+        daoUtil.setInt( 1, nIdForm );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void deleteFromDate( LocalDate date, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_FROM_DATE, plugin );
+        daoUtil.setDate( 1, Date.valueOf( date ) );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void deleteBeforeDate( LocalDate date, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BEFORE_DATE, plugin );
+        daoUtil.setDate( 1, Date.valueOf( date ) );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public List<DayAvailability> findByIdFormAndDateRange( int nIdForm, LocalDate startingDate, LocalDate endingDate, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        List<DayAvailability> listDayAvailability = new ArrayList<>( );
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_ID_FORM_AND_DATE_RANGE, plugin );
+            daoUtil.setInt( 1, nIdForm );
+            daoUtil.setDate( 2, Date.valueOf( startingDate ) );
+            daoUtil.setDate( 3, Date.valueOf( endingDate ) );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listDayAvailability.add( buildDayAvailability( daoUtil ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listDayAvailability;
+    }
+
+    /**
+     * Build a Day Availability business object from the resultset
+     * 
+     * @param daoUtil
+     *            the prepare statement util object
+     * @return a new Day Availability with all its attributes assigned
+     */
+    private DayAvailability buildDayAvailability( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        DayAvailability dayAvailability = new DayAvailability( );
+        dayAvailability.setIdForm( daoUtil.getInt( nIndex++ ) );
+        dayAvailability.setDate( daoUtil.getDate( nIndex++ ).toLocalDate( ) );
+        dayAvailability.setNbOpenPlaces( daoUtil.getInt( nIndex++ ) );
+        Time firstFreeTime = daoUtil.getTime( nIndex );
+        if ( firstFreeTime != null )
+        {
+            dayAvailability.setFirstFreeTime( firstFreeTime.toLocalTime( ) );
+        }
+        return dayAvailability;
+    }
+
+    /**
+     * Execute a safe update (Free the connection in case of error when execute the query)
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     */
+    private void executeUpdate( DAOUtil daoUtil )
+    {
+        try
+        {
+            daoUtil.executeUpdate( );
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+    }
+
+}
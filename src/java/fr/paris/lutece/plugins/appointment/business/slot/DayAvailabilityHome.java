@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for Day Availability objects
+ *
+ */
+public final class DayAvailabilityHome
+{
+
+    // Static variable pointed at the DAO instance
+    private static IDayAvailabilityDAO _dao = SpringContextService.getBean( IDayAvailabilityDAO.BEAN_NAME );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private DayAvailabilityHome( )
+    {
+    }
+
+    /**
+     * Create an instance of the DayAvailability class
+     * 
+     * @param dayAvailability
+     *            The instance of the DayAvailability which contains the informations to store
+     * @return The instance of the DayAvailability which has been created
+     */
+    public static DayAvailability create( DayAvailability dayAvailability )
+    {
+        _dao.insert( dayAvailability, _plugin );
+
+        return dayAvailability;
+    }
+
+    /**
+     * Add places to the open places of a day of a form. Nothing is done if the day is not in the summary
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param date
+     *            the day
+     * @param nbPlaces
+     *            the number of places to add (negative to remove places)
+     * @param freeTime
+     *            the starting time of a slot that has become free, null if none
+     */
+    public static void updateNbOpenPlaces( int nIdForm, LocalDate date, int nbPlaces, LocalTime freeTime )
+    {
+        _dao.updateNbOpenPlaces( nIdForm, date, nbPlaces, freeTime, _plugin );
+    }
+
+    /**
+     * Delete the DayAvailability of a day of a form, only if its first free time is the one given
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param date
+     *            the day
+     * @param firstFreeTime
+     *            the first free time
+     */
+    public static void deleteByIdFormAndDateAndFirstFreeTime( int nIdForm, LocalDate date, LocalTime firstFreeTime )
+    {
+        _dao.deleteByIdFormAndDateAndFirstFreeTime( nIdForm, date, firstFreeTime, _plugin );
+    }
+
+    /**
+     * Delete the DayAvailability of a form on a period
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param startingDate
+     *            the starting date
+     * @param endingDate
+     *            the ending date
+     */
+    public static void deleteByIdFormAndDateRange( int nIdForm, LocalDate startingDate, LocalDate endingDate )
+    {
+        _dao.deleteByIdFormAndDateRange( nIdForm, startingDate, endingDate, _plugin );
+    }
+
+    /**
+     * Delete all the DayAvailability of a form
+     * 
+     * @param nIdForm
+     *            the form Id
+     */
+    public static void deleteByIdForm( int nIdForm )
+    {
+        _dao.deleteByIdForm( nIdForm, _plugin );
+    }
+
+    /**
+     * Delete the DayAvailability of all the forms from a date
+     * 
+     * @param date
+     *            the date
+     */
+    public static void deleteFromDate( LocalDate date )
+    {
+        _dao.deleteFromDate( date, _plugin );
+    }
+
+    /**
+     * Delete the DayAvailability of all the forms before a date
+     * 
+     * @param date
+     *            the date
+     */
+    public static void deleteBeforeDate( LocalDate date )
+    {
+        _dao.deleteBeforeDate( date, _plugin );
+    }
+
+    /**
+     * Returns the list of the DayAvailability of a form on a period, ordered by date
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param startingDate
+     *            the starting date
+     * @param endingDate
+     *            the ending date
+     * @return the list of the DayAvailability found
+     */
+    public static List<DayAvailability> findByIdFormAndDateRange( int nIdForm, LocalDate startingDate, LocalDate endingDate )
+    {
+        return _dao.findByIdFormAndDateRange( nIdForm, startingDate, endingDate, _plugin );
+    }
+}
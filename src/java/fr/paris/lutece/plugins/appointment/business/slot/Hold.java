@@ -31,74 +31,62 @@
  *
  * License 1.0
  */
-package fr.paris.lutece.plugins.appointment.service.lock;
+package fr.paris.lutece.plugins.appointment.business.slot;
 
 import java.io.Serializable;
-import java.util.TimerTask;
-
-import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
+import java.time.LocalDateTime;
 
 /**
- * Timer Task for a slot (Manage a lock the time the user fill the form
- * 
- * @author Laurent Payen
+ * Business class of a hold of potential places on a slot. The hold is stored so that its places are given back only once, whichever node releases it
  *
  */
-public final class SlotEditTask extends TimerTask implements Serializable
+public final class Hold implements Serializable
 {
 
     /**
-     * UID
+     * Serial version UID
      */
-    private static final long serialVersionUID = 2397343851302139337L;
+    private static final long serialVersionUID = 5120453197613846025L;
 
     /**
-     * Potentially number of places taken
+     * Id of the hold
      */
-    private int _nbPlacesTaken;
+    private int _nIdHold;
 
     /**
-     * Id of the slot on which the user is taking an appointment
+     * Id of the slot on which the places are held
      */
-    private int _idSlot;
-    
-    private TimerForLockOnSlot _timer;
+    private int _nIdSlot;
 
-    public SlotEditTask ( TimerForLockOnSlot timer ){
-    	
-    	super();
-    	_timer= timer;
-    }
-    @Override
-    public void run( )
-    {
-        //Slot slot = SlotService.findSlotById( _idSlot );
-        //int nbPotentialRemainingPlaces = slot.getNbPotentialRemainingPlaces( );
-       // slot.setNbPotentialRemainingPlaces( nbPotentialRemainingPlaces + _nbPlacesTaken );
-       // SlotService.updateSlot( slot );
-        	
-        	SlotSafeService.incrementPotentialRemainingPlaces(_nbPlacesTaken, _idSlot, _timer );
-        
-    }
+    /**
+     * Number of places held
+     */
+    private int _nNbPlaces;
+
+    /**
+     * Date after which the places of the hold are given back to the slot
+     */
+    private LocalDateTime _dateExpiry;
 
     /**
-     * Get the number of places potentially taken
+     * Get the id of the hold
      * 
-     * @return the number of places
+     * @return the id of the hold
      */
-    public int getNbPlacesTaken( )
+    public int getIdHold( )
     {
-        return _nbPlacesTaken;
+        return _nIdHold;
     }
 
     /**
-     * Set the number of places potentially taken
+     * Set the id of the hold
      * 
-     * @param nbPlacesTaken
+     * @param nIdHold
+     *            the id of the hold
      */
-    public void setNbPlacesTaken( int nbPlacesTaken )
+    public void setIdHold( int nIdHold )
     {
-        this._nbPlacesTaken = nbPlacesTaken;
+        this._nIdHold = nIdHold;
     }
 
     /**
@@ -108,7 +96,7 @@ public final class SlotEditTask extends TimerTask implements Serializable
      */
     public int getIdSlot( )
     {
-        return _idSlot;
+        return _nIdSlot;
     }
 
     /**
@@ -119,7 +107,48 @@ public final class SlotEditTask extends TimerTask implements Serializable
      */
     public void setIdSlot( int nIdSlot )
     {
-        this._idSlot = nIdSlot;
+        this._nIdSlot = nIdSlot;
+    }
+
+    /**
+     * Get the number of places held
+     * 
+     * @return the number of places held
+     */
+    public int getNbPlaces( )
+    {
+        return _nNbPlaces;
+    }
+
+    /**
+     * Set the number of places held
+     * 
+     * @param nNbPlaces
+     *            the number of places held
+     */
+    public void setNbPlaces( int nNbPlaces )
+    {
+        this._nNbPlaces = nNbPlaces;
+    }
+
+    /**
+     * Get the expiry date of the hold
+     * 
+     * @return the expiry date
+     */
+    public LocalDateTime getDateExpiry( )
+    {
+        return _dateExpiry;
     }
 
+    /**
+     * Set the expiry date of the hold
+     * 
+     * @param dateExpiry
+     *            the expiry date
+     */
+    public void setDateExpiry( LocalDateTime dateExpiry )
+    {
+        this._dateExpiry = dateExpiry;
+    }
 }
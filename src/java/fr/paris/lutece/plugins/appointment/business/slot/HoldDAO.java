@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for Hold objects
+ *
+ */
+public final class HoldDAO implements IHoldDAO
+{
+
+    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_slot_hold ( id_slot, nb_places, date_expiry, is_released ) VALUES ( ?, ?, ?, 0 )";
+    private static final String SQL_QUERY_RELEASE = "UPDATE appointment_slot_hold SET is_released = 1 WHERE id_hold = ? AND is_released = 0";
+    private static final String SQL_QUERY_DELETE_RELEASED = "DELETE FROM appointment_slot_hold WHERE is_released = 1";
+    private static final String SQL_QUERY_DELETE_ALL = "DELETE FROM appointment_slot_hold";
+    private static final String SQL_QUERY_SELECT_NOT_RELEASED_EXPIRED_BEFORE = "SELECT id_hold, id_slot, nb_places, date_expiry FROM appointment_slot_hold WHERE is_released = 0 AND date_expiry < ? ORDER BY date_expiry";
+
+    @Override
+    public void insert( Hold hold, Plugin plugin )
+    {
+        int nIndex = 1;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin );
+        try
+        {
+            daoUtil.setInt( nIndex++, hold.getIdSlot( ) );
+            daoUtil.setInt( nIndex++, hold.getNbPlaces( ) );
+            daoUtil.setTimestamp( nIndex, Timestamp.valueOf( hold.getDateExpiry( ) ) );
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                hold.setIdHold( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
+    @Override
+    public boolean release( int nIdHold, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE, plugin );
+        daoUtil.setInt( 1, nIdHold );
+        return executeUpdate( daoUtil ) == 1;
+    }
+
+    @Override
+    public void deleteReleased( Plugin plugin )
+    {
+        executeUpdate( new DAOUtil( SQL_QUERY_DELETE_RELEASED, plugin ) );
+    }
+
+    @Override
+    public void deleteAll( Plugin plugin )
+    {
+        executeUpdate( new DAOUtil( SQL_QUERY_DELETE_ALL, plugin ) );
+    }
+
+    @Override
+    public List<Hold> findNotReleasedExpiredBefore( LocalDateTime dateLimit, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        List<Hold> listHolds = new ArrayList<>( );
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_NOT_RELEASED_EXPIRED_BEFORE, plugin );
+            daoUtil.setTimestamp( 1, Timestamp.valueOf( dateLimit ) );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listHolds.add( buildHold( daoUtil ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listHolds;
+    }
+
+    /**
+     * Build a Hold business object from the resultset
+     * 
+     * @param daoUtil
+     *            the prepare statement util object
+     * @return a new Hold with all its attributes assigned
+     */
+    private Hold buildHold( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        Hold hold = new Hold( );
+        hold.setIdHold( daoUtil.getInt( nIndex++ ) );
+        hold.setIdSlot( daoUtil.getInt( nIndex++ ) );
+        hold.setNbPlaces( daoUtil.getInt( nIndex++ ) );
+        hold.setDateExpiry( daoUtil.getTimestamp( nIndex ).toLocalDateTime( ) );
+        return hold;
+    }
+
+    /**
+     * Execute a safe update (Free the connection in case of error when execute the query)
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @return the number of rows updated
+     */
+    private int executeUpdate( DAOUtil daoUtil )
+    {
+        try
+        {
+            return daoUtil.executeUpdate( );
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for Hold objects
+ *
+ */
+public final class HoldHome
+{
+
+    // Static variable pointed at the DAO instance
+    private static IHoldDAO _dao = SpringContextService.getBean( IHoldDAO.BEAN_NAME );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private HoldHome( )
+    {
+    }
+
+    /**
+     * Create an instance of the Hold class
+     * 
+     * @param hold
+     *            The instance of the Hold which contains the informations to store
+     * @return The instance of the Hold which has been created, with its id
+     */
+    public static Hold create( Hold hold )
+    {
+        _dao.insert( hold, _plugin );
+
+        return hold;
+    }
+
+    /**
+     * Mark a hold as released, only if it has not been released yet. Only one caller can release a given hold, whichever node it runs on
+     * 
+     * @param nIdHold
+     *            the id of the hold
+     * @return true if the hold has been released by this call, false if it had already been released
+     */
+    public static boolean release( int nIdHold )
+    {
+        return _dao.release( nIdHold, _plugin );
+    }
+
+    /**
+     * Delete the holds that have been released
+     */
+    public static void deleteReleased( )
+    {
+        _dao.deleteReleased( _plugin );
+    }
+
+    /**
+     * Delete all the holds
+     */
+    public static void deleteAll( )
+    {
+        _dao.deleteAll( _plugin );
+    }
+
+    /**
+     * Returns the holds not released whose expiry date is before a date
+     * 
+     * @param dateLimit
+     *            the date
+     * @return the list of the holds found
+     */
+    public static List<Hold> findNotReleasedExpiredBefore( LocalDateTime dateLimit )
+    {
+        return _dao.findNotReleasedExpiredBefore( dateLimit, _plugin );
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Day Availability DAO Interface
+ *
+ */
+public interface IDayAvailabilityDAO
+{
+
+    /**
+     * The name of the bean of the DAO
+     */
+    static String BEAN_NAME = "appointment.dayAvailabilityDAO";
+
+    /**
+     * Insert a new record in the table
+     * 
+     * @param dayAvailability
+     *            instance of the DayAvailability object to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insert( DayAvailability dayAvailability, Plugin plugin );
+
+    /**
+     * Add places to the open places of a day of a form, with a single update. The day is not created if it is not in the table
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param date
+     *            the day
+     * @param nbPlaces
+     *            the number of places to add (negative to remove places)
+     * @param freeTime
+     *            the starting time of a slot of the day that has become free, that becomes the first free time of the day if it is earlier. Null if
+     *            no slot has become free
+     * @param plugin
+     *            the Plugin
+     */
+    void updateNbOpenPlaces( int nIdForm, LocalDate date, int nbPlaces, LocalTime freeTime, Plugin plugin );
+
+    /**
+     * Delete the record of a day of a form, only if its first free time is the one given
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param date
+     *            the day
+     * @param firstFreeTime
+     *            the first free time
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteByIdFormAndDateAndFirstFreeTime( int nIdForm, LocalDate date, LocalTime firstFreeTime, Plugin plugin );
+
+    /**
+     * Delete the records of a form on a period
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteByIdFormAndDateRange( int nIdForm, LocalDate startingDate, LocalDate endingDate, Plugin plugin );
+
+    /**
+     * Delete the records of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteByIdForm( int nIdForm, Plugin plugin );
+
+    /**
+     * Delete the records of all the forms from a date
+     * 
+     * @param date
+     *            the date
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteFromDate( LocalDate date, Plugin plugin );
+
+    /**
+     * Delete the records of all the forms before a date
+     * 
+     * @param date
+     *            the date
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteBeforeDate( LocalDate date, Plugin plugin );
+
+    /**
+     * Find the records of a form on a period, ordered by date
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @param plugin
+     *            the Plugin
+     * @return the list of the records found
+     */
+    List<DayAvailability> findByIdFormAndDateRange( int nIdForm, LocalDate startingDate, LocalDate endingDate, Plugin plugin );
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Hold DAO Interface
+ *
+ */
+public interface IHoldDAO
+{
+
+    /**
+     * The name of the bean of the DAO
+     */
+    static String BEAN_NAME = "appointment.holdDAO";
+
+    /**
+     * Insert a new record in the table
+     * 
+     * @param hold
+     *            instance of the Hold object to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insert( Hold hold, Plugin plugin );
+
+    /**
+     * Mark a hold as released, only if it has not been released yet
+     * 
+     * @param nIdHold
+     *            the id of the hold
+     * @param plugin
+     *            the Plugin
+     * @return true if the hold has been released by this call, false if it had already been released (or does not exist)
+     */
+    boolean release( int nIdHold, Plugin plugin );
+
+    /**
+     * Delete the holds that have been released
+     * 
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteReleased( Plugin plugin );
+
+    /**
+     * Delete all the holds
+     * 
+     * @param plugin
+     *            the Plugin
+     */
+    void deleteAll( Plugin plugin );
+
+    /**
+     * Returns the holds not released whose expiry date is before a date
+     * 
+     * @param dateLimit
+     *            the date
+     * @param plugin
+     *            the Plugin
+     * @return the list of the holds found
+     */
+    List<Hold> findNotReleasedExpiredBefore( LocalDateTime dateLimit, Plugin plugin );
+}
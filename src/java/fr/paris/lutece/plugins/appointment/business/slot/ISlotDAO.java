@@ -33,7 +33,9 @@
  */
 package fr.paris.lutece.plugins.appointment.business.slot;
 
+import java.time.DayOfWeek;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -63,14 +65,49 @@ public interface ISlotDAO
     void insert( Slot slot, Plugin plugin );
 
     /**
-     * Update the record in the table
+     * Update the record in the table, only if its version is still the version of the given slot
      * 
      * @param slot
      *            the reference of the Slot
      * @param plugin
      *            the plugin
+     * @return true if the slot has been updated, false if it has been modified since it was read
      */
-    void update( Slot slot, Plugin plugin );
+    boolean update( Slot slot, Plugin plugin );
+
+    /**
+     * Insert new records in the table, with a single batch of statements. The ids generated are set on the slots
+     * 
+     * @param listSlot
+     *            the slots to insert
+     * @param plugin
+     *            the plugin
+     */
+    void insertBatch( List<Slot> listSlot, Plugin plugin );
+
+    /**
+     * Update records in the table, with a single batch of statements executed in the order of the list. Each record is updated only if its version is
+     * still the version of the given slot. The versions of the given slots are not changed, the caller increments them once the transaction is committed
+     * 
+     * @param listSlot
+     *            the slots to update
+     * @param plugin
+     *            the plugin
+     * @return the number of slots updated (less than the number of slots if some of them have been modified since they were read)
+     * @throws fr.paris.lutece.portal.service.util.AppException
+     *             if the driver does not return the number of rows updated by each statement
+     */
+    int updateBatch( List<Slot> listSlot, Plugin plugin );
+
+    /**
+     * Delete records from the table, with a single batch of statements
+     * 
+     * @param listIdSlot
+     *            the identifiers of the slots to delete
+     * @param plugin
+     *            the plugin
+     */
+    void deleteBatch( List<Integer> listIdSlot, Plugin plugin );
 
     /**
      * Delete a record from the table
@@ -93,6 +130,18 @@ public interface ISlotDAO
      */
     Slot select( int nIdSlot, Plugin plugin );
 
+    /**
+     * Load the data from the table and lock the row of the slot until the end of the current transaction. The current values of the slot are read, even
+     * if they have been committed after the beginning of the transaction
+     * 
+     * @param nIdSlot
+     *            the identifier of the Slot
+     * @param plugin
+     *            the plugin
+     * @return the instance of the Slot
+     */
+    Slot selectForUpdate( int nIdSlot, Plugin plugin );
+
     /**
      * Returns all the slot for the date range
      * 
@@ -108,6 +157,30 @@ public interface ISlotDAO
      */
     List<Slot> findByIdFormAndDateRange( int nIdForm, LocalDateTime startingDateTime, LocalDateTime endingDateTime, Plugin plugin );
 
+    /**
+     * Returns the slots of a period impacted by a modification of the planning, with the number of their appointments. The slots can be restricted to a
+     * day of week and to a time window : the slots that contain the starting time of the window, and the slots that start after it and end before the
+     * ending time of the window
+     * 
+     * @param nIdForm
+     *            the Form Id
+     * @param startingDateTime
+     *            the starting date
+     * @param endingDateTime
+     *            the ending date
+     * @param dayOfWeek
+     *            the day of week of the slots, or null for all the days
+     * @param startingTime
+     *            the starting time of the window, or null for all the slots of the day
+     * @param endingTime
+     *            the ending time of the window, or null to search until the end of the day
+     * @param plugin
+     *            the plugin
+     * @return the slots impacted, ordered by starting date
+     */
+    List<SlotImpact> findSlotImpacts( int nIdForm, LocalDateTime startingDateTime, LocalDateTime endingDateTime, DayOfWeek dayOfWeek,
+            LocalTime startingTime, LocalTime endingTime, Plugin plugin );
+
     /**
      * Returns all the specific slot for the form
      * 
@@ -173,6 +246,58 @@ public interface ISlotDAO
      * @param plugin
      */
     void updatePotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot, Plugin plugin  );
+
+    /**
+     * Atomically decrease the potential remaining places of a slot, only if the slot has enough potential remaining places
+     * 
+     * @param nbPlaces
+     *            the number of places to remove
+     * @param nIdSlot
+     *            the id of the slot
+     * @param plugin
+     *            the plugin
+     * @return true if the potential remaining places have been decreased, false if there were not enough potential remaining places
+     */
+    boolean decrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot, Plugin plugin );
+
+    /**
+     * Atomically increase the potential remaining places of a slot
+     * 
+     * @param nbPlaces
+     *            the number of places to add
+     * @param nIdSlot
+     *            the id of the slot
+     * @param plugin
+     *            the plugin
+     */
+    void incrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot, Plugin plugin );
+
+    /**
+     * Update the remaining places and the places taken of a slot, only if its version is still the version of the given slot. The potential remaining
+     * places are shifted by the given delta, without exceeding the new remaining places
+     * 
+     * @param slot
+     *            the slot with its new remaining places and places taken
+     * @param nbPotentialPlacesDelta
+     *            the number of potential remaining places to add (or remove if negative)
+     * @param plugin
+     *            the plugin
+     * @return true if the slot has been updated, false if it has been modified since it was read
+     */
+    boolean updatePlaces( Slot slot, int nbPotentialPlacesDelta, Plugin plugin );
+
+    /**
+     * Atomically release the places of a slot (appointment deleted, cancelled or moved). The new remaining places take into account the capacity of the slot,
+     * in case of the slot was overbooked
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places released
+     * @param plugin
+     *            the plugin
+     */
+    void releasePlaces( int nIdSlot, int nbPlaces, Plugin plugin );
     /**
      * update the availabilities metrics 
      * @param plugin
@@ -126,6 +126,11 @@ public final class Slot implements Serializable
      * Form Id the slot belongs to (foreign key)
      */
     private int _nIdForm;
+
+    /**
+     * Version of the slot in database (incremented at each update of the slot)
+     */
+    private int _nVersion;
     
     
     /**
@@ -480,4 +485,25 @@ public final class Slot implements Serializable
         this._nIdForm = nIdForm;
     }
 
+    /**
+     * Get the version of the slot
+     * 
+     * @return the version of the slot
+     */
+    public int getVersion( )
+    {
+        return _nVersion;
+    }
+
+    /**
+     * Set the version of the slot
+     * 
+     * @param nVersion
+     *            the version to set
+     */
+    public void setVersion( int nVersion )
+    {
+        this._nVersion = nVersion;
+    }
+
 }
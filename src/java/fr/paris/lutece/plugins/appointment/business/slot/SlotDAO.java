@@ -34,13 +34,17 @@
 package fr.paris.lutece.plugins.appointment.business.slot;
 
 import java.sql.Statement;
+import java.sql.Time;
 import java.sql.Timestamp;
+import java.time.DayOfWeek;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
 import fr.paris.lutece.plugins.appointment.business.UtilDAO;
 import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.util.sql.DAOUtil;
 
 /**
@@ -53,15 +57,25 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
 {
 
     private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_slot (starting_date_time, ending_date_time, is_open, is_specific, max_capacity, nb_remaining_places, nb_potential_remaining_places, nb_places_taken, id_form) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-    private static final String SQL_QUERY_UPDATE = "UPDATE appointment_slot SET starting_date_time = ?, ending_date_time = ?, is_open = ?, is_specific = ?, max_capacity = ?, nb_remaining_places = ?, nb_potential_remaining_places = ?, nb_places_taken = ?, id_form = ? WHERE id_slot = ?";
+    private static final String SQL_QUERY_UPDATE = "UPDATE appointment_slot SET starting_date_time = ?, ending_date_time = ?, is_open = ?, is_specific = ?, max_capacity = ?, nb_remaining_places = ?, nb_potential_remaining_places = ?, nb_places_taken = ?, id_form = ?, version = version + 1 WHERE id_slot = ? AND version = ?";
     private static final String SQL_QUERY_UPDATE_POTENTIAL_REMAINING_PLACE = "UPDATE appointment_slot SET nb_potential_remaining_places = ? WHERE id_slot = ?";
 
+    private static final String SQL_QUERY_DECREMENT_POTENTIAL_REMAINING_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = nb_potential_remaining_places - ? WHERE id_slot = ? AND nb_potential_remaining_places >= ?";
+    private static final String SQL_QUERY_INCREMENT_POTENTIAL_REMAINING_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = nb_potential_remaining_places + ? WHERE id_slot = ?";
+    // The holds move the potential remaining places without changing the version of the slot, so they are only updated relatively to their current value
+    private static final String SQL_QUERY_UPDATE_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = LEAST( nb_potential_remaining_places + ?, ? ), nb_remaining_places = ?, nb_places_taken = ?, version = version + 1"
+            + " WHERE id_slot = ? AND version = ?";
+    // The columns are only read before being assigned, so that the query behaves the same whatever the database evaluation order of the assignments
+    private static final String SQL_QUERY_RELEASE_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = LEAST( max_capacity, nb_potential_remaining_places + ?, GREATEST( 0, max_capacity - nb_places_taken + ? ) ),"
+            + " nb_remaining_places = LEAST( max_capacity, nb_remaining_places + ?, GREATEST( 0, max_capacity - nb_places_taken + ? ) ), nb_places_taken = nb_places_taken - ?, version = version + 1 WHERE id_slot = ?";
+
     private static final String SQL_QUERY_UPDATE_POTENTIAL_REMAINING_PLACE_IF_SHUTDOWN = "UPDATE appointment_slot SET nb_potential_remaining_places = nb_remaining_places WHERE nb_potential_remaining_places < nb_remaining_places ";
 
     private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_slot WHERE id_slot = ?";
-    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_slot, starting_date_time, ending_date_time, is_open, is_specific, max_capacity, nb_remaining_places, nb_potential_remaining_places, nb_places_taken, id_form ";
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_slot, starting_date_time, ending_date_time, is_open, is_specific, max_capacity, nb_remaining_places, nb_potential_remaining_places, nb_places_taken, id_form, version ";
     private static final String SQL_FROM_APPOINTMENT_SLOT = "FROM appointment_slot";
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + SQL_FROM_APPOINTMENT_SLOT + " WHERE id_slot = ?";
+    private static final String SQL_QUERY_SELECT_FOR_UPDATE = SQL_QUERY_SELECT + " FOR UPDATE";
     private static final String SQL_QUERY_SELECT_BY_ID_FORM = SQL_QUERY_SELECT_COLUMNS + SQL_FROM_APPOINTMENT_SLOT + " WHERE id_form = ?";
     private static final String SQL_QUERY_SELECT_BY_ID_FORM_AND_IS_SPECIFIC = SQL_QUERY_SELECT_BY_ID_FORM + " AND is_specific = 1";
     private static final String SQL_QUERY_SELECT_BY_ID_FORM_AND_DATE_RANGE = SQL_QUERY_SELECT_COLUMNS + SQL_FROM_APPOINTMENT_SLOT
@@ -72,6 +86,15 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
             + " WHERE id_form = ? AND is_open = 1";
     private static final String SQL_QUERY_SELECT_SLOT_WITH_MAX_DATE = SQL_QUERY_SELECT_COLUMNS + "FROM appointment_slot slot"
             + " WHERE slot.id_form = ? ORDER BY slot.starting_date_time DESC LIMIT 1";
+    private static final String SQL_QUERY_SELECT_IMPACTS = "SELECT slot.id_slot, slot.starting_date_time, slot.ending_date_time, slot.is_open, slot.is_specific, slot.max_capacity, slot.nb_remaining_places, slot.nb_potential_remaining_places, slot.nb_places_taken, slot.id_form, slot.version, "
+            + " COUNT( app.id_appointment ), SUM( CASE WHEN app.id_appointment IS NOT NULL AND app.is_cancelled = 0 THEN 1 ELSE 0 END )"
+            + " FROM appointment_slot slot LEFT JOIN appointment_appointment app ON app.id_slot = slot.id_slot"
+            + " WHERE slot.id_form = ? AND slot.starting_date_time >= ? AND slot.ending_date_time <= ?";
+    private static final String SQL_FILTER_DAY_OF_WEEK = " AND DAYOFWEEK( slot.starting_date_time ) = ?";
+    private static final String SQL_FILTER_TIME_WINDOW = " AND ( ( TIME( slot.starting_date_time ) <= ? AND TIME( slot.ending_date_time ) > ? ) OR ( TIME( slot.starting_date_time ) > ?";
+    private static final String SQL_FILTER_TIME_WINDOW_END = " AND TIME( slot.ending_date_time ) <= ?";
+    private static final String SQL_FILTER_TIME_WINDOW_CLOSE = " ) )";
+    private static final String SQL_GROUP_BY_SLOT = " GROUP BY slot.id_slot, slot.id_form ORDER BY slot.starting_date_time";
 
     @Override
     public void insert( Slot slot, Plugin plugin )
@@ -91,10 +114,105 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
     }
 
     @Override
-    public void update( Slot slot, Plugin plugin )
+    public boolean update( Slot slot, Plugin plugin )
     {
         DAOUtil daoUtil = buildDaoUtil( SQL_QUERY_UPDATE, slot, plugin, false );
-        executeUpdate( daoUtil );
+        boolean bUpdated = executeUpdate( daoUtil ) > 0;
+        if ( bUpdated )
+        {
+            slot.setVersion( slot.getVersion( ) + 1 );
+        }
+        return bUpdated;
+    }
+
+    @Override
+    public void insertBatch( List<Slot> listSlot, Plugin plugin )
+    {
+        if ( listSlot.isEmpty( ) )
+        {
+            return;
+        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin );
+        try
+        {
+            for ( Slot slot : listSlot )
+            {
+                setSlotValues( daoUtil, slot, true );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+            for ( Slot slot : listSlot )
+            {
+                if ( daoUtil.nextGeneratedKey( ) )
+                {
+                    slot.setIdSlot( daoUtil.getGeneratedKeyInt( 1 ) );
+                }
+            }
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
+    @Override
+    public int updateBatch( List<Slot> listSlot, Plugin plugin )
+    {
+        if ( listSlot.isEmpty( ) )
+        {
+            return 0;
+        }
+        int nNbUpdated = 0;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin );
+        try
+        {
+            for ( Slot slot : listSlot )
+            {
+                setSlotValues( daoUtil, slot, false );
+                daoUtil.addBatch( );
+            }
+            int [ ] tabNbRows = daoUtil.executeBatch( );
+            for ( int nNbRows : tabNbRows )
+            {
+                // A version conflict can not be detected without the count of each statement
+                if ( nNbRows == Statement.SUCCESS_NO_INFO )
+                {
+                    throw new AppException( "The number of slots updated by the batch is unknown" );
+                }
+                if ( nNbRows > 0 )
+                {
+                    nNbUpdated++;
+                }
+            }
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+        return nNbUpdated;
+    }
+
+    @Override
+    public void deleteBatch( List<Integer> listIdSlot, Plugin plugin )
+    {
+        if ( listIdSlot.isEmpty( ) )
+        {
+            return;
+        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin );
+        try
+        {
+            for ( Integer nIdSlot : listIdSlot )
+            {
+                daoUtil.setInt( 1, nIdSlot );
+                daoUtil.addBatch( );
+            }
+            daoUtil.executeBatch( );
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
     }
 
     @Override
@@ -107,12 +225,34 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
 
     @Override
     public Slot select( int nIdSlot, Plugin plugin )
+    {
+        return select( SQL_QUERY_SELECT, nIdSlot, plugin );
+    }
+
+    @Override
+    public Slot selectForUpdate( int nIdSlot, Plugin plugin )
+    {
+        return select( SQL_QUERY_SELECT_FOR_UPDATE, nIdSlot, plugin );
+    }
+
+    /**
+     * Load a slot with a query
+     * 
+     * @param strQuery
+     *            the query
+     * @param nIdSlot
+     *            the id of the slot
+     * @param plugin
+     *            the plugin
+     * @return the slot, null if it does not exist
+     */
+    private Slot select( String strQuery, int nIdSlot, Plugin plugin )
     {
         DAOUtil daoUtil = null;
         Slot slot = null;
         try
         {
-            daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin );
+            daoUtil = new DAOUtil( strQuery, plugin );
             daoUtil.setInt( 1, nIdSlot );
             daoUtil.executeQuery( );
             if ( daoUtil.next( ) )
@@ -157,6 +297,70 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
         return listSlots;
     }
 
+    @Override
+    public List<SlotImpact> findSlotImpacts( int nIdForm, LocalDateTime startingDateTime, LocalDateTime endingDateTime, DayOfWeek dayOfWeek,
+            LocalTime startingTime, LocalTime endingTime, Plugin plugin )
+    {
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_IMPACTS );
+        if ( dayOfWeek != null )
+        {
+            sbSql.append( SQL_FILTER_DAY_OF_WEEK );
+        }
+        if ( startingTime != null )
+        {
+            sbSql.append( SQL_FILTER_TIME_WINDOW );
+            if ( endingTime != null )
+            {
+                sbSql.append( SQL_FILTER_TIME_WINDOW_END );
+            }
+            sbSql.append( SQL_FILTER_TIME_WINDOW_CLOSE );
+        }
+        sbSql.append( SQL_GROUP_BY_SLOT );
+        DAOUtil daoUtil = null;
+        List<SlotImpact> listSlotImpact = new ArrayList<>( );
+        try
+        {
+            int nIndex = 1;
+            daoUtil = new DAOUtil( sbSql.toString( ), plugin );
+            daoUtil.setInt( nIndex++, nIdForm );
+            daoUtil.setTimestamp( nIndex++, Timestamp.valueOf( startingDateTime ) );
+            daoUtil.setTimestamp( nIndex++, Timestamp.valueOf( endingDateTime ) );
+            if ( dayOfWeek != null )
+            {
+                // DAYOFWEEK starts on sunday
+                daoUtil.setInt( nIndex++, dayOfWeek.getValue( ) % 7 + 1 );
+            }
+            if ( startingTime != null )
+            {
+                Time sqlStartingTime = Time.valueOf( startingTime );
+                daoUtil.setTime( nIndex++, sqlStartingTime );
+                daoUtil.setTime( nIndex++, sqlStartingTime );
+                daoUtil.setTime( nIndex++, sqlStartingTime );
+                if ( endingTime != null )
+                {
+                    daoUtil.setTime( nIndex, Time.valueOf( endingTime ) );
+                }
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                SlotImpact slotImpact = new SlotImpact( );
+                slotImpact.setSlot( buildSlot( daoUtil ) );
+                slotImpact.setNbAppointments( daoUtil.getInt( 12 ) );
+                slotImpact.setNbValidatedAppointments( daoUtil.getInt( 13 ) );
+                listSlotImpact.add( slotImpact );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listSlotImpact;
+    }
+
     @Override
     public List<Slot> findIsSpecificByIdForm( int nIdForm, Plugin plugin )
     {
@@ -306,6 +510,58 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
     	 
     }
 
+    @Override
+    public boolean decrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DECREMENT_POTENTIAL_REMAINING_PLACES, plugin );
+        daoUtil.setInt( 1, nbPlaces );
+        daoUtil.setInt( 2, nIdSlot );
+        daoUtil.setInt( 3, nbPlaces );
+        return executeUpdate( daoUtil ) > 0;
+    }
+
+    @Override
+    public void incrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_POTENTIAL_REMAINING_PLACES, plugin );
+        daoUtil.setInt( 1, nbPlaces );
+        daoUtil.setInt( 2, nIdSlot );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public boolean updatePlaces( Slot slot, int nbPotentialPlacesDelta, Plugin plugin )
+    {
+        int nIndex = 1;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_PLACES, plugin );
+        daoUtil.setInt( nIndex++, nbPotentialPlacesDelta );
+        daoUtil.setInt( nIndex++, slot.getNbRemainingPlaces( ) );
+        daoUtil.setInt( nIndex++, slot.getNbRemainingPlaces( ) );
+        daoUtil.setInt( nIndex++, slot.getNbPlacesTaken( ) );
+        daoUtil.setInt( nIndex++, slot.getIdSlot( ) );
+        daoUtil.setInt( nIndex, slot.getVersion( ) );
+        boolean bUpdated = executeUpdate( daoUtil ) > 0;
+        if ( bUpdated )
+        {
+            slot.setVersion( slot.getVersion( ) + 1 );
+        }
+        return bUpdated;
+    }
+
+    @Override
+    public void releasePlaces( int nIdSlot, int nbPlaces, Plugin plugin )
+    {
+        int nIndex = 1;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE_PLACES, plugin );
+        daoUtil.setInt( nIndex++, nbPlaces );
+        daoUtil.setInt( nIndex++, nbPlaces );
+        daoUtil.setInt( nIndex++, nbPlaces );
+        daoUtil.setInt( nIndex++, nbPlaces );
+        daoUtil.setInt( nIndex++, nbPlaces );
+        daoUtil.setInt( nIndex, nIdSlot );
+        executeUpdate( daoUtil );
+    }
+
     /**
      * Build a Slot business object from the resultset
      * 
@@ -326,7 +582,8 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
         slot.setNbRemainingPlaces( daoUtil.getInt( nIndex++ ) );
         slot.setNbPotentialRemainingPlaces( daoUtil.getInt( nIndex++ ) );
         slot.setNbPlacestaken( daoUtil.getInt( nIndex++ ) );
-        slot.setIdForm( daoUtil.getInt( nIndex ) );
+        slot.setIdForm( daoUtil.getInt( nIndex++ ) );
+        slot.setVersion( daoUtil.getInt( nIndex ) );
 
         return slot;
     }
@@ -341,13 +598,12 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
      * @param plugin
      *            the plugin
      * @param isInsert
-     *            true if it is an insert query (in this case, need to set the id). If false, it is an update, in this case, there is a where parameter id to
-     *            set
+     *            true if it is an insert query (in this case, need to set the id). If false, it is an update, in this case, there is a where parameter id and version
+     *            to set
      * @return a new daoUtil with all its values assigned
      */
     private DAOUtil buildDaoUtil( String query, Slot slot, Plugin plugin, boolean isInsert )
     {
-        int nIndex = 1;
         DAOUtil daoUtil = null;
         if ( isInsert )
         {
@@ -355,6 +611,23 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
         }else{
         	daoUtil = new DAOUtil( query, plugin );
         }
+        setSlotValues( daoUtil, slot, isInsert );
+        return daoUtil;
+    }
+
+    /**
+     * Set the values of a Slot business object on a daoUtil
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @param slot
+     *            the slot
+     * @param isInsert
+     *            true if it is an insert query. If false, it is an update, in this case, there is a where parameter id and version to set
+     */
+    private void setSlotValues( DAOUtil daoUtil, Slot slot, boolean isInsert )
+    {
+        int nIndex = 1;
         daoUtil.setTimestamp( nIndex++, slot.getStartingTimestampDate( ) );
         daoUtil.setTimestamp( nIndex++, slot.getEndingTimestampDate( ) );
         daoUtil.setBoolean( nIndex++, slot.getIsOpen( ) );
@@ -366,9 +639,9 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
         daoUtil.setInt( nIndex++, slot.getIdForm( ) );
         if ( !isInsert )
         {
-            daoUtil.setInt( nIndex, slot.getIdSlot( ) );
+            daoUtil.setInt( nIndex++, slot.getIdSlot( ) );
+            daoUtil.setInt( nIndex, slot.getVersion( ) );
         }
-        return daoUtil;
     }
 
     /**
@@ -376,12 +649,13 @@ public final class SlotDAO extends UtilDAO implements ISlotDAO
      * 
      * @param daoUtil
      *            the daoUtil
+     * @return the number of rows updated
      */
-    private void executeUpdate( DAOUtil daoUtil )
+    private int executeUpdate( DAOUtil daoUtil )
     {
         try
         {
-            daoUtil.executeUpdate( );
+            return daoUtil.executeUpdate( );
         }
         finally
         {
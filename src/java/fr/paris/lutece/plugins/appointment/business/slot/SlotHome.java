@@ -33,10 +33,14 @@
  */
 package fr.paris.lutece.plugins.appointment.business.slot;
 
+import java.time.DayOfWeek;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.plugins.appointment.business.form.FormVersionHome;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
@@ -71,22 +75,65 @@ public final class SlotHome
     public static Slot create( Slot slot )
     {
         _dao.insert( slot, _plugin );
+        FormVersionHome.incrementAvailabilityVersion( slot.getIdForm( ) );
 
         return slot;
     }
 
     /**
-     * Update of the Slot which is specified in parameter
+     * Update of the Slot which is specified in parameter, only if the slot has not been modified since it was read
      * 
      * @param slot
      *            The instance of the Slot which contains the data to store
-     * @return The instance of the Slot which has been updated
+     * @return true if the slot has been updated, false if there is a version conflict
      */
-    public static Slot update( Slot slot )
+    public static boolean update( Slot slot )
     {
-        _dao.update( slot, _plugin );
+        boolean bUpdated = _dao.update( slot, _plugin );
+        if ( bUpdated )
+        {
+            FormVersionHome.incrementAvailabilityVersion( slot.getIdForm( ) );
+        }
+        return bUpdated;
+    }
 
-        return slot;
+    /**
+     * Create several slots with a single batch of statements
+     * 
+     * @param listSlot
+     *            the slots to create. Their primary keys are set
+     */
+    public static void createBatch( List<Slot> listSlot )
+    {
+        _dao.insertBatch( listSlot, _plugin );
+        listSlot.stream( ).map( Slot::getIdForm ).distinct( ).forEach( FormVersionHome::incrementAvailabilityVersion );
+    }
+
+    /**
+     * Update several slots with a single batch of statements, in the order of the list. Each slot is updated only if it has not been modified since it
+     * was read. The versions of the given slots are not changed, the caller increments them once the transaction is committed
+     * 
+     * @param listSlot
+     *            the slots to update
+     * @return the number of slots updated (less than the number of slots if there are version conflicts)
+     */
+    public static int updateBatch( List<Slot> listSlot )
+    {
+        int nNbUpdated = _dao.updateBatch( listSlot, _plugin );
+        listSlot.stream( ).map( Slot::getIdForm ).distinct( ).forEach( FormVersionHome::incrementAvailabilityVersion );
+        return nNbUpdated;
+    }
+
+    /**
+     * Delete several slots with a single batch of statements
+     * 
+     * @param listSlot
+     *            the slots to delete
+     */
+    public static void deleteBatch( List<Slot> listSlot )
+    {
+        _dao.deleteBatch( listSlot.stream( ).map( Slot::getIdSlot ).collect( Collectors.toList( ) ), _plugin );
+        listSlot.stream( ).map( Slot::getIdForm ).distinct( ).forEach( FormVersionHome::incrementAvailabilityVersion );
     }
 
     /**
@@ -97,6 +144,8 @@ public final class SlotHome
      */
     public static void delete( int nKey )
     {
+        // The version is incremented while the slot still gives its form
+        FormVersionHome.incrementAvailabilityVersionOfSlot( nKey );
         _dao.delete( nKey, _plugin );
     }
 
@@ -112,6 +161,18 @@ public final class SlotHome
         return _dao.select( nKey, _plugin );
     }
 
+    /**
+     * Returns an instance of the Slot whose identifier is specified in parameter, and locks its row until the end of the current transaction
+     * 
+     * @param nKey
+     *            The Slot primary key
+     * @return an instance of the Slot
+     */
+    public static Slot findByPrimaryKeyForUpdate( int nKey )
+    {
+        return _dao.selectForUpdate( nKey, _plugin );
+    }
+
     /**
      * Returns a list of slots for a date range
      * 
@@ -128,6 +189,29 @@ public final class SlotHome
         return _dao.findByIdFormAndDateRange( nIdForm, startingDateTime, endingDateTime, _plugin );
     }
 
+    /**
+     * Returns the slots of a period impacted by a modification of the planning, with the number of their appointments
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param startingDateTime
+     *            the starting date
+     * @param endingDateTime
+     *            the ending date
+     * @param dayOfWeek
+     *            the day of week of the slots, or null for all the days
+     * @param startingTime
+     *            the starting time of the window, or null for all the slots of the day
+     * @param endingTime
+     *            the ending time of the window, or null to search until the end of the day
+     * @return the slots impacted, ordered by starting date
+     */
+    public static List<SlotImpact> findSlotImpacts( int nIdForm, LocalDateTime startingDateTime, LocalDateTime endingDateTime, DayOfWeek dayOfWeek,
+            LocalTime startingTime, LocalTime endingTime )
+    {
+        return _dao.findSlotImpacts( nIdForm, startingDateTime, endingDateTime, dayOfWeek, startingTime, endingTime, _plugin );
+    }
+
     /**
      * Returns a list of specific slots for a form
      * 
@@ -199,9 +283,76 @@ public final class SlotHome
     public static void updatePotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot){
     	
     	 _dao.updatePotentialRemainingPlaces(nbPotentialRemainingPlaces, nIdSlot, _plugin);
+    	 FormVersionHome.incrementAvailabilityVersionOfSlot( nIdSlot );
 
     }
     
+    /**
+     * Atomically decrease the potential remaining places of a slot, only if the slot has enough potential remaining places
+     * 
+     * @param nbPlaces
+     *            the number of places to remove
+     * @param nIdSlot
+     *            the id of the slot
+     * @return true if the potential remaining places have been decreased
+     */
+    public static boolean decrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot )
+    {
+        boolean bDecremented = _dao.decrementPotentialRemainingPlaces( nbPlaces, nIdSlot, _plugin );
+        if ( bDecremented )
+        {
+            FormVersionHome.incrementAvailabilityVersionOfSlot( nIdSlot );
+        }
+        return bDecremented;
+    }
+
+    /**
+     * Atomically increase the potential remaining places of a slot
+     * 
+     * @param nbPlaces
+     *            the number of places to add
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    public static void incrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot )
+    {
+        _dao.incrementPotentialRemainingPlaces( nbPlaces, nIdSlot, _plugin );
+        FormVersionHome.incrementAvailabilityVersionOfSlot( nIdSlot );
+    }
+
+    /**
+     * Update the remaining places and the places taken of a slot, only if the slot has not been modified since it was read
+     * 
+     * @param slot
+     *            the slot with its new remaining places and places taken
+     * @param nbPotentialPlacesDelta
+     *            the number of potential remaining places to add (or remove if negative)
+     * @return true if the slot has been updated, false if there is a version conflict
+     */
+    public static boolean updatePlaces( Slot slot, int nbPotentialPlacesDelta )
+    {
+        boolean bUpdated = _dao.updatePlaces( slot, nbPotentialPlacesDelta, _plugin );
+        if ( bUpdated )
+        {
+            FormVersionHome.incrementAvailabilityVersion( slot.getIdForm( ) );
+        }
+        return bUpdated;
+    }
+
+    /**
+     * Atomically release the places of a slot (appointment deleted, cancelled or moved)
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places released
+     */
+    public static void releasePlaces( int nIdSlot, int nbPlaces )
+    {
+        _dao.releasePlaces( nIdSlot, nbPlaces, _plugin );
+        FormVersionHome.incrementAvailabilityVersionOfSlot( nIdSlot );
+    }
+
     /**
      * Reset Potential Remaining Places
      * @param nbPotentialRemainingPlaces
@@ -210,7 +361,7 @@ public final class SlotHome
     public static void resetPotentialRemainingPlaces( ){
     	
     	 _dao.resetPotentialRemainingPlaces( _plugin);
+    	 FormVersionHome.incrementAvailabilityVersionOfAllForms( );
 
     }
-   
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.io.Serializable;
+
+/**
+ * A slot impacted by a modification of the planning, with the number of appointments taken on it
+ *
+ */
+public final class SlotImpact implements Serializable
+{
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -3279153612358120127L;
+
+    /**
+     * The slot impacted
+     */
+    private Slot _slot;
+
+    /**
+     * The number of appointments on the slot, the cancelled ones included
+     */
+    private int _nNbAppointments;
+
+    /**
+     * The number of appointments on the slot that are not cancelled
+     */
+    private int _nNbValidatedAppointments;
+
+    /**
+     * Get the slot impacted
+     * 
+     * @return the slot
+     */
+    public Slot getSlot( )
+    {
+        return _slot;
+    }
+
+    /**
+     * Set the slot impacted
+     * 
+     * @param slot
+     *            the slot to set
+     */
+    public void setSlot( Slot slot )
+    {
+        this._slot = slot;
+    }
+
+    /**
+     * Get the number of appointments on the slot, the cancelled ones included
+     * 
+     * @return the number of appointments
+     */
+    public int getNbAppointments( )
+    {
+        return _nNbAppointments;
+    }
+
+    /**
+     * Set the number of appointments on the slot, the cancelled ones included
+     * 
+     * @param nNbAppointments
+     *            the number of appointments to set
+     */
+    public void setNbAppointments( int nNbAppointments )
+    {
+        this._nNbAppointments = nNbAppointments;
+    }
+
+    /**
+     * Get the number of appointments on the slot that are not cancelled
+     * 
+     * @return the number of validated appointments
+     */
+    public int getNbValidatedAppointments( )
+    {
+        return _nNbValidatedAppointments;
+    }
+
+    /**
+     * Set the number of appointments on the slot that are not cancelled
+     * 
+     * @param nNbValidatedAppointments
+     *            the number of validated appointments to set
+     */
+    public void setNbValidatedAppointments( int nNbValidatedAppointments )
+    {
+        this._nNbValidatedAppointments = nNbValidatedAppointments;
+    }
+
+    /**
+     * Tell if there are appointments on the slot, cancelled or not
+     * 
+     * @return true if there is at least one appointment on the slot
+     */
+    public boolean hasAppointments( )
+    {
+        return _nNbAppointments > 0;
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.task;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Business class of a task run after the commit of an appointment (workflow initialization, notification of the listeners). The tasks are stored in
+ * database so that they are not lost if the application stops, and retried when they fail
+ */
+public final class AppointmentTask implements Serializable
+{
+
+    /**
+     * Status of a task waiting to be processed
+     */
+    public static final int STATUS_TO_PROCESS = 0;
+
+    /**
+     * Status of a task being processed
+     */
+    public static final int STATUS_IN_PROGRESS = 1;
+
+    /**
+     * Status of a task that failed too many times (will not be retried automatically)
+     */
+    public static final int STATUS_FAILED = 2;
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -1728946328573401553L;
+
+    /**
+     * Task Id
+     */
+    private int _nIdTask;
+
+    /**
+     * Id of the appointment
+     */
+    private int _nIdAppointment;
+
+    /**
+     * Id of the form of the appointment
+     */
+    private int _nIdForm;
+
+    /**
+     * True if the appointment has just been created, false if it has been updated
+     */
+    private boolean _bNewAppointment;
+
+    /**
+     * True if the workflow resource of the appointment must be removed before the initialization of the workflow
+     */
+    private boolean _bResetWorkflow;
+
+    /**
+     * Status of the task
+     */
+    private int _nStatus;
+
+    /**
+     * Number of attempts already made
+     */
+    private int _nNbAttempts;
+
+    /**
+     * Date of creation of the task
+     */
+    private LocalDateTime _dateCreation;
+
+    /**
+     * Date of the last change of status of the task
+     */
+    private LocalDateTime _dateStatus;
+
+    /**
+     * Date after which the task can be processed
+     */
+    private LocalDateTime _dateNextAttempt;
+
+    /**
+     * Error of the last attempt
+     */
+    private String _strLastError;
+
+    /**
+     * Get the id of the task
+     * 
+     * @return the id of the task
+     */
+    public int getIdTask( )
+    {
+        return _nIdTask;
+    }
+
+    /**
+     * Set the id of the task
+     * 
+     * @param nIdTask
+     *            the id to set
+     */
+    public void setIdTask( int nIdTask )
+    {
+        this._nIdTask = nIdTask;
+    }
+
+    /**
+     * Get the id of the appointment
+     * 
+     * @return the id of the appointment
+     */
+    public int getIdAppointment( )
+    {
+        return _nIdAppointment;
+    }
+
+    /**
+     * Set the id of the appointment
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment to set
+     */
+    public void setIdAppointment( int nIdAppointment )
+    {
+        this._nIdAppointment = nIdAppointment;
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Set the id of the form
+     * 
+     * @param nIdForm
+     *            the id of the form to set
+     */
+    public void setIdForm( int nIdForm )
+    {
+        this._nIdForm = nIdForm;
+    }
+
+    /**
+     * Indicate whether the appointment has just been created
+     * 
+     * @return true if the appointment has just been created, false if it has been updated
+     */
+    public boolean getNewAppointment( )
+    {
+        return _bNewAppointment;
+    }
+
+    /**
+     * Set whether the appointment has just been created
+     * 
+     * @param bNewAppointment
+     *            true if the appointment has just been created
+     */
+    public void setNewAppointment( boolean bNewAppointment )
+    {
+        this._bNewAppointment = bNewAppointment;
+    }
+
+    /**
+     * Indicate whether the workflow resource of the appointment must be removed first
+     * 
+     * @return true if the workflow resource must be removed
+     */
+    public boolean getResetWorkflow( )
+    {
+        return _bResetWorkflow;
+    }
+
+    /**
+     * Set whether the workflow resource of the appointment must be removed first
+     * 
+     * @param bResetWorkflow
+     *            true if the workflow resource must be removed
+     */
+    public void setResetWorkflow( boolean bResetWorkflow )
+    {
+        this._bResetWorkflow = bResetWorkflow;
+    }
+
+    /**
+     * Get the status of the task
+     * 
+     * @return the status
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Set the status of the task
+     * 
+     * @param nStatus
+     *            the status to set
+     */
+    public void setStatus( int nStatus )
+    {
+        this._nStatus = nStatus;
+    }
+
+    /**
+     * Get the number of attempts already made
+     * 
+     * @return the number of attempts
+     */
+    public int getNbAttempts( )
+    {
+        return _nNbAttempts;
+    }
+
+    /**
+     * Set the number of attempts already made
+     * 
+     * @param nNbAttempts
+     *            the number of attempts to set
+     */
+    public void setNbAttempts( int nNbAttempts )
+    {
+        this._nNbAttempts = nNbAttempts;
+    }
+
+    /**
+     * Get the date of creation of the task
+     * 
+     * @return the date of creation
+     */
+    public LocalDateTime getDateCreation( )
+    {
+        return _dateCreation;
+    }
+
+    /**
+     * Set the date of creation of the task
+     * 
+     * @param dateCreation
+     *            the date of creation to set
+     */
+    public void setDateCreation( LocalDateTime dateCreation )
+    {
+        this._dateCreation = dateCreation;
+    }
+
+    /**
+     * Get the date of the last change of status
+     * 
+     * @return the date of the last change of status
+     */
+    public LocalDateTime getDateStatus( )
+    {
+        return _dateStatus;
+    }
+
+    /**
+     * Set the date of the last change of status
+     * 
+     * @param dateStatus
+     *            the date to set
+     */
+    public void setDateStatus( LocalDateTime dateStatus )
+    {
+        this._dateStatus = dateStatus;
+    }
+
+    /**
+     * Get the date after which the task can be processed
+     * 
+     * @return the date of the next attempt
+     */
+    public LocalDateTime getDateNextAttempt( )
+    {
+        return _dateNextAttempt;
+    }
+
+    /**
+     * Set the date after which the task can be processed
+     * 
+     * @param dateNextAttempt
+     *            the date of the next attempt to set
+     */
+    public void setDateNextAttempt( LocalDateTime dateNextAttempt )
+    {
+        this._dateNextAttempt = dateNextAttempt;
+    }
+
+    /**
+     * Get the error of the last attempt
+     * 
+     * @return the error
+     */
+    public String getLastError( )
+    {
+        return _strLastError;
+    }
+
+    /**
+     * Set the error of the last attempt
+     * 
+     * @param strLastError
+     *            the error to set
+     */
+    public void setLastError( String strLastError )
+    {
+        this._strLastError = strLastError;
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.task;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.UtilDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for AppointmentTask objects
+ *
+ */
+public final class AppointmentTaskDAO extends UtilDAO implements IAppointmentTaskDAO
+{
+
+    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_task (id_appointment, id_form, is_new_appointment, is_reset_workflow, status, nb_attempts, date_creation, date_status, date_next_attempt, last_error) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_QUERY_UPDATE = "UPDATE appointment_task SET id_appointment = ?, id_form = ?, is_new_appointment = ?, is_reset_workflow = ?, status = ?, nb_attempts = ?, date_creation = ?, date_status = ?, date_next_attempt = ?, last_error = ? WHERE id_task = ?";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_task WHERE id_task = ?";
+    private static final String SQL_QUERY_LOCK = "UPDATE appointment_task SET status = " + AppointmentTask.STATUS_IN_PROGRESS
+            + ", date_status = ? WHERE id_task = ? AND status = " + AppointmentTask.STATUS_TO_PROCESS + " AND date_next_attempt <= ?";
+    private static final String SQL_QUERY_UNLOCK_BEFORE = "UPDATE appointment_task SET status = " + AppointmentTask.STATUS_TO_PROCESS + " WHERE status = "
+            + AppointmentTask.STATUS_IN_PROGRESS + " AND date_status < ?";
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_task, id_appointment, id_form, is_new_appointment, is_reset_workflow, status, nb_attempts, date_creation, date_status, date_next_attempt, last_error FROM appointment_task";
+    private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_task = ?";
+    private static final String SQL_QUERY_SELECT_BY_STATUS = SQL_QUERY_SELECT_COLUMNS + " WHERE status = ? ORDER BY date_status DESC";
+    private static final String SQL_QUERY_SELECT_ID_TO_PROCESS = "SELECT id_task FROM appointment_task WHERE status = " + AppointmentTask.STATUS_TO_PROCESS
+            + " AND date_next_attempt <= ? ORDER BY id_task LIMIT ?";
+    private static final String SQL_QUERY_COUNT_BY_STATUS = "SELECT COUNT(*) FROM appointment_task WHERE status = ?";
+
+    @Override
+    public void insert( AppointmentTask task, Plugin plugin )
+    {
+        DAOUtil daoUtil = buildDaoUtil( SQL_QUERY_INSERT, task, plugin, true );
+        try
+        {
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                task.setIdTask( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+        finally
+        {
+            daoUtil.free( );
+        }
+    }
+
+    @Override
+    public void update( AppointmentTask task, Plugin plugin )
+    {
+        DAOUtil daoUtil = buildDaoUtil( SQL_QUERY_UPDATE, task, plugin, false );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public void delete( int nIdTask, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin );
+        daoUtil.setInt( 1, nIdTask );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public AppointmentTask select( int nIdTask, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        AppointmentTask task = null;
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin );
+            daoUtil.setInt( 1, nIdTask );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                task = buildAppointmentTask( daoUtil );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return task;
+    }
+
+    @Override
+    public boolean lock( int nIdTask, LocalDateTime dateNow, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_LOCK, plugin );
+        daoUtil.setTimestamp( 1, Timestamp.valueOf( dateNow ) );
+        daoUtil.setInt( 2, nIdTask );
+        daoUtil.setTimestamp( 3, Timestamp.valueOf( dateNow ) );
+        return executeUpdate( daoUtil ) > 0;
+    }
+
+    @Override
+    public void unlockTasksInProgressBefore( LocalDateTime dateLimit, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UNLOCK_BEFORE, plugin );
+        daoUtil.setTimestamp( 1, Timestamp.valueOf( dateLimit ) );
+        executeUpdate( daoUtil );
+    }
+
+    @Override
+    public List<Integer> findIdTasksToProcess( LocalDateTime dateNow, int nLimit, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        List<Integer> listIdTasks = new ArrayList<>( );
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_ID_TO_PROCESS, plugin );
+            daoUtil.setTimestamp( 1, Timestamp.valueOf( dateNow ) );
+            daoUtil.setInt( 2, nLimit );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listIdTasks.add( daoUtil.getInt( 1 ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listIdTasks;
+    }
+
+    @Override
+    public List<AppointmentTask> findByStatus( int nStatus, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        List<AppointmentTask> listTasks = new ArrayList<>( );
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_STATUS, plugin );
+            daoUtil.setInt( 1, nStatus );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listTasks.add( buildAppointmentTask( daoUtil ) );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return listTasks;
+    }
+
+    @Override
+    public int countByStatus( int nStatus, Plugin plugin )
+    {
+        DAOUtil daoUtil = null;
+        int nCount = 0;
+        try
+        {
+            daoUtil = new DAOUtil( SQL_QUERY_COUNT_BY_STATUS, plugin );
+            daoUtil.setInt( 1, nStatus );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                nCount = daoUtil.getInt( 1 );
+            }
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+        return nCount;
+    }
+
+    /**
+     * Build an AppointmentTask business object from the resultset
+     * 
+     * @param daoUtil
+     *            the prepare statement util object
+     * @return a new AppointmentTask with all its attributes assigned
+     */
+    private AppointmentTask buildAppointmentTask( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        AppointmentTask task = new AppointmentTask( );
+        task.setIdTask( daoUtil.getInt( nIndex++ ) );
+        task.setIdAppointment( daoUtil.getInt( nIndex++ ) );
+        task.setIdForm( daoUtil.getInt( nIndex++ ) );
+        task.setNewAppointment( daoUtil.getBoolean( nIndex++ ) );
+        task.setResetWorkflow( daoUtil.getBoolean( nIndex++ ) );
+        task.setStatus( daoUtil.getInt( nIndex++ ) );
+        task.setNbAttempts( daoUtil.getInt( nIndex++ ) );
+        task.setDateCreation( toLocalDateTime( daoUtil.getTimestamp( nIndex++ ) ) );
+        task.setDateStatus( toLocalDateTime( daoUtil.getTimestamp( nIndex++ ) ) );
+        task.setDateNextAttempt( toLocalDateTime( daoUtil.getTimestamp( nIndex++ ) ) );
+        task.setLastError( daoUtil.getString( nIndex ) );
+        return task;
+    }
+
+    /**
+     * Build a daoUtil object with the AppointmentTask business object
+     * 
+     * @param query
+     *            the query
+     * @param task
+     *            the AppointmentTask
+     * @param plugin
+     *            the plugin
+     * @param isInsert
+     *            true if it is an insert query (in this case, need to set the id). If false, it is an update, in this case, there is a where parameter id to
+     *            set
+     * @return a new daoUtil with all its values assigned
+     */
+    private DAOUtil buildDaoUtil( String query, AppointmentTask task, Plugin plugin, boolean isInsert )
+    {
+        int nIndex = 1;
+        DAOUtil daoUtil = null;
+        if ( isInsert )
+        {
+            daoUtil = new DAOUtil( query, Statement.RETURN_GENERATED_KEYS, plugin );
+        }
+        else
+        {
+            daoUtil = new DAOUtil( query, plugin );
+        }
+        daoUtil.setInt( nIndex++, task.getIdAppointment( ) );
+        daoUtil.setInt( nIndex++, task.getIdForm( ) );
+        daoUtil.setBoolean( nIndex++, task.getNewAppointment( ) );
+        daoUtil.setBoolean( nIndex++, task.getResetWorkflow( ) );
+        daoUtil.setInt( nIndex++, task.getStatus( ) );
+        daoUtil.setInt( nIndex++, task.getNbAttempts( ) );
+        daoUtil.setTimestamp( nIndex++, toTimestamp( task.getDateCreation( ) ) );
+        daoUtil.setTimestamp( nIndex++, toTimestamp( task.getDateStatus( ) ) );
+        daoUtil.setTimestamp( nIndex++, toTimestamp( task.getDateNextAttempt( ) ) );
+        daoUtil.setString( nIndex++, task.getLastError( ) );
+        if ( !isInsert )
+        {
+            daoUtil.setInt( nIndex, task.getIdTask( ) );
+        }
+        return daoUtil;
+    }
+
+    /**
+     * Convert a date to a timestamp
+     * 
+     * @param date
+     *            the date (can be null)
+     * @return the timestamp, or null if the date is null
+     */
+    private static Timestamp toTimestamp( LocalDateTime date )
+    {
+        return ( date != null ) ? Timestamp.valueOf( date ) : null;
+    }
+
+    /**
+     * Convert a timestamp to a date
+     * 
+     * @param timestamp
+     *            the timestamp (can be null)
+     * @return the date, or null if the timestamp is null
+     */
+    private static LocalDateTime toLocalDateTime( Timestamp timestamp )
+    {
+        return ( timestamp != null ) ? timestamp.toLocalDateTime( ) : null;
+    }
+
+    /**
+     * Execute a safe update (Free the connection in case of error when execute the query)
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @return the number of rows updated
+     */
+    private int executeUpdate( DAOUtil daoUtil )
+    {
+        try
+        {
+            return daoUtil.executeUpdate( );
+        }
+        finally
+        {
+            if ( daoUtil != null )
+            {
+                daoUtil.free( );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.task;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for AppointmentTask objects
+ *
+ */
+public final class AppointmentTaskHome
+{
+
+    // Static variable pointed at the DAO instance
+    private static IAppointmentTaskDAO _dao = SpringContextService.getBean( IAppointmentTaskDAO.BEAN_NAME );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AppointmentTaskHome( )
+    {
+    }
+
+    /**
+     * Create an instance of the AppointmentTask class
+     * 
+     * @param task
+     *            The instance of the AppointmentTask which contains the informations to store
+     * @return The instance of AppointmentTask which has been created with its primary key.
+     */
+    public static AppointmentTask create( AppointmentTask task )
+    {
+        _dao.insert( task, _plugin );
+
+        return task;
+    }
+
+    /**
+     * Update of the AppointmentTask which is specified in parameter
+     * 
+     * @param task
+     *            The instance of the AppointmentTask which contains the data to store
+     * @return The instance of the AppointmentTask which has been updated
+     */
+    public static AppointmentTask update( AppointmentTask task )
+    {
+        _dao.update( task, _plugin );
+
+        return task;
+    }
+
+    /**
+     * Delete the AppointmentTask whose identifier is specified in parameter
+     * 
+     * @param nKey
+     *            The AppointmentTask Id
+     */
+    public static void delete( int nKey )
+    {
+        _dao.delete( nKey, _plugin );
+    }
+
+    /**
+     * Returns an instance of the AppointmentTask whose identifier is specified in parameter
+     * 
+     * @param nKey
+     *            The AppointmentTask primary key
+     * @return an instance of the AppointmentTask
+     */
+    public static AppointmentTask findByPrimaryKey( int nKey )
+    {
+        return _dao.select( nKey, _plugin );
+    }
+
+    /**
+     * Take a task to process it
+     * 
+     * @param nKey
+     *            The AppointmentTask primary key
+     * @param dateNow
+     *            the current date
+     * @return true if the task has been taken by the caller
+     */
+    public static boolean lock( int nKey, LocalDateTime dateNow )
+    {
+        return _dao.lock( nKey, dateNow, _plugin );
+    }
+
+    /**
+     * Put back in the waiting status the tasks whose processing has been interrupted
+     * 
+     * @param dateLimit
+     *            the tasks in progress since before this date are put back
+     */
+    public static void unlockTasksInProgressBefore( LocalDateTime dateLimit )
+    {
+        _dao.unlockTasksInProgressBefore( dateLimit, _plugin );
+    }
+
+    /**
+     * Find the ids of the tasks ready to be processed
+     * 
+     * @param dateNow
+     *            the current date
+     * @param nLimit
+     *            the maximum number of ids
+     * @return the list of the ids of the tasks
+     */
+    public static List<Integer> findIdTasksToProcess( LocalDateTime dateNow, int nLimit )
+    {
+        return _dao.findIdTasksToProcess( dateNow, nLimit, _plugin );
+    }
+
+    /**
+     * Find the tasks with the given status
+     * 
+     * @param nStatus
+     *            the status
+     * @return the list of the tasks
+     */
+    public static List<AppointmentTask> findByStatus( int nStatus )
+    {
+        return _dao.findByStatus( nStatus, _plugin );
+    }
+
+    /**
+     * Count the tasks with the given status
+     * 
+     * @param nStatus
+     *            the status
+     * @return the number of tasks
+     */
+    public static int countByStatus( int nStatus )
+    {
+        return _dao.countByStatus( nStatus, _plugin );
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.task;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Appointment Task DAO Interface
+ *
+ */
+public interface IAppointmentTaskDAO
+{
+
+    /**
+     * The name of the bean of the DAO
+     */
+    static String BEAN_NAME = "appointment.appointmentTaskDAO";
+
+    /**
+     * Insert a new record in the table.
+     * 
+     * @param task
+     *            instance of the AppointmentTask object to insert
+     * @param plugin
+     *            the Plugin
+     */
+    void insert( AppointmentTask task, Plugin plugin );
+
+    /**
+     * Update the record in the table
+     * 
+     * @param task
+     *            the reference of the AppointmentTask
+     * @param plugin
+     *            the Plugin
+     */
+    void update( AppointmentTask task, Plugin plugin );
+
+    /**
+     * Delete a record from the table
+     * 
+     * @param nIdTask
+     *            identifier of the AppointmentTask to delete
+     * @param plugin
+     *            the Plugin
+     */
+    void delete( int nIdTask, Plugin plugin );
+
+    /**
+     * Load the data from the table
+     * 
+     * @param nIdTask
+     *            The identifier of the AppointmentTask
+     * @param plugin
+     *            the Plugin
+     * @return The instance of the AppointmentTask
+     */
+    AppointmentTask select( int nIdTask, Plugin plugin );
+
+    /**
+     * Take a task to process it: the status of the task is switched to in progress only if the task is still waiting and its next attempt date is passed
+     * 
+     * @param nIdTask
+     *            the id of the task
+     * @param dateNow
+     *            the current date
+     * @param plugin
+     *            the Plugin
+     * @return true if the task has been taken by the caller, false if it has been taken by someone else or is not ready
+     */
+    boolean lock( int nIdTask, LocalDateTime dateNow, Plugin plugin );
+
+    /**
+     * Put back in the waiting status the tasks that have been in progress since before the given date (their processing has been interrupted)
+     * 
+     * @param dateLimit
+     *            the date limit
+     * @param plugin
+     *            the Plugin
+     */
+    void unlockTasksInProgressBefore( LocalDateTime dateLimit, Plugin plugin );
+
+    /**
+     * Find the ids of the tasks waiting to be processed whose next attempt date is passed, the oldest first
+     * 
+     * @param dateNow
+     *            the current date
+     * @param nLimit
+     *            the maximum number of ids to return
+     * @param plugin
+     *            the Plugin
+     * @return the list of the ids of the tasks
+     */
+    List<Integer> findIdTasksToProcess( LocalDateTime dateNow, int nLimit, Plugin plugin );
+
+    /**
+     * Find the tasks with the given status
+     * 
+     * @param nStatus
+     *            the status
+     * @param plugin
+     *            the Plugin
+     * @return the list of the tasks
+     */
+    List<AppointmentTask> findByStatus( int nStatus, Plugin plugin );
+
+    /**
+     * Count the tasks with the given status
+     * 
+     * @param nStatus
+     *            the status
+     * @param plugin
+     *            the Plugin
+     * @return the number of tasks
+     */
+    int countByStatus( int nStatus, Plugin plugin );
+}
@@ -50,8 +50,8 @@ import fr.paris.lutece.util.sql.DAOUtil;
 public final class UserDAO extends UtilDAO implements IUserDAO
 {
 
-    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_user ( guid, first_name, last_name, email, phone_number) VALUES ( ?, ?, ?, ?, ?)";
-    private static final String SQL_QUERY_UPDATE = "UPDATE appointment_user SET guid = ?, first_name = ?, last_name = ?, email = ?, phone_number = ? WHERE id_user = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_user ( guid, first_name, last_name, email, phone_number, first_name_search, last_name_search, email_search, email_search_reversed) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_QUERY_UPDATE = "UPDATE appointment_user SET guid = ?, first_name = ?, last_name = ?, email = ?, phone_number = ?, first_name_search = ?, last_name_search = ?, email_search = ?, email_search_reversed = ? WHERE id_user = ?";
     private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_user WHERE id_user = ?";
     private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_user, guid, first_name, last_name, email, phone_number FROM appointment_user";
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_user = ?";
@@ -217,6 +217,11 @@ public final class UserDAO extends UtilDAO implements IUserDAO
         daoUtil.setString( nIndex++, user.getLastName( ) );
         daoUtil.setString( nIndex++, user.getEmail( ) );
         daoUtil.setString( nIndex++, user.getPhoneNumber( ) );
+        // The search columns are maintained with the values they are computed from
+        daoUtil.setString( nIndex++, UserSearchNormalizer.normalize( user.getFirstName( ) ) );
+        daoUtil.setString( nIndex++, UserSearchNormalizer.normalize( user.getLastName( ) ) );
+        daoUtil.setString( nIndex++, UserSearchNormalizer.normalize( user.getEmail( ) ) );
+        daoUtil.setString( nIndex++, UserSearchNormalizer.normalizeReversed( user.getEmail( ) ) );
         if ( !isInsert )
         {
             daoUtil.setInt( nIndex, user.getIdUser( ) );
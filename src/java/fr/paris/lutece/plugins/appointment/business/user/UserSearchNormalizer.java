@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.user;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization of the values of the search columns of the users. The names and the email are stored lower-cased and without accents, so that the back
+ * office search can compare them with an index instead of applying UPPER() to every row. The email is also stored reversed, so that a search on the end
+ * of the email (the domain) is a search on the beginning of the reversed email
+ */
+public final class UserSearchNormalizer
+{
+    private static final Pattern PATTERN_DIACRITICS = Pattern.compile( "\\p{M}+" );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private UserSearchNormalizer( )
+    {
+    }
+
+    /**
+     * Normalize a value for the search: trimmed, lower-cased and without accents
+     * 
+     * @param strValue
+     *            the value (can be null)
+     * @return the normalized value, or null if the value is null
+     */
+    public static String normalize( String strValue )
+    {
+        if ( strValue == null )
+        {
+            return null;
+        }
+        String strDecomposed = Normalizer.normalize( strValue.trim( ), Normalizer.Form.NFD );
+        return PATTERN_DIACRITICS.matcher( strDecomposed ).replaceAll( "" ).toLowerCase( Locale.ROOT );
+    }
+
+    /**
+     * Normalize and reverse a value for the search on its end
+     * 
+     * @param strValue
+     *            the value (can be null)
+     * @return the normalized value reversed, or null if the value is null
+     */
+    public static String normalizeReversed( String strValue )
+    {
+        String strNormalized = normalize( strValue );
+        return ( strNormalized != null ) ? new StringBuilder( strNormalized ).reverse( ).toString( ) : null;
+    }
+}
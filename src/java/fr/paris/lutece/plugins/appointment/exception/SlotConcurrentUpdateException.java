@@ -0,0 +1,20 @@
+package fr.paris.lutece.plugins.appointment.exception;
+
+/**
+ * Exception thrown when a slot can not be saved because it has been modified by someone else since it was read
+ */
+public class SlotConcurrentUpdateException extends RuntimeException {
+
+	private static final long serialVersionUID = -3275419720446953861L;
+	
+	  /**
+     * Constructor
+     *
+     * @param strMessage
+     *            The error message
+     */
+	public SlotConcurrentUpdateException(String strMessage) {
+		
+		super( strMessage );
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Actions of the current thread deferred until its transaction is committed (node-local notifications, invalidation of the data computed from the
+ * slots). The transactions of the plugin that modify the slots call {@link #begin()} once started and {@link #end(boolean)} once committed or rolled
+ * back. Outside of these transactions, the actions are run at once
+ */
+public final class AfterCommitService
+{
+    private static final ThreadLocal<PendingActions> _pendingActions = new ThreadLocal<>( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AfterCommitService( )
+    {
+    }
+
+    /**
+     * Start deferring the actions of the current thread. The calls can be nested, the actions are run when the outermost transaction ends
+     */
+    public static void begin( )
+    {
+        PendingActions pendingActions = _pendingActions.get( );
+        if ( pendingActions == null )
+        {
+            _pendingActions.set( new PendingActions( ) );
+        }
+        else
+        {
+            pendingActions._nDepth++;
+        }
+    }
+
+    /**
+     * Stop deferring the actions of the current thread. When the outermost transaction ends, the actions are run if all the transactions have been
+     * committed, and discarded otherwise. Must be called after the commit or the roll back
+     * 
+     * @param bCommitted
+     *            true if the transaction has been committed, false if it has been rolled back
+     */
+    public static void end( boolean bCommitted )
+    {
+        PendingActions pendingActions = _pendingActions.get( );
+        if ( pendingActions == null )
+        {
+            return;
+        }
+        pendingActions._bRolledBack |= !bCommitted;
+        if ( --pendingActions._nDepth > 0 )
+        {
+            return;
+        }
+        _pendingActions.remove( );
+        if ( !pendingActions._bRolledBack )
+        {
+            pendingActions._listActions.forEach( AfterCommitService::runSafely );
+        }
+    }
+
+    /**
+     * Run an action once the transaction of the current thread is committed, or at once if there is no transaction
+     * 
+     * @param action
+     *            the action
+     */
+    public static void run( Runnable action )
+    {
+        PendingActions pendingActions = _pendingActions.get( );
+        if ( pendingActions != null )
+        {
+            pendingActions._listActions.add( action );
+        }
+        else
+        {
+            runSafely( action );
+        }
+    }
+
+    /**
+     * Run an action. Its failure does not prevent the next actions from being run, the transaction being already committed
+     * 
+     * @param action
+     *            the action
+     */
+    private static void runSafely( Runnable action )
+    {
+        try
+        {
+            action.run( );
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Error while running an action after the commit : " + e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Actions deferred by a thread
+     */
+    private static final class PendingActions
+    {
+        private final List<Runnable> _listActions = new ArrayList<>( );
+        private int _nDepth = 1;
+        private boolean _bRolledBack;
+    }
+}
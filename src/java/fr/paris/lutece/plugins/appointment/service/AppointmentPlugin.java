@@ -39,6 +39,8 @@ import java.util.Locale;
 import org.apache.commons.beanutils.BeanUtilsBean;
 import org.dozer.converters.DateConverter;
 
+import fr.paris.lutece.plugins.appointment.service.listeners.EventDispatcher;
+import fr.paris.lutece.plugins.appointment.service.listeners.ListenerRegistry;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
 
@@ -63,6 +65,9 @@ public final class AppointmentPlugin extends Plugin
     {
         BeanUtilsBean.getInstance( ).getConvertUtils( )
                 .register( new DateConverter( DateFormat.getDateInstance( DateFormat.SHORT, getPluginLocale( Locale.FRANCE ) ) ), java.sql.Date.class );
+        // The listener beans may change when a plugin is installed or uninstalled
+        PluginService.registerPluginEventListener( event -> ListenerRegistry.clear( ) );
+        EventDispatcher.start( );
     }
 
     /**
@@ -82,6 +82,19 @@ public final class AppointmentResponseService
         AppointmentResponseHome.insertAppointmentResponse( nIdAppointment, nIdResponse );
     }
 
+    /**
+     * Associate a list of responses to an appointment
+     * 
+     * @param nIdAppointment
+     *            the appointment
+     * @param listIdResponse
+     *            the responses
+     */
+    public static void insertListAppointmentResponse( int nIdAppointment, List<Integer> listIdResponse )
+    {
+        AppointmentResponseHome.insertAppointmentResponses( nIdAppointment, listIdResponse );
+    }
+
     /**
      * Remove the responses for the given entry
      * 
@@ -117,6 +130,18 @@ public final class AppointmentResponseService
         return AppointmentResponseHome.findListIdResponse( nIdAppointment );
     }
 
+    /**
+     * Return the responses of a list of appointments, with the id of their entry and of their field
+     * 
+     * @param listIdAppointment
+     *            the ids of the appointments
+     * @return the map of the responses by id of appointment
+     */
+    public static Map<Integer, List<Response>> findListResponseByListIdAppointment( List<Integer> listIdAppointment )
+    {
+        return AppointmentResponseHome.findListResponseByListIdAppointment( listIdAppointment );
+    }
+
     /**
      * Find and build all the response of an appointment
      * 
@@ -185,10 +210,6 @@ public final class AppointmentResponseService
      */
     public static void removeResponsesByIdAppointment( int nIdAppointment )
     {
-        List<Response> listResponse = AppointmentResponseService.findListResponse( nIdAppointment );
-        for ( Response response : listResponse )
-        {
-            AppointmentResponseService.removeResponseById( response.getIdResponse() );
-        }
+        AppointmentResponseHome.removeResponsesByListId( AppointmentResponseService.findListIdResponse( nIdAppointment ) );
     }
 }
@@ -35,7 +35,9 @@ package fr.paris.lutece.plugins.appointment.service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -44,13 +46,11 @@ import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.business.user.User;
 
+import fr.paris.lutece.plugins.appointment.service.cache.AdminUserNameCacheService;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 
-import fr.paris.lutece.portal.business.user.AdminUser;
-import fr.paris.lutece.portal.business.user.AdminUserHome;
-
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.workflow.WorkflowService;
 
@@ -158,14 +158,11 @@ public final class AppointmentService
         if ( appointment.getIdAppointment( ) == 0 )
         {
             appointment = AppointmentHome.create( appointment );
-            AppointmentListenerManager.notifyListenersAppointmentCreated( appointment.getIdAppointment( ) );
         }
         else
         {
             AppLogService.info( "Update Appointment: " + appointment.getIdAppointment( ) + " on Slot: " + appointment.getIdSlot( ) );
             appointment = AppointmentHome.update( appointment );
-            AppointmentListenerManager.notifyListenersAppointmentUpdated(appointment.getIdAppointment( ));
-
         }
         return appointment;
     }
@@ -211,6 +208,99 @@ public final class AppointmentService
         return listAppointmentsDTO;
     }
 
+    /**
+     * Find a page of the appointments matching the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @param nOffset
+     *            the number of appointments to skip
+     * @param nLimit
+     *            the maximum number of appointments to return
+     * @return a list of appointments
+     */
+    public static List<AppointmentDTO> findListAppointmentsDTOByFilter( AppointmentFilterDTO appointmentFilter, int nOffset, int nLimit )
+    {
+        List<AppointmentDTO> listAppointmentsDTO = new ArrayList<>( );
+        for ( Appointment appointment : AppointmentHome.findByFilter( appointmentFilter, nOffset, nLimit ) )
+        {
+            listAppointmentsDTO.add( buildAppointmentDTO( appointment ) );
+        }
+        return listAppointmentsDTO;
+    }
+
+    /**
+     * Count the appointments matching the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @return the number of appointments
+     */
+    public static int countAppointmentsByFilter( AppointmentFilterDTO appointmentFilter )
+    {
+        return AppointmentHome.countByFilter( appointmentFilter );
+    }
+
+    /**
+     * Find the ids of the appointments matching the filter, sorted as specified by the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @return the list of the ids of the appointments
+     */
+    public static List<Integer> findListIdAppointmentByFilter( AppointmentFilterDTO appointmentFilter )
+    {
+        return AppointmentHome.findListIdByFilter( appointmentFilter );
+    }
+
+    /**
+     * Find the appointments of a list of ids
+     * 
+     * @param listIdAppointment
+     *            the ids of the appointments
+     * @return the list of the appointments, in the order of the ids
+     */
+    public static List<AppointmentDTO> findListAppointmentsDTOByListId( List<Integer> listIdAppointment )
+    {
+        Map<Integer, Appointment> mapAppointment = new HashMap<>( );
+        for ( Appointment appointment : AppointmentHome.findByListId( listIdAppointment ) )
+        {
+            mapAppointment.put( appointment.getIdAppointment( ), appointment );
+        }
+        List<AppointmentDTO> listAppointmentsDTO = new ArrayList<>( mapAppointment.size( ) );
+        for ( Integer nIdAppointment : listIdAppointment )
+        {
+            // The appointments deleted in the meantime are ignored
+            Appointment appointment = mapAppointment.get( nIdAppointment );
+            if ( appointment != null )
+            {
+                listAppointmentsDTO.add( buildAppointmentDTO( appointment ) );
+            }
+        }
+        return listAppointmentsDTO;
+    }
+
+    /**
+     * Find the starting dates of the appointments not cancelled of an email on a form, in a period
+     * 
+     * @param strEmail
+     *            the email of the user
+     * @param nIdForm
+     *            the id of the form
+     * @param nIdAppointmentExcluded
+     *            the id of an appointment to ignore (the one being modified), or 0
+     * @param startingDateTime
+     *            the starting date time of the period (included)
+     * @param endingDateTime
+     *            the ending date time of the period (excluded)
+     * @return the list of the starting dates, sorted in ascending order
+     */
+    public static List<LocalDateTime> findListStartingDateTimeByEmailAndForm( String strEmail, int nIdForm, int nIdAppointmentExcluded,
+            LocalDateTime startingDateTime, LocalDateTime endingDateTime )
+    {
+        return AppointmentHome.findListStartingDateTimeByEmailAndForm( strEmail, nIdForm, nIdAppointmentExcluded, startingDateTime, endingDateTime );
+    }
+
     public static List<Appointment> findListAppointmentsByFilter( AppointmentFilterDTO appointmentFilter )
     {
         return AppointmentHome.findByFilter( appointmentFilter );
@@ -247,11 +337,12 @@ public final class AppointmentService
         appointmentDTO.setUser( appointment.getUser( ) );
         if ( appointment.getIdAdminUser( ) != 0 )
         {
-            AdminUser adminUser = AdminUserHome.findByPrimaryKey( appointment.getIdAdminUser( ) );
-            if ( adminUser != null )
+            // The appointments of a list are taken by a few agents, their names
+            // are resolved once through the cache
+            String strAdminUser = AdminUserNameCacheService.getDisplayName( appointment.getIdAdminUser( ) );
+            if ( strAdminUser != null )
             {
-                appointmentDTO.setAdminUser( new StringBuilder( adminUser.getFirstName( ) + org.apache.commons.lang3.StringUtils.SPACE
-                        + adminUser.getLastName( ) ).toString( ) );
+                appointmentDTO.setAdminUser( strAdminUser );
             }
         }
         else
@@ -378,7 +469,7 @@ public final class AppointmentService
      * @return the id of the appointment saved
      * @throws Exception 
      */
-      public  static synchronized int saveAppointment( AppointmentDTO appointmentDTO ) 
+      public  static int saveAppointment( AppointmentDTO appointmentDTO ) 
       {
     	  return SlotSafeService.saveAppointment(appointmentDTO, null);
       
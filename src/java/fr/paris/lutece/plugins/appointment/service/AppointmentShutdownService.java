@@ -1,7 +1,11 @@
 package fr.paris.lutece.plugins.appointment.service;
 
 
+import fr.paris.lutece.plugins.appointment.business.slot.HoldHome;
 import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.service.export.ExportJobService;
+import fr.paris.lutece.plugins.appointment.service.listeners.EventDispatcher;
+import fr.paris.lutece.plugins.appointment.service.lock.SlotHoldScheduler;
 import fr.paris.lutece.portal.service.init.ShutdownService;
 
 public class AppointmentShutdownService implements ShutdownService {
@@ -20,7 +24,12 @@ public class AppointmentShutdownService implements ShutdownService {
 	@Override
 	public void process() {
 		
+		SlotHoldScheduler.shutdown( );
+		AppointmentTaskService.shutdown( );
+		ExportJobService.shutdown( );
+		EventDispatcher.shutdown( );
 		SlotHome.resetPotentialRemainingPlaces();
+		HoldHome.deleteAll( );
 		
 	}
 
@@ -31,39 +31,21 @@
  *
  * License 1.0
  */
-package fr.paris.lutece.plugins.appointment.service.lock;
+package fr.paris.lutece.plugins.appointment.service;
 
-import java.io.Serializable;
-import java.util.Timer;
+import fr.paris.lutece.portal.service.daemon.Daemon;
 
-public final class TimerForLockOnSlot extends Timer implements Serializable
+/**
+ * Daemon processing the tasks of the appointments that could not be run just after the commit (full pool, error, restart of the application)
+ */
+public class AppointmentTaskDaemon extends Daemon
 {
 
-    /**
-     * UID
-     */
-    private static final long serialVersionUID = -5582069386646092271L;
-    /**
-     * Is Cancelled
-     */
-    private boolean _bIsCancelled;
-    /**
-     * Constructor
-     */
-    public TimerForLockOnSlot( )
+    @Override
+    public void run( )
     {
-        super( );
-    }
-   
-    public boolean isCancelled( ){
-    	
-    	return _bIsCancelled;
-    	
-    }
-     
-    public void setIsCancelled( boolean isCancelled){
-    	
-    	_bIsCancelled= isCancelled;
+        int nNbTasksProcessed = AppointmentTaskService.processPendingTasks( );
+        setLastRunLogs( nNbTasksProcessed + " task(s) processed\n" + AppointmentTaskService.getMetrics( ) );
     }
 
 }
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.task.AppointmentTask;
+import fr.paris.lutece.plugins.appointment.business.task.AppointmentTaskHome;
+import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.portal.service.workflow.WorkflowService;
+
+/**
+ * Post-commit stage of the booking. The workflow initialization and the notification of the listeners of a saved appointment are stored as a task in the
+ * same transaction as the appointment, and run after the commit by a bounded pool of threads. A task that cannot be run at once (full pool, error,
+ * restart of the application) is picked up by the daemon, retried with an increasing delay, and kept as failed for the back office when all its attempts
+ * are exhausted
+ */
+public final class AppointmentTaskService
+{
+    private static final String PROPERTY_NB_THREADS = "appointment.task.nbThreads";
+    private static final String PROPERTY_QUEUE_SIZE = "appointment.task.queueSize";
+    private static final String PROPERTY_MAX_ATTEMPTS = "appointment.task.maxAttempts";
+    private static final String PROPERTY_RETRY_DELAY = "appointment.task.retryDelay";
+    private static final String PROPERTY_BATCH_SIZE = "appointment.task.batchSize";
+    private static final String PROPERTY_LOCK_TIMEOUT = "appointment.task.lockTimeout";
+    private static final int DEFAULT_NB_THREADS = 2;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final int DEFAULT_RETRY_DELAY = 30;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int DEFAULT_LOCK_TIMEOUT = 10;
+    private static final int MAX_RETRY_DELAY_SHIFT = 10;
+    private static final int MAX_LENGTH_ERROR = 255;
+    private static final String THREAD_NAME_PREFIX = "appointment-task-";
+
+    private static final AtomicLong _lNbTasksProcessed = new AtomicLong( );
+    private static final AtomicLong _lNbTasksRescheduled = new AtomicLong( );
+    private static final AtomicLong _lNbTasksFailed = new AtomicLong( );
+    private static final AtomicLong _lNbTasksDeferred = new AtomicLong( );
+
+    private static final ThreadPoolExecutor _executor = createExecutor( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AppointmentTaskService( )
+    {
+    }
+
+    /**
+     * Create the task of a saved appointment. Must be called in the transaction of the appointment, so that the task exists only if the appointment is
+     * committed
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     * @param nIdForm
+     *            the id of the form of the appointment
+     * @param bNewAppointment
+     *            true if the appointment has just been created, false if it has been updated
+     * @param bResetWorkflow
+     *            true if the workflow resource of the appointment must be removed before the initialization of the workflow (the appointment has been
+     *            moved to another slot)
+     * @return the task created
+     */
+    public static AppointmentTask createTask( int nIdAppointment, int nIdForm, boolean bNewAppointment, boolean bResetWorkflow )
+    {
+        LocalDateTime now = LocalDateTime.now( );
+        AppointmentTask task = new AppointmentTask( );
+        task.setIdAppointment( nIdAppointment );
+        task.setIdForm( nIdForm );
+        task.setNewAppointment( bNewAppointment );
+        task.setResetWorkflow( bResetWorkflow );
+        task.setStatus( AppointmentTask.STATUS_TO_PROCESS );
+        task.setDateCreation( now );
+        task.setDateStatus( now );
+        task.setDateNextAttempt( now );
+
+        return AppointmentTaskHome.create( task );
+    }
+
+    /**
+     * Submit a task to the pool of threads. Must be called after the commit of the transaction that created the task. If the pool is full, the task is
+     * left to the daemon
+     * 
+     * @param task
+     *            the task
+     */
+    public static void submit( AppointmentTask task )
+    {
+        int nIdTask = task.getIdTask( );
+        try
+        {
+            _executor.execute( ( ) -> process( nIdTask ) );
+        }
+        catch( RejectedExecutionException e )
+        {
+            _lNbTasksDeferred.incrementAndGet( );
+            AppLogService.debug( "Appointment task " + nIdTask + " deferred to the daemon" );
+        }
+    }
+
+    /**
+     * Process a task if it is ready and not already taken by another thread. The task is deleted when it succeeds, and rescheduled or marked as failed
+     * otherwise
+     * 
+     * @param nIdTask
+     *            the id of the task
+     * @return true if the task has been processed successfully
+     */
+    public static boolean process( int nIdTask )
+    {
+        if ( !AppointmentTaskHome.lock( nIdTask, LocalDateTime.now( ) ) )
+        {
+            return false;
+        }
+        AppointmentTask task = AppointmentTaskHome.findByPrimaryKey( nIdTask );
+        if ( task == null )
+        {
+            return false;
+        }
+        try
+        {
+            execute( task );
+            AppointmentTaskHome.delete( nIdTask );
+            _lNbTasksProcessed.incrementAndGet( );
+
+            return true;
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Error while processing the task " + nIdTask + " of the appointment " + task.getIdAppointment( ), e );
+            fail( task, e );
+
+            return false;
+        }
+    }
+
+    /**
+     * Process the tasks waiting in database. The tasks whose processing has been interrupted are put back in the queue first
+     * 
+     * @return the number of tasks processed successfully
+     */
+    public static int processPendingTasks( )
+    {
+        LocalDateTime now = LocalDateTime.now( );
+        AppointmentTaskHome.unlockTasksInProgressBefore( now.minusMinutes( AppPropertiesService.getPropertyInt( PROPERTY_LOCK_TIMEOUT,
+                DEFAULT_LOCK_TIMEOUT ) ) );
+        int nNbTasksProcessed = 0;
+        for ( int nIdTask : AppointmentTaskHome.findIdTasksToProcess( now,
+                AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ) ) )
+        {
+            if ( process( nIdTask ) )
+            {
+                nNbTasksProcessed++;
+            }
+        }
+
+        return nNbTasksProcessed;
+    }
+
+    /**
+     * Run the workflow initialization and the notification of the listeners of the appointment of a task
+     * 
+     * @param task
+     *            the task
+     */
+    private static void execute( AppointmentTask task )
+    {
+        if ( task.getResetWorkflow( ) )
+        {
+            // Need to remove the workflow resource to reload again the workflow at the first step
+            WorkflowService.getInstance( ).doRemoveWorkFlowResource( task.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE );
+            // Not to be done again if the rest of the task fails
+            task.setResetWorkflow( false );
+            AppointmentTaskHome.update( task );
+        }
+        Form form = FormService.findFormLightByPrimaryKey( task.getIdForm( ) );
+        if ( form != null && form.getIdWorkflow( ) > 0 )
+        {
+            WorkflowService.getInstance( ).getState( task.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE, form.getIdWorkflow( ), form.getIdForm( ) );
+            WorkflowService.getInstance( ).executeActionAutomatic( task.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE, form.getIdWorkflow( ),
+                    form.getIdForm( ) );
+        }
+        if ( task.getNewAppointment( ) )
+        {
+            AppointmentListenerManager.notifyListenersAppointmentCreated( task.getIdAppointment( ) );
+        }
+        else
+        {
+            AppointmentListenerManager.notifyListenersAppointmentUpdated( task.getIdAppointment( ) );
+        }
+    }
+
+    /**
+     * Record the failure of a task. The task is rescheduled with an exponential delay, or marked as failed if it has reached the maximum number of
+     * attempts
+     * 
+     * @param task
+     *            the task
+     * @param e
+     *            the cause of the failure
+     */
+    private static void fail( AppointmentTask task, Exception e )
+    {
+        LocalDateTime now = LocalDateTime.now( );
+        int nNbAttempts = task.getNbAttempts( ) + 1;
+        task.setNbAttempts( nNbAttempts );
+        task.setLastError( StringUtils.abbreviate( e.toString( ), MAX_LENGTH_ERROR ) );
+        task.setDateStatus( now );
+        if ( nNbAttempts >= AppPropertiesService.getPropertyInt( PROPERTY_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS ) )
+        {
+            task.setStatus( AppointmentTask.STATUS_FAILED );
+            _lNbTasksFailed.incrementAndGet( );
+        }
+        else
+        {
+            long lDelay = (long) AppPropertiesService.getPropertyInt( PROPERTY_RETRY_DELAY, DEFAULT_RETRY_DELAY ) << Math.min( nNbAttempts - 1,
+                    MAX_RETRY_DELAY_SHIFT );
+            task.setStatus( AppointmentTask.STATUS_TO_PROCESS );
+            task.setDateNextAttempt( now.plusSeconds( lDelay ) );
+            _lNbTasksRescheduled.incrementAndGet( );
+        }
+        try
+        {
+            AppointmentTaskHome.update( task );
+        }
+        catch( Exception ex )
+        {
+            // The task stays in progress, it will be put back in the queue by the daemon
+            AppLogService.error( "Error while saving the failure of the task " + task.getIdTask( ), ex );
+        }
+    }
+
+    /**
+     * Find the tasks that have failed too many times
+     * 
+     * @return the list of the failed tasks
+     */
+    public static List<AppointmentTask> findFailedTasks( )
+    {
+        return AppointmentTaskHome.findByStatus( AppointmentTask.STATUS_FAILED );
+    }
+
+    /**
+     * Count the tasks waiting to be processed
+     * 
+     * @return the number of tasks waiting
+     */
+    public static int countPendingTasks( )
+    {
+        return AppointmentTaskHome.countByStatus( AppointmentTask.STATUS_TO_PROCESS );
+    }
+
+    /**
+     * Put a failed task back in the queue, with a new series of attempts
+     * 
+     * @param nIdTask
+     *            the id of the task
+     * @return true if the task has been put back in the queue, false if it does not exist or has not failed
+     */
+    public static boolean retryTask( int nIdTask )
+    {
+        AppointmentTask task = AppointmentTaskHome.findByPrimaryKey( nIdTask );
+        if ( task == null || task.getStatus( ) != AppointmentTask.STATUS_FAILED )
+        {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now( );
+        task.setStatus( AppointmentTask.STATUS_TO_PROCESS );
+        task.setNbAttempts( 0 );
+        task.setDateStatus( now );
+        task.setDateNextAttempt( now );
+        AppointmentTaskHome.update( task );
+        submit( task );
+
+        return true;
+    }
+
+    /**
+     * Remove a task
+     * 
+     * @param nIdTask
+     *            the id of the task
+     */
+    public static void removeTask( int nIdTask )
+    {
+        AppointmentTaskHome.delete( nIdTask );
+    }
+
+    /**
+     * Get a summary of the metrics of the tasks
+     * 
+     * @return the metrics
+     */
+    public static String getMetrics( )
+    {
+        return new StringBuilder( "Appointment tasks - queued : " ).append( _executor.getQueue( ).size( ) ).append( ", processed : " )
+                .append( _lNbTasksProcessed.get( ) ).append( ", rescheduled : " ).append( _lNbTasksRescheduled.get( ) ).append( ", failed : " )
+                .append( _lNbTasksFailed.get( ) ).append( ", deferred to the daemon : " ).append( _lNbTasksDeferred.get( ) ).toString( );
+    }
+
+    /**
+     * Stop the pool of threads. The tasks not processed yet stay in database and are processed by the daemon after the restart
+     */
+    public static void shutdown( )
+    {
+        _executor.shutdownNow( );
+    }
+
+    /**
+     * Create the pool of threads of the tasks
+     * 
+     * @return the pool of threads
+     */
+    private static ThreadPoolExecutor createExecutor( )
+    {
+        AtomicInteger nThreadNumber = new AtomicInteger( );
+        int nNbThreads = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_NB_THREADS, DEFAULT_NB_THREADS ) );
+
+        return new ThreadPoolExecutor( nNbThreads, nNbThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( Math.max( 1,
+                AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ) ) ), runnable -> {
+            Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + nThreadNumber.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+}
@@ -33,11 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.service;
 
-import static java.lang.Math.toIntExact;
-
 import java.io.IOException;
 import java.io.OutputStream;
-import java.sql.Date;
 import java.text.SimpleDateFormat;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
@@ -51,7 +48,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -61,10 +57,6 @@ import javax.validation.ConstraintViolation;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
@@ -73,31 +65,29 @@ import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
-import fr.paris.lutece.plugins.appointment.business.user.User;
-import fr.paris.lutece.plugins.appointment.service.lock.SlotEditTask;
-import fr.paris.lutece.plugins.appointment.service.lock.TimerForLockOnSlot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotImpact;
+import fr.paris.lutece.plugins.appointment.service.export.AppointmentExportService;
+import fr.paris.lutece.plugins.appointment.service.export.IAppointmentExportWriter;
+import fr.paris.lutece.plugins.appointment.service.lock.SlotHold;
+import fr.paris.lutece.plugins.appointment.service.lock.SlotHoldScheduler;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.ResponseRecapDTO;
 import fr.paris.lutece.plugins.genericattributes.business.Entry;
-import fr.paris.lutece.plugins.genericattributes.business.EntryFilter;
 import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
-import fr.paris.lutece.plugins.genericattributes.business.Field;
-import fr.paris.lutece.plugins.genericattributes.business.FieldHome;
 import fr.paris.lutece.plugins.genericattributes.business.GenericAttributeError;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
-import fr.paris.lutece.plugins.genericattributes.business.ResponseHome;
 import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
 import fr.paris.lutece.plugins.genericattributes.service.entrytype.IEntryTypeService;
-import fr.paris.lutece.plugins.workflowcore.business.state.State;
-import fr.paris.lutece.plugins.workflowcore.service.state.StateService;
 import fr.paris.lutece.portal.business.user.AdminUser;
 import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.rbac.RBACService;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.beanvalidation.BeanValidationUtil;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
 
 /**
  * Utility class for Appointment Mutualize methods between MVCApplication and MVCAdminJspBean
@@ -116,22 +106,6 @@ public final class AppointmentUtilities
     private static final String ERROR_MESSAGE_FORMAT_NB_BOOKED_SEAT = "appointment.validation.appointment.NbBookedSeat.notNumberFormat";
     private static final String ERROR_MESSAGE_ERROR_NB_BOOKED_SEAT = "appointment.validation.appointment.NbBookedSeat.error";
 
-    private static final String KEY_RESOURCE_TYPE = "appointment.appointment.name";
-    private static final String KEY_COLUMN_LAST_NAME = "appointment.manageAppointments.columnLastName";
-    private static final String KEY_COLUMN_FISRT_NAME = "appointment.manageAppointments.columnFirstName";
-    private static final String KEY_COLUMN_EMAIL = "appointment.manageAppointments.columnEmail";
-    private static final String KEY_COLUMN_DATE_APPOINTMENT = "appointment.dateAppointment.title";
-    private static final String KEY_TIME_START = "appointment.model.entity.appointmentform.attribute.timeStart";
-    private static final String KEY_TIME_END = "appointment.model.entity.appointmentform.attribute.timeEnd";
-    private static final String KEY_COLUMN_ADMIN = "appointment.manageAppointments.columnAdmin";
-    private static final String KEY_COLUMN_STATUS = "appointment.labelStatus";
-    private static final String KEY_COLUMN_STATE = "appointment.manageAppointments.columnState";
-    private static final String KEY_COLUMN_NB_BOOKED_SEATS = "appointment.manageAppointments.columnNumberOfBookedseatsPerAppointment";
-
-    private static final String CONSTANT_COMMA = ",";
-    private static final String EXCEL_FILE_EXTENSION = ".xlsx";
-    private static final String EXCEL_MIME_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
-
     public static final String SESSION_TIMER_SLOT = "appointment.session.timer.slot";
 
     public static final String PROPERTY_DEFAULT_EXPIRED_TIME_EDIT_APPOINTMENT = "appointment.edit.expired.time";
@@ -222,23 +196,14 @@ public final class AppointmentUtilities
         int nbDaysBetweenTwoAppointments = form.getNbDaysBeforeNewAppointment( );
         if ( nbDaysBetweenTwoAppointments != 0 )
         {
-            List<Slot> listSlots = getSlotsByEmail( strEmail, appointmentDTO.getIdAppointment( ) );
-            if ( CollectionUtils.isNotEmpty( listSlots ) )
+            // Any other appointment of the user on this form less than the
+            // delay away from this one (before or after) breaks the rule
+            LocalDate dateOfTheAppointment = appointmentDTO.getSlot( ).getStartingDateTime( ).toLocalDate( );
+            long [ ] tabEpochDays = getEpochDaysOfAppointments( strEmail, form.getIdForm( ), appointmentDTO.getIdAppointment( ), dateOfTheAppointment,
+                    nbDaysBetweenTwoAppointments );
+            if ( tabEpochDays.length != 0 )
             {
-                // Get the last appointment date for this form
-                listSlots = listSlots.stream( ).filter( s -> s.getIdForm( ) == form.getIdForm( ) ).collect( Collectors.toList( ) );
-                if ( CollectionUtils.isNotEmpty( listSlots ) )
-                {
-                    LocalDate dateOfTheLastAppointment = listSlots.stream( ).map( Slot::getStartingDateTime ).max( LocalDateTime::compareTo ).get( )
-                            .toLocalDate( );
-                    // Check the number of days between this appointment and
-                    // the last appointment the user has taken
-                    LocalDate dateOfTheAppointment = appointmentDTO.getSlot( ).getStartingDateTime( ).toLocalDate( );
-                    if ( Math.abs( dateOfTheLastAppointment.until( dateOfTheAppointment, ChronoUnit.DAYS ) ) <= nbDaysBetweenTwoAppointments )
-                    {
-                        bCheckPassed = false;
-                    }
-                }
+                bCheckPassed = false;
             }
         }
         return bCheckPassed;
@@ -290,75 +255,34 @@ public final class AppointmentUtilities
     }
 
     /**
-     * Get the appointment of a user appointment
+     * Get the days (as epoch days) of the appointments not cancelled of an email on a form, around a date
      * 
      * @param strEmail
      *            the user's email
+     * @param nIdForm
+     *            the id of the form
      * @param idAppointment
-     *            the id of the appointment
-     * @return the list of appointment
+     *            the id of the appointment being modified, or 0
+     * @param date
+     *            the date around which the appointments are searched
+     * @param nbDays
+     *            the number of days before and after the date to search
+     * @return the epoch days of the appointments between date - nbDays and date + nbDays (included), sorted in ascending order
      */
-    private static List<Appointment> getAppointmentByEmail( String strEmail, int idAppointment )
+    private static long [ ] getEpochDaysOfAppointments( String strEmail, int nIdForm, int idAppointment, LocalDate date, int nbDays )
     {
-        List<Appointment> listAppointment = new ArrayList<>( );
-        if ( StringUtils.isNotEmpty( strEmail ) )
+        if ( StringUtils.isEmpty( strEmail ) )
         {
-            // Looking for existing users with this email
-            List<User> listUsers = UserService.findUsersByEmail( strEmail );
-            if ( listUsers != null )
-            {
-                // For each User
-                for ( User user : listUsers )
-                {
-                    // looking for its appointment
-                    listAppointment.addAll( AppointmentService.findListAppointmentByUserId( user.getIdUser( ) ) );
-                }
-
-                // If we modify an appointment, we remove the
-                // appointment that we currently edit
-                if ( idAppointment != 0 )
-                {
-                    listAppointment = listAppointment.stream( ).filter( a -> a.getIdAppointment( ) != idAppointment ).collect( Collectors.toList( ) );
-                }
-                
-            }
-            }
-        return listAppointment;
-    }
-    
-    /**
-     * Get the slot of a user appointment
-     * 
-     * @param strEmail
-     *            the user's email
-     * @param idAppointment
-     *            the id of the appointment
-     * @return the list of slots
-     */
-    private static List<Slot> getSlotsByEmail( String strEmail, int idAppointment )
-    {
-        List<Slot> listSlots = new ArrayList<>( );
-        if ( StringUtils.isNotEmpty( strEmail ) )
+            return new long [ 0];
+        }
+        List<LocalDateTime> listStartingDateTime = AppointmentService.findListStartingDateTimeByEmailAndForm( strEmail, nIdForm, idAppointment, date
+                .minusDays( nbDays ).atStartOfDay( ), date.plusDays( nbDays + 1L ).atStartOfDay( ) );
+        long [ ] tabEpochDays = new long [ listStartingDateTime.size( )];
+        for ( int i = 0; i < tabEpochDays.length; i++ )
         {
-        	    List<Appointment> listAppointment = getAppointmentByEmail( strEmail, idAppointment );
-                if ( CollectionUtils.isNotEmpty( listAppointment ) )
-                {
-                    // I know we could have a join sql query, but I don't
-                    // want to join the appointment table with the slot
-                    // table, it's too big and not efficient
-
-                    for ( Appointment appointment : listAppointment )
-                    {
-                        if ( !appointment.getIsCancelled( ) )
-                        {
-                            listSlots.add( SlotService.findSlotById( appointment.getIdSlot( ) ) );
-                        }
-                    }
-
-                }
-            
+            tabEpochDays [i] = listStartingDateTime.get( i ).toLocalDate( ).toEpochDay( );
         }
-        return listSlots;
+        return tabEpochDays;
     }
 
     /**
@@ -379,63 +303,27 @@ public final class AppointmentUtilities
         int nbDaysForMaxAppointmentsPerUser = form.getNbDaysForMaxAppointmentsPerUser( );
         if ( nbMaxAppointmentsPerUser != 0 )
         {
-            List<Slot> listSlots = getSlotsByEmail( strEmail, appointmentDTO.getIdAppointment( ) );
-            if ( CollectionUtils.isNotEmpty( listSlots ) )
+            // Get the date of the future appointment
+            LocalDate dateOfTheAppointment = appointmentDTO.getSlot( ).getStartingDateTime( ).toLocalDate( );
+            long lEpochDayOfTheAppointment = dateOfTheAppointment.toEpochDay( );
+            long [ ] tabEpochDays = getEpochDaysOfAppointments( strEmail, form.getIdForm( ), appointmentDTO.getIdAppointment( ), dateOfTheAppointment,
+                    nbDaysForMaxAppointmentsPerUser );
+            // Sliding window on the sorted days: the appointments from nLeft
+            // to nRight are kept as long as a period of
+            // nbDaysForMaxAppointmentsPerUser days can contain them and the
+            // date of the future appointment
+            int nLeft = 0;
+            for ( int nRight = 0; nRight < tabEpochDays.length; nRight++ )
             {
-                // Filter fot the good form
-                listSlots = listSlots.stream( ).filter( s -> s.getIdForm( ) == form.getIdForm( ) ).collect( Collectors.toList( ) );
-                if ( CollectionUtils.isNotEmpty( listSlots ) )
+                long lEnd = Math.max( tabEpochDays [nRight], lEpochDayOfTheAppointment );
+                while ( lEnd - Math.min( tabEpochDays [nLeft], lEpochDayOfTheAppointment ) > nbDaysForMaxAppointmentsPerUser )
                 {
-                    // Get the date of the future appointment
-                    LocalDate dateOfTheAppointment = appointmentDTO.getSlot( ).getStartingDateTime( ).toLocalDate( );
-                    // Min starting date of the period
-                    LocalDate minStartingDateOfThePeriod = dateOfTheAppointment.minusDays( nbDaysForMaxAppointmentsPerUser );
-                    // Max ending date of the period
-                    LocalDate maxEndingDateOfThePeriod = dateOfTheAppointment.plusDays( nbDaysForMaxAppointmentsPerUser );
-                    // Keep only the slots that are in the min-max period
-                    listSlots = listSlots
-                            .stream( )
-                            .filter(
-                                    s -> s.getStartingDateTime( ).toLocalDate( ).isEqual( minStartingDateOfThePeriod )
-                                            || s.getStartingDateTime( ).toLocalDate( ).isAfter( minStartingDateOfThePeriod ) )
-                            .filter(
-                                    s -> s.getStartingDateTime( ).toLocalDate( ).isEqual( maxEndingDateOfThePeriod )
-                                            || s.getStartingDateTime( ).toLocalDate( ).isBefore( maxEndingDateOfThePeriod ) ).collect( Collectors.toList( ) );
-                    LocalDate startingDateOfThePeriod = null;
-                    LocalDate endingDateOfThePeriod = null;
-                    // For each slot
-                    for ( Slot slot : listSlots )
-                    {
-                        if ( slot.getStartingDateTime( ).toLocalDate( ).isBefore( dateOfTheAppointment ) )
-                        {
-                            startingDateOfThePeriod = slot.getStartingDateTime( ).toLocalDate( );
-                            endingDateOfThePeriod = startingDateOfThePeriod.plusDays( nbDaysForMaxAppointmentsPerUser );
-                        }
-                        if ( slot.getStartingDateTime( ).toLocalDate( ).isAfter( dateOfTheAppointment ) )
-                        {
-                            endingDateOfThePeriod = slot.getStartingDateTime( ).toLocalDate( );
-                            startingDateOfThePeriod = endingDateOfThePeriod.minusDays( nbDaysForMaxAppointmentsPerUser );
-                        }
-                        if ( slot.getStartingDateTime( ).toLocalDate( ).isEqual( dateOfTheAppointment ) )
-                        {
-                            startingDateOfThePeriod = endingDateOfThePeriod = slot.getStartingDateTime( ).toLocalDate( );
-                        }
-                        // Check the number of slots on the period
-                        final LocalDate startingDateOfPeriodToSearch = startingDateOfThePeriod;
-                        final LocalDate endingDateOfPeriodToSearch = endingDateOfThePeriod;
-                        int nbSlots = toIntExact( listSlots
-                                .stream( )
-                                .filter(
-                                        s -> ( s.getStartingDateTime( ).toLocalDate( ).equals( startingDateOfPeriodToSearch ) || s.getStartingDateTime( )
-                                                .toLocalDate( ).isAfter( startingDateOfPeriodToSearch ) )
-                                                && ( s.getStartingDateTime( ).toLocalDate( ).equals( endingDateOfPeriodToSearch ) || s.getStartingDateTime( )
-                                                        .toLocalDate( ).isBefore( endingDateOfPeriodToSearch ) ) ).count( ) );
-                        if ( nbSlots >= nbMaxAppointmentsPerUser )
-                        {
-                            bCheckPassed = false;
-                            break;
-                        }
-                    }
+                    nLeft++;
+                }
+                if ( nRight - nLeft + 1 >= nbMaxAppointmentsPerUser )
+                {
+                    bCheckPassed = false;
+                    break;
                 }
             }
         }
@@ -609,208 +497,32 @@ public final class AppointmentUtilities
     }
 
     /**
-     * Build the excel fil of the list of the appointments found in the manage appointment viw by filter
+     * Export the appointments matching a filter in the response
      * 
-     * @param strIdForm
-     *            the form id
+     * @param filter
+     *            the filter, with the id of the form
+     * @param strFormat
+     *            the format of the export
      * @param response
      *            the response
      * @param locale
      *            the local
-     * @param listAppointmentsDTO
-     *            the list of the appointments to input in the excel file
-     * @param stateService
-     *            the state service
      */
-    public static void buildExcelFileWithAppointments( String strIdForm, HttpServletResponse response, Locale locale, List<AppointmentDTO> listAppointmentsDTO,
-            StateService stateService )
+    public static void exportAppointments( AppointmentFilterDTO filter, String strFormat, HttpServletResponse response, Locale locale )
     {
-        AppointmentFormDTO tmpForm = FormService.buildAppointmentFormLight( Integer.parseInt( strIdForm ) );
-        XSSFWorkbook workbook = new XSSFWorkbook( );
-        XSSFSheet sheet = workbook.createSheet( I18nService.getLocalizedString( KEY_RESOURCE_TYPE, locale ) );
-        List<Object [ ]> tmpObj = new ArrayList<Object [ ]>( );
-        EntryFilter entryFilter = new EntryFilter( );
-        entryFilter.setIdResource( Integer.valueOf( strIdForm ) );
-        List<Entry> listEntry = EntryHome.getEntryList( entryFilter );
-        Map<Integer, String> mapDefaultValueGenAttBackOffice = new HashMap<Integer, String>( );
-        for ( Entry e : listEntry )
-        {
-            if ( e.isOnlyDisplayInBack( ) )
-            {
-                e = EntryHome.findByPrimaryKey( e.getIdEntry( ) );
-                if ( e.getFields( ) != null && e.getFields( ).size( ) == 1 && !StringUtils.isEmpty( e.getFields( ).get( 0 ).getValue( ) ) )
-                {
-                    mapDefaultValueGenAttBackOffice.put( e.getIdEntry( ), e.getFields( ).get( 0 ).getValue( ) );
-                }
-                else
-                    if ( e.getFields( ) != null )
-                    {
-                        for ( Field field : e.getFields( ) )
-                        {
-                            if ( field.isDefaultValue( ) )
-                            {
-                                mapDefaultValueGenAttBackOffice.put( e.getIdEntry( ), field.getValue( ) );
-                            }
-                        }
-                    }
-            }
-        }
-        int nTaille = 10 + ( listEntry.size( ) + 1 );
-        if ( tmpForm != null )
-        {
-            int nIndex = 0;
-            Object [ ] strWriter = new String [ 1];
-            strWriter [0] = tmpForm.getTitle( );
-            tmpObj.add( strWriter );
-            Object [ ] strInfos = new String [ nTaille];
-            strInfos [0] = I18nService.getLocalizedString( KEY_COLUMN_LAST_NAME, locale );
-            strInfos [1] = I18nService.getLocalizedString( KEY_COLUMN_FISRT_NAME, locale );
-            strInfos [2] = I18nService.getLocalizedString( KEY_COLUMN_EMAIL, locale );
-            strInfos [3] = I18nService.getLocalizedString( KEY_COLUMN_DATE_APPOINTMENT, locale );
-            strInfos [4] = I18nService.getLocalizedString( KEY_TIME_START, locale );
-            strInfos [5] = I18nService.getLocalizedString( KEY_TIME_END, locale );
-            strInfos [6] = I18nService.getLocalizedString( KEY_COLUMN_ADMIN, locale );
-            strInfos [7] = I18nService.getLocalizedString( KEY_COLUMN_STATUS, locale );
-            strInfos [8] = I18nService.getLocalizedString( KEY_COLUMN_STATE, locale );
-            strInfos [9] = I18nService.getLocalizedString( KEY_COLUMN_NB_BOOKED_SEATS, locale );
-            nIndex = 1;
-            if ( listEntry.size( ) > 0 )
-            {
-                for ( Entry e : listEntry )
-                {
-                    strInfos [10 + nIndex] = e.getTitle( );
-                    nIndex++;
-                }
-            }
-            tmpObj.add( strInfos );
-        }
-        if ( listAppointmentsDTO != null )
-        {
-            for ( AppointmentDTO appointmentDTO : listAppointmentsDTO )
-            {
-                int nIndex = 0;
-                Object [ ] strWriter = new String [ nTaille];
-                strWriter [0] = appointmentDTO.getLastName( );
-                strWriter [1] = appointmentDTO.getFirstName( );
-                strWriter [2] = appointmentDTO.getEmail( );
-                strWriter [3] = appointmentDTO.getDateOfTheAppointment( );
-                strWriter [4] = appointmentDTO.getStartingTime( ).toString( );
-                strWriter [5] = appointmentDTO.getEndingTime( ).toString( );
-                strWriter [6] = appointmentDTO.getAdminUser( );
-                String status = I18nService.getLocalizedString( AppointmentDTO.PROPERTY_APPOINTMENT_STATUS_RESERVED, locale );
-                if ( appointmentDTO.getIsCancelled( ) )
-                {
-                    status = I18nService.getLocalizedString( AppointmentDTO.PROPERTY_APPOINTMENT_STATUS_UNRESERVED, locale );
-                }
-                strWriter [7] = status;
-                State stateAppointment = stateService.findByResource( appointmentDTO.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE,
-                        tmpForm.getIdWorkflow( ) );
-                String strState = StringUtils.EMPTY;
-                if ( stateAppointment != null )
-                {
-                    appointmentDTO.setState( stateAppointment );
-                    strState = stateAppointment.getName( );
-                }
-                strWriter [8] = strState;
-                nIndex = 1;
-                strWriter [9] = Integer.toString( appointmentDTO.getNbBookedSeats( ) );
-                List<Integer> listIdResponse = AppointmentResponseService.findListIdResponse( appointmentDTO.getIdAppointment( ) );
-                List<Response> listResponses = new ArrayList<Response>( );
-                for ( int nIdResponse : listIdResponse )
-                {
-                    Response resp = ResponseHome.findByPrimaryKey( nIdResponse );
-                    if ( resp != null )
-                    {
-                        listResponses.add( resp );
-                    }
-                }
-                for ( Entry e : listEntry )
-                {
-                    Integer key = e.getIdEntry( );
-                    StringBuffer strValue = new StringBuffer( StringUtils.EMPTY );
-                    String strPrefix = StringUtils.EMPTY;
-                    for ( Response resp : listResponses )
-                    {
-                        String strRes = StringUtils.EMPTY;
-                        if ( key.equals( resp.getEntry( ).getIdEntry( ) ) )
-                        {
-                            Field f = resp.getField( );
-                            int nfield = 0;
-                            if ( f != null )
-                            {
-                                nfield = f.getIdField( );
-                                Field field = FieldHome.findByPrimaryKey( nfield );
-                                if ( field != null )
-                                {
-                                    strRes = field.getTitle( );
-                                }
-                            }
-                            else
-                            {
-                                strRes = resp.getResponseValue( );
-                            }
-                        }
-                        if ( ( strRes != null ) && !strRes.isEmpty( ) )
-                        {
-                            strValue.append( strPrefix + strRes );
-                            strPrefix = CONSTANT_COMMA;
-                        }
-                    }
-                    if ( strValue.toString( ).isEmpty( ) && mapDefaultValueGenAttBackOffice.containsKey( key ) )
-                    {
-                        strValue.append( mapDefaultValueGenAttBackOffice.get( key ) );
-                    }
-                    if ( !strValue.toString( ).isEmpty( ) )
-                    {
-                        strWriter [10 + nIndex] = strValue.toString( );
-                    }
-                    nIndex++;
-                }
-                tmpObj.add( strWriter );
-            }
-        }
-        int nRownum = 0;
-        for ( Object [ ] myObj : tmpObj )
-        {
-            Row row = sheet.createRow( nRownum++ );
-            int nCellnum = 0;
-            for ( Object strLine : myObj )
-            {
-                Cell cell = row.createCell( nCellnum++ );
-                if ( strLine instanceof String )
-                {
-                    cell.setCellValue( (String) strLine );
-                }
-                else
-                    if ( strLine instanceof Boolean )
-                    {
-                        cell.setCellValue( (Boolean) strLine );
-                    }
-                    else
-                        if ( strLine instanceof Date )
-                        {
-                            cell.setCellValue( (Date) strLine );
-                        }
-                        else
-                            if ( strLine instanceof Double )
-                            {
-                                cell.setCellValue( (Double) strLine );
-                            }
-            }
-        }
         try
         {
+            OutputStream os = response.getOutputStream( );
+            IAppointmentExportWriter writer = AppointmentExportService.getWriter( strFormat, os, locale );
             String now = new SimpleDateFormat( "yyyyMMdd-hhmm" ).format( GregorianCalendar.getInstance( locale ).getTime( ) ) + "_"
-                    + I18nService.getLocalizedString( KEY_RESOURCE_TYPE, locale ) + EXCEL_FILE_EXTENSION;
-            response.setContentType( EXCEL_MIME_TYPE );
+                    + AppointmentExportService.getFileName( locale ) + writer.getFileExtension( );
+            response.setContentType( writer.getContentType( ) );
             response.setHeader( "Content-Disposition", "attachment; filename=\"" + now + "\";" );
             response.setHeader( "Pragma", "public" );
             response.setHeader( "Expires", "0" );
             response.setHeader( "Cache-Control", "must-revalidate,post-check=0,pre-check=0" );
-            OutputStream os = response.getOutputStream( );
-            workbook.write( os );
+            AppointmentExportService.export( filter, writer, locale );
             os.close( );
-            workbook.close( );
         }
         catch( IOException e )
         {
@@ -826,15 +538,42 @@ public final class AppointmentUtilities
      */
     public static void killTimer( HttpServletRequest request )
     {
-    	TimerForLockOnSlot timer = (TimerForLockOnSlot) request.getSession( ).getAttribute( SESSION_TIMER_SLOT );
-        if ( timer != null )
+        SlotHold hold = (SlotHold) request.getSession( ).getAttribute( SESSION_TIMER_SLOT );
+        if ( hold != null )
         {
-        	timer.setIsCancelled(true);
-            timer.cancel( );
+            SlotHoldScheduler.cancel( hold );
             request.getSession( ).removeAttribute( SESSION_TIMER_SLOT );
         }
     }
 
+    /**
+     * Consume the hold of the session before its places are turned into an appointment. The hold is cancelled, so that its places are not given back to the
+     * slot when it expires. A hold on another slot is released
+     * 
+     * @param request
+     *            the request
+     * @param nIdSlot
+     *            the id of the slot of the appointment
+     * @return true if the hold of the slot has been consumed, false if there was no hold on the slot or if it has already expired (its places have already
+     *         been given back to the slot)
+     */
+    public static boolean consumeHold( HttpServletRequest request, int nIdSlot )
+    {
+        SlotHold hold = (SlotHold) request.getSession( ).getAttribute( SESSION_TIMER_SLOT );
+        if ( hold == null )
+        {
+            return false;
+        }
+        request.getSession( ).removeAttribute( SESSION_TIMER_SLOT );
+        if ( hold.getIdSlot( ) != nIdSlot )
+        {
+            SlotHoldScheduler.release( hold );
+            return false;
+        }
+
+        return SlotHoldScheduler.cancel( hold );
+    }
+
     /**
      * Create a timer on a slot
      * 
@@ -844,35 +583,46 @@ public final class AppointmentUtilities
      *            the appointment
      * @param maxPeoplePerAppointment
      *            the max people per appointment
-     * @return the timer
+     * @return the hold registered on the slot, null if there is no more place on the slot
      */
-    public static synchronized  Timer putTimerInSession( HttpServletRequest request, int nIdSlot, AppointmentDTO appointmentDTO, int maxPeoplePerAppointment )
+    public static SlotHold putTimerInSession( HttpServletRequest request, int nIdSlot, AppointmentDTO appointmentDTO, int maxPeoplePerAppointment )
     {
-    	Slot slot = SlotService.findSlotById( nIdSlot );
-    	
-       
-        int nbPotentialRemainingPlaces = slot.getNbPotentialRemainingPlaces( );
-        int nbPotentialPlacesTaken = Math.min( nbPotentialRemainingPlaces, maxPeoplePerAppointment );
-        
-        if( slot.getNbPotentialRemainingPlaces() > 0 ){
-        	
-        	appointmentDTO.setNbMaxPotentialBookedSeats( nbPotentialPlacesTaken );
-           // slot.setNbPotentialRemainingPlaces( nbPotentialRemainingPlaces - nbPotentialPlacesTaken );
-            SlotSafeService.decrementPotentialRemainingPlaces(nbPotentialPlacesTaken, slot.getIdSlot( ));
+        Slot slot = SlotService.findSlotById( nIdSlot );
+        // The potential places are taken with an atomic update: if another user took them in the meantime, try again with the new number of potential
+        // remaining places
+        while ( slot != null && slot.getNbPotentialRemainingPlaces( ) > 0 )
+        {
+            int nbPotentialPlacesTaken = Math.min( slot.getNbPotentialRemainingPlaces( ), maxPeoplePerAppointment );
+            if ( SlotSafeService.decrementPotentialRemainingPlaces( nbPotentialPlacesTaken, slot.getIdSlot( ) ) )
+            {
+                appointmentDTO.setNbMaxPotentialBookedSeats( nbPotentialPlacesTaken );
+                return putHoldInSession( request, slot.getIdSlot( ), nbPotentialPlacesTaken );
+            }
+            slot = SlotService.findSlotById( nIdSlot );
+        }
+        appointmentDTO.setNbMaxPotentialBookedSeats( 0 );
+        return null;
+    }
 
-            //SlotService.updateSlot( slot );
-	     
-	        TimerForLockOnSlot timer = new TimerForLockOnSlot( );
-	        SlotEditTask slotEditTask = new SlotEditTask( timer );
-	        slotEditTask.setNbPlacesTaken( nbPotentialPlacesTaken );
-	        slotEditTask.setIdSlot( slot.getIdSlot( ) );
-	        long delay = TimeUnit.MINUTES.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_EXPIRED_TIME_EDIT_APPOINTMENT, 1 ) );
-	        timer.schedule( slotEditTask, delay );
-	        request.getSession( ).setAttribute( AppointmentUtilities.SESSION_TIMER_SLOT, timer );
-	        return timer;
-    	}
-        appointmentDTO.setNbMaxPotentialBookedSeats(0);
-    	return null;
+    /**
+     * Register a hold on the places of a slot and put it in session. The places are given back to the slot if the hold expires before the appointment is
+     * saved. A previous hold of the session is released first, its places would never be used
+     * 
+     * @param request
+     *            the request
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places held
+     * @return the hold registered
+     */
+    public static SlotHold putHoldInSession( HttpServletRequest request, int nIdSlot, int nbPlaces )
+    {
+        SlotHoldScheduler.release( (SlotHold) request.getSession( ).getAttribute( SESSION_TIMER_SLOT ) );
+        SlotHold hold = SlotHoldScheduler.register( nIdSlot, nbPlaces,
+                AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_EXPIRED_TIME_EDIT_APPOINTMENT, 1 ), TimeUnit.MINUTES );
+        request.getSession( ).setAttribute( SESSION_TIMER_SLOT, hold );
+        return hold;
     }
 
     /**
@@ -962,9 +712,53 @@ public final class AppointmentUtilities
      * @param appointmentForm
      *            the appointment form
      * @return true if there are appointments impacted
+     * @deprecated the slot of each appointment is loaded, use {@link #checkNoAppointmentsImpactedOnSlots(List, int, LocalDate, AppointmentFormDTO)}
      */
+    @Deprecated
     public static boolean checkNoAppointmentsImpacted( List<Appointment> listAppointment, int nIdForm, LocalDate dateOfModification,
             AppointmentFormDTO appointmentForm )
+    {
+        Set<DayOfWeek> setDayOfWeekWithAppointments = listAppointment.stream( ).map( Appointment::getIdSlot ).distinct( )
+                .map( nIdSlot -> SlotService.findSlotById( nIdSlot ).getStartingDateTime( ).getDayOfWeek( ) ).collect( Collectors.toSet( ) );
+        return checkNoAppointmentsImpacted( setDayOfWeekWithAppointments, nIdForm, dateOfModification, appointmentForm );
+    }
+
+    /**
+     * Check if there are appointments impacted by the new week definition
+     * 
+     * @param listSlotImpact
+     *            the slots impacted, with the number of their appointments
+     * @param nIdForm
+     *            the form Id
+     * @param dateOfModification
+     *            the date of modification (date of apply of the new week definition)
+     * @param appointmentForm
+     *            the appointment form
+     * @return true if there are appointments impacted
+     */
+    public static boolean checkNoAppointmentsImpactedOnSlots( List<SlotImpact> listSlotImpact, int nIdForm, LocalDate dateOfModification,
+            AppointmentFormDTO appointmentForm )
+    {
+        Set<DayOfWeek> setDayOfWeekWithAppointments = listSlotImpact.stream( ).filter( SlotImpact::hasAppointments )
+                .map( slotImpact -> slotImpact.getSlot( ).getStartingDateTime( ).getDayOfWeek( ) ).collect( Collectors.toSet( ) );
+        return checkNoAppointmentsImpacted( setDayOfWeekWithAppointments, nIdForm, dateOfModification, appointmentForm );
+    }
+
+    /**
+     * Check if there are appointments impacted by the new week definition
+     * 
+     * @param setDayOfWeekWithAppointments
+     *            the days of week with appointments after the date of modification
+     * @param nIdForm
+     *            the form Id
+     * @param dateOfModification
+     *            the date of modification (date of apply of the new week definition)
+     * @param appointmentForm
+     *            the appointment form
+     * @return true if there are appointments impacted
+     */
+    private static boolean checkNoAppointmentsImpacted( Set<DayOfWeek> setDayOfWeekWithAppointments, int nIdForm, LocalDate dateOfModification,
+            AppointmentFormDTO appointmentForm )
     {
         boolean bNoAppointmentsImpacted = true;
         // Find the previous WeekDefinition
@@ -979,28 +773,13 @@ public final class AppointmentUtilities
         List<DayOfWeek> previousOpenDays = WorkingDayService.getOpenDays( previousAppointmentForm );
         List<DayOfWeek> newOpenDays = WorkingDayService.getOpenDays( appointmentForm );
         // If new open days
-        if ( newOpenDays.containsAll( previousOpenDays ) )
-        {
-            // Nothing to check
-        }
-        else
+        if ( !newOpenDays.containsAll( previousOpenDays ) )
         {
             // Else we remove all the corresponding days
             previousOpenDays.removeAll( newOpenDays );
-            // For the remaining days
-            // for each appointment, need to check if the appointment is
-            // not in the remaining open days
-            boolean bAppointmentOnOpenDays = false;
-            for ( Appointment appointment : listAppointment )
-            {
-                Slot tempSlot = SlotService.findSlotById( appointment.getIdSlot( ) );
-                if ( previousOpenDays.contains( tempSlot.getStartingDateTime( ).getDayOfWeek( ) ) )
-                {
-                    bAppointmentOnOpenDays = true;
-                    break;
-                }
-            }
-            bNoAppointmentsImpacted = !bAppointmentOnOpenDays;
+            // For the remaining days, need to check that there is no
+            // appointment on the days that are closed now
+            bNoAppointmentsImpacted = previousOpenDays.stream( ).noneMatch( setDayOfWeekWithAppointments::contains );
         }
         LocalTime newStartingTime = LocalTime.parse( appointmentForm.getTimeStart( ) );
         LocalTime newEndingTime = LocalTime.parse( appointmentForm.getTimeEnd( ) );
@@ -1058,7 +837,25 @@ public final class AppointmentUtilities
      */
     public static List<Slot> findSlotsImpactedByThisTimeSlot( TimeSlot timeSlot, int nIdForm, int nIdWeekDefinition, boolean bShiftSlot )
     {
-        List<Slot> listSlotsImpacted = new ArrayList<>( );
+        return findSlotImpactsOfThisTimeSlot( timeSlot, nIdForm, nIdWeekDefinition, bShiftSlot ).stream( ).map( SlotImpact::getSlot )
+                .collect( Collectors.toList( ) );
+    }
+
+    /**
+     * Return the slots impacted by the modification of this time slot, with the number of their appointments. The slots are filtered in the database
+     * 
+     * @param timeSlot
+     *            the time slot
+     * @param nIdForm
+     *            the form id
+     * @param nIdWeekDefinition
+     *            the week definition id
+     * @param bShiftSlot
+     *            the boolean value for the shift
+     * @return the list of slots impacted
+     */
+    public static List<SlotImpact> findSlotImpactsOfThisTimeSlot( TimeSlot timeSlot, int nIdForm, int nIdWeekDefinition, boolean bShiftSlot )
+    {
         LocalDate maxDate = null;
         // Get the weekDefinition that is currently modified
         WeekDefinition currentModifiedWeekDefinition = WeekDefinitionService.findWeekDefinitionById( nIdWeekDefinition );
@@ -1089,46 +886,47 @@ public final class AppointmentUtilities
                 }
             }
         }
-        if ( maxDate != null )
+        if ( maxDate == null )
         {
-            // We have an upper bound to search with
-            List<Slot> listSlots = SlotService.findSlotsByIdFormAndDateRange( nIdForm, currentModifiedWeekDefinition.getDateOfApply( ).atStartOfDay( ),
-                    maxDate.atTime( LocalTime.MAX ) );
-            // Need to check if the modification of the time slot or the typical
-            // week impacts these slots
-            WorkingDay workingDay = WorkingDayService.findWorkingDayLightById( timeSlot.getIdWorkingDay( ) );
-            // Filter all the slots with the working day and the starting time
-            // ending time of the time slot
-            // The begin time of the slot can be before or after the begin time
-            // of the time slot
-            // and the ending time of the slot can be before or after the ending
-            // time of the time slot (specific slot)
-
-            // If shiftTimeSlot is checked, need to check all the slots impacted
-            // until the end of the day
-            if ( bShiftSlot )
-            {
-                listSlotsImpacted = listSlots
-                        .stream( )
-                        .filter(
-                                slot -> ( ( slot.getStartingDateTime( ).getDayOfWeek( ) == DayOfWeek.of( workingDay.getDayOfWeek( ) ) ) && ( !slot
-                                        .getStartingTime( ).isBefore( timeSlot.getStartingTime( ) ) || ( slot.getStartingTime( ).isBefore(
-                                        timeSlot.getStartingTime( ) ) && ( slot.getEndingTime( ).isAfter( timeSlot.getStartingTime( ) ) ) ) ) ) )
-                        .collect( Collectors.toList( ) );
-            }
-            else
-            {
-                listSlotsImpacted = listSlots
-                        .stream( )
-                        .filter(
-                                slot -> ( slot.getStartingDateTime( ).getDayOfWeek( ) == DayOfWeek.of( workingDay.getDayOfWeek( ) ) )
-                                        && ( slot.getStartingTime( ).equals( timeSlot.getStartingTime( ) )
-                                                || ( slot.getStartingTime( ).isBefore( timeSlot.getStartingTime( ) ) && ( slot.getEndingTime( )
-                                                        .isAfter( timeSlot.getStartingTime( ) ) ) ) || ( slot.getStartingTime( ).isAfter(
-                                                timeSlot.getStartingTime( ) ) && ( !slot.getEndingTime( ).isAfter( timeSlot.getEndingTime( ) ) ) ) ) )
-                        .collect( Collectors.toList( ) );
-            }
+            return new ArrayList<>( );
         }
-        return listSlotsImpacted;
+        // The slots impacted are the slots of the day of the working day
+        // that contain the starting time of the time slot, and the slots
+        // that start after it and end before the end of the time slot (specific
+        // slots).
+        // If shiftTimeSlot is checked, need to check all the slots impacted
+        // until the end of the day
+        WorkingDay workingDay = WorkingDayService.findWorkingDayLightById( timeSlot.getIdWorkingDay( ) );
+        return SlotService.findSlotImpacts( nIdForm, currentModifiedWeekDefinition.getDateOfApply( ).atStartOfDay( ), maxDate.atTime( LocalTime.MAX ),
+                DayOfWeek.of( workingDay.getDayOfWeek( ) ), timeSlot.getStartingTime( ), bShiftSlot ? null : timeSlot.getEndingTime( ) );
+    }
+
+    /**
+     * Build the JSON representation of a list of slots, used by the calendars to load the slots of the week displayed
+     * 
+     * @param listSlots
+     *            the list of slots
+     * @return the JSON array of the slots
+     */
+    public static String buildJsonSlots( List<Slot> listSlots )
+    {
+        JSONArray jsonSlots = new JSONArray( );
+        for ( Slot slot : listSlots )
+        {
+            JSONObject jsonSlot = new JSONObject( );
+            jsonSlot.accumulate( "idSlot", slot.getIdSlot( ) );
+            jsonSlot.accumulate( "idForm", slot.getIdForm( ) );
+            jsonSlot.accumulate( "startingDateTime", slot.getStartingDateTime( ).toString( ) );
+            jsonSlot.accumulate( "endingDateTime", slot.getEndingDateTime( ).toString( ) );
+            jsonSlot.accumulate( "isOpen", slot.getIsOpen( ) );
+            jsonSlot.accumulate( "isSpecific", slot.getIsSpecific( ) );
+            jsonSlot.accumulate( "isPassed", slot.getIsPassed( ) );
+            jsonSlot.accumulate( "maxCapacity", slot.getMaxCapacity( ) );
+            jsonSlot.accumulate( "nbRemainingPlaces", slot.getNbRemainingPlaces( ) );
+            jsonSlot.accumulate( "nbPotentialRemainingPlaces", slot.getNbPotentialRemainingPlaces( ) );
+            jsonSlot.accumulate( "nbPlacesTaken", slot.getNbPlacesTaken( ) );
+            jsonSlots.add( jsonSlot );
+        }
+        return jsonSlots.toString( );
     }
 }
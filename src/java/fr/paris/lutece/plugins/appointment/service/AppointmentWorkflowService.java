@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.plugins.workflowcore.business.action.Action;
+import fr.paris.lutece.plugins.workflowcore.business.resource.ResourceWorkflow;
+import fr.paris.lutece.plugins.workflowcore.business.state.State;
+import fr.paris.lutece.plugins.workflowcore.business.state.StateFilter;
+import fr.paris.lutece.plugins.workflowcore.service.resource.IResourceWorkflowService;
+import fr.paris.lutece.plugins.workflowcore.service.resource.ResourceWorkflowService;
+import fr.paris.lutece.plugins.workflowcore.service.state.IStateService;
+import fr.paris.lutece.plugins.workflowcore.service.state.StateService;
+import fr.paris.lutece.portal.business.user.AdminUser;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.workflow.WorkflowService;
+
+/**
+ * Service to fill the workflow states and actions of a list of appointments. The states and the actions are loaded for the whole list with a constant
+ * number of queries per page, instead of a few queries per appointment
+ */
+public final class AppointmentWorkflowService
+{
+    /**
+     * Maximum number of ids in the IN clause of a query
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AppointmentWorkflowService( )
+    {
+    }
+
+    /**
+     * Fill the workflow state of the appointments
+     * 
+     * @param listAppointmentsDTO
+     *            the appointments
+     * @param nIdWorkflow
+     *            the id of the workflow of the form of the appointments
+     * @return the map of the states by id of appointment. The appointments that are not in the workflow yet are not in the map
+     */
+    public static Map<Integer, State> fillStates( List<AppointmentDTO> listAppointmentsDTO, int nIdWorkflow )
+    {
+        Map<Integer, State> mapStateByIdAppointment = new HashMap<>( );
+        if ( listAppointmentsDTO.isEmpty( ) )
+        {
+            return mapStateByIdAppointment;
+        }
+        IResourceWorkflowService resourceWorkflowService = SpringContextService.getBean( ResourceWorkflowService.BEAN_SERVICE );
+        IStateService stateService = SpringContextService.getBean( StateService.BEAN_SERVICE );
+        // The resources only hold the id of their state, the states of the
+        // workflow are loaded once
+        StateFilter stateFilter = new StateFilter( );
+        stateFilter.setIdWorkflow( nIdWorkflow );
+        Map<Integer, State> mapStateById = new HashMap<>( );
+        for ( State state : stateService.getListStateByFilter( stateFilter ) )
+        {
+            mapStateById.put( state.getId( ), state );
+        }
+        List<Integer> listIdAppointment = getListIdAppointment( listAppointmentsDTO );
+        for ( int nFromIndex = 0; nFromIndex < listIdAppointment.size( ); nFromIndex += BATCH_SIZE )
+        {
+            List<Integer> listIdAppointmentBatch = new ArrayList<>( listIdAppointment.subList( nFromIndex,
+                    Math.min( nFromIndex + BATCH_SIZE, listIdAppointment.size( ) ) ) );
+            for ( ResourceWorkflow resourceWorkflow : resourceWorkflowService.getListResourceWorkflowByListIdResource( listIdAppointmentBatch,
+                    Appointment.APPOINTMENT_RESOURCE_TYPE, nIdWorkflow, null ) )
+            {
+                if ( resourceWorkflow.getState( ) != null )
+                {
+                    State state = mapStateById.get( resourceWorkflow.getState( ).getId( ) );
+                    if ( state != null )
+                    {
+                        mapStateByIdAppointment.put( resourceWorkflow.getIdResource( ), state );
+                    }
+                }
+            }
+        }
+        for ( AppointmentDTO appointmentDTO : listAppointmentsDTO )
+        {
+            State state = mapStateByIdAppointment.get( appointmentDTO.getIdAppointment( ) );
+            if ( state != null )
+            {
+                appointmentDTO.setState( state );
+            }
+        }
+        return mapStateByIdAppointment;
+    }
+
+    /**
+     * Fill the workflow state and the actions available for an admin user of the appointments
+     * 
+     * @param listAppointmentsDTO
+     *            the appointments
+     * @param nIdWorkflow
+     *            the id of the workflow of the form of the appointments
+     * @param user
+     *            the admin user
+     */
+    public static void fillStatesAndActions( List<AppointmentDTO> listAppointmentsDTO, int nIdWorkflow, AdminUser user )
+    {
+        Map<Integer, State> mapStateByIdAppointment = fillStates( listAppointmentsDTO, nIdWorkflow );
+        List<Integer> listIdAppointmentInWorkflow = new ArrayList<>( mapStateByIdAppointment.keySet( ) );
+        Map<Integer, List<Action>> mapActions = new HashMap<>( );
+        if ( !listIdAppointmentInWorkflow.isEmpty( ) )
+        {
+            mapActions = WorkflowService.getInstance( ).getActions( listIdAppointmentInWorkflow, Appointment.APPOINTMENT_RESOURCE_TYPE, null, nIdWorkflow,
+                    user );
+        }
+        for ( AppointmentDTO appointmentDTO : listAppointmentsDTO )
+        {
+            if ( mapStateByIdAppointment.containsKey( appointmentDTO.getIdAppointment( ) ) )
+            {
+                List<Action> listActions = mapActions.get( appointmentDTO.getIdAppointment( ) );
+                appointmentDTO.setListWorkflowActions( listActions != null ? listActions : new ArrayList<>( ) );
+            }
+            else
+            {
+                // The appointment is not in the workflow yet: the unit call puts
+                // it in the initial state of the workflow
+                appointmentDTO.setListWorkflowActions( WorkflowService.getInstance( ).getActions( appointmentDTO.getIdAppointment( ),
+                        Appointment.APPOINTMENT_RESOURCE_TYPE, nIdWorkflow, user ) );
+            }
+        }
+    }
+
+    /**
+     * Get the ids of the appointments
+     * 
+     * @param listAppointmentsDTO
+     *            the appointments
+     * @return the ids of the appointments
+     */
+    private static List<Integer> getListIdAppointment( List<AppointmentDTO> listAppointmentsDTO )
+    {
+        List<Integer> listIdAppointment = new ArrayList<>( listAppointmentsDTO.size( ) );
+        for ( AppointmentDTO appointmentDTO : listAppointmentsDTO )
+        {
+            listIdAppointment.add( appointmentDTO.getIdAppointment( ) );
+        }
+        return listIdAppointment;
+    }
+}
@@ -54,6 +54,7 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import fr.paris.lutece.plugins.appointment.business.planning.ClosingDay;
 import fr.paris.lutece.plugins.appointment.business.planning.ClosingDayHome;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityVersionService;
 
 /**
  * Service class for the closing day
@@ -150,10 +151,23 @@ public final class ClosingDayService
      */
     public static void saveListClosingDay( int nIdForm, List<LocalDate> listClosingDate )
     {
-
+        if ( listClosingDate.isEmpty( ) )
+        {
+            return;
+        }
+        List<ClosingDay> listClosingDay = new ArrayList<>( listClosingDate.size( ) );
         for ( LocalDate closingDate : listClosingDate )
         {
-            saveClosingDay( nIdForm, closingDate );
+            ClosingDay closingDay = new ClosingDay( );
+            closingDay.setIdForm( nIdForm );
+            closingDay.setDateOfClosingDay( closingDate );
+            listClosingDay.add( closingDay );
+        }
+        ClosingDayHome.createBatch( listClosingDay );
+        AvailabilityVersionService.increment( nIdForm );
+        for ( LocalDate closingDate : new HashSet<>( listClosingDate ) )
+        {
+            DayAvailabilityService.invalidateDay( nIdForm, closingDate );
         }
     }
 
@@ -171,6 +185,8 @@ public final class ClosingDayService
         closingDay.setIdForm( nIdForm );
         closingDay.setDateOfClosingDay( closingDate );
         ClosingDayHome.create( closingDay );
+        AvailabilityVersionService.increment( nIdForm );
+        DayAvailabilityService.invalidateDay( nIdForm, closingDate );
     }
 
     /**
@@ -182,6 +198,8 @@ public final class ClosingDayService
     public static void saveClosingDay( ClosingDay closingDay )
     {
         ClosingDayHome.create( closingDay );
+        AvailabilityVersionService.increment( closingDay.getIdForm( ) );
+        DayAvailabilityService.invalidateDay( closingDay.getIdForm( ), closingDay.getDateOfClosingDay( ) );
     }
 
     /**
@@ -193,6 +211,8 @@ public final class ClosingDayService
     public static void removeClosingDay( ClosingDay closingDay )
     {
         ClosingDayHome.delete( closingDay.getIdClosingDay( ) );
+        AvailabilityVersionService.increment( closingDay.getIdForm( ) );
+        DayAvailabilityService.invalidateDay( closingDay.getIdForm( ), closingDay.getDateOfClosingDay( ) );
     }
 
     /**
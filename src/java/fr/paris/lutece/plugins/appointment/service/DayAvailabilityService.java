@@ -0,0 +1,435 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.appointment.business.display.Display;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.slot.DayAvailability;
+import fr.paris.lutece.plugins.appointment.business.slot.DayAvailabilityHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
+import fr.paris.lutece.plugins.appointment.service.lock.StripedLock;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service of the summary of the availability of the forms by day (number of remaining places on the open slots and time of the first of them that is
+ * not full). The open places of a day are updated incrementally after each booking, the days of the slots modified or released are removed from it,
+ * and the summary of a form is removed when its planning changes. A day that is not in the summary is unknown: it is computed from the slots when it
+ * is read, and the {@link DayAvailabilityDaemon} rebuilds the summary of the days displayed. The summary is based on the remaining places: the places
+ * held by the users filling a form are checked on the slots of the day found. A booking updating a day while the day is rebuilt may be lost : the
+ * daemon corrects it at its next run. The days are removed from the summary once the transaction of the modification is committed : a day computed
+ * meanwhile from the slots not yet committed would otherwise be written again over the removal
+ */
+public final class DayAvailabilityService
+{
+    private static final String PROPERTY_NB_LOCK_STRIPES = "appointment.lock.dayAvailability.nbStripes";
+    private static final int DEFAULT_NB_LOCK_STRIPES = 64;
+
+    /**
+     * Locks on the forms, so that the days of a form are not rebuilt and removed concurrently. The bookings do not take them : they update the days
+     * with a single statement
+     */
+    private static final StripedLock _formLocks = new StripedLock( AppPropertiesService.getPropertyInt( PROPERTY_NB_LOCK_STRIPES,
+            DEFAULT_NB_LOCK_STRIPES ) );
+
+    /**
+     * Incremented when the summary of all the forms is removed. The days computed are not written if the summary has been removed while they were
+     * computed (the summary of a single form is removed under the lock of the form)
+     */
+    private static final AtomicLong _lGeneration = new AtomicLong( );
+    private static final AtomicLong _lNbInvalidations = new AtomicLong( );
+    private static final AtomicLong _lNbDaysRefreshed = new AtomicLong( );
+    private static final AtomicLong _lNbDaysUpdated = new AtomicLong( );
+    private static final AtomicLong _lNbWeeksComputedOnRead = new AtomicLong( );
+    private static final AtomicLong _lNbRefreshErrors = new AtomicLong( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private DayAvailabilityService( )
+    {
+    }
+
+    /**
+     * Update the summary of the day of a slot after places have been taken or given back on it. The open places of the day are updated with a single
+     * statement, without rebuilding the day. If the slot has become full while being the first free slot of the day, the next free slot is not known :
+     * the day is removed from the summary, to be computed again when it is read or by the daemon. An error is logged and the day is removed from the
+     * summary if it can not be updated
+     * 
+     * @param slot
+     *            the slot, with its new number of remaining places
+     * @param nbRemainingPlacesBefore
+     *            the number of remaining places of the slot before the update
+     */
+    public static void updateDayOfSlot( Slot slot, int nbRemainingPlacesBefore )
+    {
+        if ( !slot.getIsOpen( ) )
+        {
+            // The closed slots are not counted in the summary
+            return;
+        }
+        int nIdForm = slot.getIdForm( );
+        LocalDate date = slot.getDate( );
+        int nbOpenPlacesBefore = Math.max( 0, nbRemainingPlacesBefore );
+        int nbOpenPlacesAfter = Math.max( 0, slot.getNbRemainingPlaces( ) );
+        if ( nbOpenPlacesAfter == nbOpenPlacesBefore )
+        {
+            return;
+        }
+        try
+        {
+            LocalTime startingTime = slot.getStartingDateTime( ).toLocalTime( );
+            if ( nbOpenPlacesAfter == 0 )
+            {
+                DayAvailabilityHome.deleteByIdFormAndDateAndFirstFreeTime( nIdForm, date, startingTime );
+            }
+            DayAvailabilityHome.updateNbOpenPlaces( nIdForm, date, nbOpenPlacesAfter - nbOpenPlacesBefore, nbOpenPlacesBefore == 0 ? startingTime : null );
+            _lNbDaysUpdated.incrementAndGet( );
+        }
+        catch( Exception e )
+        {
+            _lNbRefreshErrors.incrementAndGet( );
+            AppLogService.error( "Error updating the availability of the form " + nIdForm + " on " + date + " : " + e.getMessage( ), e );
+            invalidateDay( nIdForm, date );
+        }
+    }
+
+    /**
+     * Remove the day of a slot from the summary. It will be computed again when it is read
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    public static void invalidateDayOfSlot( int nIdSlot )
+    {
+        Slot slot = SlotService.findSlotById( nIdSlot );
+        if ( slot != null )
+        {
+            invalidateDay( slot.getIdForm( ), slot.getDate( ) );
+        }
+    }
+
+    /**
+     * Remove a day of a form from the summary, once the transaction of the current thread is committed. It will be computed again when it is read
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param date
+     *            the day
+     */
+    public static void invalidateDay( int nIdForm, LocalDate date )
+    {
+        AfterCommitService.run( ( ) -> {
+            _lNbInvalidations.incrementAndGet( );
+            synchronized( _formLocks.getLock( nIdForm ) )
+            {
+                DayAvailabilityHome.deleteByIdFormAndDateRange( nIdForm, date, date );
+            }
+        } );
+    }
+
+    /**
+     * Remove the summary of a form, once the transaction of the current thread is committed
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void invalidate( int nIdForm )
+    {
+        AfterCommitService.run( ( ) -> {
+            _lNbInvalidations.incrementAndGet( );
+            synchronized( _formLocks.getLock( nIdForm ) )
+            {
+                DayAvailabilityHome.deleteByIdForm( nIdForm );
+            }
+        } );
+    }
+
+    /**
+     * Remove the summary of all the forms from today, once the transaction of the current thread is committed
+     */
+    public static void invalidateAll( )
+    {
+        AfterCommitService.run( ( ) -> {
+            _lNbInvalidations.incrementAndGet( );
+            _lGeneration.incrementAndGet( );
+            DayAvailabilityHome.deleteFromDate( LocalDate.now( ) );
+        } );
+    }
+
+    /**
+     * Compute the summary of the days of a form on a period from its slots, and write it
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @return the summary of the days of the period, ordered by date
+     */
+    public static List<DayAvailability> refreshDays( int nIdForm, LocalDate startingDate, LocalDate endingDate )
+    {
+        synchronized( _formLocks.getLock( nIdForm ) )
+        {
+            long lGeneration = _lGeneration.get( );
+            HashMap<LocalDate, WeekDefinition> mapWeekDefinition = PlanningCacheService.getPlanning( nIdForm ).getMapWeekDefinition( );
+            List<DayAvailability> listDayAvailability = buildListDayAvailability( nIdForm,
+                    SlotService.buildListSlot( nIdForm, mapWeekDefinition, startingDate, endingDate ), startingDate, endingDate );
+            if ( _lGeneration.get( ) == lGeneration )
+            {
+                DayAvailabilityHome.deleteByIdFormAndDateRange( nIdForm, startingDate, endingDate );
+                for ( DayAvailability dayAvailability : listDayAvailability )
+                {
+                    DayAvailabilityHome.create( dayAvailability );
+                }
+                _lNbDaysRefreshed.addAndGet( listDayAvailability.size( ) );
+            }
+            return listDayAvailability;
+        }
+    }
+
+    /**
+     * Find the summary of the days of a form on a period. The days that are not in the summary are computed (week by week) and written
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @param locale
+     *            the locale giving the first day of the week
+     * @return the summary of all the days of the period, ordered by date
+     */
+    public static List<DayAvailability> findListDayAvailability( int nIdForm, LocalDate startingDate, LocalDate endingDate, Locale locale )
+    {
+        Map<LocalDate, DayAvailability> mapDayAvailability = new HashMap<>( );
+        for ( DayAvailability dayAvailability : DayAvailabilityHome.findByIdFormAndDateRange( nIdForm, startingDate, endingDate ) )
+        {
+            mapDayAvailability.put( dayAvailability.getDate( ), dayAvailability );
+        }
+        List<DayAvailability> listDayAvailability = new ArrayList<>( );
+        LocalDate dateTemp = startingDate;
+        while ( !dateTemp.isAfter( endingDate ) )
+        {
+            DayAvailability dayAvailability = mapDayAvailability.get( dateTemp );
+            if ( dayAvailability != null )
+            {
+                listDayAvailability.add( dayAvailability );
+                dateTemp = dateTemp.plusDays( 1 );
+            }
+            else
+            {
+                // Compute the rest of the week of the missing day
+                LocalDate endingDateOfWeek = SlotService.getFirstDayOfWeek( dateTemp, locale ).plusWeeks( 1 ).minusDays( 1 );
+                if ( endingDateOfWeek.isAfter( endingDate ) )
+                {
+                    endingDateOfWeek = endingDate;
+                }
+                _lNbWeeksComputedOnRead.incrementAndGet( );
+                listDayAvailability.addAll( refreshDays( nIdForm, dateTemp, endingDateOfWeek ) );
+                dateTemp = endingDateOfWeek.plusDays( 1 );
+            }
+        }
+        return listDayAvailability;
+    }
+
+    /**
+     * Find the date of the first open slot with free places on a period. The days with remaining places are found in the summary, and the slots of each
+     * of them are checked (places held, minimum time before the appointment) until a free slot is found
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param minDateTime
+     *            the slots must start after this date time
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @param locale
+     *            the locale giving the first day of the week
+     * @return the date of the first free open slot, null if there is none
+     */
+    public static LocalDate findFirstDateOfFreeOpenSlot( int nIdForm, LocalDateTime minDateTime, LocalDate startingDate, LocalDate endingDate, Locale locale )
+    {
+        LocalDate dateTemp = startingDate;
+        if ( dateTemp.isBefore( minDateTime.toLocalDate( ) ) )
+        {
+            dateTemp = minDateTime.toLocalDate( );
+        }
+        HashMap<LocalDate, WeekDefinition> mapWeekDefinition = null;
+        while ( !dateTemp.isAfter( endingDate ) )
+        {
+            LocalDate endingDateOfWeek = SlotService.getFirstDayOfWeek( dateTemp, locale ).plusWeeks( 1 ).minusDays( 1 );
+            if ( endingDateOfWeek.isAfter( endingDate ) )
+            {
+                endingDateOfWeek = endingDate;
+            }
+            for ( DayAvailability dayAvailability : findListDayAvailability( nIdForm, dateTemp, endingDateOfWeek, locale ) )
+            {
+                if ( dayAvailability.getFirstFreeTime( ) != null )
+                {
+                    LocalDate date = dayAvailability.getDate( );
+                    if ( mapWeekDefinition == null )
+                    {
+                        mapWeekDefinition = PlanningCacheService.getPlanning( nIdForm ).getMapWeekDefinition( );
+                    }
+                    if ( SlotService.findFirstDateOfFreeOpenSlot( nIdForm, mapWeekDefinition, minDateTime, date, date, locale ) != null )
+                    {
+                        return date;
+                    }
+                }
+            }
+            dateTemp = endingDateOfWeek.plusDays( 1 );
+        }
+        return null;
+    }
+
+    /**
+     * Rebuild the summary of the days displayed of all the active forms, and remove the days passed
+     * 
+     * @return the number of days rebuilt
+     */
+    public static int rebuildAll( )
+    {
+        LocalDate today = LocalDate.now( );
+        DayAvailabilityHome.deleteBeforeDate( today );
+        int nNbDays = 0;
+        for ( Form form : FormService.findAllActiveForms( ) )
+        {
+            int nIdForm = form.getIdForm( );
+            LocalDate startingDate = today;
+            if ( form.getStartingValidityDate( ) != null && form.getStartingValidityDate( ).isAfter( startingDate ) )
+            {
+                startingDate = form.getStartingValidityDate( );
+            }
+            Display display = DisplayService.findDisplayWithFormId( nIdForm );
+            LocalDate endingDate = startingDate.plusWeeks( display != null ? display.getNbWeeksToDisplay( ) : 1 );
+            if ( form.getEndingValidityDate( ) != null && form.getEndingValidityDate( ).isBefore( endingDate ) )
+            {
+                endingDate = form.getEndingValidityDate( );
+            }
+            // One week at a time, so that the slots of the whole period are not built at once
+            LocalDate dateTemp = startingDate;
+            while ( !dateTemp.isAfter( endingDate ) )
+            {
+                LocalDate endingDateOfChunk = dateTemp.plusDays( 6 );
+                if ( endingDateOfChunk.isAfter( endingDate ) )
+                {
+                    endingDateOfChunk = endingDate;
+                }
+                try
+                {
+                    nNbDays += refreshDays( nIdForm, dateTemp, endingDateOfChunk ).size( );
+                }
+                catch( Exception e )
+                {
+                    _lNbRefreshErrors.incrementAndGet( );
+                    AppLogService.error( "Error rebuilding the availability of the form " + nIdForm + " : " + e.getMessage( ), e );
+                }
+                dateTemp = endingDateOfChunk.plusDays( 1 );
+            }
+        }
+        return nNbDays;
+    }
+
+    /**
+     * Get the statistics of the summary
+     * 
+     * @return the statistics of the summary
+     */
+    public static String getMetrics( )
+    {
+        return new StringBuilder( "Day availability - days refreshed : " ).append( _lNbDaysRefreshed.get( ) ).append( ", days updated : " )
+                .append( _lNbDaysUpdated.get( ) ).append( ", weeks computed on read : " )
+                .append( _lNbWeeksComputedOnRead.get( ) ).append( ", invalidations : " ).append( _lNbInvalidations.get( ) ).append( ", errors : " )
+                .append( _lNbRefreshErrors.get( ) ).toString( );
+    }
+
+    /**
+     * Build the summary of the days of a period from the slots of the period
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param listSlot
+     *            the slots of the period
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @return the summary of each day of the period, ordered by date
+     */
+    static List<DayAvailability> buildListDayAvailability( int nIdForm, List<Slot> listSlot, LocalDate startingDate, LocalDate endingDate )
+    {
+        Map<LocalDate, DayAvailability> mapDayAvailability = new HashMap<>( );
+        List<DayAvailability> listDayAvailability = new ArrayList<>( );
+        LocalDate dateTemp = startingDate;
+        while ( !dateTemp.isAfter( endingDate ) )
+        {
+            DayAvailability dayAvailability = new DayAvailability( );
+            dayAvailability.setIdForm( nIdForm );
+            dayAvailability.setDate( dateTemp );
+            mapDayAvailability.put( dateTemp, dayAvailability );
+            listDayAvailability.add( dayAvailability );
+            dateTemp = dateTemp.plusDays( 1 );
+        }
+        for ( Slot slot : listSlot )
+        {
+            DayAvailability dayAvailability = mapDayAvailability.get( slot.getStartingDateTime( ).toLocalDate( ) );
+            if ( dayAvailability != null && slot.getIsOpen( ) && slot.getNbRemainingPlaces( ) > 0 )
+            {
+                dayAvailability.setNbOpenPlaces( dayAvailability.getNbOpenPlaces( ) + slot.getNbRemainingPlaces( ) );
+                LocalTime startingTime = slot.getStartingDateTime( ).toLocalTime( );
+                if ( dayAvailability.getFirstFreeTime( ) == null || startingTime.isBefore( dayAvailability.getFirstFreeTime( ) ) )
+                {
+                    dayAvailability.setFirstFreeTime( startingTime );
+                }
+            }
+        }
+        return listDayAvailability;
+    }
+}
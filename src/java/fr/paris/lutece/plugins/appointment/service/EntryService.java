@@ -42,8 +42,11 @@ import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
 
 import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.service.cache.FormEntryCacheService;
+import fr.paris.lutece.plugins.appointment.service.cache.FormEntryTree;
 import fr.paris.lutece.plugins.appointment.web.AppointmentApp;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
@@ -496,6 +499,47 @@ public final class EntryService extends RemovalListenerService implements Serial
         return refListGroups;
     }
 
+    /**
+     * Get the html part of the additional entries of a form. The entries are read from the cache of the form, and the HTML is reused when no response of
+     * the user has to be displayed
+     * 
+     * @param model
+     *            the model
+     * @param nIdForm
+     *            the form id
+     * @param locale
+     *            the locale
+     * @param bDisplayFront
+     *            true if it is displayed on FO
+     * @param request
+     *            the request
+     * @return the HTML of the entries
+     */
+    public static String getHtmlEntries( Map<String, Object> model, int nIdForm, Locale locale, boolean bDisplayFront, HttpServletRequest request )
+    {
+        FormEntryTree formEntryTree = FormEntryCacheService.getFormEntryTree( nIdForm );
+        Map<Integer, List<Response>> mapResponses = getMapResponsesInSession( request );
+        String strHtml = null;
+        if ( MapUtils.isEmpty( mapResponses ) )
+        {
+            strHtml = formEntryTree.getStaticHtml( locale, bDisplayFront );
+        }
+        if ( strHtml == null )
+        {
+            StringBuilder stringBuffer = new StringBuilder( );
+            for ( Entry entry : formEntryTree.getListEntry( ) )
+            {
+                appendHtmlEntry( model, entry, stringBuffer, locale, bDisplayFront, mapResponses );
+            }
+            strHtml = stringBuffer.toString( );
+            if ( MapUtils.isEmpty( mapResponses ) )
+            {
+                formEntryTree.putStaticHtml( locale, bDisplayFront, strHtml );
+            }
+        }
+        return strHtml;
+    }
+
     /**
      * Get the html part of the additional entry of the form
      * 
@@ -510,27 +554,64 @@ public final class EntryService extends RemovalListenerService implements Serial
     public static void getHtmlEntry( Map<String, Object> model, int nIdEntry, StringBuilder stringBuffer, Locale locale, boolean bDisplayFront,
             HttpServletRequest request )
     {
-    	StringBuilder strConditionalQuestionStringBuffer = null;
-        HtmlTemplate template;
         Entry entry = EntryHome.findByPrimaryKey( nIdEntry );
-        if ( entry.getEntryType( ).getGroup( ) )
+        Entry entryResolved = FormEntryCacheService.getFormEntryTree( entry.getIdResource( ) ).getEntry( nIdEntry );
+        if ( entryResolved != null )
         {
-        	StringBuilder strGroupStringBuffer = new StringBuilder( );
-            for ( Entry entryChild : entry.getChildren( ) )
+            entry = entryResolved;
+        }
+        appendHtmlEntry( model, entry, stringBuffer, locale, bDisplayFront, getMapResponsesInSession( request ) );
+    }
+
+    /**
+     * Get the responses of the appointment being taken, stored in session
+     * 
+     * @param request
+     *            the request
+     * @return the responses by id of entry, or null if there is none
+     */
+    private static Map<Integer, List<Response>> getMapResponsesInSession( HttpServletRequest request )
+    {
+        if ( request != null )
+        {
+            AppointmentDTO appointmentDTO = (AppointmentDTO) request.getSession( ).getAttribute( SESSION_NOT_VALIDATED_APPOINTMENT );
+            if ( appointmentDTO != null )
             {
-                getHtmlEntry( model, entryChild.getIdEntry( ), strGroupStringBuffer, locale, bDisplayFront, request );
+                return appointmentDTO.getMapResponsesByIdEntry( );
             }
-            model.put( MARK_STR_LIST_CHILDREN, strGroupStringBuffer.toString( ) );
         }
-        else
+        return null;
+    }
+
+    /**
+     * Append the html part of a resolved entry, with its children and its conditional questions
+     * 
+     * @param model
+     *            the model
+     * @param entry
+     *            the entry, with its children and the conditional questions of its fields
+     * @param stringBuffer
+     *            the string buffer
+     * @param locale
+     *            the locale
+     * @param bDisplayFront
+     *            true if it is displayed on FO
+     * @param mapResponses
+     *            the responses of the user by id of entry, or null
+     */
+    private static void appendHtmlEntry( Map<String, Object> model, Entry entry, StringBuilder stringBuffer, Locale locale, boolean bDisplayFront,
+            Map<Integer, List<Response>> mapResponses )
+    {
+        StringBuilder strConditionalQuestionStringBuffer = null;
+        HtmlTemplate template;
+        if ( entry.getEntryType( ).getGroup( ) )
         {
-            if ( entry.getNumberConditionalQuestion( ) != 0 )
+            StringBuilder strGroupStringBuffer = new StringBuilder( );
+            for ( Entry entryChild : entry.getChildren( ) )
             {
-                for ( Field field : entry.getFields( ) )
-                {
-                    field.setConditionalQuestions( FieldHome.findByPrimaryKey( field.getIdField( ) ).getConditionalQuestions( ) );
-                }
+                appendHtmlEntry( model, entryChild, strGroupStringBuffer, locale, bDisplayFront, mapResponses );
             }
+            model.put( MARK_STR_LIST_CHILDREN, strGroupStringBuffer.toString( ) );
         }
         if ( entry.getNumberConditionalQuestion( ) != 0 )
         {
@@ -539,10 +620,10 @@ public final class EntryService extends RemovalListenerService implements Serial
             {
                 if ( CollectionUtils.isNotEmpty( field.getConditionalQuestions( ) ) )
                 {
-                	StringBuilder strGroupStringBuffer = new StringBuilder( );
+                    StringBuilder strGroupStringBuffer = new StringBuilder( );
                     for ( Entry entryConditional : field.getConditionalQuestions( ) )
                     {
-                        getHtmlEntry( model, entryConditional.getIdEntry( ), strGroupStringBuffer, locale, bDisplayFront, request );
+                        appendHtmlEntry( model, entryConditional, strGroupStringBuffer, locale, bDisplayFront, mapResponses );
                     }
                     model.put( MARK_STR_LIST_CHILDREN, strGroupStringBuffer.toString( ) );
                     model.put( MARK_FIELD, field );
@@ -554,14 +635,9 @@ public final class EntryService extends RemovalListenerService implements Serial
         }
         model.put( MARK_ENTRY, entry );
         model.put( MARK_LOCALE, locale );
-        if ( request != null )
+        if ( mapResponses != null )
         {
-            AppointmentDTO appointmentDTO = (AppointmentDTO) request.getSession( ).getAttribute( SESSION_NOT_VALIDATED_APPOINTMENT );
-            if ( ( appointmentDTO != null ) && ( appointmentDTO.getMapResponsesByIdEntry( ) != null ) )
-            {
-                List<Response> listResponses = appointmentDTO.getMapResponsesByIdEntry( ).get( entry.getIdEntry( ) );
-                model.put( MARK_LIST_RESPONSES, listResponses );
-            }
+            model.put( MARK_LIST_RESPONSES, mapResponses.get( entry.getIdEntry( ) ) );
         }
         IEntryTypeService entryTypeService = EntryTypeServiceManager.getEntryTypeService( entry );
         // If the entry type is a file, we add the
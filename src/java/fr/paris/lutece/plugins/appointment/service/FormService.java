@@ -54,6 +54,9 @@ import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.rule.FormRule;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.cache.FormEntryCacheService;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningSnapshot;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
 import fr.paris.lutece.plugins.appointment.service.listeners.FormListenerManager;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
@@ -418,13 +421,17 @@ public final class FormService
             weekDefinition = WeekDefinitionService.findWeekDefinitionById( nIdWeekDefinition );
             dateOfApply = weekDefinition.getDateOfApply( );
         }
-        if ( reservationRule == null )
+        if ( reservationRule == null || weekDefinition == null )
         {
-            reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, dateOfApply );
-        }
-        if ( weekDefinition == null )
-        {
-            weekDefinition = WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( nIdForm, dateOfApply );
+            PlanningSnapshot planning = PlanningCacheService.getPlanning( nIdForm );
+            if ( reservationRule == null )
+            {
+                reservationRule = planning.getReservationRuleClosestToDateOfApply( dateOfApply );
+            }
+            if ( weekDefinition == null )
+            {
+                weekDefinition = planning.getWeekDefinitionClosestToDateOfApply( dateOfApply );
+            }
         }
         if ( reservationRule != null )
         {
@@ -715,6 +722,8 @@ public final class FormService
         FormListenerManager.notifyListenersFormRemoval( nIdForm );
         AppointmentListenerManager.notifyListenersAppointmentFormRemoval( nIdForm );
         FormHome.delete( nIdForm );
+        PlanningCacheService.invalidate( nIdForm );
+        FormEntryCacheService.invalidate( nIdForm );
     }
 
     /**
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes to apply to a planning (slots or time slots), computed in memory before being written in the database. The objects are applied in this order:
+ * the deletions, then the updates in the order they have been added, then the creations. This is the order that satisfies the unique constraints on the
+ * starting and ending times, provided that the updates are added in the order of the shift
+ *
+ * @param <T>
+ *            the type of the objects of the planning
+ */
+public final class PlanningRewrite<T>
+{
+    private final List<T> _listToDelete = new ArrayList<>( );
+    private final List<T> _listToUpdate = new ArrayList<>( );
+    private final List<T> _listToCreate = new ArrayList<>( );
+
+    /**
+     * Add an object to delete
+     * 
+     * @param object
+     *            the object to delete
+     */
+    public void delete( T object )
+    {
+        _listToDelete.add( object );
+    }
+
+    /**
+     * Add an object to update, after the ones already added
+     * 
+     * @param object
+     *            the object to update
+     */
+    public void update( T object )
+    {
+        _listToUpdate.add( object );
+    }
+
+    /**
+     * Add an object to create
+     * 
+     * @param object
+     *            the object to create
+     */
+    public void create( T object )
+    {
+        _listToCreate.add( object );
+    }
+
+    /**
+     * Get the objects to delete
+     * 
+     * @return the objects to delete
+     */
+    public List<T> getListToDelete( )
+    {
+        return _listToDelete;
+    }
+
+    /**
+     * Get the objects to update, in the order they have to be updated
+     * 
+     * @return the objects to update
+     */
+    public List<T> getListToUpdate( )
+    {
+        return _listToUpdate;
+    }
+
+    /**
+     * Get the objects to create
+     * 
+     * @return the objects to create
+     */
+    public List<T> getListToCreate( )
+    {
+        return _listToCreate;
+    }
+
+    /**
+     * Get the number of statements of the rewrite
+     * 
+     * @return the number of objects deleted, updated and created
+     */
+    public int size( )
+    {
+        return _listToDelete.size( ) + _listToUpdate.size( ) + _listToCreate.size( );
+    }
+}
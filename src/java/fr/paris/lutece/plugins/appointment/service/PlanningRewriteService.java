@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.appointment.business.form.FormVersionHome;
+import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
+import fr.paris.lutece.plugins.appointment.business.planning.TimeSlotHome;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.exception.SlotConcurrentUpdateException;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
+import fr.paris.lutece.plugins.appointment.service.listeners.SlotListenerManager;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Service to shift the slots or the time slots following a modified one. The new layout of the day is computed in memory, then written with one batch of
+ * deletions, one batch of updates and one batch of creations, in a single transaction
+ */
+public final class PlanningRewriteService
+{
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private PlanningRewriteService( )
+    {
+    }
+
+    /**
+     * Compute the changes of the slots of a day when the ending time of a slot changes and the next slots are shifted to its new end
+     * 
+     * @param slot
+     *            the modified slot
+     * @param previousEndingTime
+     *            the previous ending time of the slot
+     * @return the changes to apply, the modified slot included
+     */
+    public static PlanningRewrite<Slot> buildSlotShift( Slot slot, LocalTime previousEndingTime )
+    {
+        PlanningRewrite<Slot> rewrite = new PlanningRewrite<>( );
+        int nIdForm = slot.getIdForm( );
+        LocalDate dateOfSlot = slot.getDate( );
+        // Build or get all the slots of the day after the current slot
+        List<Slot> listNextSlots = SlotService
+                .buildListSlot( nIdForm, PlanningCacheService.getPlanning( nIdForm ).getMapWeekDefinition( ), dateOfSlot, dateOfSlot ).stream( )
+                .filter( nextSlot -> nextSlot.getStartingDateTime( ).isAfter( slot.getStartingDateTime( ) ) )
+                .sorted( Comparator.comparing( Slot::getStartingDateTime ) ).collect( Collectors.toList( ) );
+        // The existing slots until the new end of this slot are deleted, the
+        // other ones are shifted
+        List<Slot> listSlotToShift = new ArrayList<>( );
+        for ( Slot nextSlot : listNextSlots )
+        {
+            if ( nextSlot.getIdSlot( ) != 0 && !nextSlot.getEndingDateTime( ).isAfter( slot.getEndingDateTime( ) ) )
+            {
+                rewrite.delete( nextSlot );
+            }
+            else
+            {
+                listSlotToShift.add( nextSlot );
+            }
+        }
+        WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionTimeline( nIdForm ).getClosest( dateOfSlot );
+        ReservationRule reservationRule = ReservationRuleService.findReservationRuleTimeline( nIdForm ).getClosest( dateOfSlot );
+        WorkingDay workingDay = WorkingDayService.getWorkingDayOfDayOfWeek( weekDefinition.getListWorkingDay( ), dateOfSlot.getDayOfWeek( ) );
+        List<TimeSlot> listTimeSlot = null;
+        LocalTime endingTimeOfTheDay;
+        if ( workingDay != null )
+        {
+            endingTimeOfTheDay = WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay );
+            listTimeSlot = workingDay.getListTimeSlot( );
+        }
+        else
+        {
+            endingTimeOfTheDay = WorkingDayService.getMaxEndingTimeOfAListOfWorkingDay( weekDefinition.getListWorkingDay( ) );
+        }
+        LocalDateTime endingDateTimeOfTheDay = endingTimeOfTheDay.atDate( dateOfSlot );
+        boolean bNewEndingTimeIsAfterThePreviousTime = previousEndingTime.isBefore( slot.getEndingTime( ) );
+        long lMinutesToShift;
+        if ( bNewEndingTimeIsAfterThePreviousTime )
+        {
+            if ( !listSlotToShift.isEmpty( ) )
+            {
+                // The next slot has to start at the new end of the current
+                // slot. The slots are shifted from the last one, so that a
+                // slot never takes the starting time of a slot not shifted yet
+                LocalDateTime nextStartingDateTime = listSlotToShift.get( 0 ).getStartingDateTime( );
+                lMinutesToShift = Math.abs( nextStartingDateTime.until( slot.getEndingDateTime( ), ChronoUnit.MINUTES ) );
+                Collections.reverse( listSlotToShift );
+            }
+            else
+            {
+                lMinutesToShift = previousEndingTime.until( slot.getEndingTime( ), ChronoUnit.MINUTES );
+            }
+        }
+        else
+        {
+            lMinutesToShift = -slot.getEndingTime( ).until( previousEndingTime, ChronoUnit.MINUTES );
+        }
+        if ( slot.getIdSlot( ) != 0 )
+        {
+            SlotSafeService.updateRemainingPlaces( slot );
+            rewrite.update( slot );
+        }
+        else
+        {
+            rewrite.create( slot );
+        }
+        for ( Slot slotToShift : listSlotToShift )
+        {
+            LocalDateTime newStartingDateTime = slotToShift.getStartingDateTime( ).plusMinutes( lMinutesToShift );
+            LocalDateTime newEndingDateTime = slotToShift.getEndingDateTime( ).plusMinutes( lMinutesToShift );
+            if ( bNewEndingTimeIsAfterThePreviousTime && !newStartingDateTime.isBefore( endingDateTimeOfTheDay ) )
+            {
+                // The slot can not start after the ending time of the day
+                if ( slotToShift.getIdSlot( ) != 0 )
+                {
+                    rewrite.delete( slotToShift );
+                }
+                continue;
+            }
+            if ( newEndingDateTime.isAfter( endingDateTimeOfTheDay ) && bNewEndingTimeIsAfterThePreviousTime )
+            {
+                newEndingDateTime = endingDateTimeOfTheDay;
+            }
+            slotToShift.setStartingDateTime( newStartingDateTime );
+            slotToShift.setEndingDateTime( newEndingDateTime );
+            slotToShift.setIsSpecific( SlotService.isSpecificSlot( slotToShift, workingDay, listTimeSlot, reservationRule.getMaxCapacityPerSlot( ) ) );
+            if ( slotToShift.getIdSlot( ) != 0 )
+            {
+                rewrite.update( slotToShift );
+            }
+            else
+            {
+                rewrite.create( slotToShift );
+            }
+        }
+        if ( !bNewEndingTimeIsAfterThePreviousTime )
+        {
+            // The slots have been shifted earlier: the end of the day has
+            // to be filled
+            for ( Slot slotToCreate : SlotSafeService.generateListSlotToCreateAfterATime( endingDateTimeOfTheDay.plusMinutes( lMinutesToShift ), nIdForm ) )
+            {
+                rewrite.create( slotToCreate );
+            }
+        }
+        return rewrite;
+    }
+
+    /**
+     * Write the changes of the slots of a form in the database, in a single transaction. The versions of the updated slots are incremented and the
+     * listeners are notified only once the changes are committed
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param rewrite
+     *            the changes to apply
+     * @throws SlotConcurrentUpdateException
+     *             if one of the slots to update has been modified since it was read. Nothing is written in this case
+     */
+    public static void applySlotRewrite( int nIdForm, PlanningRewrite<Slot> rewrite )
+    {
+        // The form lock prevents a slot from being created at the same time
+        // on one of the starting times of the new layout
+        synchronized( SlotSafeService.getLockOnForm( nIdForm ) )
+        {
+            TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+            try
+            {
+                // The row of the form is locked too, against the materialization of the slots by the other nodes
+                FormVersionHome.lock( nIdForm );
+                SlotHome.deleteBatch( rewrite.getListToDelete( ) );
+                if ( SlotHome.updateBatch( rewrite.getListToUpdate( ) ) < rewrite.getListToUpdate( ).size( ) )
+                {
+                    throw new SlotConcurrentUpdateException( "ERROR SLOTS OF FORM " + nIdForm + " MODIFIED CONCURRENTLY" );
+                }
+                SlotHome.createBatch( rewrite.getListToCreate( ) );
+                TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+            }
+            catch( RuntimeException e )
+            {
+                TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+                AppLogService.error( "Error rewriting the slots of the form " + nIdForm + " : " + e.getMessage( ), e );
+                throw e;
+            }
+        }
+        for ( Slot slotUpdated : rewrite.getListToUpdate( ) )
+        {
+            slotUpdated.setVersion( slotUpdated.getVersion( ) + 1 );
+        }
+        for ( Slot slotDeleted : rewrite.getListToDelete( ) )
+        {
+            SlotListenerManager.notifyListenersSlotRemoval( nIdForm, slotDeleted.getIdSlot( ) );
+        }
+        for ( Slot slotUpdated : rewrite.getListToUpdate( ) )
+        {
+            SlotListenerManager.notifyListenersSlotChange( nIdForm, slotUpdated.getIdSlot( ) );
+        }
+        for ( Slot slotCreated : rewrite.getListToCreate( ) )
+        {
+            SlotListenerManager.notifyListenersSlotCreation( nIdForm, slotCreated.getIdSlot( ) );
+        }
+        List<Slot> listSlotChanged = new ArrayList<>( rewrite.getListToDelete( ) );
+        listSlotChanged.addAll( rewrite.getListToUpdate( ) );
+        listSlotChanged.addAll( rewrite.getListToCreate( ) );
+        listSlotChanged.stream( ).map( Slot::getDate ).distinct( ).forEach( date -> DayAvailabilityService.invalidateDay( nIdForm, date ) );
+    }
+
+    /**
+     * Compute the changes of the time slots of a working day when the ending time of a time slot changes and the next time slots are shifted to its new
+     * end
+     * 
+     * @param timeSlot
+     *            the modified time slot
+     * @param workingDay
+     *            the working day
+     * @param reservationRule
+     *            the reservation rule
+     * @param nDuration
+     *            the duration of a time slot
+     * @param previousEndingTime
+     *            the previous ending time of the time slot
+     * @return the changes to apply, the modified time slot included
+     */
+    public static PlanningRewrite<TimeSlot> buildTimeSlotShift( TimeSlot timeSlot, WorkingDay workingDay, ReservationRule reservationRule, int nDuration,
+            LocalTime previousEndingTime )
+    {
+        PlanningRewrite<TimeSlot> rewrite = new PlanningRewrite<>( );
+        // The time slots until the new end of this time slot are deleted,
+        // the other ones are shifted
+        List<TimeSlot> listTimeSlotToShift = new ArrayList<>( );
+        for ( TimeSlot nextTimeSlot : TimeSlotService.findListTimeSlotByWorkingDay( workingDay.getIdWorkingDay( ) ) )
+        {
+            if ( nextTimeSlot.getStartingTime( ).isAfter( timeSlot.getStartingTime( ) ) )
+            {
+                if ( nextTimeSlot.getEndingTime( ).isAfter( timeSlot.getEndingTime( ) ) )
+                {
+                    listTimeSlotToShift.add( nextTimeSlot );
+                }
+                else
+                {
+                    rewrite.delete( nextTimeSlot );
+                }
+            }
+        }
+        listTimeSlotToShift.sort( Comparator.comparing( TimeSlot::getStartingTime ) );
+        LocalTime endingTimeOfTheDay = WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay );
+        boolean bNewEndingTimeIsAfterThePreviousTime = previousEndingTime.isBefore( timeSlot.getEndingTime( ) );
+        long lMinutesToShift;
+        if ( bNewEndingTimeIsAfterThePreviousTime )
+        {
+            if ( !listTimeSlotToShift.isEmpty( ) )
+            {
+                // The next time slot has to start at the new end of the
+                // current time slot. The time slots are shifted from the last
+                // one
+                LocalTime nextStartingTime = listTimeSlotToShift.get( 0 ).getStartingTime( );
+                lMinutesToShift = Math.abs( nextStartingTime.until( timeSlot.getEndingTime( ), ChronoUnit.MINUTES ) );
+                Collections.reverse( listTimeSlotToShift );
+            }
+            else
+            {
+                lMinutesToShift = previousEndingTime.until( timeSlot.getEndingTime( ), ChronoUnit.MINUTES );
+            }
+        }
+        else
+        {
+            lMinutesToShift = -timeSlot.getEndingTime( ).until( previousEndingTime, ChronoUnit.MINUTES );
+        }
+        rewrite.update( timeSlot );
+        for ( TimeSlot timeSlotToShift : listTimeSlotToShift )
+        {
+            LocalTime newStartingTime = timeSlotToShift.getStartingTime( ).plusMinutes( lMinutesToShift );
+            LocalTime newEndingTime = timeSlotToShift.getEndingTime( ).plusMinutes( lMinutesToShift );
+            if ( bNewEndingTimeIsAfterThePreviousTime )
+            {
+                // The time slot can not start after the ending time of the
+                // day
+                if ( !newStartingTime.isBefore( endingTimeOfTheDay ) )
+                {
+                    rewrite.delete( timeSlotToShift );
+                    continue;
+                }
+                if ( newEndingTime.isAfter( endingTimeOfTheDay ) )
+                {
+                    newEndingTime = endingTimeOfTheDay;
+                }
+            }
+            timeSlotToShift.setStartingTime( newStartingTime );
+            timeSlotToShift.setEndingTime( newEndingTime );
+            rewrite.update( timeSlotToShift );
+        }
+        if ( !bNewEndingTimeIsAfterThePreviousTime )
+        {
+            // The time slots have been shifted earlier: the end of the day has
+            // to be filled
+            for ( TimeSlot timeSlotToCreate : TimeSlotService.generateListTimeSlot( timeSlot.getIdWorkingDay( ),
+                    endingTimeOfTheDay.plusMinutes( lMinutesToShift ), endingTimeOfTheDay, nDuration, reservationRule.getMaxCapacityPerSlot( ), Boolean.TRUE ) )
+            {
+                rewrite.create( timeSlotToCreate );
+            }
+        }
+        return rewrite;
+    }
+
+    /**
+     * Write the changes of time slots in the database, in a single transaction
+     * 
+     * @param rewrite
+     *            the changes to apply
+     */
+    public static void applyTimeSlotRewrite( PlanningRewrite<TimeSlot> rewrite )
+    {
+        TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+        try
+        {
+            TimeSlotHome.deleteBatch( rewrite.getListToDelete( ).stream( ).map( TimeSlot::getIdTimeSlot ).collect( Collectors.toList( ) ) );
+            TimeSlotHome.updateBatch( rewrite.getListToUpdate( ) );
+            TimeSlotHome.createBatch( rewrite.getListToCreate( ) );
+            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+            AppLogService.error( "Error rewriting the time slots : " + e.getMessage( ), e );
+            throw e;
+        }
+        List<TimeSlot> listTimeSlotChanged = new ArrayList<>( rewrite.getListToDelete( ) );
+        listTimeSlotChanged.addAll( rewrite.getListToUpdate( ) );
+        listTimeSlotChanged.addAll( rewrite.getListToCreate( ) );
+        listTimeSlotChanged.stream( ).map( TimeSlot::getIdWorkingDay ).distinct( ).forEach( PlanningCacheService::invalidateWorkingDay );
+    }
+}
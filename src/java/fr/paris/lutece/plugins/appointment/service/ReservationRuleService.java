@@ -34,14 +34,12 @@
 package fr.paris.lutece.plugins.appointment.service;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
-import org.apache.commons.collections.CollectionUtils;
-
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRuleHome;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
 import fr.paris.lutece.plugins.appointment.service.listeners.FormListenerManager;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.util.ReferenceList;
@@ -78,6 +76,7 @@ public final class ReservationRuleService
         ReservationRule reservationRule = new ReservationRule( );
         fillInReservationRule( reservationRule, appointmentForm, nIdForm, dateOfApply );
         ReservationRuleHome.create( reservationRule );
+        PlanningCacheService.invalidate( nIdForm );
         return reservationRule;
     }
 
@@ -91,6 +90,7 @@ public final class ReservationRuleService
     {
         FormListenerManager.notifyListenersFormChange( reservationRule.getIdForm( ) );
         ReservationRuleHome.delete( reservationRule.getIdReservationRule( ) );
+        PlanningCacheService.invalidate( reservationRule.getIdForm( ) );
     }
 
     /**
@@ -102,6 +102,7 @@ public final class ReservationRuleService
     public static void saveReservationRule( ReservationRule reservationRule )
     {
         ReservationRuleHome.create( reservationRule );
+        PlanningCacheService.invalidate( reservationRule.getIdForm( ) );
     }
 
     /**
@@ -126,6 +127,7 @@ public final class ReservationRuleService
         {
             fillInReservationRule( reservationRule, appointmentForm, nIdForm, dateOfApply );
             ReservationRuleHome.update( reservationRule );
+            PlanningCacheService.invalidate( nIdForm );
         }
         return reservationRule;
     }
@@ -163,36 +165,22 @@ public final class ReservationRuleService
     {
         // Get all the reservation rules
         List<ReservationRule> listReservationRule = ReservationRuleHome.findByIdForm( nIdForm );
-        List<LocalDate> listDate = new ArrayList<>( );
-        for ( ReservationRule reservationRule : listReservationRule )
-        {
-            listDate.add( reservationRule.getDateOfApply( ) );
-        }
-        // Try to get the closest date in past of the dateOfApply
-        LocalDate closestDate = Utilities.getClosestDateInPast( listDate, dateOfApply );
-        ReservationRule reservationRule = null;
-        // If there is no closest date in past
-        if ( closestDate == null )
-        {
-            // if the list of reservation rules is not empty
-            if ( CollectionUtils.isNotEmpty( listReservationRule ) )
-            {
-                // Get the next week definition in future
-                reservationRule = listReservationRule.stream( ).min( ( w1, w2 ) -> w1.getDateOfApply( ).compareTo( w2.getDateOfApply( ) ) ).get( );
-            }
-        }
-        else
-        {
-            // The closest date in past is not null
-            if ( CollectionUtils.isNotEmpty( listReservationRule ) )
-            {
-                // Get the corresponding reservation rule
-                reservationRule = listReservationRule.stream( ).filter( x -> closestDate.isEqual( x.getDateOfApply( ) ) ).findAny( ).orElse( null );
-            }
-        }
+        ReservationRule reservationRule = new RuleTimeline<>( listReservationRule, ReservationRule::getDateOfApply ).getClosest( dateOfApply );
         return reservationRule;
     }
 
+    /**
+     * Get the timeline of the reservation rules of a form. The timeline comes from the planning cache, its reservation rules must not be modified
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @return the timeline of the reservation rules
+     */
+    public static RuleTimeline<ReservationRule> findReservationRuleTimeline( int nIdForm )
+    {
+        return PlanningCacheService.getPlanning( nIdForm ).getReservationRuleTimeline( );
+    }
+
     /**
      * Find the reservation rule of a form on a specific date
      * 
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Timeline of the successive versions of a rule of a form (week definitions, reservation rules...), sorted by date of apply. The version that applies at
+ * a date is found in O(log n)
+ * 
+ * @param <T>
+ *            the type of the rule
+ */
+public final class RuleTimeline<T>
+{
+    private final NavigableMap<LocalDate, T> _mapRules;
+
+    /**
+     * Constructor
+     * 
+     * @param mapRules
+     *            the rules by date of apply
+     */
+    public RuleTimeline( Map<LocalDate, T> mapRules )
+    {
+        _mapRules = Collections.unmodifiableNavigableMap( new TreeMap<>( mapRules ) );
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param listRules
+     *            the rules
+     * @param dateOfApply
+     *            the function that gives the date of apply of a rule
+     */
+    public RuleTimeline( Collection<T> listRules, Function<T, LocalDate> dateOfApply )
+    {
+        TreeMap<LocalDate, T> mapRules = new TreeMap<>( );
+        for ( T rule : listRules )
+        {
+            mapRules.put( dateOfApply.apply( rule ), rule );
+        }
+        _mapRules = Collections.unmodifiableNavigableMap( mapRules );
+    }
+
+    /**
+     * Get the rule with the closest date of apply in the past of a date (or equal to the date)
+     * 
+     * @param date
+     *            the date
+     * @return the rule, null if all the dates of apply are in the future
+     */
+    public T getInPast( LocalDate date )
+    {
+        Map.Entry<LocalDate, T> entry = _mapRules.floorEntry( date );
+        return entry == null ? null : entry.getValue( );
+    }
+
+    /**
+     * Get the rule that applies at a date: the one with the closest date of apply in the past, or the first one if all of them are in the future
+     * 
+     * @param date
+     *            the date
+     * @return the rule, null if the timeline is empty
+     */
+    public T getClosest( LocalDate date )
+    {
+        Map.Entry<LocalDate, T> entry = _mapRules.floorEntry( date );
+        if ( entry == null )
+        {
+            entry = _mapRules.firstEntry( );
+        }
+        return entry == null ? null : entry.getValue( );
+    }
+
+    /**
+     * Get the first date of apply of the timeline
+     * 
+     * @return the first date of apply, null if the timeline is empty
+     */
+    public LocalDate getFirstDateOfApply( )
+    {
+        return _mapRules.isEmpty( ) ? null : _mapRules.firstKey( );
+    }
+
+    /**
+     * Get the rules of the timeline, by date of apply
+     * 
+     * @return the rules, sorted by date of apply
+     */
+    public NavigableMap<LocalDate, T> getRules( )
+    {
+        return _mapRules;
+    }
+
+    /**
+     * Check if the timeline is empty
+     * 
+     * @return true if the timeline has no rule
+     */
+    public boolean isEmpty( )
+    {
+        return _mapRules.isEmpty( );
+    }
+}
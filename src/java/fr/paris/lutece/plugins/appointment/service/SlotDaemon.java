@@ -1,5 +1,11 @@
 package fr.paris.lutece.plugins.appointment.service;
 
+import fr.paris.lutece.plugins.appointment.service.cache.AdminUserNameCacheService;
+import fr.paris.lutece.plugins.appointment.service.cache.FormEntryCacheService;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
+import fr.paris.lutece.plugins.appointment.service.listeners.EventDispatcher;
+import fr.paris.lutece.plugins.appointment.service.lock.SlotHoldScheduler;
+import fr.paris.lutece.plugins.appointment.service.stream.SlotAvailabilityStreamService;
 import fr.paris.lutece.portal.service.daemon.Daemon;
 
 public class SlotDaemon extends Daemon {
@@ -7,7 +13,9 @@ public class SlotDaemon extends Daemon {
 	@Override
 	public void run() {
 		
-		SlotSafeService.cleanSlotlist();
+		setLastRunLogs( SlotHoldScheduler.getMetrics( ) + "\n" + SlotSafeService.getBookingMetrics( ) + "\n" + EventDispatcher.getMetrics( ) + "\n"
+				+ PlanningCacheService.getMetrics( ) + "\n" + SlotAvailabilityStreamService.getMetrics( ) + "\n" + AdminUserNameCacheService.getMetrics( ) + "\n"
+				+ FormEntryCacheService.getMetrics( ) );
 		
 	}
 
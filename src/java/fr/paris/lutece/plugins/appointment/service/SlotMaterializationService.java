@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.appointment.business.display.Display;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Service creating in database the slots of the weeks displayed by the active forms, before they are booked. The slots of the planning are generated
+ * on the fly until they are booked for the first time, and the first booking of a slot has to insert it under the lock of its form: the slots
+ * materialized ahead by the {@link SlotMaterializationDaemon} are booked without being created. Only the open slots to come are materialized, the
+ * slots generated are still created when they are booked if they have not been materialized yet.
+ * <p>
+ * The slots are generated and created under a lock on the row of the form in database, so that the daemon can run on all the nodes of a cluster at
+ * the same time: the slots created by a node are found in database by the other ones, which do not create them again. The modifications of the planning
+ * hold the same lock until they are committed (see {@link SlotSafeService#modifyPlanning}), so the slots are never generated from a planning being
+ * rewritten.
+ * </p>
+ * <p>
+ * A materialized slot keeps the capacity and the specific flag computed from the rules when it was created, like a booked slot: it does not follow the
+ * rules anymore. When the reservation rules, the week definitions or the time slots of a form change, the materialized slots impacted have to be
+ * deleted or updated by the same flows as the booked slots (see {@link SlotService#findSlotImpacts}), the slots without appointment being
+ * materialized again by the next run of the daemon.
+ * </p>
+ */
+public final class SlotMaterializationService
+{
+    private static final AtomicLong _lNbSlotsMaterialized = new AtomicLong( );
+    private static final AtomicLong _lNbFormsMaterialized = new AtomicLong( );
+    private static final AtomicLong _lNbMaterializationErrors = new AtomicLong( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private SlotMaterializationService( )
+    {
+    }
+
+    /**
+     * Materialize the slots of the weeks displayed by all the active forms
+     * 
+     * @return the number of slots created
+     */
+    public static int materializeAll( )
+    {
+        int nNbSlots = 0;
+        for ( Form form : FormService.findAllActiveForms( ) )
+        {
+            nNbSlots += materializeForm( form );
+        }
+        return nNbSlots;
+    }
+
+    /**
+     * Materialize the slots of the weeks displayed by a form, if it is active
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the number of slots created
+     */
+    public static int materializeForm( int nIdForm )
+    {
+        Form form = FormService.findFormLightByPrimaryKey( nIdForm );
+        if ( form == null || !form.getIsActive( ) )
+        {
+            return 0;
+        }
+        return materializeForm( form );
+    }
+
+    /**
+     * Materialize the slots of a period of a form. The slots already in database are kept as they are
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @return the number of slots created
+     */
+    public static int materializeDays( int nIdForm, LocalDate startingDate, LocalDate endingDate )
+    {
+        // The slots are generated once the form is locked : a modification of the planning in progress is committed before
+        int nNbSlots = SlotSafeService.createListSlot( nIdForm, ( ) -> {
+            HashMap<LocalDate, WeekDefinition> mapWeekDefinition = PlanningCacheService.getPlanning( nIdForm ).getMapWeekDefinition( );
+            return selectSlotsToMaterialize( SlotService.buildListSlot( nIdForm, mapWeekDefinition, startingDate, endingDate ), LocalDateTime.now( ) );
+        } );
+        _lNbSlotsMaterialized.addAndGet( nNbSlots );
+        return nNbSlots;
+    }
+
+    /**
+     * Get the statistics of the materialization
+     * 
+     * @return the statistics of the materialization
+     */
+    public static String getMetrics( )
+    {
+        return new StringBuilder( "Slot materialization - slots created : " ).append( _lNbSlotsMaterialized.get( ) ).append( ", forms processed : " )
+                .append( _lNbFormsMaterialized.get( ) ).append( ", errors : " ).append( _lNbMaterializationErrors.get( ) ).toString( );
+    }
+
+    /**
+     * Select the slots to materialize among the slots of a period : the slots generated (not in database yet) that are open and to come
+     * 
+     * @param listSlot
+     *            the slots of the period
+     * @param now
+     *            the current date time
+     * @return the slots to create in database
+     */
+    static List<Slot> selectSlotsToMaterialize( List<Slot> listSlot, LocalDateTime now )
+    {
+        List<Slot> listSlotToMaterialize = new ArrayList<>( );
+        for ( Slot slot : listSlot )
+        {
+            if ( slot.getIdSlot( ) == 0 && slot.getIsOpen( ) && slot.getStartingDateTime( ).isAfter( now ) )
+            {
+                listSlotToMaterialize.add( slot );
+            }
+        }
+        return listSlotToMaterialize;
+    }
+
+    /**
+     * Materialize the slots of the weeks displayed by a form, one week at a time
+     * 
+     * @param form
+     *            the form
+     * @return the number of slots created
+     */
+    private static int materializeForm( Form form )
+    {
+        int nIdForm = form.getIdForm( );
+        LocalDate startingDate = LocalDate.now( );
+        if ( form.getStartingValidityDate( ) != null && form.getStartingValidityDate( ).isAfter( startingDate ) )
+        {
+            startingDate = form.getStartingValidityDate( );
+        }
+        Display display = DisplayService.findDisplayWithFormId( nIdForm );
+        LocalDate endingDate = startingDate.plusWeeks( display != null ? display.getNbWeeksToDisplay( ) : 1 );
+        if ( form.getEndingValidityDate( ) != null && form.getEndingValidityDate( ).isBefore( endingDate ) )
+        {
+            endingDate = form.getEndingValidityDate( );
+        }
+        int nNbSlots = 0;
+        // One week at a time, so that each batch of slots stays small and the lock of the form is not held long
+        LocalDate dateTemp = startingDate;
+        while ( !dateTemp.isAfter( endingDate ) )
+        {
+            LocalDate endingDateOfChunk = dateTemp.plusDays( 6 );
+            if ( endingDateOfChunk.isAfter( endingDate ) )
+            {
+                endingDateOfChunk = endingDate;
+            }
+            try
+            {
+                nNbSlots += materializeDays( nIdForm, dateTemp, endingDateOfChunk );
+            }
+            catch( Exception e )
+            {
+                _lNbMaterializationErrors.incrementAndGet( );
+                AppLogService.error( "Error materializing the slots of the form " + nIdForm + " : " + e.getMessage( ), e );
+            }
+            dateTemp = endingDateOfChunk.plusDays( 1 );
+        }
+        _lNbFormsMaterialized.incrementAndGet( );
+        return nNbSlots;
+    }
+}
@@ -3,17 +3,14 @@ package fr.paris.lutece.plugins.appointment.service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.StringJoiner;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -22,7 +19,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
-import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormVersionHome;
 import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
@@ -30,19 +27,19 @@ import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.slot.Period;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.business.task.AppointmentTask;
 import fr.paris.lutece.plugins.appointment.business.user.User;
 import fr.paris.lutece.plugins.appointment.exception.AppointmentSavedException;
+import fr.paris.lutece.plugins.appointment.exception.SlotConcurrentUpdateException;
 import fr.paris.lutece.plugins.appointment.exception.SlotFullException;
-import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
 import fr.paris.lutece.plugins.appointment.service.listeners.SlotListenerManager;
-import fr.paris.lutece.plugins.appointment.service.lock.TimerForLockOnSlot;
+import fr.paris.lutece.plugins.appointment.service.lock.StripedLock;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
 import fr.paris.lutece.plugins.genericattributes.business.ResponseHome;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.service.util.CryptoService;
-import fr.paris.lutece.portal.service.workflow.WorkflowService;
 import fr.paris.lutece.util.sql.TransactionManager;
 
 public final class SlotSafeService {
@@ -51,14 +48,31 @@ public final class SlotSafeService {
     private static final String CONSTANT_SHA256 = "SHA-256";
     private static final String PROPERTY_REF_SIZE_RANDOM_PART = "appointment.refSizeRandomPart";
     private static final String CONSTANT_SEPARATOR = "$";
+    private static final String PROPERTY_BOOKING_MAX_ATTEMPTS = "appointment.booking.maxAttempts";
+    private static final String PROPERTY_BOOKING_BACKOFF_DELAY = "appointment.booking.backoffDelay";
+    private static final String PROPERTY_BOOKING_MAX_BACKOFF_DELAY = "appointment.booking.maxBackoffDelay";
+    private static final int DEFAULT_BOOKING_MAX_ATTEMPTS = 5;
+    private static final int DEFAULT_BOOKING_BACKOFF_DELAY = 20;
+    private static final int DEFAULT_BOOKING_MAX_BACKOFF_DELAY = 500;
 	 
     /**
      * Get the number of characters of the random part of appointment reference
      */
     private static final int CONSTANT_REF_SIZE_RANDOM_PART = 5;
     
-    private static final ConcurrentMap<Integer, Object> _listSlot= new ConcurrentHashMap<>();
-    private static final ConcurrentMap<Integer, Object> _lockFormId = new ConcurrentHashMap<>( );
+    private static final String PROPERTY_NB_LOCK_STRIPES_SLOT = "appointment.lock.slot.nbStripes";
+    private static final String PROPERTY_NB_LOCK_STRIPES_FORM = "appointment.lock.form.nbStripes";
+    private static final int DEFAULT_NB_LOCK_STRIPES_SLOT = 1024;
+    private static final int DEFAULT_NB_LOCK_STRIPES_FORM = 64;
+
+    private static final StripedLock _slotLocks = new StripedLock( AppPropertiesService.getPropertyInt( PROPERTY_NB_LOCK_STRIPES_SLOT,
+            DEFAULT_NB_LOCK_STRIPES_SLOT ) );
+    private static final StripedLock _formLocks = new StripedLock( AppPropertiesService.getPropertyInt( PROPERTY_NB_LOCK_STRIPES_FORM,
+            DEFAULT_NB_LOCK_STRIPES_FORM ) );
+
+    private static final AtomicLong _lNbBookingConflicts = new AtomicLong( );
+    private static final AtomicLong _lNbBookingsAbandoned = new AtomicLong( );
+    private static final AtomicLong _lNbBookingsRejected = new AtomicLong( );
     
 
     
@@ -69,15 +83,7 @@ public final class SlotSafeService {
     {
     }
     /**
-     * Get the slot in memory
-     * @return Map of slot 
-     */
-    public static Map<Integer, Object> getListSlotInMemory(){
-    	
-    	return _listSlot;
-    }
-    /**
-     * get lock for slot
+     * get lock for slot. The locks are taken from a fixed size table : two slots may share the same lock
      * @param nIdSlot the Id Slot
      * @return return the lock
      */
@@ -86,30 +92,55 @@ public final class SlotSafeService {
     	if( nIdSlot == 0){
     		return new Object();
     	}
-    	_listSlot.putIfAbsent( nIdSlot, new Object( ) );
-        return _listSlot.get( nIdSlot );
-    }
-  
-    /**
-     * remove slot in map memory
-     * @param nIdSlot the Id Slot
-     */
-    public static void removeSlotInMemory( int nIdSlot ){
-    	
-    	_listSlot.remove(nIdSlot);
+        return _slotLocks.getLock( nIdSlot );
     }
+
 	  /**
-	  * get lock for form 
+	  * get lock for form. The locks are taken from a fixed size table : two forms may share the same lock
 	  * @param nIdform Id from
 	  * @return return lock 
 	  */
-    private static Object getLockOnForm( int nIdform )
+    static Object getLockOnForm( int nIdform )
     {
-        _lockFormId.putIfAbsent( nIdform, new Object( ) );
-        return _lockFormId.get( nIdform );
+        return _formLocks.getLock( nIdform );
+    }
+
+    /**
+     * Run a modification of the planning of a form (rules, week definitions, working days, time slots and the slots impacted) in a single transaction, under
+     * the lock of the row of the form in database. The slots of the form cannot be created or materialized while the planning is rewritten, and the events
+     * of the modification are only delivered once it is committed
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param modification
+     *            the modification of the planning
+     */
+    public static void modifyPlanning( int nIdForm, Runnable modification )
+    {
+        // The lock of the form is taken before the row of the form, in the same order as the creation of the slots
+        synchronized( getLockOnForm( nIdForm ) )
+        {
+            TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+            AfterCommitService.begin( );
+            try
+            {
+                FormVersionHome.lock( nIdForm );
+                modification.run( );
+                TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+                AfterCommitService.end( true );
+            }
+            catch( RuntimeException e )
+            {
+                TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+                AfterCommitService.end( false );
+                AppLogService.error( "Error modifying the planning of the form " + nIdForm + " : " + e.getMessage( ), e );
+                throw e;
+            }
+        }
     }
     /**
-     * Create slot 
+     * Create slot. The row of the form is locked in database while the slot is searched and created, so that another node of a cluster does not create
+     * the same slot meanwhile
      * @param slot 
      * @return slot 
      */
@@ -119,16 +150,34 @@ public final class SlotSafeService {
         synchronized ( formLock )
         {
     	    Slot slotSaved= null;
-    	    HashMap<LocalDateTime, Slot> slotInDbMap = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey(slot.getIdForm(), slot.getStartingDateTime(), slot.getEndingDateTime() );
-            if ( !slotInDbMap.isEmpty( ) )
+    	    boolean bCreated = false;
+            TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+            try
+            {
+                FormVersionHome.lock( slot.getIdForm( ) );
+                HashMap<LocalDateTime, Slot> slotInDbMap = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( slot.getIdForm( ),
+                        slot.getStartingDateTime( ), slot.getEndingDateTime( ) );
+                if ( !slotInDbMap.isEmpty( ) )
+                {
+                    slotSaved = slotInDbMap.get( slot.getStartingDateTime( ) );
+                }
+                else
+                {
+                    slotSaved = SlotHome.create( slot );
+                    bCreated = true;
+                }
+                TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+            }
+            catch( RuntimeException e )
             {
-                slotSaved = slotInDbMap.get( slot.getStartingDateTime( ) );
-            }else{
-            	
-            	 slotSaved = SlotHome.create( slot );
-                 SlotListenerManager.notifyListenersSlotCreation( slot.getIdSlot( ) );
+                TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+                AppLogService.error( "Error creating a slot of the form " + slot.getIdForm( ) + " : " + e.getMessage( ), e );
+                throw e;
+            }
+            if ( bCreated )
+            {
+                SlotListenerManager.notifyListenersSlotCreation( slot.getIdForm( ), slot.getIdSlot( ) );
             }
-        
             return slotSaved;
 
         }
@@ -137,186 +186,336 @@ public final class SlotSafeService {
     
 
     /**
-     * Update potential remaining places
+     * Update potential remaining places (called when a hold on the slot expires)
      * @param nbPotentialRemainingPlaces the nbPotentialRemainingPlaces
      * @param nIdSlot the is Slot
-     * @param timer the timer
      */
-	public  static  void incrementPotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot, TimerForLockOnSlot timer){
-	    
-		
-		 Object lock = getLockOnSlot( nIdSlot );
-		 synchronized (lock) {
-			 Slot slot= SlotService.findSlotById( nIdSlot);
-			 if( timer!= null && !timer.isCancelled() && slot != null ){
-					 
-				 int nNewPotentialRemainingPlaces = slot.getNbPotentialRemainingPlaces() + nbPotentialRemainingPlaces;
-			     slot.setNbPotentialRemainingPlaces( nNewPotentialRemainingPlaces );
-			     SlotHome.updatePotentialRemainingPlaces(nNewPotentialRemainingPlaces, nIdSlot);
-			     
-			 }
-	 	 }   	
-	}
-	/**
+    public static void incrementPotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot )
+    {
+        SlotHome.incrementPotentialRemainingPlaces( nbPotentialRemainingPlaces, nIdSlot );
+    }
+
+    /**
      * Update potential remaining places
      * @param nbPotentialRemainingPlaces the nbPotentialRemainingPlaces
      * @param nIdSlot the is Slot
+     * @return true if the slot had enough potential remaining places, false otherwise
      */
-	public  static void decrementPotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot){
-    	
-		 Object lock = getLockOnSlot( nIdSlot );
-		 synchronized (lock) {
-			   Slot slot= SlotService.findSlotById( nIdSlot);
-			   if( slot!= null ){
-			    	int nNewPotentialRemainingPlaces = slot.getNbPotentialRemainingPlaces() - nbPotentialRemainingPlaces;
-			    	slot.setNbPotentialRemainingPlaces( nNewPotentialRemainingPlaces );
-			    	SlotHome.updatePotentialRemainingPlaces(nNewPotentialRemainingPlaces, nIdSlot);
-			   }
-
-		 }		
-			 
+    public static boolean decrementPotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot )
+    {
+        return SlotHome.decrementPotentialRemainingPlaces( nbPotentialRemainingPlaces, nIdSlot );
     }
 
     /**
-     * Save a slot in database
+     * Save an appointment in database. The places are first taken on the slot with an optimistic update (the version of the slot is checked, and the update
+     * retried on conflict), then the appointment is saved in a transaction. No lock is held while the appointment is saved : if the transaction fails, the
+     * places taken are given back to the slot
      * 
-     * @param slot
-     *            the slot to save
-     * @return the slot saved
+     * @param appointmentDTO
+     *            the appointment to save
+     * @param request
+     *            the request
+     * @return the id of the appointment saved
      */
-	public  static int saveAppointment( AppointmentDTO appointmentDTO, HttpServletRequest request ) 
+    public static int saveAppointment( AppointmentDTO appointmentDTO, HttpServletRequest request )
     {
-    	boolean bIsUpdate= false;
-    	 Slot slot = appointmentDTO.getSlot( );
-    	 Object lock = getLockOnSlot( slot.getIdSlot() );
-		 synchronized (lock) {
-	    	 //avoid duplicate appointment
-	         if( appointmentDTO.getIsSaved( ) ){
-	    		 throw new AppointmentSavedException( "Appointment is already saved " );
-	    	 }
-	         
-	    	 if ( appointmentDTO.getSlot( ).getIdSlot( ) != 0 )
-	         {
-	    		 //recovery of the slot in the bdd to manage the concurrent access
-	             slot = SlotService.findSlotById( appointmentDTO.getSlot( ).getIdSlot( ) );
-	         }
-	    	   
-	    	   
-	    	 if ( slot == null || appointmentDTO.getNbBookedSeats( ) > slot.getNbRemainingPlaces( ) || slot.getEndingDateTime().isBefore(LocalDateTime.now( )))
-	         {
-	    		 throw new SlotFullException( "ERROR SLOT FULL" );
-	         
-	         }
-	    	// Create or update the user
-		    User user = UserService.saveUser( appointmentDTO );
-	    	TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
-	
-	        try
-	        {
-		        // if it's an update for modification of the date of the appointment
-		        if ( appointmentDTO.getIdAppointment( ) != 0 && appointmentDTO.getSlot( ).getIdSlot( ) != appointmentDTO.getIdSlot( ) )
-		        {
-		            // Need to update the old slot
-		            updateRemaningPlacesWithAppointmentMovedDeletedOrCanceled( appointmentDTO.getNbBookedSeats( ), appointmentDTO.getIdSlot( ) );
-		            // Need to remove the workflow resource to reload again the workflow
-		            // at the first step
-		            bIsUpdate=true;		            	            
-		        }
-		        // Update of the remaining places of the slot
-		      
-		        int oldNbRemainingPLaces = slot.getNbRemainingPlaces( );
-		        int nbMaxPotentialBookedSeats = appointmentDTO.getNbMaxPotentialBookedSeats( );
-		        int oldNbPotentialRemaningPlaces = slot.getNbPotentialRemainingPlaces( );
-		        int oldNbPlacesTaken = slot.getNbPlacesTaken( );
-		        int effectiveBookedSeats = appointmentDTO.getNbBookedSeats( );
-		        int newNbRemainingPlaces = 0;
-		        int newPotentialRemaningPlaces = 0;
-		        int newNbPlacesTaken = 0;
-		        if ( appointmentDTO.getIdAppointment( ) == 0 || appointmentDTO.getSlot( ).getIdSlot( ) != appointmentDTO.getIdSlot( ) )
-		        {
-		            newNbRemainingPlaces = oldNbRemainingPLaces - effectiveBookedSeats;
-		            newPotentialRemaningPlaces = oldNbPotentialRemaningPlaces + nbMaxPotentialBookedSeats - effectiveBookedSeats;
-		            newNbPlacesTaken = oldNbPlacesTaken + effectiveBookedSeats;
-		        }
-		        else
-		        {
-		            // It is an update of the appointment
-		            Appointment oldAppointment = AppointmentService.findAppointmentById( appointmentDTO.getIdAppointment( ) );
-		            newNbRemainingPlaces = oldNbRemainingPLaces + oldAppointment.getNbPlaces( ) - effectiveBookedSeats;
-		            newPotentialRemaningPlaces = oldNbPotentialRemaningPlaces + nbMaxPotentialBookedSeats - effectiveBookedSeats;
-		            newNbPlacesTaken = oldNbPlacesTaken - oldAppointment.getNbPlaces( ) + effectiveBookedSeats;
-		        }
-		        slot.setNbRemainingPlaces( newNbRemainingPlaces );
-		        slot.setNbPlacestaken( newNbPlacesTaken );
-		        slot.setNbPotentialRemainingPlaces( Math.min( newPotentialRemaningPlaces, newNbRemainingPlaces ) );
-		
-		        
-		        if(slot.getNbPlacesTaken() > slot.getMaxCapacity()){
-		     	    
-		        	throw new SlotFullException( "case of overbooking" );
-		        }
-		        slot = saveSlot( slot );
-		      
-		        // Create or update the appointment
-		        Appointment appointment = AppointmentService.buildAndCreateAppointment( appointmentDTO, user, slot );
-		        String strEmailLastNameFirstName = new StringJoiner( StringUtils.SPACE ).add( user.getEmail( ) ).add( CONSTANT_SEPARATOR ).add( user.getLastName( ) )
-		                .add( CONSTANT_SEPARATOR ).add( user.getFirstName( ) ).toString( );
-		        // Create a unique reference for a new appointment
-		        if ( appointmentDTO.getIdAppointment( ) == 0 )
-		        {
-		            String strReference = appointment.getIdAppointment( )
-		                    + CryptoService.encrypt( appointment.getIdAppointment( ) + strEmailLastNameFirstName,
-		                            AppPropertiesService.getProperty( PROPERTY_REF_ENCRYPTION_ALGORITHM, CONSTANT_SHA256 ) ).substring( 0,
-		                            AppPropertiesService.getPropertyInt( PROPERTY_REF_SIZE_RANDOM_PART, CONSTANT_REF_SIZE_RANDOM_PART ) );
-		            appointment.setReference( strReference );
-		            AppointmentHome.update( appointment );
-		            AppointmentListenerManager.notifyListenersAppointmentUpdated(appointment.getIdAppointment( ));
-		
-		        }
-		        else
-		        {
-		            AppointmentResponseService.removeResponsesByIdAppointment( appointment.getIdAppointment( ) );
-		        }
-		        if ( CollectionUtils.isNotEmpty( appointmentDTO.getListResponse( ) ) )
-		        {
-		            for ( Response response : appointmentDTO.getListResponse( ) )
-		            {
-		                ResponseHome.create( response );
-		                AppointmentResponseService.insertAppointmentResponse( appointment.getIdAppointment( ), response.getIdResponse( ) );
-		            }
-		        }
-		        if( bIsUpdate ){
-	                WorkflowService.getInstance( ).doRemoveWorkFlowResource( appointmentDTO.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE );
-		        }
-		        Form form = FormService.findFormLightByPrimaryKey( slot.getIdForm( ) );
-		        if ( form.getIdWorkflow( ) > 0 )
-		        {
-		            
-		                WorkflowService.getInstance( ).getState( appointment.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE, form.getIdWorkflow( ),
-		                        form.getIdForm( ) );
-		                WorkflowService.getInstance( ).executeActionAutomatic( appointment.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE,
-		                        form.getIdWorkflow( ), form.getIdForm( ) );
-		            
-		        }
-		    TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
-		    appointmentDTO.setIdAppointment( appointment.getIdAppointment( ));
-		    appointmentDTO.setIsSaved(true);
-		    if( request!= null ){
-		    	AppointmentUtilities.killTimer( request );
-		    }
-	
-		    return appointment.getIdAppointment( );
-	        }
-	        catch( Exception e )
-	        {
-	            TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
-	            AppLogService.error( "Error Save appointment " + e.getMessage(), e );
-	            throw new SlotFullException( e.getMessage( ), e );
-	        }
+        // avoid duplicate appointment
+        if ( appointmentDTO.getIsSaved( ) )
+        {
+            throw new AppointmentSavedException( "Appointment is already saved " );
+        }
+        Slot slot = appointmentDTO.getSlot( );
+        if ( slot == null )
+        {
+            throw new SlotFullException( "ERROR SLOT FULL" );
+        }
+        if ( slot.getIdSlot( ) == 0 )
+        {
+            slot = createSlot( slot );
+        }
+        boolean bIsUpdate = false;
+        int nbPlacesToTake = appointmentDTO.getNbBookedSeats( );
+        int nbPotentialPlacesHeld = appointmentDTO.getNbMaxPotentialBookedSeats( );
+        // if it's an update for modification of the date of the appointment
+        if ( appointmentDTO.getIdAppointment( ) != 0 && slot.getIdSlot( ) != appointmentDTO.getIdSlot( ) )
+        {
+            // Need to remove the workflow resource to reload again the workflow
+            // at the first step
+            bIsUpdate = true;
+        }
+        else
+            if ( appointmentDTO.getIdAppointment( ) != 0 )
+            {
+                // It is an update of the appointment, only the difference of places is taken
+                Appointment oldAppointment = AppointmentService.findAppointmentById( appointmentDTO.getIdAppointment( ) );
+                nbPlacesToTake -= oldAppointment.getNbPlaces( );
+                nbPotentialPlacesHeld -= oldAppointment.getNbPlaces( );
+            }
+        // The hold of the session is consumed before its places are taken : if it has already expired (or has been cancelled on another node), its places
+        // have already been given back to the slot and must not be given back again
+        int nbPlacesOfHold = 0;
+        if ( request != null )
+        {
+            if ( AppointmentUtilities.consumeHold( request, slot.getIdSlot( ) ) )
+            {
+                nbPlacesOfHold = appointmentDTO.getNbMaxPotentialBookedSeats( );
+            }
+            else
+            {
+                nbPotentialPlacesHeld -= appointmentDTO.getNbMaxPotentialBookedSeats( );
+            }
+            appointmentDTO.setNbMaxPotentialBookedSeats( 0 );
+        }
+        // Create or update the user
+        User user = UserService.saveUser( appointmentDTO );
+        // Update of the remaining places of the slot
+        Slot slotUpdated;
+        try
+        {
+            slotUpdated = takePlaces( slot.getIdSlot( ), nbPlacesToTake, nbPotentialPlacesHeld );
+        }
+        catch( RuntimeException e )
+        {
+            giveBackHold( slot.getIdSlot( ), nbPlacesOfHold );
+            if ( e instanceof SlotConcurrentUpdateException )
+            {
+                throw new SlotFullException( e.getMessage( ), e );
+            }
+            throw e;
+        }
+        SlotListenerManager.notifyListenersSlotChange( slot.getIdForm( ), slot.getIdSlot( ) );
+        DayAvailabilityService.updateDayOfSlot( slotUpdated, slotUpdated.getNbRemainingPlaces( ) + nbPlacesToTake );
+        Appointment appointment;
+        AppointmentTask task;
+        TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+        AfterCommitService.begin( );
+
+        try
+        {
+            if ( bIsUpdate )
+            {
+                // Need to update the old slot
+                updateRemaningPlacesWithAppointmentMovedDeletedOrCanceled( appointmentDTO.getNbBookedSeats( ), appointmentDTO.getIdSlot( ) );
+            }
+            // Create or update the appointment
+            appointment = AppointmentService.buildAndCreateAppointment( appointmentDTO, user, slot );
+            String strEmailLastNameFirstName = new StringJoiner( StringUtils.SPACE ).add( user.getEmail( ) ).add( CONSTANT_SEPARATOR ).add( user.getLastName( ) )
+                    .add( CONSTANT_SEPARATOR ).add( user.getFirstName( ) ).toString( );
+            // Create a unique reference for a new appointment
+            boolean bNewAppointment = appointmentDTO.getIdAppointment( ) == 0;
+            if ( bNewAppointment )
+            {
+                String strReference = appointment.getIdAppointment( )
+                        + CryptoService.encrypt( appointment.getIdAppointment( ) + strEmailLastNameFirstName,
+                                AppPropertiesService.getProperty( PROPERTY_REF_ENCRYPTION_ALGORITHM, CONSTANT_SHA256 ) ).substring( 0,
+                                AppPropertiesService.getPropertyInt( PROPERTY_REF_SIZE_RANDOM_PART, CONSTANT_REF_SIZE_RANDOM_PART ) );
+                appointment.setReference( strReference );
+                AppointmentHome.update( appointment );
+            }
+            else
+            {
+                AppointmentResponseService.removeResponsesByIdAppointment( appointment.getIdAppointment( ) );
+            }
+            if ( CollectionUtils.isNotEmpty( appointmentDTO.getListResponse( ) ) )
+            {
+                List<Integer> listIdResponse = new ArrayList<>( appointmentDTO.getListResponse( ).size( ) );
+                for ( Response response : appointmentDTO.getListResponse( ) )
+                {
+                    ResponseHome.create( response );
+                    listIdResponse.add( response.getIdResponse( ) );
+                }
+                AppointmentResponseService.insertListAppointmentResponse( appointment.getIdAppointment( ), listIdResponse );
+            }
+            // The workflow and the listeners are run after the commit, the task is saved with the appointment so that it is not lost
+            task = AppointmentTaskService.createTask( appointment.getIdAppointment( ), slot.getIdForm( ), bNewAppointment, bIsUpdate );
+            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+            AfterCommitService.end( true );
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+            AfterCommitService.end( false );
+            AppLogService.error( "Error Save appointment " + e.getMessage( ), e );
+            // The places have been taken outside of the transaction, they must be given back
+            giveBackPlaces( slot.getIdSlot( ), nbPlacesToTake, nbPotentialPlacesHeld );
+            giveBackHold( slot.getIdSlot( ), nbPlacesOfHold );
+            throw new SlotFullException( e.getMessage( ), e );
+        }
+        // The appointment is committed from here : a failure of the next steps must not give back its places
+        appointmentDTO.setIdAppointment( appointment.getIdAppointment( ) );
+        appointmentDTO.setIsSaved( true );
+        try
+        {
+            AppointmentTaskService.submit( task );
         }
+        catch( RuntimeException e )
+        {
+            // The task is saved with the appointment, it is run again by the task daemon
+            AppLogService.error( "Error submitting the task of the appointment " + appointment.getIdAppointment( ), e );
+        }
+
+        return appointment.getIdAppointment( );
     }
-	
-	
+
+    /**
+     * Take places on a slot. The slot is read, its new number of places is computed and the slot is updated only if its version has not changed in the
+     * meantime. On a version conflict, the slot is read again and the update is retried after a backoff delay. A full or passed slot fails at once
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlacesToTake
+     *            the number of places to take (negative if places are given back)
+     * @param nbPotentialPlacesHeld
+     *            the number of potential places held by the user, that are given back to the slot
+     * @return the slot updated
+     * @throws SlotFullException
+     *             if the slot does not exist, is passed or has not enough remaining places
+     * @throws SlotConcurrentUpdateException
+     *             if the slot is still modified by others after the maximum number of attempts
+     */
+    private static Slot takePlaces( int nIdSlot, int nbPlacesToTake, int nbPotentialPlacesHeld )
+    {
+        int nMaxAttempts = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BOOKING_MAX_ATTEMPTS, DEFAULT_BOOKING_MAX_ATTEMPTS ) );
+        for ( int nAttempt = 1; nAttempt <= nMaxAttempts; nAttempt++ )
+        {
+            Slot slot = SlotHome.findByPrimaryKey( nIdSlot );
+            if ( slot == null
+                    || nbPlacesToTake > 0
+                    && ( slot.getEndingDateTime( ).isBefore( LocalDateTime.now( ) ) || slot.getNbRemainingPlaces( ) < nbPlacesToTake || slot.getNbPlacesTaken( )
+                            + nbPlacesToTake > slot.getMaxCapacity( ) ) )
+            {
+                _lNbBookingsRejected.incrementAndGet( );
+                throw new SlotFullException( "ERROR SLOT FULL" );
+            }
+            slot.setNbRemainingPlaces( slot.getNbRemainingPlaces( ) - nbPlacesToTake );
+            slot.setNbPlacestaken( slot.getNbPlacesTaken( ) + nbPlacesToTake );
+            if ( SlotHome.updatePlaces( slot, nbPotentialPlacesHeld - nbPlacesToTake ) )
+            {
+                return slot;
+            }
+            _lNbBookingConflicts.incrementAndGet( );
+            if ( nAttempt < nMaxAttempts )
+            {
+                waitBeforeRetry( nAttempt );
+            }
+        }
+        _lNbBookingsAbandoned.incrementAndGet( );
+        throw new SlotConcurrentUpdateException( "ERROR SLOT " + nIdSlot + " MODIFIED CONCURRENTLY" );
+    }
+
+    /**
+     * Give back to the slot the places taken for an appointment that could not be saved
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlacesTaken
+     *            the number of places taken
+     * @param nbPotentialPlacesHeld
+     *            the number of potential places that were held by the user
+     */
+    private static void giveBackPlaces( int nIdSlot, int nbPlacesTaken, int nbPotentialPlacesHeld )
+    {
+        try
+        {
+            Slot slot = takePlaces( nIdSlot, -nbPlacesTaken, -nbPotentialPlacesHeld );
+            SlotListenerManager.notifyListenersSlotChange( slot.getIdForm( ), nIdSlot );
+            DayAvailabilityService.updateDayOfSlot( slot, slot.getNbRemainingPlaces( ) - nbPlacesTaken );
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Error giving back the places taken on the slot " + nIdSlot, e );
+        }
+    }
+
+    /**
+     * Give back to the slot the potential places of the hold consumed for an appointment that could not be saved : the hold no longer exists, it will not
+     * give them back when it expires
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlacesOfHold
+     *            the number of places of the hold consumed, 0 if no hold has been consumed
+     */
+    private static void giveBackHold( int nIdSlot, int nbPlacesOfHold )
+    {
+        if ( nbPlacesOfHold <= 0 )
+        {
+            return;
+        }
+        try
+        {
+            incrementPotentialRemainingPlaces( nbPlacesOfHold, nIdSlot );
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Error giving back the places held on the slot " + nIdSlot, e );
+        }
+    }
+
+    /**
+     * Wait before retrying an update of a slot : the delay grows exponentially with the number of attempts, with a random part so that the concurrent
+     * bookings do not retry at the same time
+     * 
+     * @param nAttempt
+     *            the number of the attempt that failed
+     */
+    private static void waitBeforeRetry( int nAttempt )
+    {
+        long lBackoffDelay = AppPropertiesService.getPropertyInt( PROPERTY_BOOKING_BACKOFF_DELAY, DEFAULT_BOOKING_BACKOFF_DELAY );
+        long lMaxBackoffDelay = AppPropertiesService.getPropertyInt( PROPERTY_BOOKING_MAX_BACKOFF_DELAY, DEFAULT_BOOKING_MAX_BACKOFF_DELAY );
+        long lDelay = Math.max( 0, Math.min( lMaxBackoffDelay, lBackoffDelay << Math.min( nAttempt - 1, 16 ) ) );
+        try
+        {
+            Thread.sleep( lDelay / 2 + ThreadLocalRandom.current( ).nextLong( lDelay / 2 + 1 ) );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new SlotConcurrentUpdateException( "Interrupted while waiting to update the slot" );
+        }
+    }
+
+    /**
+     * Get the number of version conflicts met when taking places on the slots
+     * 
+     * @return the number of conflicts
+     */
+    public static long getNbBookingConflicts( )
+    {
+        return _lNbBookingConflicts.get( );
+    }
+
+    /**
+     * Get the number of bookings abandoned because the slot was still modified by others after the maximum number of attempts
+     * 
+     * @return the number of bookings abandoned
+     */
+    public static long getNbBookingsAbandoned( )
+    {
+        return _lNbBookingsAbandoned.get( );
+    }
+
+    /**
+     * Get the number of bookings rejected because the slot was full or passed
+     * 
+     * @return the number of bookings rejected
+     */
+    public static long getNbBookingsRejected( )
+    {
+        return _lNbBookingsRejected.get( );
+    }
+
+    /**
+     * Get a summary of the booking counters, for the logs of the daemon
+     * 
+     * @return the booking metrics
+     */
+    public static String getBookingMetrics( )
+    {
+        return new StringBuilder( "Bookings - version conflicts : " ).append( getNbBookingConflicts( ) ).append( ", abandoned : " )
+                .append( getNbBookingsAbandoned( ) ).append( ", rejected : " ).append( getNbBookingsRejected( ) ).toString( );
+    }
+
 	 /**
      * Set the new number of remaining places (and potential) when an appointment is deleted or cancelled This new value must take in account the capacity of
      * the slot, in case of the slot was already over booked
@@ -326,38 +525,16 @@ public final class SlotSafeService {
      * @param slot
      *            the related slot
      */
-    public static void updateRemaningPlacesWithAppointmentMovedDeletedOrCanceled( int nbPlaces, int  nIdSlot )
+    public static void updateRemaningPlacesWithAppointmentMovedDeletedOrCanceled( int nbPlaces, int nIdSlot )
     {
-        // The capacity of the slot (that can be less than the number of places
-        // taken on the slot --> overbook)
-    	
-    	 Object lock = getLockOnSlot( nIdSlot );
-		 synchronized (lock) {
-			 Slot slot = SlotService.findSlotById(nIdSlot);
-			 if(slot != null){
-		        int nMaxCapacity = slot.getMaxCapacity( );
-		        // The old remaining places of the slot (before we delete or cancel or move the
-		        // appointment
-		        int nOldRemainingPlaces = slot.getNbRemainingPlaces( );
-		        int nOldPotentialRemaningPlaces = slot.getNbPotentialRemainingPlaces( );
-		        int nOldPlacesTaken = slot.getNbPlacesTaken( );
-		        int nNewPlacesTaken = nOldPlacesTaken - nbPlaces;
-		        // The new value of the remaining places of the slot is the minimal
-		        // value between :
-		        // - the minimal value between the potentially new max capacity and the old remaining places plus the number of places released by the appointment
-		        // - and the capacity of the slot minus the new places taken on the slot (0 if negative)
-		        int nNewRemainingPlaces = Math.min( Math.min( nMaxCapacity, nOldRemainingPlaces + nbPlaces ), Math.max( 0, nMaxCapacity - nNewPlacesTaken ) );
-		
-		        int nNewPotentialRemainingPlaces = Math.min( Math.min( nMaxCapacity, nOldPotentialRemaningPlaces + nbPlaces ),
-		                Math.max( 0, nMaxCapacity - nNewPlacesTaken ) );
-		
-		        slot.setNbRemainingPlaces( nNewRemainingPlaces );
-		        slot.setNbPotentialRemainingPlaces( nNewPotentialRemainingPlaces );
-		        slot.setNbPlacestaken( nNewPlacesTaken );
-		        updateSlot( slot );
-			 }
-	     }
-    	 
+        // The new value of the remaining places of the slot is the minimal
+        // value between :
+        // - the minimal value between the potentially new max capacity and the old remaining places plus the number of places released by the appointment
+        // - and the capacity of the slot minus the new places taken on the slot (0 if negative)
+        SlotHome.releasePlaces( nIdSlot, nbPlaces );
+        SlotListenerManager.notifyListenersSlotChange( nIdSlot );
+        // The places released are capped by the capacity of the slot : the day is computed again when it is read
+        DayAvailabilityService.invalidateDayOfSlot( nIdSlot );
     }
     
     /**
@@ -373,36 +550,61 @@ public final class SlotSafeService {
      * @param bShifSlot
      *            true if the user has decided to shift the next slots
      */
-    public static void updateSlot(  Slot slot, boolean bEndingTimeHasChanged, LocalTime previousEndingTime, boolean bShifSlot )
+    public static void updateSlot( Slot slot, boolean bEndingTimeHasChanged, LocalTime previousEndingTime, boolean bShifSlot )
     {
-        	 
-       slot.setIsSpecific( SlotService.isSpecificSlot( slot ) );
-	   if ( bEndingTimeHasChanged )
-	   {
-	       // If we don't want to shift the next slots
-	       if ( !bShifSlot )
-	       {
-	           updateSlotWithoutShift( slot );
-	        }
-	        else
-	        {
-	        // We want to shift the next slots at the end of the current
-	        // slot
-	             updateSlotWithShift( slot, previousEndingTime );
-	         }
-	       }
-	       else
-	        {
-	            // The ending time of the slot has not changed
-	            // If it's an update of an existing slot
-	            if ( slot.getIdSlot( ) != 0 )
-	            {
-	               updateRemainingPlaces( slot );
-	            }
-	           saveSlot( slot );
-	        }
-        
+        // The slots deleted to make room for the modified slot must not be materialized again before it is saved
+        modifyPlanning( slot.getIdForm( ), ( ) -> updateSlotUnderLock( slot, bEndingTimeHasChanged, previousEndingTime, bShifSlot ) );
+        DayAvailabilityService.invalidateDay( slot.getIdForm( ), slot.getStartingDateTime( ).toLocalDate( ) );
+    }
 
+    /**
+     * Update a slot in database and possibly all the slots after, the planning of the form being locked
+     * 
+     * @param slot
+     *            the slot to update
+     * @param bEndingTimeHasChanged
+     *            true if the ending time has changed
+     * @param previousEndingTime
+     *            the previous ending time
+     * @param bShifSlot
+     *            true if the user has decided to shift the next slots
+     */
+    private static void updateSlotUnderLock( Slot slot, boolean bEndingTimeHasChanged, LocalTime previousEndingTime, boolean bShifSlot )
+    {
+        // All the slots changed by this modification are notified as a single event
+        SlotListenerManager.openSlotChangeBatch( );
+        try
+        {
+            slot.setIsSpecific( SlotService.isSpecificSlot( slot ) );
+            if ( bEndingTimeHasChanged )
+            {
+                // If we don't want to shift the next slots
+                if ( !bShifSlot )
+                {
+                    updateSlotWithoutShift( slot );
+                }
+                else
+                {
+                    // We want to shift the next slots at the end of the current
+                    // slot
+                    updateSlotWithShift( slot, previousEndingTime );
+                }
+            }
+            else
+            {
+                // The ending time of the slot has not changed
+                // If it's an update of an existing slot
+                if ( slot.getIdSlot( ) != 0 )
+                {
+                    updateRemainingPlaces( slot );
+                }
+                saveSlot( slot );
+            }
+        }
+        finally
+        {
+            SlotListenerManager.closeSlotChangeBatch( );
+        }
     }
 
     /**
@@ -431,7 +633,7 @@ public final class SlotSafeService {
         else
         {
             LocalDate dateOfSlot = slot.getDate( );
-            WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( slot.getIdForm( ), dateOfSlot );
+            WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionTimeline( slot.getIdForm( ) ).getClosest( dateOfSlot );
             WorkingDay workingDay = WorkingDayService.getWorkingDayOfDayOfWeek( weekDefinition.getListWorkingDay( ), dateOfSlot.getDayOfWeek( ) );
             // No slot after this one.
             // Need to compute between the end of this slot and the next
@@ -484,147 +686,9 @@ public final class SlotSafeService {
      */
     private static void updateSlotWithShift( Slot slot, LocalTime previousEndingTime )
     {
-        // We want to shift all the next slots
-        LocalDate dateOfSlot = slot.getDate( );
-        HashMap<LocalDate, WeekDefinition> mapWeekDefinition = WeekDefinitionService.findAllWeekDefinition( slot.getIdForm( ) );
-        // Build or get all the slots of the day
-        List<Slot> listAllSlotsOfThisDayToBuildOrInDb = SlotService.buildListSlot( slot.getIdForm( ), mapWeekDefinition, dateOfSlot, dateOfSlot );
-        // Remove the current slot and all the slot before it
-        listAllSlotsOfThisDayToBuildOrInDb = listAllSlotsOfThisDayToBuildOrInDb.stream( )
-                .filter( slotToKeep -> slotToKeep.getStartingDateTime( ).isAfter( slot.getStartingDateTime( ) ) ).collect( Collectors.toList( ) );
-        // Need to delete all the slots until the new end of this slot
-        List<Slot> listSlotToDelete = listAllSlotsOfThisDayToBuildOrInDb
-                .stream( )
-                .filter(
-                        slotToDelete -> slotToDelete.getStartingDateTime( ).isAfter( slot.getStartingDateTime( ) )
-                                && !slotToDelete.getEndingDateTime( ).isAfter( slot.getEndingDateTime( ) ) && slotToDelete.getIdSlot( ) != 0 )
-                .collect( Collectors.toList( ) );
-        SlotService.deleteListSlots( listSlotToDelete );
-        listAllSlotsOfThisDayToBuildOrInDb.removeAll( listSlotToDelete );
-        // Need to find all the existing slots
-        List<Slot> listExistingSlots = listAllSlotsOfThisDayToBuildOrInDb.stream( ).filter( existingSlot -> existingSlot.getIdSlot( ) != 0 )
-                .collect( Collectors.toList( ) );
-        // Remove them from the list of slot to build
-        listAllSlotsOfThisDayToBuildOrInDb.removeAll( listExistingSlots );
-        // Save this list
-        createListSlot( listAllSlotsOfThisDayToBuildOrInDb );
-        List<Slot> listSlotToShift = new ArrayList<>( );
-        listSlotToShift.addAll( listExistingSlots );
-        listSlotToShift.addAll( listAllSlotsOfThisDayToBuildOrInDb );
-        // Need to order the list of slot to shift according to the shift
-        // if the new ending time is before the previous ending time,
-        // the list has to be ordered in chronological order ascending
-        // and the first slot to shift is the closest to the current
-        // slot
-        // (because we have an integrity constraint for the slot, it
-        // can't have the same starting or ending time as another slot
-        listSlotToShift = listSlotToShift.stream( ).sorted( ( slot1, slot2 ) -> slot1.getStartingDateTime( ).compareTo( slot2.getStartingDateTime( ) ) )
-                .collect( Collectors.toList( ) );
-        boolean bNewEndingTimeIsAfterThePreviousTime = false;
-        // Need to know the ending time of the day
-        LocalDateTime endingDateTimeOfTheDay = null;
-        WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( slot.getIdForm( ), dateOfSlot );
-        WorkingDay workingDay = WorkingDayService.getWorkingDayOfDayOfWeek( weekDefinition.getListWorkingDay( ), dateOfSlot.getDayOfWeek( ) );
-        LocalTime endingTimeOfTheDay;
-        if ( workingDay != null )
-        {
-            endingTimeOfTheDay = WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay );
-        }
-        else
-        {
-            endingTimeOfTheDay = WorkingDayService.getMaxEndingTimeOfAListOfWorkingDay( weekDefinition.getListWorkingDay( ) );
-        }
-        endingDateTimeOfTheDay = endingTimeOfTheDay.atDate( dateOfSlot );
-        long timeToAdd = 0;
-        long timeToSubstract = 0;
-        if ( previousEndingTime.isBefore( slot.getEndingTime( ) ) )
-        {
-            bNewEndingTimeIsAfterThePreviousTime = true;
-            // Need to find the next available slot, to know how to
-            // add to the starting time of the next slot to match
-            // with the new end of the current slot
-            if ( CollectionUtils.isNotEmpty( listSlotToShift ) )
-            {
-                Slot nextSlot = listSlotToShift.stream( ).min( ( s1, s2 ) -> s1.getStartingDateTime( ).compareTo( s2.getStartingDateTime( ) ) ).get( );
-                if ( slot.getEndingDateTime( ).isAfter( nextSlot.getStartingDateTime( ) ) )
-                {
-                    timeToAdd = nextSlot.getStartingDateTime( ).until( slot.getEndingDateTime( ), ChronoUnit.MINUTES );
-                }
-                else
-                {
-                    timeToAdd = slot.getEndingDateTime( ).until( nextSlot.getStartingDateTime( ), ChronoUnit.MINUTES );
-                }
-                Collections.reverse( listSlotToShift );
-            }
-            else
-            {
-                timeToAdd = previousEndingTime.until( slot.getEndingTime( ), ChronoUnit.MINUTES );
-            }
-        }
-        else
-        {
-            timeToSubstract = slot.getEndingTime( ).until( previousEndingTime, ChronoUnit.MINUTES );
-        }
-        // If it's an update of an existing slot
-        if ( slot.getIdSlot( ) != 0 )
-        {
-            updateRemainingPlaces( slot );
-        }
-        saveSlot( slot );
-        // Need to set the new starting and ending time of all the slots
-        // to shift and update them
-        for ( Slot slotToShift : listSlotToShift )
-        {
-            // If the new ending time is after the previous time
-            if ( bNewEndingTimeIsAfterThePreviousTime )
-            {
-                // If the starting time + the time to add is before the
-                // ending time of the day
-                if ( slotToShift.getStartingDateTime( ).plus( timeToAdd, ChronoUnit.MINUTES ).isBefore( endingDateTimeOfTheDay ) )
-                {
-                    slotToShift.setStartingDateTime( slotToShift.getStartingDateTime( ).plus( timeToAdd, ChronoUnit.MINUTES ) );
-                    // if the ending time is after the ending time of
-                    // the day, we set the new ending time to the ending
-                    // time of the day
-                    if ( slotToShift.getEndingDateTime( ).plus( timeToAdd, ChronoUnit.MINUTES ).isAfter( endingDateTimeOfTheDay ) )
-                    {
-                        slotToShift.setEndingDateTime( endingDateTimeOfTheDay );
-                    }
-                    else
-                    {
-                        slotToShift.setEndingDateTime( slotToShift.getEndingDateTime( ).plus( timeToAdd, ChronoUnit.MINUTES ) );
-                    }
-                    slotToShift.setIsSpecific( SlotService.isSpecificSlot( slotToShift ) );
-                    saveSlot( slotToShift );
-                }
-                else
-                {
-                    // Delete this slot (the slot can not be after the
-                    // ending time of the day)
-                    SlotService.deleteSlot( slotToShift );
-                }
-            }
-            else
-            {
-                // The new ending time is before the previous ending
-                // time
-                slotToShift.setStartingDateTime( slotToShift.getStartingDateTime( ).minus( timeToSubstract, ChronoUnit.MINUTES ) );
-                slotToShift.setEndingDateTime( slotToShift.getEndingDateTime( ).minus( timeToSubstract, ChronoUnit.MINUTES ) );
-                slotToShift.setIsSpecific( SlotService.isSpecificSlot( slotToShift ) );
-                saveSlot( slotToShift );
-            }
-        }
-        if ( !bNewEndingTimeIsAfterThePreviousTime )
-        {
-            // If the slots have been shift earlier,
-            // there is no slot(s) between the last slot created
-            // and the ending time of the day, need to create it(them)
-            List<Slot> listSlotsToAdd = generateListSlotToCreateAfterATime( endingDateTimeOfTheDay.minusMinutes( timeToSubstract ), slot.getIdForm( ) );
-            createListSlot( listSlotsToAdd );
-        }
-
+        PlanningRewriteService.applySlotRewrite( slot.getIdForm( ), PlanningRewriteService.buildSlotShift( slot, previousEndingTime ) );
     }
-    
+
     /**
      * Generate the list of slot to create after a slot (taking into account the week definition and the rules to apply)
      * 
@@ -632,13 +696,13 @@ public final class SlotSafeService {
      *            the slot
      * @return the list of next slots
      */
-    private static List<Slot> generateListSlotToCreateAfterATime( LocalDateTime dateTimeToStartCreation, int nIdForm )
+    static List<Slot> generateListSlotToCreateAfterATime( LocalDateTime dateTimeToStartCreation, int nIdForm )
     {
         List<Slot> listSlotToCreate = new ArrayList<>( );
         LocalDate dateOfCreation = dateTimeToStartCreation.toLocalDate( );
-        ReservationRule reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, dateOfCreation );
+        ReservationRule reservationRule = ReservationRuleService.findReservationRuleTimeline( nIdForm ).getClosest( dateOfCreation );
         int nMaxCapacity = reservationRule.getMaxCapacityPerSlot( );
-        WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( nIdForm, dateOfCreation );
+        WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionTimeline( nIdForm ).getClosest( dateOfCreation );
         WorkingDay workingDay = WorkingDayService.getWorkingDayOfDayOfWeek( weekDefinition.getListWorkingDay( ), dateOfCreation.getDayOfWeek( ) );
         LocalTime endingTimeOfTheDay = null;
         List<TimeSlot> listTimeSlot = new ArrayList<>( );
@@ -647,7 +711,7 @@ public final class SlotSafeService {
         {
             endingTimeOfTheDay = WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay );
             nDurationSlot = WorkingDayService.getMinDurationTimeSlotOfAWorkingDay( workingDay );
-            listTimeSlot = TimeSlotService.findListTimeSlotByWorkingDay( workingDay.getIdWorkingDay( ) );
+            listTimeSlot = workingDay.getListTimeSlot( );
         }
         else
         {
@@ -692,8 +756,24 @@ public final class SlotSafeService {
     public static void updateRemainingPlaces( Slot slot )
     {
         Slot oldSlot = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        updateRemainingPlaces( slot, oldSlot.getMaxCapacity( ), oldSlot.getNbRemainingPlaces( ), oldSlot.getNbPotentialRemainingPlaces( ) );
+    }
+
+    /**
+     * Update the remaining places of a slot whose max capacity has been modified
+     * 
+     * @param slot
+     *            the slot, with its new max capacity
+     * @param nOldBnMaxCapacity
+     *            the max capacity of the slot in database
+     * @param nOldNbRemainingPlaces
+     *            the remaining places of the slot in database
+     * @param nOldNbPotentialRemainingPlaces
+     *            the potential remaining places of the slot in database
+     */
+    private static void updateRemainingPlaces( Slot slot, int nOldBnMaxCapacity, int nOldNbRemainingPlaces, int nOldNbPotentialRemainingPlaces )
+    {
         int nNewNbMaxCapacity = slot.getMaxCapacity( );
-        int nOldBnMaxCapacity = oldSlot.getMaxCapacity( );
         // If the max capacity has been modified
         if ( nNewNbMaxCapacity != nOldBnMaxCapacity )
         {
@@ -704,8 +784,8 @@ public final class SlotSafeService {
             if ( nNewNbMaxCapacity > nOldBnMaxCapacity )
             {
                 int nValueToAdd = nNewNbMaxCapacity - nOldBnMaxCapacity;
-                slot.setNbPotentialRemainingPlaces( oldSlot.getNbPotentialRemainingPlaces( ) + nValueToAdd );
-                slot.setNbRemainingPlaces( oldSlot.getNbRemainingPlaces( ) + nValueToAdd );
+                slot.setNbPotentialRemainingPlaces( nOldNbPotentialRemainingPlaces + nValueToAdd );
+                slot.setNbRemainingPlaces( nOldNbRemainingPlaces + nValueToAdd );
             }
             else
             {
@@ -713,8 +793,8 @@ public final class SlotSafeService {
                 // !!!! If there are appointments on this slot and if the
                 // slot is already full, the slot will be surbooked !!!!
                 int nValueToSubstract = nOldBnMaxCapacity - nNewNbMaxCapacity;
-                slot.setNbPotentialRemainingPlaces( Math.max( 0, oldSlot.getNbPotentialRemainingPlaces( ) - nValueToSubstract ) );
-                slot.setNbRemainingPlaces( Math.max( 0, oldSlot.getNbRemainingPlaces( ) - nValueToSubstract ) );
+                slot.setNbPotentialRemainingPlaces( Math.max( 0, nOldNbPotentialRemainingPlaces - nValueToSubstract ) );
+                slot.setNbRemainingPlaces( Math.max( 0, nOldNbRemainingPlaces - nValueToSubstract ) );
             }
         }
     }
@@ -745,51 +825,147 @@ public final class SlotSafeService {
      * 
      * @param slot
      *            the slot updated
+     * @return the slot updated
+     * @throws SlotConcurrentUpdateException
+     *             if the slot has been modified since it was read
      */
     public static Slot updateSlot( Slot slot )
     {
-			Slot slotToReturn = SlotHome.update( slot );
-        	SlotListenerManager.notifyListenersSlotChange( slot.getIdSlot( ) );
-         	return slotToReturn;
-		 
+        if ( !SlotHome.update( slot ) )
+        {
+            throw new SlotConcurrentUpdateException( "ERROR SLOT " + slot.getIdSlot( ) + " MODIFIED CONCURRENTLY" );
+        }
+        SlotListenerManager.notifyListenersSlotChange( slot.getIdForm( ), slot.getIdSlot( ) );
+        DayAvailabilityService.invalidateDay( slot.getIdForm( ), slot.getStartingDateTime( ).toLocalDate( ) );
+        return slot;
     }
 
     /**
-     * Create in database the slots given
+     * Update a slot with appointments impacted by a modification of the planning. The slot is read again from database and the modification is applied to
+     * its current places, so that the bookings made since the impacted slots were searched are kept. The slot is read with a lock on its row : in the
+     * transaction of a modification of the planning, the slot is then up to date and cannot be booked until the commit. Outside of a transaction, the
+     * update is retried after a backoff delay on a version conflict, as for a booking
      * 
-     * @param listSlotToCreate
-     *            the list of slots to create in database
+     * @param nIdSlot
+     *            the id of the slot
+     * @param bMaxCapacityHasChanged
+     *            true if the max capacity has changed
+     * @param nMaxCapacity
+     *            the new max capacity
+     * @param bOpeningHasChanged
+     *            true if the opening has changed
+     * @param bIsOpen
+     *            the new opening value
+     * @return the slot updated, null if the slot does not exist anymore
+     * @throws SlotConcurrentUpdateException
+     *             if the slot is still modified by others after the maximum number of attempts
      */
-    private static void createListSlot( List<Slot> listSlotToCreate )
+    public static Slot updateImpactedSlot( int nIdSlot, boolean bMaxCapacityHasChanged, int nMaxCapacity, boolean bOpeningHasChanged, boolean bIsOpen )
     {
-        if ( CollectionUtils.isNotEmpty( listSlotToCreate ) )
+        int nMaxAttempts = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BOOKING_MAX_ATTEMPTS, DEFAULT_BOOKING_MAX_ATTEMPTS ) );
+        for ( int nAttempt = 1; nAttempt <= nMaxAttempts; nAttempt++ )
         {
-            for ( Slot slotTemp : listSlotToCreate )
+            Slot slot = SlotHome.findByPrimaryKeyForUpdate( nIdSlot );
+            if ( slot == null )
+            {
+                return null;
+            }
+            // If the max capacity has changed, need to update it for all the slots that already have appointments
+            if ( bMaxCapacityHasChanged )
+            {
+                int nOldMaxCapacity = slot.getMaxCapacity( );
+                slot.setMaxCapacity( nMaxCapacity );
+                updateRemainingPlaces( slot, nOldMaxCapacity, slot.getNbRemainingPlaces( ), slot.getNbPotentialRemainingPlaces( ) );
+            }
+            // If the opening of the timeslot has changed and there are appointments impacted, all the corresponding slots are marked as specific
+            if ( bOpeningHasChanged )
+            {
+                slot.setIsSpecific( bIsOpen );
+            }
+            if ( SlotHome.update( slot ) )
             {
-                createSlot( slotTemp );
+                SlotListenerManager.notifyListenersSlotChange( slot.getIdForm( ), nIdSlot );
+                DayAvailabilityService.invalidateDay( slot.getIdForm( ), slot.getStartingDateTime( ).toLocalDate( ) );
+                return slot;
+            }
+            if ( nAttempt < nMaxAttempts )
+            {
+                waitBeforeRetry( nAttempt );
             }
         }
+        throw new SlotConcurrentUpdateException( "ERROR SLOT " + nIdSlot + " MODIFIED CONCURRENTLY" );
     }
+
     /**
-     * Clean slotlist
+     * Create in database the slots given, with a single batch. The slots already in database are not created again. The row of the form is locked in
+     * database while the slots are searched and created, so that the nodes of a cluster do not create the same slots at the same time
+     * 
+     * @param listSlotToCreate
+     *            the list of slots of a form to create in database
+     * @return the number of slots created
      */
-    public static void cleanSlotlist(){
-    	
-    	Iterator<Integer> it = _listSlot.keySet().iterator();
-    	int idSlot;
-    	while(it.hasNext()){
-    		
-    		idSlot= it.next();
-    		Slot slot=SlotService.findSlotById(idSlot);
-    		if(slot == null || slot.getStartingDateTime().isBefore(LocalDateTime.now()) || slot.getMaxCapacity() <= slot.getNbPlacesTaken( )){
-    			
-    			_listSlot.remove(idSlot);
-    		}
-    		
-    	}
-    	
-    	
+    static int createListSlot( List<Slot> listSlotToCreate )
+    {
+        if ( CollectionUtils.isEmpty( listSlotToCreate ) )
+        {
+            return 0;
+        }
+        return createListSlot( listSlotToCreate.get( 0 ).getIdForm( ), ( ) -> listSlotToCreate );
     }
 
+    /**
+     * Create in database the slots of a form, with a single batch. The slots to create are computed once the row of the form is locked in database : they
+     * are generated from a planning that is not being modified, and a modification of the planning in progress is committed before they are computed
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param slotsToCreate
+     *            the computation of the slots to create
+     * @return the number of slots created
+     */
+    static int createListSlot( int nIdForm, Supplier<List<Slot>> slotsToCreate )
+    {
+        List<Slot> listSlotCreated = new ArrayList<>( );
+        synchronized( getLockOnForm( nIdForm ) )
+        {
+            TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+            try
+            {
+                FormVersionHome.lock( nIdForm );
+                List<Slot> listSlotToCreate = slotsToCreate.get( );
+                if ( CollectionUtils.isNotEmpty( listSlotToCreate ) )
+                {
+                    LocalDateTime minStartingDateTime = listSlotToCreate.stream( ).map( Slot::getStartingDateTime ).min( LocalDateTime::compareTo ).get( );
+                    LocalDateTime maxEndingDateTime = listSlotToCreate.stream( ).map( Slot::getEndingDateTime ).max( LocalDateTime::compareTo ).get( );
+                    TreeMap<LocalDateTime, Slot> mapSlot = new TreeMap<>( SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( nIdForm,
+                            minStartingDateTime, maxEndingDateTime ) );
+                    for ( Slot slot : listSlotToCreate )
+                    {
+                        // Same check as createSlot : no slot is created over a slot already in database
+                        boolean bAlreadyInDb = mapSlot.subMap( slot.getStartingDateTime( ), true, slot.getEndingDateTime( ), true ).values( ).stream( )
+                                .anyMatch( slotInDb -> !slotInDb.getEndingDateTime( ).isAfter( slot.getEndingDateTime( ) ) );
+                        if ( !bAlreadyInDb )
+                        {
+                            listSlotCreated.add( slot );
+                            mapSlot.put( slot.getStartingDateTime( ), slot );
+                        }
+                    }
+                    SlotHome.createBatch( listSlotCreated );
+                }
+                TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+            }
+            catch( RuntimeException e )
+            {
+                TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+                listSlotCreated.forEach( slot -> slot.setIdSlot( 0 ) );
+                throw e;
+            }
+        }
+        for ( Slot slotCreated : listSlotCreated )
+        {
+            SlotListenerManager.notifyListenersSlotCreation( slotCreated.getIdForm( ), slotCreated.getIdSlot( ) );
+        }
+        return listSlotCreated.size( );
+    }
 
 }
@@ -38,10 +38,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.WeekFields;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -53,6 +55,7 @@ import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.slot.Period;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotImpact;
 import fr.paris.lutece.plugins.appointment.service.listeners.SlotListenerManager;
 
 /**
@@ -92,6 +95,50 @@ public final class SlotService
         return listSlots;
     }
 
+    /**
+     * Find the slots of a period impacted by a modification of the planning, with the number of their appointments
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param startingDateTime
+     *            the starting date time to search
+     * @param endingDateTime
+     *            the ending date time to search
+     * @param dayOfWeek
+     *            the day of week of the slots, or null for all the days
+     * @param startingTime
+     *            the starting time of the window, or null for all the slots of the day
+     * @param endingTime
+     *            the ending time of the window, or null to search until the end of the day
+     * @return the slots impacted, ordered by starting date
+     */
+    public static List<SlotImpact> findSlotImpacts( int nIdForm, LocalDateTime startingDateTime, LocalDateTime endingDateTime, DayOfWeek dayOfWeek,
+            LocalTime startingTime, LocalTime endingTime )
+    {
+        List<SlotImpact> listSlotImpact = SlotHome.findSlotImpacts( nIdForm, startingDateTime, endingDateTime, dayOfWeek, startingTime, endingTime );
+        for ( SlotImpact slotImpact : listSlotImpact )
+        {
+            addDateAndTimeToSlot( slotImpact.getSlot( ) );
+        }
+        return listSlotImpact;
+    }
+
+    /**
+     * Find the slots of a period, with the number of their appointments
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param startingDateTime
+     *            the starting date time to search
+     * @param endingDateTime
+     *            the ending date time to search
+     * @return the slots of the period, ordered by starting date
+     */
+    public static List<SlotImpact> findSlotImpacts( int nIdForm, LocalDateTime startingDateTime, LocalDateTime endingDateTime )
+    {
+        return findSlotImpacts( nIdForm, startingDateTime, endingDateTime, null, null, null );
+    }
+
     /**
      * Find specific slots of a form
      * 
@@ -193,11 +240,8 @@ public final class SlotService
     {
         List<Slot> listSlot = new ArrayList<>( );
         // Get all the reservation rules
-        final HashMap<LocalDate, ReservationRule> mapReservationRule = ReservationRuleService.findAllReservationRule( nIdForm );
-        final List<LocalDate> listDateWeekDefinition = new ArrayList<>( mapWeekDefinition.keySet( ) );
-        final List<LocalDate> listDateReservationTule = new ArrayList<>( mapReservationRule.keySet( ) );
-        LocalDate closestDateWeekDefinition;
-        LocalDate closestDateReservationRule;
+        final RuleTimeline<ReservationRule> reservationRuleTimeline = ReservationRuleService.findReservationRuleTimeline( nIdForm );
+        final RuleTimeline<WeekDefinition> weekDefinitionTimeline = new RuleTimeline<>( mapWeekDefinition );
         WeekDefinition weekDefinitionToApply;
         ReservationRule reservationRuleToApply;
         LocalDate dateTemp = startingDate;
@@ -210,9 +254,8 @@ public final class SlotService
         LocalDateTime dateTimeTemp;
         Slot slotToAdd;
         TimeSlot timeSlot;
-        LocalDate dateToCompare;
         // Need to check if this date is not before the form date creation
-        final LocalDate firstDateOfReservationRule = new ArrayList<>( mapReservationRule.keySet( ) ).stream( ).sorted( ).findFirst( ).orElse( null );
+        final LocalDate firstDateOfReservationRule = reservationRuleTimeline.getFirstDateOfApply( );
         LocalDate startingDateToUse = startingDate;
         if ( firstDateOfReservationRule != null && startingDate.isBefore( firstDateOfReservationRule ) )
         {
@@ -227,15 +270,12 @@ public final class SlotService
         // Get or build all the event for the period
         while ( !dateTemp.isAfter( endingDate ) )
         {
-            dateToCompare = dateTemp;
-            // Find the closest date of apply of week definition with the given
-            // date
-            closestDateWeekDefinition = Utilities.getClosestDateInPast( listDateWeekDefinition, dateToCompare );
-            weekDefinitionToApply = mapWeekDefinition.get( closestDateWeekDefinition );
-            // Find the closest date of apply of reservation rule with the given
-            // date
-            closestDateReservationRule = Utilities.getClosestDateInPast( listDateReservationTule, dateToCompare );
-            reservationRuleToApply = mapReservationRule.get( closestDateReservationRule );
+            // Find the week definition with the closest date of apply in the
+            // past of the given date
+            weekDefinitionToApply = weekDefinitionTimeline.getInPast( dateTemp );
+            // Find the reservation rule with the closest date of apply in the
+            // past of the given date
+            reservationRuleToApply = reservationRuleTimeline.getInPast( dateTemp );
             nMaxCapacity = 0;
             if ( reservationRuleToApply != null )
             {
@@ -343,6 +383,107 @@ public final class SlotService
 
     }
 
+    /**
+     * Build the slots of the weeks starting with the week of the given date. The period built is restricted to the given bounds, so that only the weeks
+     * actually displayed are built
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapWeekDefinition
+     *            the map of the week definition
+     * @param dateInWeek
+     *            a date of the first week to build
+     * @param nNbWeeks
+     *            the number of weeks to build
+     * @param minDate
+     *            the min date of the slots to build (can be null)
+     * @param maxDate
+     *            the max date of the slots to build (can be null)
+     * @param locale
+     *            the locale giving the first day of the week
+     * @return a list of all the slots built
+     */
+    public static List<Slot> buildListSlotOfWeeks( int nIdForm, HashMap<LocalDate, WeekDefinition> mapWeekDefinition, LocalDate dateInWeek, int nNbWeeks,
+            LocalDate minDate, LocalDate maxDate, Locale locale )
+    {
+        LocalDate startingDate = getFirstDayOfWeek( dateInWeek, locale );
+        LocalDate endingDate = startingDate.plusWeeks( nNbWeeks ).minusDays( 1 );
+        if ( minDate != null && startingDate.isBefore( minDate ) )
+        {
+            startingDate = minDate;
+        }
+        if ( maxDate != null && endingDate.isAfter( maxDate ) )
+        {
+            endingDate = maxDate;
+        }
+        if ( startingDate.isAfter( endingDate ) )
+        {
+            return new ArrayList<>( );
+        }
+        return buildListSlot( nIdForm, mapWeekDefinition, startingDate, endingDate );
+    }
+
+    /**
+     * Find the date of the first open slot with free places on a period. The slots are built week by week and the search stops at the first week having such
+     * a slot
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapWeekDefinition
+     *            the map of the week definition
+     * @param minDateTime
+     *            the slots must start after this date time
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @param locale
+     *            the locale giving the first day of the week
+     * @return the date of the first free open slot, null if there is none
+     */
+    public static LocalDate findFirstDateOfFreeOpenSlot( int nIdForm, HashMap<LocalDate, WeekDefinition> mapWeekDefinition, LocalDateTime minDateTime,
+            LocalDate startingDate, LocalDate endingDate, Locale locale )
+    {
+        LocalDate dateTemp = startingDate;
+        while ( !dateTemp.isAfter( endingDate ) )
+        {
+            LocalDate endingDateOfWeek = getFirstDayOfWeek( dateTemp, locale ).plusWeeks( 1 ).minusDays( 1 );
+            if ( endingDateOfWeek.isAfter( endingDate ) )
+            {
+                endingDateOfWeek = endingDate;
+            }
+            Slot firstFreeOpenSlot = null;
+            for ( Slot slot : buildListSlot( nIdForm, mapWeekDefinition, dateTemp, endingDateOfWeek ) )
+            {
+                if ( slot.getIsOpen( ) && slot.getNbPotentialRemainingPlaces( ) > 0 && slot.getStartingDateTime( ).isAfter( minDateTime )
+                        && ( firstFreeOpenSlot == null || slot.getStartingDateTime( ).isBefore( firstFreeOpenSlot.getStartingDateTime( ) ) ) )
+                {
+                    firstFreeOpenSlot = slot;
+                }
+            }
+            if ( firstFreeOpenSlot != null )
+            {
+                return firstFreeOpenSlot.getDate( );
+            }
+            dateTemp = endingDateOfWeek.plusDays( 1 );
+        }
+        return null;
+    }
+
+    /**
+     * Get the first day of the week of a date
+     * 
+     * @param date
+     *            the date
+     * @param locale
+     *            the locale giving the first day of the week
+     * @return the first day of the week of the date
+     */
+    public static LocalDate getFirstDayOfWeek( LocalDate date, Locale locale )
+    {
+        return date.with( WeekFields.of( locale ).dayOfWeek( ), 1 );
+    }
+
     /**
      * Build a slot with all its values
      * 
@@ -388,13 +529,13 @@ public final class SlotService
     public static boolean isSpecificSlot( Slot slot )
     {
         LocalDate dateOfSlot = slot.getDate( );
-        WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( slot.getIdForm( ), dateOfSlot );
-        ReservationRule reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( slot.getIdForm( ), slot.getDate( ) );
+        WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionTimeline( slot.getIdForm( ) ).getClosest( dateOfSlot );
+        ReservationRule reservationRule = ReservationRuleService.findReservationRuleTimeline( slot.getIdForm( ) ).getClosest( dateOfSlot );
         WorkingDay workingDay = WorkingDayService.getWorkingDayOfDayOfWeek( weekDefinition.getListWorkingDay( ), dateOfSlot.getDayOfWeek( ) );
         List<TimeSlot> listTimeSlot = null;
         if ( workingDay != null )
         {
-            listTimeSlot = TimeSlotService.findListTimeSlotByWorkingDay( workingDay.getIdWorkingDay( ) );
+            listTimeSlot = workingDay.getListTimeSlot( );
         }
         return isSpecificSlot( slot, workingDay, listTimeSlot, reservationRule.getMaxCapacityPerSlot( ) );
     }
@@ -534,10 +675,18 @@ public final class SlotService
      */
     public static void deleteListSlots( List<Slot> listSlotToDelete )
     {
+        if ( CollectionUtils.isEmpty( listSlotToDelete ) )
+        {
+            return;
+        }
         for ( Slot slotToDelete : listSlotToDelete )
         {
-            SlotService.deleteSlot( slotToDelete );
+            SlotListenerManager.notifyListenersSlotRemoval( slotToDelete.getIdForm( ), slotToDelete.getIdSlot( ) );
         }
+        SlotHome.deleteBatch( listSlotToDelete );
+        listSlotToDelete.stream( ).filter( slot -> slot.getStartingDateTime( ) != null )
+                .collect( Collectors.groupingBy( Slot::getIdForm, Collectors.mapping( slot -> slot.getStartingDateTime( ).toLocalDate( ), Collectors.toSet( ) ) ) )
+                .forEach( ( nIdForm, setDate ) -> setDate.forEach( date -> DayAvailabilityService.invalidateDay( nIdForm, date ) ) );
     }
 
     /**
@@ -549,9 +698,12 @@ public final class SlotService
     public static void deleteSlot( Slot slot )
     {
         int nIdSlot = slot.getIdSlot( );
-        SlotListenerManager.notifyListenersSlotRemoval( nIdSlot );
-        SlotSafeService.removeSlotInMemory( nIdSlot );
+        SlotListenerManager.notifyListenersSlotRemoval( slot.getIdForm( ), nIdSlot );
         SlotHome.delete( nIdSlot );
+        if ( slot.getStartingDateTime( ) != null )
+        {
+            DayAvailabilityService.invalidateDay( slot.getIdForm( ), slot.getStartingDateTime( ).toLocalDate( ) );
+        }
     }
 
     /**
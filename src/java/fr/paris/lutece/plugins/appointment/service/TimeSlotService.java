@@ -37,9 +37,7 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -50,6 +48,7 @@ import fr.paris.lutece.plugins.appointment.business.planning.TimeSlotHome;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
 import fr.paris.lutece.plugins.appointment.service.listeners.WeekDefinitionManagerListener;
 
 /**
@@ -137,7 +136,9 @@ public final class TimeSlotService
      */
     public static TimeSlot createTimeSlot( TimeSlot timeSlot )
     {
-        return TimeSlotHome.create( timeSlot );
+        TimeSlotHome.create( timeSlot );
+        PlanningCacheService.invalidateWorkingDay( timeSlot.getIdWorkingDay( ) );
+        return timeSlot;
     }
 
     /**
@@ -225,7 +226,7 @@ public final class TimeSlotService
         {
             saveTimeSlot( timeSlot );
         }
-
+        PlanningCacheService.invalidate( weekDefinition.getIdForm( ) );
         WeekDefinitionManagerListener.notifyListenersWeekDefinitionChange( workingDay.getIdWeekDefinition( ) );
     }
 
@@ -246,126 +247,8 @@ public final class TimeSlotService
     private static void updateTimeSlotWithShift( TimeSlot timeSlot, WorkingDay workingDay, ReservationRule reservationRule, int nDuration,
             LocalTime previousEndingTime )
     {
-        // We want to shift all the next time slots
-        // Get all the time slots of the day
-        List<TimeSlot> listOfAllTimeSlotsOfThisWorkingDay = findListTimeSlotByWorkingDay( workingDay.getIdWorkingDay( ) );
-        // Remove the current time slot and all the time slots before it
-        listOfAllTimeSlotsOfThisWorkingDay = listOfAllTimeSlotsOfThisWorkingDay.stream( )
-                .filter( timeSlotToKeep -> timeSlotToKeep.getStartingTime( ).isAfter( timeSlot.getStartingTime( ) ) ).collect( Collectors.toList( ) );
-        // Need to delete all the time slots until the new end of this
-        // time slot
-        List<TimeSlot> listTimeSlotToDelete = listOfAllTimeSlotsOfThisWorkingDay
-                .stream( )
-                .filter(
-                        timeSlotToDelete -> timeSlotToDelete.getStartingTime( ).isAfter( timeSlot.getStartingTime( ) )
-                                && !timeSlotToDelete.getEndingTime( ).isAfter( timeSlot.getEndingTime( ) ) ).collect( Collectors.toList( ) );
-        deleteListTimeSlot( listTimeSlotToDelete );
-        listOfAllTimeSlotsOfThisWorkingDay.removeAll( listTimeSlotToDelete );
-        // Need to order the list of time slot to shift according to the
-        // shift
-        // if the new ending time is before the previous ending time,
-        // the list has to be ordered in chronological order ascending
-        // and the first time slot to shift is the closest to the
-        // current
-        // time slot
-        // (because we have an integrity constraint for the time slot,
-        // it
-        // can't have the same starting or ending time as another time
-        // slot
-        List<TimeSlot> listTimeSlotToShift = new ArrayList<>( );
-        listTimeSlotToShift.addAll( listOfAllTimeSlotsOfThisWorkingDay );
-        listTimeSlotToShift = listTimeSlotToShift.stream( )
-                .sorted( ( timeSlot1, timeSlot2 ) -> timeSlot1.getStartingTime( ).compareTo( timeSlot2.getStartingTime( ) ) ).collect( Collectors.toList( ) );
-        boolean bNewEndingTimeIsAfterThePreviousTime = false;
-        // Need to know the ending time of the day
-        LocalTime endingTimeOfTheDay = WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay );
-
-        long timeToAdd = 0;
-        long timeToSubstract = 0;
-        if ( previousEndingTime.isBefore( timeSlot.getEndingTime( ) ) )
-        {
-            bNewEndingTimeIsAfterThePreviousTime = true;
-            // Need to find the next available time slot, to know how to
-            // add to the starting time of the next time slot to match
-            // with
-            // the new end of the current time slot
-            if ( CollectionUtils.isNotEmpty( listTimeSlotToShift ) )
-            {
-                TimeSlot nextTimeSlot = listTimeSlotToShift.stream( ).min( ( t1, t2 ) -> t1.getStartingTime( ).compareTo( t2.getStartingTime( ) ) ).get( );
-                if ( timeSlot.getEndingTime( ).isAfter( nextTimeSlot.getStartingTime( ) ) )
-                {
-                    timeToAdd = nextTimeSlot.getStartingTime( ).until( timeSlot.getEndingTime( ), ChronoUnit.MINUTES );
-                }
-                else
-                {
-                    timeToAdd = timeSlot.getEndingTime( ).until( nextTimeSlot.getStartingTime( ), ChronoUnit.MINUTES );
-                }
-                Collections.reverse( listTimeSlotToShift );
-            }
-            else
-            {
-                timeToAdd = previousEndingTime.until( timeSlot.getEndingTime( ), ChronoUnit.MINUTES );
-            }
-
-        }
-        else
-        {
-            timeToSubstract = timeSlot.getEndingTime( ).until( previousEndingTime, ChronoUnit.MINUTES );
-        }
-        updateTimeSlot( timeSlot );
-        // Need to set the new starting and ending time of all the time
-        // slots
-        // to shift and update them
-        for ( TimeSlot timeSlotToShift : listTimeSlotToShift )
-        {
-            // If the new ending time is after the previous time
-            if ( bNewEndingTimeIsAfterThePreviousTime )
-            {
-                // If the starting time + the time to add is before the
-                // ending time of the day
-                if ( timeSlotToShift.getStartingTime( ).plus( timeToAdd, ChronoUnit.MINUTES ).isBefore( endingTimeOfTheDay ) )
-                {
-                    timeSlotToShift.setStartingTime( timeSlotToShift.getStartingTime( ).plus( timeToAdd, ChronoUnit.MINUTES ) );
-                    // if the ending time is after the ending time of
-                    // the day, we set the new ending time to the ending
-                    // time of the day
-                    if ( timeSlotToShift.getEndingTime( ).plus( timeToAdd, ChronoUnit.MINUTES ).isAfter( endingTimeOfTheDay ) )
-                    {
-                        timeSlotToShift.setEndingTime( endingTimeOfTheDay );
-                    }
-                    else
-                    {
-                        timeSlotToShift.setEndingTime( timeSlotToShift.getEndingTime( ).plus( timeToAdd, ChronoUnit.MINUTES ) );
-                    }
-                    updateTimeSlot( timeSlotToShift );
-                }
-                else
-                {
-                    // Delete this slot (the slot can not be after the
-                    // ending time of the day)
-                    deleteTimeSlot( timeSlotToShift );
-                }
-            }
-            else
-            {
-                // The new ending time is before the previous ending
-                // time
-                timeSlotToShift.setStartingTime( timeSlotToShift.getStartingTime( ).minus( timeToSubstract, ChronoUnit.MINUTES ) );
-                timeSlotToShift.setEndingTime( timeSlotToShift.getEndingTime( ).minus( timeToSubstract, ChronoUnit.MINUTES ) );
-                updateTimeSlot( timeSlotToShift );
-            }
-        }
-
-        if ( !bNewEndingTimeIsAfterThePreviousTime )
-        {
-            // If the slots have been shift earlier,
-            // there is no slot(s) between the last slot created
-            // and the ending time of the day, need to create it(them)
-            List<TimeSlot> listTimeSlotToAdd = generateListTimeSlot( timeSlot.getIdWorkingDay( ), endingTimeOfTheDay.minusMinutes( timeToSubstract ),
-                    endingTimeOfTheDay, nDuration, reservationRule.getMaxCapacityPerSlot( ), Boolean.TRUE );
-            createListTimeSlot( listTimeSlotToAdd );
-        }
-
+        PlanningRewriteService.applyTimeSlotRewrite( PlanningRewriteService.buildTimeSlotShift( timeSlot, workingDay, reservationRule, nDuration,
+                previousEndingTime ) );
     }
 
     /**
@@ -424,7 +307,9 @@ public final class TimeSlotService
      */
     public static TimeSlot updateTimeSlot( TimeSlot timeSlot )
     {
-        return TimeSlotHome.update( timeSlot );
+        TimeSlotHome.update( timeSlot );
+        PlanningCacheService.invalidateWorkingDay( timeSlot.getIdWorkingDay( ) );
+        return timeSlot;
     }
 
     /**
@@ -437,10 +322,8 @@ public final class TimeSlotService
     {
         if ( CollectionUtils.isNotEmpty( listTimeSlotToCreate ) )
         {
-            for ( TimeSlot timeSlotTemp : listTimeSlotToCreate )
-            {
-                TimeSlotHome.create( timeSlotTemp );
-            }
+            TimeSlotHome.createBatch( listTimeSlotToCreate );
+            invalidatePlanning( listTimeSlotToCreate );
         }
     }
 
@@ -465,10 +348,8 @@ public final class TimeSlotService
      */
     public static void deleteListTimeSlot( List<TimeSlot> listTimeSlot )
     {
-        for ( TimeSlot timeSlot : listTimeSlot )
-        {
-            deleteTimeSlot( timeSlot );
-        }
+        TimeSlotHome.deleteBatch( listTimeSlot.stream( ).map( TimeSlot::getIdTimeSlot ).collect( Collectors.toList( ) ) );
+        invalidatePlanning( listTimeSlot );
     }
 
     /**
@@ -480,6 +361,18 @@ public final class TimeSlotService
     public static void deleteTimeSlot( TimeSlot timeSlot )
     {
         TimeSlotHome.delete( timeSlot.getIdTimeSlot( ) );
+        PlanningCacheService.invalidateWorkingDay( timeSlot.getIdWorkingDay( ) );
+    }
+
+    /**
+     * Invalidate the planning of the forms of a list of time slots
+     * 
+     * @param listTimeSlot
+     *            the list of time slots
+     */
+    private static void invalidatePlanning( List<TimeSlot> listTimeSlot )
+    {
+        listTimeSlot.stream( ).map( TimeSlot::getIdWorkingDay ).distinct( ).forEach( PlanningCacheService::invalidateWorkingDay );
     }
 
     /**
@@ -35,7 +35,6 @@ package fr.paris.lutece.plugins.appointment.service;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -46,6 +45,7 @@ import org.apache.commons.collections.CollectionUtils;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinitionHome;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
 import fr.paris.lutece.plugins.appointment.service.listeners.WeekDefinitionManagerListener;
 import fr.paris.lutece.util.ReferenceList;
 
@@ -79,6 +79,7 @@ public final class WeekDefinitionService
         WeekDefinition weekDefinition = new WeekDefinition( );
         fillInWeekDefinition( weekDefinition, nIdForm, dateOfApply );
         WeekDefinitionHome.create( weekDefinition );
+        PlanningCacheService.invalidate( nIdForm );
         WeekDefinitionManagerListener.notifyListenersWeekDefinitionCreation( weekDefinition.getIdWeekDefinition( ) );
         return weekDefinition;
     }
@@ -92,6 +93,7 @@ public final class WeekDefinitionService
     public static void removeWeekDefinition( int nIdWeekDefinition, int nIdForm )
     {
         WeekDefinitionHome.delete( nIdWeekDefinition );
+        PlanningCacheService.invalidate( nIdForm );
         WeekDefinitionManagerListener.notifyListenersWeekDefinitionRemoval( nIdForm );
     }
 
@@ -104,7 +106,9 @@ public final class WeekDefinitionService
      */
     public static WeekDefinition saveWeekDefinition( WeekDefinition weekDefinition )
     {
-        return WeekDefinitionHome.create( weekDefinition );
+        WeekDefinitionHome.create( weekDefinition );
+        PlanningCacheService.invalidate( weekDefinition.getIdForm( ) );
+        return weekDefinition;
     }
 
     /**
@@ -127,6 +131,7 @@ public final class WeekDefinitionService
         {
             fillInWeekDefinition( weekDefinition, nIdForm, dateOfApply );
             WeekDefinitionHome.update( weekDefinition );
+            PlanningCacheService.invalidate( nIdForm );
             WeekDefinitionManagerListener.notifyListenersWeekDefinitionChange( weekDefinition.getIdWeekDefinition( ) );
         }
         return weekDefinition;
@@ -200,33 +205,7 @@ public final class WeekDefinitionService
     {
         // Get all the week definitions
         List<WeekDefinition> listWeekDefinition = WeekDefinitionHome.findByIdForm( nIdForm );
-        List<LocalDate> listDate = new ArrayList<>( );
-        for ( WeekDefinition weekDefinition : listWeekDefinition )
-        {
-            listDate.add( weekDefinition.getDateOfApply( ) );
-        }
-        // Try to get the closest date in past of the date of apply
-        LocalDate closestDate = Utilities.getClosestDateInPast( listDate, dateOfApply );
-        WeekDefinition weekDefinition = null;
-        // If there is no closest date in past
-        if ( closestDate == null )
-        {
-            // if the list of week definitions is not null
-            if ( CollectionUtils.isNotEmpty( listWeekDefinition ) )
-            {
-                // Get the next week definition in the future
-                weekDefinition = listWeekDefinition.stream( ).min( ( w1, w2 ) -> w1.getDateOfApply( ).compareTo( w2.getDateOfApply( ) ) ).get( );
-            }
-        }
-        else
-        {
-            // There is a closest date in past
-            if ( CollectionUtils.isNotEmpty( listWeekDefinition ) )
-            {
-                // Get the corresponding week definition
-                weekDefinition = listWeekDefinition.stream( ).filter( x -> closestDate.isEqual( x.getDateOfApply( ) ) ).findAny( ).orElse( null );
-            }
-        }
+        WeekDefinition weekDefinition = new RuleTimeline<>( listWeekDefinition, WeekDefinition::getDateOfApply ).getClosest( dateOfApply );
         if ( weekDefinition != null )
         {
             weekDefinition.setListWorkingDay( WorkingDayService.findListWorkingDayByWeekDefinition( weekDefinition.getIdWeekDefinition( ) ) );
@@ -234,6 +213,19 @@ public final class WeekDefinitionService
         return weekDefinition;
     }
 
+    /**
+     * Get the timeline of the week definitions of a form, with their working days and their time slots. The timeline comes from the planning cache, its
+     * week definitions must not be modified
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @return the timeline of the week definitions
+     */
+    public static RuleTimeline<WeekDefinition> findWeekDefinitionTimeline( int nIdForm )
+    {
+        return PlanningCacheService.getPlanning( nIdForm ).getWeekDefinitionTimeline( );
+    }
+
     /**
      * Find the weekdefinition of a form on a specific date
      * 
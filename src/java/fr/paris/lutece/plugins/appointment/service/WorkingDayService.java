@@ -41,10 +41,12 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDayHome;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 
 /**
@@ -78,6 +80,7 @@ public final class WorkingDayService
         workingDay.setIdWeekDefinition( nIdWeekDefinition );
         workingDay.setDayOfWeek( dayOfWeek.getValue( ) );
         WorkingDayHome.create( workingDay );
+        PlanningCacheService.invalidateWeekDefinition( nIdWeekDefinition );
         return workingDay;
     }
 
@@ -90,7 +93,9 @@ public final class WorkingDayService
      */
     public static WorkingDay saveWorkingDay( WorkingDay workingDay )
     {
-        return WorkingDayHome.create( workingDay );
+        WorkingDayHome.create( workingDay );
+        PlanningCacheService.invalidateWeekDefinition( workingDay.getIdWeekDefinition( ) );
+        return workingDay;
     }
 
     /**
@@ -183,10 +188,13 @@ public final class WorkingDayService
      */
     public static void deleteListWorkingDay( List<WorkingDay> listWorkingDay )
     {
+        Set<Integer> setIdWeekDefinition = new HashSet<>( );
         for ( WorkingDay workingDay : listWorkingDay )
         {
             WorkingDayHome.delete( workingDay.getIdWorkingDay( ) );
+            setIdWeekDefinition.add( workingDay.getIdWeekDefinition( ) );
         }
+        setIdWeekDefinition.forEach( PlanningCacheService::invalidateWeekDefinition );
     }
 
     /**
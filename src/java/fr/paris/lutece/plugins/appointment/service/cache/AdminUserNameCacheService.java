@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.portal.business.user.AdminUser;
+import fr.paris.lutece.portal.business.user.AdminUserHome;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Read-through cache of the display names of the admin users who took the appointments. A list of appointments is usually taken by a few agents: their
+ * names are loaded once instead of once per appointment. Each name expires after a delay, so that a renamed agent is displayed with the new name on
+ * all the nodes without any notification of the change
+ */
+public final class AdminUserNameCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "appointment.adminUserNameCacheService";
+    private static final String KEY_PREFIX = "adminUserName-";
+    private static final String PROPERTY_TIME_TO_LIVE = "appointment.cache.adminUserName.timeToLive";
+    private static final int DEFAULT_TIME_TO_LIVE = 600;
+    private static final long TIME_TO_LIVE_MILLIS = AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) * 1000L;
+
+    /**
+     * Value cached for an admin user that does not exist anymore, so that it is not searched again for each appointment
+     */
+    private static final String UNKNOWN_ADMIN_USER = StringUtils.EMPTY;
+
+    private static final AdminUserNameCacheService _instance = new AdminUserNameCacheService( );
+
+    private static final AtomicLong _lNbHits = new AtomicLong( );
+    private static final AtomicLong _lNbMisses = new AtomicLong( );
+
+    /**
+     * Private constructor
+     */
+    private AdminUserNameCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Get the instance of the cache
+     * 
+     * @return the instance of the cache
+     */
+    public static AdminUserNameCacheService getInstance( )
+    {
+        return _instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Get the display name (first name and last name) of an admin user
+     * 
+     * @param nIdAdminUser
+     *            the id of the admin user
+     * @return the display name of the admin user, or null if the admin user does not exist
+     */
+    public static String getDisplayName( int nIdAdminUser )
+    {
+        return getDisplayName( nIdAdminUser, System.currentTimeMillis( ) );
+    }
+
+    /**
+     * Get the display name (first name and last name) of an admin user at a given time
+     * 
+     * @param nIdAdminUser
+     *            the id of the admin user
+     * @param lNow
+     *            the current time, in milliseconds
+     * @return the display name of the admin user, or null if the admin user does not exist
+     */
+    static String getDisplayName( int nIdAdminUser, long lNow )
+    {
+        String strKey = getKey( nIdAdminUser );
+        DisplayName displayName = (DisplayName) _instance.getFromCache( strKey );
+        if ( displayName != null && displayName._lExpirationTime > lNow )
+        {
+            _lNbHits.incrementAndGet( );
+        }
+        else
+        {
+            _lNbMisses.incrementAndGet( );
+            AdminUser adminUser = AdminUserHome.findByPrimaryKey( nIdAdminUser );
+            String strDisplayName = UNKNOWN_ADMIN_USER;
+            if ( adminUser != null )
+            {
+                strDisplayName = adminUser.getFirstName( ) + StringUtils.SPACE + adminUser.getLastName( );
+            }
+            displayName = new DisplayName( strDisplayName, lNow + TIME_TO_LIVE_MILLIS );
+            _instance.putInCache( strKey, displayName );
+        }
+        return UNKNOWN_ADMIN_USER.equals( displayName._strDisplayName ) ? null : displayName._strDisplayName;
+    }
+
+    /**
+     * Remove the display name of an admin user from the cache
+     * 
+     * @param nIdAdminUser
+     *            the id of the admin user
+     */
+    public static void invalidate( int nIdAdminUser )
+    {
+        _instance.removeKey( getKey( nIdAdminUser ) );
+    }
+
+    /**
+     * Get the statistics of the cache
+     * 
+     * @return the statistics of the cache
+     */
+    public static String getMetrics( )
+    {
+        return new StringBuilder( "Admin user names cache - hits : " ).append( _lNbHits.get( ) ).append( ", misses : " ).append( _lNbMisses.get( ) )
+                .toString( );
+    }
+
+    /**
+     * Get the number of names found in the cache
+     * 
+     * @return the number of hits
+     */
+    static long getNbHits( )
+    {
+        return _lNbHits.get( );
+    }
+
+    /**
+     * Get the number of names loaded from the database
+     * 
+     * @return the number of misses
+     */
+    static long getNbMisses( )
+    {
+        return _lNbMisses.get( );
+    }
+
+    /**
+     * Get the key of the display name of an admin user
+     * 
+     * @param nIdAdminUser
+     *            the id of the admin user
+     * @return the key
+     */
+    private static String getKey( int nIdAdminUser )
+    {
+        return KEY_PREFIX + nIdAdminUser;
+    }
+
+    /**
+     * Display name of an admin user in the cache, with its expiration time
+     */
+    private static final class DisplayName
+    {
+        private final String _strDisplayName;
+        private final long _lExpirationTime;
+
+        /**
+         * Constructor
+         * 
+         * @param strDisplayName
+         *            the display name, empty if the admin user does not exist
+         * @param lExpirationTime
+         *            the time after which the name is loaded again, in milliseconds
+         */
+        DisplayName( String strDisplayName, long lExpirationTime )
+        {
+            _strDisplayName = strDisplayName;
+            _lExpirationTime = lExpirationTime;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import fr.paris.lutece.plugins.appointment.business.form.FormVersion;
+import fr.paris.lutece.plugins.appointment.business.form.FormVersionHome;
+
+/**
+ * Change counters of the availability of the forms. The counter of a form is incremented each time a slot, the planning or the closing days of the form are
+ * modified, so that the clients of the availability of a form can tell whether it has changed since they read it. The counters are stored in database,
+ * apart from the rows of the forms : a change made on a node of a cluster is seen by all the nodes
+ */
+public final class AvailabilityVersionService
+{
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AvailabilityVersionService( )
+    {
+    }
+
+    /**
+     * Increment the change counter of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void increment( int nIdForm )
+    {
+        FormVersionHome.incrementAvailabilityVersion( nIdForm );
+    }
+
+    /**
+     * Increment the change counter of all the forms
+     */
+    public static void incrementAll( )
+    {
+        FormVersionHome.incrementAvailabilityVersionOfAllForms( );
+    }
+
+    /**
+     * Get the version of the availability of a form. Two identical versions mean that the availability of the form has not changed in between
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the version of the availability of the form, with the time of its last modification
+     */
+    public static FormVersion getVersion( int nIdForm )
+    {
+        FormVersion formVersion = FormVersionHome.findByPrimaryKey( nIdForm );
+        if ( formVersion == null )
+        {
+            formVersion = new FormVersion( );
+            formVersion.setIdForm( nIdForm );
+        }
+        return formVersion;
+    }
+}
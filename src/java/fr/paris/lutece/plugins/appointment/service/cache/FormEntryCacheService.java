@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.appointment.business.form.FormVersion;
+import fr.paris.lutece.plugins.appointment.business.form.FormVersionHome;
+import fr.paris.lutece.plugins.appointment.service.EntryService;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
+import fr.paris.lutece.plugins.genericattributes.business.Field;
+import fr.paris.lutece.plugins.genericattributes.business.FieldHome;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.AbstractEntryTypeUpload;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Cache of the resolved entries of the forms, to display the form step without loading each entry, field and conditional question again. The tree of a
+ * form is invalidated when one of its entries or fields is modified: the entry version stored with the form is incremented, and a tree is only served
+ * while its version is the stored one, so that a modification made on another node of a cluster is seen by this node
+ */
+public final class FormEntryCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "appointment.formEntryCacheService";
+    private static final String KEY_PREFIX = "formEntries-";
+
+    private static final FormEntryCacheService _instance = new FormEntryCacheService( );
+
+    private static final AtomicLong _lNbInvalidations = new AtomicLong( );
+    private static final AtomicLong _lNbHits = new AtomicLong( );
+    private static final AtomicLong _lNbMisses = new AtomicLong( );
+
+    /**
+     * Private constructor
+     */
+    private FormEntryCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Get the instance of the cache
+     * 
+     * @return the instance of the cache
+     */
+    public static FormEntryCacheService getInstance( )
+    {
+        return _instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Get the resolved entries of a form. The tree in cache is only returned if its version is the entry version stored with the form; otherwise the
+     * entries are resolved again, tagged with the version read before resolving them, so that a modification made meanwhile makes the tree stale. The
+     * entries of a form that does not exist any more are not cached
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the tree of the entries of the form
+     */
+    public static FormEntryTree getFormEntryTree( int nIdForm )
+    {
+        String strKey = getKey( nIdForm );
+        FormVersion formVersion = FormVersionHome.findByPrimaryKey( nIdForm );
+        long lVersion = ( formVersion != null ) ? formVersion.getEntryVersion( ) : -1;
+        FormEntryTree formEntryTree = (FormEntryTree) _instance.getFromCache( strKey );
+        if ( formVersion != null && formEntryTree != null && formEntryTree.getVersion( ) == lVersion )
+        {
+            _lNbHits.incrementAndGet( );
+            return formEntryTree;
+        }
+        _lNbMisses.incrementAndGet( );
+        formEntryTree = buildFormEntryTree( nIdForm, lVersion );
+        if ( formVersion != null )
+        {
+            _instance.putInCache( strKey, formEntryTree );
+        }
+        return formEntryTree;
+    }
+
+    /**
+     * Remove the tree of the entries of a form from the cache
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void invalidate( int nIdForm )
+    {
+        _lNbInvalidations.incrementAndGet( );
+        FormVersionHome.incrementEntryVersion( nIdForm );
+        _instance.removeKey( getKey( nIdForm ) );
+    }
+
+    /**
+     * Remove the tree of the form of an entry from the cache
+     * 
+     * @param nIdEntry
+     *            the id of the entry
+     */
+    public static void invalidateEntry( int nIdEntry )
+    {
+        Entry entry = EntryHome.findByPrimaryKey( nIdEntry );
+        if ( entry != null )
+        {
+            invalidate( entry.getIdResource( ) );
+        }
+        else
+        {
+            invalidateAll( );
+        }
+    }
+
+    /**
+     * Remove all the trees from the cache
+     */
+    public static void invalidateAll( )
+    {
+        _lNbInvalidations.incrementAndGet( );
+        FormVersionHome.incrementEntryVersionOfAllForms( );
+        _instance.resetCache( );
+    }
+
+    /**
+     * Get the statistics of the cache
+     * 
+     * @return the statistics of the cache
+     */
+    public static String getMetrics( )
+    {
+        return new StringBuilder( "Form entries cache - hits : " ).append( _lNbHits.get( ) ).append( ", misses : " ).append( _lNbMisses.get( ) )
+                .append( ", invalidations : " ).append( _lNbInvalidations.get( ) ).toString( );
+    }
+
+    /**
+     * Build the tree of the entries of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param lVersion
+     *            the entry version of the form
+     * @return the tree of the entries
+     */
+    private static FormEntryTree buildFormEntryTree( int nIdForm, long lVersion )
+    {
+        Map<Integer, Entry> mapResolvedEntries = new HashMap<>( );
+        List<Entry> listEntry = resolveEntries( EntryService.getFilter( nIdForm, true ), mapResolvedEntries );
+        boolean bStaticHtmlAllowed = true;
+        for ( Entry entry : mapResolvedEntries.values( ) )
+        {
+            // The upload entries display the files of the session
+            if ( EntryTypeServiceManager.getEntryTypeService( entry ) instanceof AbstractEntryTypeUpload )
+            {
+                bStaticHtmlAllowed = false;
+            }
+        }
+        return new FormEntryTree( nIdForm, lVersion, listEntry, mapResolvedEntries, bStaticHtmlAllowed );
+    }
+
+    /**
+     * Resolve a list of light entries
+     * 
+     * @param listEntryLight
+     *            the light entries
+     * @param mapResolvedEntries
+     *            the entries already resolved, by id. The entries resolved are added to it
+     * @return the resolved entries, in the same order
+     */
+    private static List<Entry> resolveEntries( List<Entry> listEntryLight, Map<Integer, Entry> mapResolvedEntries )
+    {
+        List<Entry> listEntry = new ArrayList<>( listEntryLight.size( ) );
+        for ( Entry entryLight : listEntryLight )
+        {
+            listEntry.add( resolveEntry( entryLight.getIdEntry( ), mapResolvedEntries ) );
+        }
+        return listEntry;
+    }
+
+    /**
+     * Load an entry with the children of a group and the conditional questions of its fields, recursively
+     * 
+     * @param nIdEntry
+     *            the id of the entry
+     * @param mapResolvedEntries
+     *            the entries already resolved, by id. The entries resolved are added to it
+     * @return the resolved entry
+     */
+    private static Entry resolveEntry( int nIdEntry, Map<Integer, Entry> mapResolvedEntries )
+    {
+        Entry entry = mapResolvedEntries.get( nIdEntry );
+        if ( entry != null )
+        {
+            return entry;
+        }
+        entry = EntryHome.findByPrimaryKey( nIdEntry );
+        mapResolvedEntries.put( nIdEntry, entry );
+        if ( entry.getEntryType( ).getGroup( ) )
+        {
+            if ( entry.getChildren( ) != null )
+            {
+                entry.setChildren( resolveEntries( entry.getChildren( ), mapResolvedEntries ) );
+            }
+        }
+        else
+            if ( entry.getNumberConditionalQuestion( ) != 0 )
+            {
+                for ( Field field : entry.getFields( ) )
+                {
+                    List<Entry> listConditionalQuestions = FieldHome.findByPrimaryKey( field.getIdField( ) ).getConditionalQuestions( );
+                    if ( listConditionalQuestions != null )
+                    {
+                        listConditionalQuestions = resolveEntries( listConditionalQuestions, mapResolvedEntries );
+                    }
+                    field.setConditionalQuestions( listConditionalQuestions );
+                }
+            }
+        return entry;
+    }
+
+    /**
+     * Get the key of the tree of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the key
+     */
+    private static String getKey( int nIdForm )
+    {
+        return KEY_PREFIX + nIdForm;
+    }
+}
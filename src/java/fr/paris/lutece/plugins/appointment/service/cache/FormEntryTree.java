@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+
+/**
+ * Entries of a form resolved once for all: the first level entries with their fields, the children of the groups and the conditional questions of the
+ * fields, recursively. The HTML of the form without any response is kept too, per locale. A tree is shared by all the threads that display the form,
+ * <b>its objects must not be modified</b>
+ */
+public final class FormEntryTree
+{
+    private final int _nIdForm;
+    private final long _lVersion;
+    private final List<Entry> _listEntry;
+    private final Map<Integer, Entry> _mapEntries;
+    private final boolean _bStaticHtmlAllowed;
+    private final Map<String, String> _mapStaticHtml = new ConcurrentHashMap<>( );
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param lVersion
+     *            the entry version of the form read before the entries were loaded
+     * @param listEntry
+     *            the resolved first level entries
+     * @param mapEntries
+     *            all the resolved entries of the form, by id
+     * @param bStaticHtmlAllowed
+     *            false if the HTML of the entries depends on the session even without response (upload entries), true otherwise
+     */
+    public FormEntryTree( int nIdForm, long lVersion, List<Entry> listEntry, Map<Integer, Entry> mapEntries, boolean bStaticHtmlAllowed )
+    {
+        _nIdForm = nIdForm;
+        _lVersion = lVersion;
+        _listEntry = listEntry;
+        _mapEntries = mapEntries;
+        _bStaticHtmlAllowed = bStaticHtmlAllowed;
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Get the entry version of the form of the tree
+     * 
+     * @return the entry version
+     */
+    public long getVersion( )
+    {
+        return _lVersion;
+    }
+
+    /**
+     * Get the resolved first level entries of the form
+     * 
+     * @return the entries
+     */
+    public List<Entry> getListEntry( )
+    {
+        return _listEntry;
+    }
+
+    /**
+     * Get a resolved entry of the form
+     * 
+     * @param nIdEntry
+     *            the id of the entry
+     * @return the entry, or null if it is not displayed in the form
+     */
+    public Entry getEntry( int nIdEntry )
+    {
+        return _mapEntries.get( nIdEntry );
+    }
+
+    /**
+     * Get the HTML of the entries of the form without any response
+     * 
+     * @param locale
+     *            the locale
+     * @param bDisplayFront
+     *            true for the front office, false for the back office
+     * @return the HTML, or null if it has not been rendered yet or if it can not be kept
+     */
+    public String getStaticHtml( Locale locale, boolean bDisplayFront )
+    {
+        return _mapStaticHtml.get( getHtmlKey( locale, bDisplayFront ) );
+    }
+
+    /**
+     * Keep the HTML of the entries of the form without any response
+     * 
+     * @param locale
+     *            the locale
+     * @param bDisplayFront
+     *            true for the front office, false for the back office
+     * @param strHtml
+     *            the HTML
+     */
+    public void putStaticHtml( Locale locale, boolean bDisplayFront, String strHtml )
+    {
+        if ( _bStaticHtmlAllowed )
+        {
+            _mapStaticHtml.put( getHtmlKey( locale, bDisplayFront ), strHtml );
+        }
+    }
+
+    /**
+     * Get the key of an HTML rendering
+     * 
+     * @param locale
+     *            the locale
+     * @param bDisplayFront
+     *            true for the front office, false for the back office
+     * @return the key
+     */
+    private static String getHtmlKey( Locale locale, boolean bDisplayFront )
+    {
+        return locale + ( bDisplayFront ? "-front" : "-back" );
+    }
+}
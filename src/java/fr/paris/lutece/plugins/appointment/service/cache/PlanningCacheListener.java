@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import fr.paris.lutece.plugins.appointment.service.listeners.IFormListener;
+import fr.paris.lutece.plugins.appointment.service.listeners.IWeekDefinitionListener;
+
+/**
+ * Listener that invalidates the planning cache of a form when the form or one of its week definitions is notified. The services of the plugin already
+ * invalidate the cache when they modify the planning, this listener covers the modifications notified by the other components
+ */
+public class PlanningCacheListener implements IFormListener, IWeekDefinitionListener
+{
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyFormChange( int nIdForm )
+    {
+        PlanningCacheService.invalidate( nIdForm );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyFormCreation( int nIdForm )
+    {
+        PlanningCacheService.invalidate( nIdForm );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyFormRemoval( int nIdForm )
+    {
+        PlanningCacheService.invalidate( nIdForm );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyWeekDefinitionChange( int nIdWeekDefinition )
+    {
+        PlanningCacheService.invalidateWeekDefinition( nIdWeekDefinition );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyWeekDefinitionCreation( int nIdWeekDefinition )
+    {
+        PlanningCacheService.invalidateWeekDefinition( nIdWeekDefinition );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyWeekDefinitionRemoval( int nIdForm )
+    {
+        PlanningCacheService.invalidate( nIdForm );
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.appointment.business.form.FormVersion;
+import fr.paris.lutece.plugins.appointment.business.form.FormVersionHome;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinitionHome;
+import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
+import fr.paris.lutece.plugins.appointment.business.planning.WorkingDayHome;
+import fr.paris.lutece.plugins.appointment.service.DayAvailabilityService;
+import fr.paris.lutece.plugins.appointment.service.ReservationRuleService;
+import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+/**
+ * Read-through cache of the planning of the forms (week definitions, working days, time slots and reservation rules). The planning of a form is loaded
+ * once and shared until it is modified: the services that modify the planning invalidate the snapshot of the form synchronously, and the
+ * {@link PlanningCacheListener} invalidates it on the notifications of the forms and of the week definitions. An invalidation increments the planning
+ * version stored with the form, and a snapshot is only served while its version is the stored one, so that a modification made on another node of a
+ * cluster is seen by this node
+ */
+public final class PlanningCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "appointment.planningCacheService";
+    private static final String KEY_PREFIX = "planning-";
+
+    private static final PlanningCacheService _instance = new PlanningCacheService( );
+
+    private static final AtomicLong _lNbInvalidations = new AtomicLong( );
+    private static final AtomicLong _lNbHits = new AtomicLong( );
+    private static final AtomicLong _lNbMisses = new AtomicLong( );
+
+    /**
+     * Private constructor
+     */
+    private PlanningCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * Get the instance of the cache
+     * 
+     * @return the instance of the cache
+     */
+    public static PlanningCacheService getInstance( )
+    {
+        return _instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Get the planning of a form. The snapshot returned is shared, its objects must not be modified. The snapshot in cache is only returned if its
+     * version is the planning version stored with the form; otherwise the planning is reloaded, tagged with the version read before loading it, so that
+     * a modification made while it was loaded makes it stale. The planning of a form that does not exist any more is not cached
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the planning of the form
+     */
+    public static PlanningSnapshot getPlanning( int nIdForm )
+    {
+        String strKey = getKey( nIdForm );
+        FormVersion formVersion = FormVersionHome.findByPrimaryKey( nIdForm );
+        long lVersion = ( formVersion != null ) ? formVersion.getPlanningVersion( ) : -1;
+        PlanningSnapshot planning = (PlanningSnapshot) _instance.getFromCache( strKey );
+        if ( formVersion != null && planning != null && planning.getVersion( ) == lVersion )
+        {
+            _lNbHits.incrementAndGet( );
+            return planning;
+        }
+        _lNbMisses.incrementAndGet( );
+        planning = new PlanningSnapshot( nIdForm, lVersion, WeekDefinitionService.findListWeekDefinition( nIdForm ),
+                ReservationRuleService.findListReservationRule( nIdForm ) );
+        if ( formVersion != null )
+        {
+            _instance.putInCache( strKey, planning );
+        }
+        return planning;
+    }
+
+    /**
+     * Invalidate the planning of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void invalidate( int nIdForm )
+    {
+        _lNbInvalidations.incrementAndGet( );
+        FormVersionHome.incrementPlanningVersion( nIdForm );
+        _instance.removeKey( getKey( nIdForm ) );
+        AvailabilityVersionService.increment( nIdForm );
+        DayAvailabilityService.invalidate( nIdForm );
+    }
+
+    /**
+     * Invalidate the planning of the form of a week definition
+     * 
+     * @param nIdWeekDefinition
+     *            the id of the week definition
+     */
+    public static void invalidateWeekDefinition( int nIdWeekDefinition )
+    {
+        WeekDefinition weekDefinition = WeekDefinitionHome.findByPrimaryKey( nIdWeekDefinition );
+        if ( weekDefinition != null )
+        {
+            invalidate( weekDefinition.getIdForm( ) );
+        }
+        else
+        {
+            invalidateAll( );
+        }
+    }
+
+    /**
+     * Invalidate the planning of the form of a working day
+     * 
+     * @param nIdWorkingDay
+     *            the id of the working day
+     */
+    public static void invalidateWorkingDay( int nIdWorkingDay )
+    {
+        WorkingDay workingDay = WorkingDayHome.findByPrimaryKey( nIdWorkingDay );
+        if ( workingDay != null )
+        {
+            invalidateWeekDefinition( workingDay.getIdWeekDefinition( ) );
+        }
+        else
+        {
+            invalidateAll( );
+        }
+    }
+
+    /**
+     * Invalidate the planning of all the forms
+     */
+    public static void invalidateAll( )
+    {
+        _lNbInvalidations.incrementAndGet( );
+        FormVersionHome.incrementPlanningVersionOfAllForms( );
+        _instance.resetCache( );
+        AvailabilityVersionService.incrementAll( );
+        DayAvailabilityService.invalidateAll( );
+    }
+
+    /**
+     * Get the statistics of the cache
+     * 
+     * @return the statistics of the cache
+     */
+    public static String getMetrics( )
+    {
+        return new StringBuilder( "Planning cache - hits : " ).append( _lNbHits.get( ) ).append( ", misses : " ).append( _lNbMisses.get( ) )
+                .append( ", invalidations : " ).append( _lNbInvalidations.get( ) ).toString( );
+    }
+
+    /**
+     * Get the key of the planning of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the key
+     */
+    private static String getKey( int nIdForm )
+    {
+        return KEY_PREFIX + nIdForm;
+    }
+}
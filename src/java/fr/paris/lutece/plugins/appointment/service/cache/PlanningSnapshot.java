@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.service.RuleTimeline;
+
+/**
+ * Planning of a form at a given time: the week definitions (with their working days and their time slots) and the reservation rules. A snapshot is shared
+ * by all the threads that read the planning of the form, <b>its objects must not be modified</b>
+ */
+public final class PlanningSnapshot
+{
+    private final int _nIdForm;
+    private final long _lVersion;
+    private final RuleTimeline<WeekDefinition> _weekDefinitionTimeline;
+    private final RuleTimeline<ReservationRule> _reservationRuleTimeline;
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param listWeekDefinition
+     *            the week definitions of the form, with their working days and their time slots
+     * @param listReservationRule
+     *            the reservation rules of the form
+     */
+    public PlanningSnapshot( int nIdForm, List<WeekDefinition> listWeekDefinition, List<ReservationRule> listReservationRule )
+    {
+        this( nIdForm, 0, listWeekDefinition, listReservationRule );
+    }
+
+    /**
+     * Constructor
+     * @param nIdForm
+     *            the id of the form
+     * @param lVersion
+     *            the planning version of the form read before the planning was loaded
+     * @param listWeekDefinition
+     *            the week definitions of the form, with their working days and their time slots
+     * @param listReservationRule
+     *            the reservation rules of the form
+     */
+    public PlanningSnapshot( int nIdForm, long lVersion, List<WeekDefinition> listWeekDefinition, List<ReservationRule> listReservationRule )
+    {
+        _nIdForm = nIdForm;
+        _lVersion = lVersion;
+        _weekDefinitionTimeline = new RuleTimeline<>( listWeekDefinition, WeekDefinition::getDateOfApply );
+        _reservationRuleTimeline = new RuleTimeline<>( listReservationRule, ReservationRule::getDateOfApply );
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Get the planning version of the form of the snapshot
+     * @return the planning version
+     */
+    public long getVersion( )
+    {
+        return _lVersion;
+    }
+
+    /**
+     * Get the timeline of the week definitions of the form
+     * 
+     * @return the timeline of the week definitions
+     */
+    public RuleTimeline<WeekDefinition> getWeekDefinitionTimeline( )
+    {
+        return _weekDefinitionTimeline;
+    }
+
+    /**
+     * Get the timeline of the reservation rules of the form
+     * 
+     * @return the timeline of the reservation rules
+     */
+    public RuleTimeline<ReservationRule> getReservationRuleTimeline( )
+    {
+        return _reservationRuleTimeline;
+    }
+
+    /**
+     * Get the week definitions of the form, by date of apply
+     * 
+     * @return a new map of the week definitions
+     */
+    public HashMap<LocalDate, WeekDefinition> getMapWeekDefinition( )
+    {
+        return new HashMap<>( _weekDefinitionTimeline.getRules( ) );
+    }
+
+    /**
+     * Get the reservation rules of the form, by date of apply
+     * 
+     * @return a new map of the reservation rules
+     */
+    public HashMap<LocalDate, ReservationRule> getMapReservationRule( )
+    {
+        return new HashMap<>( _reservationRuleTimeline.getRules( ) );
+    }
+
+    /**
+     * Get the week definition that applies at a date: the one with the closest date of apply in the past, or the first one if all of them are in the
+     * future
+     * 
+     * @param date
+     *            the date
+     * @return the week definition, null if the form has none
+     */
+    public WeekDefinition getWeekDefinitionClosestToDateOfApply( LocalDate date )
+    {
+        return _weekDefinitionTimeline.getClosest( date );
+    }
+
+    /**
+     * Get the reservation rule that applies at a date: the one with the closest date of apply in the past, or the first one if all of them are in the
+     * future
+     * 
+     * @param date
+     *            the date
+     * @return the reservation rule, null if the form has none
+     */
+    public ReservationRule getReservationRuleClosestToDateOfApply( LocalDate date )
+    {
+        return _reservationRuleTimeline.getClosest( date );
+    }
+}
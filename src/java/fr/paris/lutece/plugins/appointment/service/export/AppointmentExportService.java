@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentResponseService;
+import fr.paris.lutece.plugins.appointment.service.AppointmentService;
+import fr.paris.lutece.plugins.appointment.service.AppointmentWorkflowService;
+import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.EntryFilter;
+import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
+import fr.paris.lutece.plugins.genericattributes.business.Field;
+import fr.paris.lutece.plugins.genericattributes.business.FieldHome;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.plugins.workflowcore.business.state.State;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service to export the appointments matching a filter. The ids of the appointments are loaded first, then the appointments, their responses and their
+ * workflow states are loaded batch by batch and written as they are loaded, so that the memory used does not depend on the number of appointments
+ */
+public final class AppointmentExportService
+{
+    /**
+     * Excel format
+     */
+    public static final String FORMAT_EXCEL = "xlsx";
+
+    /**
+     * CSV format
+     */
+    public static final String FORMAT_CSV = "csv";
+
+    private static final String PROPERTY_BATCH_SIZE = "appointment.export.batchSize";
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final String KEY_RESOURCE_TYPE = "appointment.appointment.name";
+    private static final String KEY_COLUMN_LAST_NAME = "appointment.manageAppointments.columnLastName";
+    private static final String KEY_COLUMN_FISRT_NAME = "appointment.manageAppointments.columnFirstName";
+    private static final String KEY_COLUMN_EMAIL = "appointment.manageAppointments.columnEmail";
+    private static final String KEY_COLUMN_DATE_APPOINTMENT = "appointment.dateAppointment.title";
+    private static final String KEY_TIME_START = "appointment.model.entity.appointmentform.attribute.timeStart";
+    private static final String KEY_TIME_END = "appointment.model.entity.appointmentform.attribute.timeEnd";
+    private static final String KEY_COLUMN_ADMIN = "appointment.manageAppointments.columnAdmin";
+    private static final String KEY_COLUMN_STATUS = "appointment.labelStatus";
+    private static final String KEY_COLUMN_STATE = "appointment.manageAppointments.columnState";
+    private static final String KEY_COLUMN_NB_BOOKED_SEATS = "appointment.manageAppointments.columnNumberOfBookedseatsPerAppointment";
+
+    private static final String CONSTANT_COMMA = ",";
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AppointmentExportService( )
+    {
+    }
+
+    /**
+     * Get a writer of export
+     * 
+     * @param strFormat
+     *            the format of the export ({@link #FORMAT_EXCEL} or {@link #FORMAT_CSV}). The Excel format is used if the format is unknown
+     * @param outputStream
+     *            the stream to write the file to
+     * @param locale
+     *            the locale
+     * @return the writer
+     * @throws IOException
+     *             if the writer can not be opened
+     */
+    public static IAppointmentExportWriter getWriter( String strFormat, OutputStream outputStream, Locale locale ) throws IOException
+    {
+        if ( FORMAT_CSV.equals( strFormat ) )
+        {
+            return new CsvAppointmentExportWriter( outputStream );
+        }
+        return new ExcelAppointmentExportWriter( outputStream, I18nService.getLocalizedString( KEY_RESOURCE_TYPE, locale ) );
+    }
+
+    /**
+     * Get the name of the file of an export, without extension
+     * 
+     * @param locale
+     *            the locale
+     * @return the name of the file
+     */
+    public static String getFileName( Locale locale )
+    {
+        return I18nService.getLocalizedString( KEY_RESOURCE_TYPE, locale );
+    }
+
+    /**
+     * Export the appointments matching a filter. The writer is finished at the end of the export
+     * 
+     * @param filter
+     *            the filter, with the id of the form
+     * @param writer
+     *            the writer
+     * @param locale
+     *            the locale
+     * @return the number of appointments exported
+     * @throws IOException
+     *             if the file can not be written
+     */
+    public static int export( AppointmentFilterDTO filter, IAppointmentExportWriter writer, Locale locale ) throws IOException
+    {
+        return export( filter, writer, locale, null );
+    }
+
+    /**
+     * Export the appointments matching a filter, reporting the progress of the export after each batch of appointments. The writer is finished at the
+     * end of the export
+     * 
+     * @param filter
+     *            the filter, with the id of the form
+     * @param writer
+     *            the writer
+     * @param locale
+     *            the locale
+     * @param progressListener
+     *            the listener notified with the percentage of the appointments written (can be null)
+     * @return the number of appointments exported
+     * @throws IOException
+     *             if the file can not be written
+     */
+    public static int export( AppointmentFilterDTO filter, IAppointmentExportWriter writer, Locale locale, IntConsumer progressListener )
+            throws IOException
+    {
+        int nNbAppointments = 0;
+        AppointmentFormDTO form = FormService.buildAppointmentFormLight( filter.getIdForm( ) );
+        if ( form != null )
+        {
+            EntryFilter entryFilter = new EntryFilter( );
+            entryFilter.setIdResource( filter.getIdForm( ) );
+            List<Entry> listEntry = EntryHome.getEntryList( entryFilter );
+            Map<Integer, String> mapDefaultValueGenAttBackOffice = getDefaultValuesBackOffice( listEntry );
+            writer.writeRow( Collections.singletonList( form.getTitle( ) ) );
+            writer.writeRow( buildHeader( listEntry, locale ) );
+            // The titles of the fields are shared by all the responses of the
+            // form, they are only loaded once
+            Map<Integer, String> mapFieldTitle = new HashMap<>( );
+            String strStatusReserved = I18nService.getLocalizedString( AppointmentDTO.PROPERTY_APPOINTMENT_STATUS_RESERVED, locale );
+            String strStatusUnreserved = I18nService.getLocalizedString( AppointmentDTO.PROPERTY_APPOINTMENT_STATUS_UNRESERVED, locale );
+            int nBatchSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ) );
+            List<Integer> listIdAppointment = AppointmentService.findListIdAppointmentByFilter( filter );
+            for ( int nFromIndex = 0; nFromIndex < listIdAppointment.size( ); nFromIndex += nBatchSize )
+            {
+                int nToIndex = Math.min( nFromIndex + nBatchSize, listIdAppointment.size( ) );
+                List<Integer> listIdAppointmentBatch = new ArrayList<>( listIdAppointment.subList( nFromIndex, nToIndex ) );
+                List<AppointmentDTO> listAppointmentsDTO = AppointmentService.findListAppointmentsDTOByListId( listIdAppointmentBatch );
+                Map<Integer, State> mapStateByIdAppointment = new HashMap<>( );
+                if ( form.getIdWorkflow( ) > 0 )
+                {
+                    mapStateByIdAppointment = AppointmentWorkflowService.fillStates( listAppointmentsDTO, form.getIdWorkflow( ) );
+                }
+                Map<Integer, List<Response>> mapResponses = AppointmentResponseService.findListResponseByListIdAppointment( listIdAppointmentBatch );
+                for ( AppointmentDTO appointmentDTO : listAppointmentsDTO )
+                {
+                    List<String> listValues = new ArrayList<>( );
+                    listValues.add( appointmentDTO.getLastName( ) );
+                    listValues.add( appointmentDTO.getFirstName( ) );
+                    listValues.add( appointmentDTO.getEmail( ) );
+                    listValues.add( appointmentDTO.getDateOfTheAppointment( ) );
+                    listValues.add( appointmentDTO.getStartingTime( ).toString( ) );
+                    listValues.add( appointmentDTO.getEndingTime( ).toString( ) );
+                    listValues.add( appointmentDTO.getAdminUser( ) );
+                    listValues.add( appointmentDTO.getIsCancelled( ) ? strStatusUnreserved : strStatusReserved );
+                    State state = mapStateByIdAppointment.get( appointmentDTO.getIdAppointment( ) );
+                    listValues.add( state != null ? state.getName( ) : StringUtils.EMPTY );
+                    listValues.add( Integer.toString( appointmentDTO.getNbBookedSeats( ) ) );
+                    // The responses start after an empty column, as in the
+                    // previous exports
+                    listValues.add( null );
+                    List<Response> listResponses = mapResponses.getOrDefault( appointmentDTO.getIdAppointment( ), Collections.emptyList( ) );
+                    for ( Entry entry : listEntry )
+                    {
+                        String strValue = getResponseValue( entry.getIdEntry( ), listResponses, mapFieldTitle );
+                        if ( strValue.isEmpty( ) && mapDefaultValueGenAttBackOffice.containsKey( entry.getIdEntry( ) ) )
+                        {
+                            strValue = mapDefaultValueGenAttBackOffice.get( entry.getIdEntry( ) );
+                        }
+                        listValues.add( StringUtils.isEmpty( strValue ) ? null : strValue );
+                    }
+                    writer.writeRow( listValues );
+                    nNbAppointments++;
+                }
+                if ( progressListener != null )
+                {
+                    progressListener.accept( (int) ( (long) nToIndex * 100 / listIdAppointment.size( ) ) );
+                }
+            }
+        }
+        writer.finish( );
+        return nNbAppointments;
+    }
+
+    /**
+     * Build the header of the export
+     * 
+     * @param listEntry
+     *            the entries of the form
+     * @param locale
+     *            the locale
+     * @return the titles of the columns
+     */
+    private static List<String> buildHeader( List<Entry> listEntry, Locale locale )
+    {
+        List<String> listHeader = new ArrayList<>( );
+        listHeader.add( I18nService.getLocalizedString( KEY_COLUMN_LAST_NAME, locale ) );
+        listHeader.add( I18nService.getLocalizedString( KEY_COLUMN_FISRT_NAME, locale ) );
+        listHeader.add( I18nService.getLocalizedString( KEY_COLUMN_EMAIL, locale ) );
+        listHeader.add( I18nService.getLocalizedString( KEY_COLUMN_DATE_APPOINTMENT, locale ) );
+        listHeader.add( I18nService.getLocalizedString( KEY_TIME_START, locale ) );
+        listHeader.add( I18nService.getLocalizedString( KEY_TIME_END, locale ) );
+        listHeader.add( I18nService.getLocalizedString( KEY_COLUMN_ADMIN, locale ) );
+        listHeader.add( I18nService.getLocalizedString( KEY_COLUMN_STATUS, locale ) );
+        listHeader.add( I18nService.getLocalizedString( KEY_COLUMN_STATE, locale ) );
+        listHeader.add( I18nService.getLocalizedString( KEY_COLUMN_NB_BOOKED_SEATS, locale ) );
+        listHeader.add( null );
+        for ( Entry entry : listEntry )
+        {
+            listHeader.add( entry.getTitle( ) );
+        }
+        return listHeader;
+    }
+
+    /**
+     * Get the default values of the entries only displayed in back office
+     * 
+     * @param listEntry
+     *            the entries of the form
+     * @return the map of the default values by id of entry
+     */
+    private static Map<Integer, String> getDefaultValuesBackOffice( List<Entry> listEntry )
+    {
+        Map<Integer, String> mapDefaultValueGenAttBackOffice = new HashMap<>( );
+        for ( Entry e : listEntry )
+        {
+            if ( e.isOnlyDisplayInBack( ) )
+            {
+                e = EntryHome.findByPrimaryKey( e.getIdEntry( ) );
+                if ( e.getFields( ) != null && e.getFields( ).size( ) == 1 && !StringUtils.isEmpty( e.getFields( ).get( 0 ).getValue( ) ) )
+                {
+                    mapDefaultValueGenAttBackOffice.put( e.getIdEntry( ), e.getFields( ).get( 0 ).getValue( ) );
+                }
+                else
+                    if ( e.getFields( ) != null )
+                    {
+                        for ( Field field : e.getFields( ) )
+                        {
+                            if ( field.isDefaultValue( ) )
+                            {
+                                mapDefaultValueGenAttBackOffice.put( e.getIdEntry( ), field.getValue( ) );
+                            }
+                        }
+                    }
+            }
+        }
+        return mapDefaultValueGenAttBackOffice;
+    }
+
+    /**
+     * Get the value of the responses of an appointment to an entry
+     * 
+     * @param nIdEntry
+     *            the id of the entry
+     * @param listResponses
+     *            the responses of the appointment
+     * @param mapFieldTitle
+     *            the titles of the fields already loaded
+     * @return the values of the responses separated by commas, or an empty string
+     */
+    private static String getResponseValue( int nIdEntry, List<Response> listResponses, Map<Integer, String> mapFieldTitle )
+    {
+        StringBuilder sbValue = new StringBuilder( );
+        for ( Response response : listResponses )
+        {
+            if ( response.getEntry( ).getIdEntry( ) == nIdEntry )
+            {
+                String strResponse;
+                if ( response.getField( ) != null )
+                {
+                    strResponse = mapFieldTitle.computeIfAbsent( response.getField( ).getIdField( ), AppointmentExportService::findFieldTitle );
+                }
+                else
+                {
+                    strResponse = response.getResponseValue( );
+                }
+                if ( StringUtils.isNotEmpty( strResponse ) )
+                {
+                    if ( sbValue.length( ) > 0 )
+                    {
+                        sbValue.append( CONSTANT_COMMA );
+                    }
+                    sbValue.append( strResponse );
+                }
+            }
+        }
+        return sbValue.toString( );
+    }
+
+    /**
+     * Find the title of a field
+     * 
+     * @param nIdField
+     *            the id of the field
+     * @return the title of the field, or an empty string if the field does not exist
+     */
+    private static String findFieldTitle( int nIdField )
+    {
+        Field field = FieldHome.findByPrimaryKey( nIdField );
+        return ( field != null && field.getTitle( ) != null ) ? field.getTitle( ) : StringUtils.EMPTY;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Writer of an export in a CSV file, encoded in UTF-8 with a byte order mark so that it is opened with the right encoding by the spreadsheets
+ */
+public class CsvAppointmentExportWriter implements IAppointmentExportWriter
+{
+    private static final String CSV_FILE_EXTENSION = ".csv";
+    private static final String CSV_MIME_TYPE = "text/csv; charset=UTF-8";
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private static final char SEPARATOR = ';';
+    private static final char QUOTE = '"';
+    private static final String QUOTE_ESCAPED = "\"\"";
+    private static final String LINE_SEPARATOR = "\r\n";
+    private static final String CHARACTERS_TO_QUOTE = ";\"\r\n";
+
+    private final Writer _writer;
+
+    /**
+     * Constructor
+     * 
+     * @param outputStream
+     *            the stream to write the file to
+     * @throws IOException
+     *             if the byte order mark can not be written
+     */
+    public CsvAppointmentExportWriter( OutputStream outputStream ) throws IOException
+    {
+        _writer = new BufferedWriter( new OutputStreamWriter( outputStream, StandardCharsets.UTF_8 ) );
+        _writer.write( BYTE_ORDER_MARK );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeRow( List<String> listValues ) throws IOException
+    {
+        boolean bFirst = true;
+        for ( String strValue : listValues )
+        {
+            if ( !bFirst )
+            {
+                _writer.write( SEPARATOR );
+            }
+            bFirst = false;
+            if ( StringUtils.containsAny( strValue, CHARACTERS_TO_QUOTE ) )
+            {
+                _writer.write( QUOTE );
+                _writer.write( strValue.replace( String.valueOf( QUOTE ), QUOTE_ESCAPED ) );
+                _writer.write( QUOTE );
+            }
+            else
+                if ( strValue != null )
+                {
+                    _writer.write( strValue );
+                }
+        }
+        _writer.write( LINE_SEPARATOR );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void finish( ) throws IOException
+    {
+        _writer.flush( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getContentType( )
+    {
+        return CSV_MIME_TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getFileExtension( )
+    {
+        return CSV_FILE_EXTENSION;
+    }
+}
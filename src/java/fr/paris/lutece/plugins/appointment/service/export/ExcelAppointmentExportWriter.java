@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Writer of an export in an Excel file. Only the last rows are kept in memory, the previous ones are flushed to a temporary file until the workbook is
+ * written
+ */
+public class ExcelAppointmentExportWriter implements IAppointmentExportWriter
+{
+    private static final String EXCEL_FILE_EXTENSION = ".xlsx";
+    private static final String EXCEL_MIME_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    /**
+     * Number of rows kept in memory
+     */
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
+    private final OutputStream _outputStream;
+    private final SXSSFWorkbook _workbook;
+    private final Sheet _sheet;
+    private int _nRowNum;
+
+    /**
+     * Constructor
+     * 
+     * @param outputStream
+     *            the stream to write the file to
+     * @param strSheetName
+     *            the name of the sheet
+     */
+    public ExcelAppointmentExportWriter( OutputStream outputStream, String strSheetName )
+    {
+        _outputStream = outputStream;
+        _workbook = new SXSSFWorkbook( ROW_ACCESS_WINDOW_SIZE );
+        _sheet = _workbook.createSheet( strSheetName );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeRow( List<String> listValues )
+    {
+        Row row = _sheet.createRow( _nRowNum++ );
+        int nCellNum = 0;
+        for ( String strValue : listValues )
+        {
+            if ( strValue != null )
+            {
+                row.createCell( nCellNum ).setCellValue( strValue );
+            }
+            nCellNum++;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void finish( ) throws IOException
+    {
+        try
+        {
+            _workbook.write( _outputStream );
+            _outputStream.flush( );
+        }
+        finally
+        {
+            // Delete the temporary files of the rows flushed
+            _workbook.dispose( );
+            _workbook.close( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getContentType( )
+    {
+        return EXCEL_MIME_TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getFileExtension( )
+    {
+        return EXCEL_FILE_EXTENSION;
+    }
+}
@@ -0,0 +1,645 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.export;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.paris.lutece.plugins.appointment.business.export.ExportJob;
+import fr.paris.lutece.plugins.appointment.business.export.ExportJobHome;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.plugins.appointment.service.FormTraderService;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
+import fr.paris.lutece.portal.business.user.AdminUser;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Exports run in the background. An export requested by an admin user is stored as a job, run by a bounded pool of threads that does not depend on the
+ * pool of the requests, and its file is stored in database to be downloaded later from any node. An export that cannot be run at once (full pool, restart of the
+ * application) is picked up by the daemon. The finished exports and their files are purged after a retention delay
+ */
+public final class ExportJobService
+{
+    /**
+     * Format of the export of a form
+     */
+    public static final String FORMAT_JSON = "json";
+
+    private static final String PROPERTY_NB_THREADS = "appointment.export.nbThreads";
+    private static final String PROPERTY_QUEUE_SIZE = "appointment.export.queueSize";
+    private static final String PROPERTY_MAX_JOBS_PER_USER = "appointment.export.maxJobsPerUser";
+    private static final String PROPERTY_LOCK_TIMEOUT = "appointment.export.lockTimeout";
+    private static final String PROPERTY_RETENTION = "appointment.export.retention";
+    private static final String PROPERTY_DIRECTORY = "appointment.export.directory";
+    private static final String PROPERTY_JAVA_IO_TMPDIR = "java.io.tmpdir";
+    private static final int DEFAULT_NB_THREADS = 2;
+    private static final int DEFAULT_QUEUE_SIZE = 50;
+    private static final int DEFAULT_MAX_JOBS_PER_USER = 3;
+    private static final int DEFAULT_LOCK_TIMEOUT = 30;
+    private static final int DEFAULT_RETENTION = 24;
+    private static final int DEFAULT_BATCH_SIZE = 10;
+    private static final String DEFAULT_DIRECTORY_NAME = "appointment-exports";
+    private static final int MAX_LENGTH_ERROR = 255;
+    private static final String THREAD_NAME_PREFIX = "appointment-export-";
+    private static final String FILE_PREFIX = "export-";
+    private static final String FILE_EXTENSION_SEPARATOR = ".";
+    private static final String FILE_NAME_SEPARATOR = "_";
+    private static final DateTimeFormatter FILE_NAME_DATE_FORMATTER = DateTimeFormatter.ofPattern( "yyyyMMdd-HHmm" );
+    private static final String MIME_TYPE_JSON = "application/json; charset=UTF-8";
+    private static final String MIME_TYPE_CSV = "text/csv; charset=UTF-8";
+    private static final String MIME_TYPE_EXCEL = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private static final AtomicLong _lNbJobsDone = new AtomicLong( );
+    private static final AtomicLong _lNbJobsFailed = new AtomicLong( );
+    private static final AtomicLong _lNbJobsDeferred = new AtomicLong( );
+    private static final AtomicLong _lNbItemsExported = new AtomicLong( );
+
+    private static final ObjectMapper _mapper = new ObjectMapper( ).configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false )
+            .setSerializationInclusion( Include.NON_NULL );
+
+    private static final ThreadPoolExecutor _executor = createExecutor( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private ExportJobService( )
+    {
+    }
+
+    /**
+     * Create and submit the export of the appointments matching a filter
+     * 
+     * @param filter
+     *            the filter, with the id of the form
+     * @param strFormat
+     *            the format of the file ({@link AppointmentExportService#FORMAT_EXCEL} or {@link AppointmentExportService#FORMAT_CSV})
+     * @param user
+     *            the admin user requesting the export
+     * @param locale
+     *            the locale of the user
+     * @return the export created, or null if the user has already too many exports in progress
+     * @throws IOException
+     *             if the filter can not be serialized
+     */
+    public static ExportJob createAppointmentsExport( AppointmentFilterDTO filter, String strFormat, AdminUser user, Locale locale ) throws IOException
+    {
+        ExportJob exportJob = buildExportJob( ExportJob.TYPE_APPOINTMENTS, filter.getIdForm( ), user, locale );
+        exportJob.setFormat( AppointmentExportService.FORMAT_CSV.equals( strFormat ) ? AppointmentExportService.FORMAT_CSV
+                : AppointmentExportService.FORMAT_EXCEL );
+        exportJob.setFilter( _mapper.writeValueAsString( filter ) );
+
+        return createAndSubmit( exportJob );
+    }
+
+    /**
+     * Create and submit the export of the definition of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param user
+     *            the admin user requesting the export
+     * @param locale
+     *            the locale of the user
+     * @return the export created, or null if the user has already too many exports in progress
+     */
+    public static ExportJob createFormExport( int nIdForm, AdminUser user, Locale locale )
+    {
+        ExportJob exportJob = buildExportJob( ExportJob.TYPE_FORM, nIdForm, user, locale );
+        exportJob.setFormat( FORMAT_JSON );
+
+        return createAndSubmit( exportJob );
+    }
+
+    /**
+     * Create an export and submit it, the number of exports waiting or in progress of a user being limited. The limit is checked by the creation
+     * itself, so that concurrent requests of a user can not exceed it
+     * 
+     * @param exportJob
+     *            the export to create
+     * @return the export created, or null if the user has already too many exports in progress
+     */
+    private static ExportJob createAndSubmit( ExportJob exportJob )
+    {
+        if ( !ExportJobHome.createIfBelowLimit( exportJob, AppPropertiesService.getPropertyInt( PROPERTY_MAX_JOBS_PER_USER, DEFAULT_MAX_JOBS_PER_USER ) ) )
+        {
+            return null;
+        }
+        submit( exportJob );
+
+        return exportJob;
+    }
+
+    /**
+     * Submit an export to the pool of threads. If the pool is full, the export is left to the daemon
+     * 
+     * @param exportJob
+     *            the export
+     */
+    private static void submit( ExportJob exportJob )
+    {
+        int nIdExportJob = exportJob.getIdExportJob( );
+        try
+        {
+            _executor.execute( ( ) -> process( nIdExportJob ) );
+        }
+        catch( RejectedExecutionException e )
+        {
+            _lNbJobsDeferred.incrementAndGet( );
+            AppLogService.debug( "Export " + nIdExportJob + " deferred to the daemon" );
+        }
+    }
+
+    /**
+     * Process an export if it is waiting and not already taken by another thread. The file is written in the work directory of the exports, then stored
+     * in database so that it can be downloaded from any node, and the export is marked as done or failed
+     * 
+     * @param nIdExportJob
+     *            the id of the export
+     * @return true if the export has been processed successfully
+     */
+    public static boolean process( int nIdExportJob )
+    {
+        if ( !ExportJobHome.lock( nIdExportJob, LocalDateTime.now( ) ) )
+        {
+            return false;
+        }
+        ExportJob exportJob = ExportJobHome.findByPrimaryKey( nIdExportJob );
+        if ( exportJob == null )
+        {
+            return false;
+        }
+        File file = null;
+        try
+        {
+            Files.createDirectories( getDirectory( ).toPath( ) );
+            file = Files.createTempFile( getDirectory( ).toPath( ), FILE_PREFIX + nIdExportJob + FILE_NAME_SEPARATOR, FILE_EXTENSION_SEPARATOR
+                    + exportJob.getFormat( ) ).toFile( );
+            if ( ExportJob.TYPE_FORM.equals( exportJob.getType( ) ) )
+            {
+                exportForm( exportJob, file );
+            }
+            else
+            {
+                exportAppointments( exportJob, file );
+            }
+            storeFile( exportJob, file );
+            exportJob.setStatus( ExportJob.STATUS_DONE );
+            exportJob.setProgress( 100 );
+            exportJob.setDateStatus( LocalDateTime.now( ) );
+            ExportJobHome.update( exportJob );
+            _lNbJobsDone.incrementAndGet( );
+            _lNbItemsExported.addAndGet( exportJob.getNbItems( ) );
+
+            return true;
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Error while processing the export " + nIdExportJob, e );
+            fail( exportJob, e );
+
+            return false;
+        }
+        finally
+        {
+            deleteFile( file );
+        }
+    }
+
+    /**
+     * Store in database the file of an export
+     * 
+     * @param exportJob
+     *            the export
+     * @param file
+     *            the file written
+     * @throws IOException
+     *             if the file can not be read or is too large
+     */
+    private static void storeFile( ExportJob exportJob, File file ) throws IOException
+    {
+        long lFileSize = file.length( );
+        if ( lFileSize > Integer.MAX_VALUE )
+        {
+            throw new IOException( "The file of the export is too large : " + lFileSize + " bytes" );
+        }
+        try ( InputStream is = new BufferedInputStream( Files.newInputStream( file.toPath( ) ) ) )
+        {
+            ExportJobHome.storeFile( exportJob.getIdExportJob( ), is, (int) lFileSize );
+        }
+    }
+
+    /**
+     * Process the exports waiting in database. The exports whose processing has been interrupted are put back in the queue first
+     * 
+     * @return the number of exports processed successfully
+     */
+    public static int processPendingJobs( )
+    {
+        ExportJobHome.unlockJobsInProgressBefore( LocalDateTime.now( ).minusMinutes( AppPropertiesService.getPropertyInt( PROPERTY_LOCK_TIMEOUT,
+                DEFAULT_LOCK_TIMEOUT ) ) );
+        int nNbJobsProcessed = 0;
+        for ( int nIdExportJob : ExportJobHome.findIdJobsToProcess( DEFAULT_BATCH_SIZE ) )
+        {
+            if ( process( nIdExportJob ) )
+            {
+                nNbJobsProcessed++;
+            }
+        }
+
+        return nNbJobsProcessed;
+    }
+
+    /**
+     * Remove the exports finished for longer than the retention delay, with their files. The files are stored in database : the exports can be purged
+     * by any node. The work files of this node left by an interrupted processing are removed too
+     * 
+     * @return the number of exports removed
+     */
+    public static int purgeExpiredJobs( )
+    {
+        LocalDateTime dateLimit = LocalDateTime.now( ).minusHours( AppPropertiesService.getPropertyInt( PROPERTY_RETENTION, DEFAULT_RETENTION ) );
+        List<ExportJob> listExportJobs = ExportJobHome.findFinishedBefore( dateLimit );
+        for ( ExportJob exportJob : listExportJobs )
+        {
+            remove( exportJob );
+        }
+        File [ ] workFiles = getDirectory( ).listFiles( ( dir, strName ) -> strName.startsWith( FILE_PREFIX ) );
+        if ( workFiles != null )
+        {
+            long lTimeLimit = Timestamp.valueOf( dateLimit ).getTime( );
+            for ( File workFile : workFiles )
+            {
+                if ( workFile.lastModified( ) < lTimeLimit )
+                {
+                    deleteFile( workFile );
+                }
+            }
+        }
+        return listExportJobs.size( );
+    }
+
+    /**
+     * Write the appointments of an export to a file
+     * 
+     * @param exportJob
+     *            the export
+     * @param file
+     *            the file
+     * @throws IOException
+     *             if the file can not be written
+     */
+    private static void exportAppointments( ExportJob exportJob, File file ) throws IOException
+    {
+        AppointmentFilterDTO filter = _mapper.readValue( exportJob.getFilter( ), AppointmentFilterDTO.class );
+        Locale locale = Locale.forLanguageTag( exportJob.getLocale( ) );
+        AtomicInteger nLastProgress = new AtomicInteger( );
+        try ( OutputStream os = new BufferedOutputStream( Files.newOutputStream( file.toPath( ) ) ) )
+        {
+            IAppointmentExportWriter writer = AppointmentExportService.getWriter( exportJob.getFormat( ), os, locale );
+            int nNbItems = AppointmentExportService.export( filter, writer, locale, nProgress -> {
+                // Only the changes of percentage are written, and the date of the
+                // progress keeps the export from being taken back by the daemon
+                if ( nProgress > nLastProgress.getAndSet( nProgress ) )
+                {
+                    ExportJobHome.updateProgress( exportJob.getIdExportJob( ), nProgress, LocalDateTime.now( ) );
+                }
+            } );
+            exportJob.setNbItems( nNbItems );
+            exportJob.setFileName( FILE_NAME_DATE_FORMATTER.format( exportJob.getDateCreation( ) ) + FILE_NAME_SEPARATOR + AppointmentExportService.getFileName( locale )
+                    + writer.getFileExtension( ) );
+        }
+    }
+
+    /**
+     * Write the definition of the form of an export to a file
+     * 
+     * @param exportJob
+     *            the export
+     * @param file
+     *            the file
+     * @throws IOException
+     *             if the form does not exist or if the file can not be written
+     */
+    private static void exportForm( ExportJob exportJob, File file ) throws IOException
+    {
+        Form form = FormService.findFormLightByPrimaryKey( exportJob.getIdForm( ) );
+        if ( form == null )
+        {
+            throw new IOException( "The form " + exportJob.getIdForm( ) + " does not exist" );
+        }
+        Files.write( file.toPath( ), FormTraderService.exportFormToJson( exportJob.getIdForm( ) ).toString( ).getBytes( StandardCharsets.UTF_8 ) );
+        exportJob.setNbItems( 1 );
+        exportJob.setFileName( form.getTitle( ) + FILE_EXTENSION_SEPARATOR + FORMAT_JSON );
+    }
+
+    /**
+     * Record the failure of an export
+     * 
+     * @param exportJob
+     *            the export
+     * @param e
+     *            the cause of the failure
+     */
+    private static void fail( ExportJob exportJob, Exception e )
+    {
+        exportJob.setStatus( ExportJob.STATUS_FAILED );
+        exportJob.setError( StringUtils.abbreviate( e.toString( ), MAX_LENGTH_ERROR ) );
+        exportJob.setDateStatus( LocalDateTime.now( ) );
+        _lNbJobsFailed.incrementAndGet( );
+        try
+        {
+            ExportJobHome.update( exportJob );
+        }
+        catch( Exception ex )
+        {
+            // The export stays in progress, it will be put back in the queue by the daemon
+            AppLogService.error( "Error while saving the failure of the export " + exportJob.getIdExportJob( ), ex );
+        }
+    }
+
+    /**
+     * Find an export
+     * 
+     * @param nIdExportJob
+     *            the id of the export
+     * @return the export, or null if it does not exist
+     */
+    public static ExportJob findByPrimaryKey( int nIdExportJob )
+    {
+        return ExportJobHome.findByPrimaryKey( nIdExportJob );
+    }
+
+    /**
+     * Find the exports of an admin user, the newest first
+     * 
+     * @param user
+     *            the admin user
+     * @return the list of the exports
+     */
+    public static List<ExportJob> findByAdminUser( AdminUser user )
+    {
+        return ExportJobHome.findByIdAdminUser( user.getUserId( ) );
+    }
+
+    /**
+     * Get the size of the file of an export
+     * 
+     * @param exportJob
+     *            the export
+     * @return the size of the file, or -1 if the export is not done or if its file no longer exists
+     */
+    public static int getFileSize( ExportJob exportJob )
+    {
+        if ( exportJob.getStatus( ) != ExportJob.STATUS_DONE )
+        {
+            return -1;
+        }
+        return ExportJobHome.getFileSize( exportJob.getIdExportJob( ) );
+    }
+
+    /**
+     * Copy the file of an export to a stream
+     * 
+     * @param exportJob
+     *            the export
+     * @param outputStream
+     *            the stream
+     * @return true if the file has been copied, false if the export has no file
+     * @throws IOException
+     *             if the file can not be copied
+     */
+    public static boolean copyFile( ExportJob exportJob, OutputStream outputStream ) throws IOException
+    {
+        return ExportJobHome.copyFile( exportJob.getIdExportJob( ), outputStream );
+    }
+
+    /**
+     * Get the value of the Content-Disposition header of the download of the file of an export. The name of the file is given as a quoted ASCII name
+     * and as an UTF-8 encoded name (RFC 5987), so that the quotes and the non ASCII characters of the title of a form do not break the header
+     * 
+     * @param exportJob
+     *            the export
+     * @return the value of the header
+     */
+    public static String getContentDisposition( ExportJob exportJob )
+    {
+        String strFileName = StringUtils.defaultIfBlank( exportJob.getFileName( ), FILE_PREFIX + exportJob.getIdExportJob( ) + FILE_EXTENSION_SEPARATOR
+                + exportJob.getFormat( ) );
+        StringBuilder sbAsciiFileName = new StringBuilder( strFileName.length( ) );
+        for ( char c : strFileName.toCharArray( ) )
+        {
+            sbAsciiFileName.append( c >= 0x20 && c < 0x7F && c != '"' && c != '\\' ? c : '_' );
+        }
+        String strEncodedFileName;
+        try
+        {
+            strEncodedFileName = URLEncoder.encode( strFileName, StandardCharsets.UTF_8.name( ) ).replace( "+", "%20" ).replace( "*", "%2A" );
+        }
+        catch( UnsupportedEncodingException e )
+        {
+            // UTF-8 is always supported
+            strEncodedFileName = sbAsciiFileName.toString( );
+        }
+        return new StringBuilder( "attachment; filename=\"" ).append( sbAsciiFileName ).append( "\"; filename*=UTF-8''" ).append( strEncodedFileName )
+                .toString( );
+    }
+
+    /**
+     * Get the content type of the file of an export
+     * 
+     * @param exportJob
+     *            the export
+     * @return the content type
+     */
+    public static String getContentType( ExportJob exportJob )
+    {
+        if ( FORMAT_JSON.equals( exportJob.getFormat( ) ) )
+        {
+            return MIME_TYPE_JSON;
+        }
+        if ( AppointmentExportService.FORMAT_CSV.equals( exportJob.getFormat( ) ) )
+        {
+            return MIME_TYPE_CSV;
+        }
+        return MIME_TYPE_EXCEL;
+    }
+
+    /**
+     * Remove an export and its file. An export in progress is not removed, its processing would recreate the file
+     * 
+     * @param exportJob
+     *            the export
+     * @return true if the export has been removed
+     */
+    public static boolean remove( ExportJob exportJob )
+    {
+        if ( exportJob.getStatus( ) == ExportJob.STATUS_IN_PROGRESS )
+        {
+            return false;
+        }
+        ExportJobHome.delete( exportJob.getIdExportJob( ) );
+
+        return true;
+    }
+
+    /**
+     * Get a summary of the metrics of the exports
+     * 
+     * @return the metrics
+     */
+    public static String getMetrics( )
+    {
+        return new StringBuilder( "Exports - running : " ).append( _executor.getActiveCount( ) ).append( ", queued : " )
+                .append( _executor.getQueue( ).size( ) ).append( ", done : " ).append( _lNbJobsDone.get( ) ).append( ", failed : " )
+                .append( _lNbJobsFailed.get( ) ).append( ", deferred to the daemon : " ).append( _lNbJobsDeferred.get( ) )
+                .append( ", items exported : " ).append( _lNbItemsExported.get( ) ).toString( );
+    }
+
+    /**
+     * Stop the pool of threads. The exports not processed yet stay in database and are processed by the daemon after the restart
+     */
+    public static void shutdown( )
+    {
+        _executor.shutdownNow( );
+    }
+
+    /**
+     * Build a new export waiting to be processed
+     * 
+     * @param strType
+     *            the type of the export
+     * @param nIdForm
+     *            the id of the form
+     * @param user
+     *            the admin user requesting the export
+     * @param locale
+     *            the locale of the user
+     * @return the export
+     */
+    private static ExportJob buildExportJob( String strType, int nIdForm, AdminUser user, Locale locale )
+    {
+        LocalDateTime now = LocalDateTime.now( );
+        ExportJob exportJob = new ExportJob( );
+        exportJob.setType( strType );
+        exportJob.setIdForm( nIdForm );
+        exportJob.setIdAdminUser( user.getUserId( ) );
+        exportJob.setLocale( locale.toLanguageTag( ) );
+        exportJob.setStatus( ExportJob.STATUS_PENDING );
+        exportJob.setDateCreation( now );
+        exportJob.setDateStatus( now );
+
+        return exportJob;
+    }
+
+    /**
+     * Get the work directory of the files of the exports, where the files are written before being stored in database
+     * 
+     * @return the directory
+     */
+    private static File getDirectory( )
+    {
+        String strDirectory = AppPropertiesService.getProperty( PROPERTY_DIRECTORY );
+        if ( StringUtils.isBlank( strDirectory ) )
+        {
+            return new File( System.getProperty( PROPERTY_JAVA_IO_TMPDIR ), DEFAULT_DIRECTORY_NAME );
+        }
+        return new File( strDirectory );
+    }
+
+    /**
+     * Delete a file if it exists
+     * 
+     * @param file
+     *            the file (can be null)
+     */
+    private static void deleteFile( File file )
+    {
+        if ( file != null )
+        {
+            try
+            {
+                Files.deleteIfExists( file.toPath( ) );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to delete the file of export " + file.getName( ), e );
+            }
+        }
+    }
+
+    /**
+     * Create the pool of threads of the exports
+     * 
+     * @return the pool of threads
+     */
+    private static ThreadPoolExecutor createExecutor( )
+    {
+        AtomicInteger nThreadNumber = new AtomicInteger( );
+        int nNbThreads = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_NB_THREADS, DEFAULT_NB_THREADS ) );
+
+        return new ThreadPoolExecutor( nNbThreads, nNbThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( Math.max( 1,
+                AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ) ) ), runnable -> {
+            Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + nThreadNumber.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+}
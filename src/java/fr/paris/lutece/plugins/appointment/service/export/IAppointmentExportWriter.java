@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.export;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writer of the rows of an export of appointments. The rows are written as they are built, so that the export does not keep the whole file in memory
+ */
+public interface IAppointmentExportWriter
+{
+    /**
+     * Write a row
+     * 
+     * @param listValues
+     *            the values of the cells of the row. A null value is an empty cell
+     * @throws IOException
+     *             if the row can not be written
+     */
+    void writeRow( List<String> listValues ) throws IOException;
+
+    /**
+     * Write the end of the file and release the resources of the writer. The output stream is flushed, but not closed
+     * 
+     * @throws IOException
+     *             if the file can not be written
+     */
+    void finish( ) throws IOException;
+
+    /**
+     * Get the mime type of the file
+     * 
+     * @return the mime type
+     */
+    String getContentType( );
+
+    /**
+     * Get the extension of the file
+     * 
+     * @return the extension, with the dot
+     */
+    String getFileExtension( );
+}
@@ -39,7 +39,7 @@ import java.util.Locale;
 
 import org.apache.commons.lang.StringUtils;
 
-import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.plugins.appointment.business.event.Event;
 
 /**
  * Manager for appointment listeners
@@ -62,12 +62,7 @@ public final class AppointmentListenerManager
      */
     public static void notifyListenersAppointmentRemoval( int nIdAppointment )
     {
-    	new Thread( ( ) -> {
-	        for ( IAppointmentListener appointmentRemovalListener : SpringContextService.getBeansOfType( IAppointmentListener.class ) )
-	        {
-	            appointmentRemovalListener.notifyAppointmentRemoval( nIdAppointment );
-	        }
-    	}).start();
+        EventDispatcher.publish( Event.RESOURCE_APPOINTMENT, nIdAppointment, Event.TYPE_REMOVAL );
     }
     
     /**
@@ -78,16 +73,7 @@ public final class AppointmentListenerManager
      */
     public static void notifyListenersAppointmentCreated( int nIdAppointment )
     {
-    	new Thread( ( ) -> {
-    	   
-    		for ( IAppointmentListener appointmentListener : SpringContextService.getBeansOfType( IAppointmentListener.class ) )
-    		{
-    			appointmentListener.notifyAppointmentCreated(nIdAppointment);
-    	    }
-    	    
-    	}).start();
-    	
-        
+        EventDispatcher.publish( Event.RESOURCE_APPOINTMENT, nIdAppointment, Event.TYPE_CREATION );
     }
     /**
      * Notify listeners that an appointment is about to be updated
@@ -97,12 +83,7 @@ public final class AppointmentListenerManager
      */
     public static void notifyListenersAppointmentUpdated( int nIdAppointment )
     {
-    	new Thread( ( ) -> {
-	        for ( IAppointmentListener appointmentListener : SpringContextService.getBeansOfType( IAppointmentListener.class ) )
-	        {
-	            appointmentListener.notifyAppointmentUpdated(nIdAppointment);
-	        }
-    	}).start();
+        EventDispatcher.publish( Event.RESOURCE_APPOINTMENT, nIdAppointment, Event.TYPE_CHANGE );
     }
 
     /**
@@ -120,7 +101,7 @@ public final class AppointmentListenerManager
     {
         List<String> listMessages = new ArrayList<>( );
 
-        for ( IAppointmentListener appointmentRemovalListener : SpringContextService.getBeansOfType( IAppointmentListener.class ) )
+        for ( IAppointmentListener appointmentRemovalListener : ListenerRegistry.getListeners( IAppointmentListener.class ) )
         {
             String strMessage = appointmentRemovalListener.appointmentDateChanged( nIdAppointment, nIdSlot, locale );
 
@@ -141,12 +122,7 @@ public final class AppointmentListenerManager
      */
     public static void notifyListenersAppointmentFormRemoval( int nIdAppointmentForm )
     {
-    	new Thread( ( ) -> {
-	        for ( IAppointmentFormRemovalListener appointmentRemovalListener : SpringContextService.getBeansOfType( IAppointmentFormRemovalListener.class ) )
-	        {
-	            appointmentRemovalListener.notifyAppointmentFormRemoval( nIdAppointmentForm );
-	        }
-    	}).start();
+        EventDispatcher.publish( Event.RESOURCE_FORM, nIdAppointmentForm, Event.TYPE_APPOINTMENT_FORM_REMOVAL );
     }
     
     /**
@@ -159,12 +135,39 @@ public final class AppointmentListenerManager
      */
     public static void notifyAppointmentWFActionTriggered( int nIdAppointment, int nIdAction )
     {
-    	new Thread( ( ) -> {
-	        for ( IAppointmentWorkflowActionListener appointmentListener : SpringContextService.getBeansOfType( IAppointmentWorkflowActionListener.class ) )
-	        {
-	        	appointmentListener.notifyAppointmentWFActionTriggered( nIdAppointment, nIdAction );
-	        }
-    	}).start();
+        EventDispatcher.publish( Event.RESOURCE_APPOINTMENT, nIdAppointment, Event.TYPE_WORKFLOW_ACTION, nIdAction );
+    }
+
+    /**
+     * Deliver an event of an appointment to the listeners
+     * 
+     * @param event
+     *            the event
+     */
+    static void deliver( Event event )
+    {
+        int nIdResource = event.getIdResource( );
+        switch( event.getEventType( ) )
+        {
+            case Event.TYPE_CREATION:
+                EventDispatcher.deliver( IAppointmentListener.class, event, listener -> listener.notifyAppointmentCreated( nIdResource ) );
+                break;
+            case Event.TYPE_CHANGE:
+                EventDispatcher.deliver( IAppointmentListener.class, event, listener -> listener.notifyAppointmentUpdated( nIdResource ) );
+                break;
+            case Event.TYPE_REMOVAL:
+                EventDispatcher.deliver( IAppointmentListener.class, event, listener -> listener.notifyAppointmentRemoval( nIdResource ) );
+                break;
+            case Event.TYPE_WORKFLOW_ACTION:
+                EventDispatcher.deliver( IAppointmentWorkflowActionListener.class, event,
+                        listener -> listener.notifyAppointmentWFActionTriggered( nIdResource, event.getIdAction( ) ) );
+                break;
+            case Event.TYPE_APPOINTMENT_FORM_REMOVAL:
+                EventDispatcher.deliver( IAppointmentFormRemovalListener.class, event, listener -> listener.notifyAppointmentFormRemoval( nIdResource ) );
+                break;
+            default:
+                break;
+        }
     }
 
 }
@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.listeners;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import fr.paris.lutece.plugins.appointment.business.event.Event;
+import fr.paris.lutece.plugins.appointment.business.event.EventHome;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Outbox of the listener events. The notifications are written in the appointment_event table, in the transaction of the caller if there is one, so
+ * that they are not lost if the application stops. A single dispatcher thread claims the events by batches and delivers them to the listener beans
+ * through a fixed number of delivery threads. All the events of a same resource go to the same delivery thread, in the order of their creation.
+ * <p>
+ * In a cluster, only the node holding the lease of the appointment_event_lease table dispatches the events, so that the events of a resource are
+ * delivered in order across the nodes. Another node takes the lease over when it expires. Each event is therefore delivered once, on a single node :
+ * the listeners delivered through the outbox must act on the state shared by the nodes (database, other applications, caches checked against a
+ * version stored in database such as the planning cache). They are safe as long as they do so, like the listeners of the plugin
+ * ({@link fr.paris.lutece.plugins.appointment.service.SlotMaterializationListener}, {@link fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheListener}).
+ * A listener acting on the state held in memory by each node (connections, local caches) must be an {@link ILocalSlotListener} instead, notified at
+ * once on the node where the change is made
+ * </p>
+ */
+public final class EventDispatcher
+{
+    private static final String PROPERTY_NB_THREADS = "appointment.event.nbThreads";
+    private static final String PROPERTY_DISPATCH_DELAY = "appointment.event.dispatchDelay";
+    private static final String PROPERTY_BATCH_SIZE = "appointment.event.batchSize";
+    private static final String PROPERTY_CLAIM_TIMEOUT = "appointment.event.claimTimeout";
+    private static final String PROPERTY_LEASE_DURATION = "appointment.event.leaseDuration";
+    private static final int DEFAULT_NB_THREADS = 2;
+    private static final int DEFAULT_DISPATCH_DELAY = 500;
+    private static final int DEFAULT_BATCH_SIZE = 200;
+    private static final int DEFAULT_CLAIM_TIMEOUT = 5;
+    private static final int DEFAULT_LEASE_DURATION = 30;
+    private static final String THREAD_NAME_DISPATCHER = "appointment-event-dispatcher";
+    private static final String THREAD_NAME_PREFIX = "appointment-event-";
+
+    private static final String _strNodeId = UUID.randomUUID( ).toString( );
+    private static final AtomicLong _lClaimSequence = new AtomicLong( );
+    private static final AtomicLong _lNbEventsPublished = new AtomicLong( );
+    private static final AtomicLong _lNbEventsDelivered = new AtomicLong( );
+    private static final AtomicLong _lNbDeliveryErrors = new AtomicLong( );
+
+    private static ScheduledExecutorService _dispatcher;
+    private static ExecutorService [ ] _lanes;
+    private static LocalDateTime _dateNextRelease = LocalDateTime.MIN;
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private EventDispatcher( )
+    {
+    }
+
+    /**
+     * Start the dispatcher. The events left by a previous run of the application are delivered too
+     */
+    public static synchronized void start( )
+    {
+        if ( _dispatcher != null )
+        {
+            return;
+        }
+        int nNbThreads = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_NB_THREADS, DEFAULT_NB_THREADS ) );
+        _lanes = new ExecutorService [ nNbThreads];
+        for ( int nLane = 0; nLane < nNbThreads; nLane++ )
+        {
+            _lanes [nLane] = Executors.newSingleThreadExecutor( createThreadFactory( THREAD_NAME_PREFIX + ( nLane + 1 ) ) );
+        }
+        _dispatcher = Executors.newSingleThreadScheduledExecutor( createThreadFactory( THREAD_NAME_DISPATCHER ) );
+        long lDelay = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_DISPATCH_DELAY, DEFAULT_DISPATCH_DELAY ) );
+        _dispatcher.scheduleWithFixedDelay( EventDispatcher::dispatch, lDelay, lDelay, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Publish an event
+     * 
+     * @param strResourceType
+     *            the type of the resource
+     * @param nIdResource
+     *            the id of the resource
+     * @param strEventType
+     *            the type of the event
+     */
+    public static void publish( String strResourceType, int nIdResource, String strEventType )
+    {
+        publish( strResourceType, nIdResource, strEventType, 0 );
+    }
+
+    /**
+     * Publish an event
+     * 
+     * @param strResourceType
+     *            the type of the resource
+     * @param nIdResource
+     *            the id of the resource
+     * @param strEventType
+     *            the type of the event
+     * @param nIdAction
+     *            the id of the workflow action
+     */
+    public static void publish( String strResourceType, int nIdResource, String strEventType, int nIdAction )
+    {
+        publish( strResourceType, nIdResource, strEventType, nIdAction, null );
+    }
+
+    /**
+     * Publish an event with data
+     * 
+     * @param strResourceType
+     *            the type of the resource
+     * @param nIdResource
+     *            the id of the resource
+     * @param strEventType
+     *            the type of the event
+     * @param strData
+     *            the data of the event
+     */
+    public static void publish( String strResourceType, int nIdResource, String strEventType, String strData )
+    {
+        publish( strResourceType, nIdResource, strEventType, 0, strData );
+    }
+
+    /**
+     * Write an event in the outbox
+     * 
+     * @param strResourceType
+     *            the type of the resource
+     * @param nIdResource
+     *            the id of the resource
+     * @param strEventType
+     *            the type of the event
+     * @param nIdAction
+     *            the id of the workflow action
+     * @param strData
+     *            the data of the event
+     */
+    private static void publish( String strResourceType, int nIdResource, String strEventType, int nIdAction, String strData )
+    {
+        Event event = new Event( );
+        event.setResourceType( strResourceType );
+        event.setIdResource( nIdResource );
+        event.setEventType( strEventType );
+        event.setIdAction( nIdAction );
+        event.setData( strData );
+        event.setDateCreation( LocalDateTime.now( ) );
+        EventHome.create( event );
+        _lNbEventsPublished.incrementAndGet( );
+    }
+
+    /**
+     * Deliver the pending events, batch after batch, until the outbox is empty. Nothing is delivered if another node holds the lease of the dispatch
+     */
+    private static void dispatch( )
+    {
+        try
+        {
+            if ( !acquireLease( ) )
+            {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now( );
+            int nClaimTimeout = AppPropertiesService.getPropertyInt( PROPERTY_CLAIM_TIMEOUT, DEFAULT_CLAIM_TIMEOUT );
+            if ( now.isAfter( _dateNextRelease ) )
+            {
+                // The events claimed by a dispatcher that has stopped are delivered again
+                EventHome.releaseClaimsBefore( now.minusMinutes( nClaimTimeout ) );
+                _dateNextRelease = now.plusMinutes( nClaimTimeout );
+            }
+            int nBatchSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ) );
+            // The lease is renewed before each batch : the node stops dispatching as soon as it has lost it
+            while ( dispatchBatch( nBatchSize ) == nBatchSize && acquireLease( ) )
+            {
+                // The outbox may still contain events
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Error while dispatching the appointment events", e );
+        }
+    }
+
+    /**
+     * Take or renew the lease of the dispatch of the events for this node. The lease must last longer than the delivery of a batch
+     * 
+     * @return true if this node holds the lease
+     */
+    private static boolean acquireLease( )
+    {
+        LocalDateTime now = LocalDateTime.now( );
+        int nLeaseDuration = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_LEASE_DURATION, DEFAULT_LEASE_DURATION ) );
+        return EventHome.acquireLease( _strNodeId, now, now.plusSeconds( nLeaseDuration ) );
+    }
+
+    /**
+     * Claim a batch of events and deliver it. The events are removed from the outbox once they have been delivered
+     * 
+     * @param nBatchSize
+     *            the maximum number of events of the batch
+     * @return the number of events claimed
+     * @throws InterruptedException
+     *             if the dispatcher is stopped during the delivery
+     */
+    private static int dispatchBatch( int nBatchSize ) throws InterruptedException
+    {
+        String strClaimToken = _strNodeId + "-" + _lClaimSequence.incrementAndGet( );
+        int nNbEvents = EventHome.claim( strClaimToken, LocalDateTime.now( ), nBatchSize );
+        if ( nNbEvents == 0 )
+        {
+            return 0;
+        }
+        List<List<Event>> listEventsByLane = new ArrayList<>( _lanes.length );
+        for ( int nLane = 0; nLane < _lanes.length; nLane++ )
+        {
+            listEventsByLane.add( new ArrayList<>( ) );
+        }
+        for ( Event event : EventHome.findByClaimToken( strClaimToken ) )
+        {
+            int nLane = Math.floorMod( getOrderingKey( event ), _lanes.length );
+            listEventsByLane.get( nLane ).add( event );
+        }
+        List<Future<?>> listFutures = new ArrayList<>( _lanes.length );
+        for ( int nLane = 0; nLane < _lanes.length; nLane++ )
+        {
+            List<Event> listEvents = listEventsByLane.get( nLane );
+            if ( !listEvents.isEmpty( ) )
+            {
+                listFutures.add( _lanes [nLane].submit( ( ) -> listEvents.forEach( EventDispatcher::deliver ) ) );
+            }
+        }
+        for ( Future<?> future : listFutures )
+        {
+            try
+            {
+                future.get( );
+            }
+            catch( ExecutionException e )
+            {
+                AppLogService.error( "Error while delivering the appointment events", e.getCause( ) );
+            }
+        }
+        EventHome.deleteByClaimToken( strClaimToken );
+
+        return nNbEvents;
+    }
+
+    /**
+     * Get the key of the order of delivery of an event : the events with the same key are delivered by the same thread, in the order of their creation.
+     * The events of a slot are keyed by its form, like the changes of several slots of the form, so that they are not delivered out of order
+     * 
+     * @param event
+     *            the event
+     * @return the key of the order of delivery
+     */
+    private static int getOrderingKey( Event event )
+    {
+        Integer nIdForm = SlotListenerManager.getIdForm( event );
+        if ( nIdForm != null )
+        {
+            return Objects.hash( Event.RESOURCE_SLOTS_OF_FORM, nIdForm );
+        }
+        return Objects.hash( event.getResourceType( ), event.getIdResource( ) );
+    }
+
+    /**
+     * Deliver an event to the listeners of its resource
+     * 
+     * @param event
+     *            the event
+     */
+    private static void deliver( Event event )
+    {
+        switch( event.getResourceType( ) )
+        {
+            case Event.RESOURCE_SLOT:
+            case Event.RESOURCE_SLOTS_OF_FORM:
+                SlotListenerManager.deliver( event );
+                break;
+            case Event.RESOURCE_APPOINTMENT:
+                AppointmentListenerManager.deliver( event );
+                break;
+            case Event.RESOURCE_FORM:
+                // The removals of the appointments and of the week definitions of a form are events of the form, to keep their order with the removal
+                // of the form
+                if ( Event.TYPE_APPOINTMENT_FORM_REMOVAL.equals( event.getEventType( ) ) )
+                {
+                    AppointmentListenerManager.deliver( event );
+                }
+                else
+                    if ( Event.TYPE_WEEK_DEFINITION_REMOVAL.equals( event.getEventType( ) ) )
+                    {
+                        WeekDefinitionManagerListener.deliver( event );
+                    }
+                    else
+                    {
+                        FormListenerManager.deliver( event );
+                    }
+                break;
+            case Event.RESOURCE_WEEK_DEFINITION:
+                WeekDefinitionManagerListener.deliver( event );
+                break;
+            default:
+                AppLogService.error( "Unknown resource type of the appointment event " + event.getIdEvent( ) + " : " + event.getResourceType( ) );
+        }
+    }
+
+    /**
+     * Deliver an event to all the listeners of a type. The failure of a listener does not prevent the others from being notified
+     * 
+     * @param listenerClass
+     *            the type of the listeners
+     * @param event
+     *            the event
+     * @param notification
+     *            the notification of a listener
+     * @param <T>
+     *            the type of the listeners
+     */
+    static <T> void deliver( Class<T> listenerClass, Event event, Consumer<T> notification )
+    {
+        for ( T listener : ListenerRegistry.getListeners( listenerClass ) )
+        {
+            try
+            {
+                notification.accept( listener );
+                _lNbEventsDelivered.incrementAndGet( );
+            }
+            catch( Exception e )
+            {
+                _lNbDeliveryErrors.incrementAndGet( );
+                AppLogService.error( "Error while delivering the event " + event.getEventType( ) + " of the " + event.getResourceType( ) + " "
+                        + event.getIdResource( ) + " to the listener " + listener.getClass( ).getName( ), e );
+            }
+        }
+    }
+
+    /**
+     * Get a summary of the metrics of the events
+     * 
+     * @return the metrics
+     */
+    public static String getMetrics( )
+    {
+        return new StringBuilder( "Listener events - published : " ).append( _lNbEventsPublished.get( ) ).append( ", delivered : " )
+                .append( _lNbEventsDelivered.get( ) ).append( ", delivery errors : " ).append( _lNbDeliveryErrors.get( ) ).toString( );
+    }
+
+    /**
+     * Stop the dispatcher. The events not delivered yet stay in the outbox and are delivered after the restart
+     */
+    public static synchronized void shutdown( )
+    {
+        if ( _dispatcher == null )
+        {
+            return;
+        }
+        _dispatcher.shutdownNow( );
+        for ( ExecutorService lane : _lanes )
+        {
+            lane.shutdownNow( );
+        }
+        _dispatcher = null;
+        try
+        {
+            // Another node can take the dispatch over at once
+            EventHome.releaseLease( _strNodeId );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Error while releasing the lease of the dispatch of the appointment events", e );
+        }
+    }
+
+    /**
+     * Create a factory of daemon threads
+     * 
+     * @param strThreadName
+     *            the name of the threads
+     * @return the thread factory
+     */
+    private static ThreadFactory createThreadFactory( String strThreadName )
+    {
+        return runnable -> {
+            Thread thread = new Thread( runnable, strThreadName );
+            thread.setDaemon( true );
+            return thread;
+        };
+    }
+}
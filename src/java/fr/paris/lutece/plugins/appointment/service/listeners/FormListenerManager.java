@@ -33,7 +33,7 @@
  */
 package fr.paris.lutece.plugins.appointment.service.listeners;
 
-import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.plugins.appointment.business.event.Event;
 
 public final class FormListenerManager
 {
@@ -54,12 +54,7 @@ public final class FormListenerManager
      */
     public static void notifyListenersFormCreation( int nIdForm )
     {
-    	new Thread( ( ) -> {
-	        for ( IFormListener formListener : SpringContextService.getBeansOfType( IFormListener.class ) )
-	        {
-	            formListener.notifyFormCreation( nIdForm );
-	        }
-    	}).start();
+        EventDispatcher.publish( Event.RESOURCE_FORM, nIdForm, Event.TYPE_CREATION );
     }
 
     /**
@@ -70,12 +65,7 @@ public final class FormListenerManager
      */
     public static void notifyListenersFormChange( int nIdForm )
     {
-    	new Thread( ( ) -> {
-	        for ( IFormListener formListener : SpringContextService.getBeansOfType( IFormListener.class ) )
-	        {
-	            formListener.notifyFormChange( nIdForm );
-	        }
-    	}).start();
+        EventDispatcher.publish( Event.RESOURCE_FORM, nIdForm, Event.TYPE_CHANGE );
     }
 
     /**
@@ -86,12 +76,32 @@ public final class FormListenerManager
      */
     public static void notifyListenersFormRemoval( int nIdForm )
     {
-    	new Thread( ( ) -> {
-	        for ( IFormListener formListener : SpringContextService.getBeansOfType( IFormListener.class ) )
-	        {
-	            formListener.notifyFormRemoval( nIdForm );
-	        }
-    	}).start();
+        EventDispatcher.publish( Event.RESOURCE_FORM, nIdForm, Event.TYPE_REMOVAL );
+    }
+
+    /**
+     * Deliver an event of a form to the listeners
+     * 
+     * @param event
+     *            the event
+     */
+    static void deliver( Event event )
+    {
+        int nIdForm = event.getIdResource( );
+        switch( event.getEventType( ) )
+        {
+            case Event.TYPE_CREATION:
+                EventDispatcher.deliver( IFormListener.class, event, listener -> listener.notifyFormCreation( nIdForm ) );
+                break;
+            case Event.TYPE_CHANGE:
+                EventDispatcher.deliver( IFormListener.class, event, listener -> listener.notifyFormChange( nIdForm ) );
+                break;
+            case Event.TYPE_REMOVAL:
+                EventDispatcher.deliver( IFormListener.class, event, listener -> listener.notifyFormRemoval( nIdForm ) );
+                break;
+            default:
+                break;
+        }
     }
 
 }
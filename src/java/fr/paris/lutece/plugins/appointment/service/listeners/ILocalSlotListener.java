@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.listeners;
+
+import java.util.Collection;
+
+/**
+ * Interface for listeners notified of the changes of the slots on the node where they are made, once they are committed. Unlike the
+ * {@link ISlotListener}, the notifications do not go through the outbox of the events : they are delivered at once, on every node, but they are not
+ * delivered to the other nodes of a cluster nor after a restart. Suited to the state held by each node for its own clients (connections to the
+ * availability streams...). <b>The listener must be a Spring bean.</b>
+ */
+public interface ILocalSlotListener
+{
+
+    /**
+     * Notify the listener that a slot has been created or changed
+     * 
+     * @param nIdSlot
+     *            The id of the slot
+     */
+    void notifySlotChange( int nIdSlot );
+
+    /**
+     * Notify the listener that a slot has been deleted
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    void notifySlotRemoval( int nIdSlot );
+
+    /**
+     * Notify the listener that several slots of a form have been changed by a single operation. By default, the listener is notified of the change of
+     * each slot
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param listIdSlots
+     *            the ids of the slots
+     */
+    default void notifySlotsChange( int nIdForm, Collection<Integer> listIdSlots )
+    {
+        for ( Integer nIdSlot : listIdSlots )
+        {
+            notifySlotChange( nIdSlot );
+        }
+    }
+
+}
@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.service.listeners;
 
+import java.util.Collection;
+
 /**
  * Interface for listeners that should be notified when slot has been changed, created or removed. <b>The listener must be a Spring bean.</b>
  * 
@@ -66,4 +68,21 @@ public interface ISlotListener
      */
     void notifySlotRemoval( int nIdSlot );
 
+    /**
+     * Notify the listener that several slots of a form have been changed by a single operation (modification of the planning, shift of the slots of a
+     * day...). By default, the listener is notified of the change of each slot
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param listIdSlots
+     *            the ids of the slots
+     */
+    default void notifySlotsChange( int nIdForm, Collection<Integer> listIdSlots )
+    {
+        for ( Integer nIdSlot : listIdSlots )
+        {
+            notifySlotChange( nIdSlot );
+        }
+    }
+
 }
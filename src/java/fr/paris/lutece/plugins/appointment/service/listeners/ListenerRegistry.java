@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.listeners;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * Cache of the listener beans of the plugin. The lookup of the beans in the Spring context is done once per type of listener instead of once per
+ * notification. The cache is cleared when a plugin is installed or uninstalled
+ */
+public final class ListenerRegistry
+{
+    private static final Map<Class<?>, List<?>> _mapListeners = new ConcurrentHashMap<>( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private ListenerRegistry( )
+    {
+    }
+
+    /**
+     * Get the listener beans of a type
+     * 
+     * @param listenerClass
+     *            the type of the listeners
+     * @param <T>
+     *            the type of the listeners
+     * @return the list of the listener beans
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <T> List<T> getListeners( Class<T> listenerClass )
+    {
+        return (List<T>) _mapListeners.computeIfAbsent( listenerClass,
+                key -> Collections.unmodifiableList( new ArrayList<>( SpringContextService.getBeansOfType( listenerClass ) ) ) );
+    }
+
+    /**
+     * Clear the cache, the beans will be looked up again on the next notification
+     */
+    public static void clear( )
+    {
+        _mapListeners.clear( );
+    }
+}
@@ -33,10 +33,33 @@
  */
 package fr.paris.lutece.plugins.appointment.service.listeners;
 
-import fr.paris.lutece.portal.service.spring.SpringContextService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.appointment.business.event.Event;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.service.AfterCommitService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 public final class SlotListenerManager
 {
+    private static final String PROPERTY_MAX_SLOTS_BY_EVENT = "appointment.event.maxSlotsByEvent";
+    private static final int DEFAULT_MAX_SLOTS_BY_EVENT = 500;
+    private static final String SEPARATOR_ID_SLOTS = ",";
+
+    /**
+     * The batch of slot changes opened by the current thread
+     */
+    private static final ThreadLocal<SlotChangeBatch> _batch = new ThreadLocal<>( );
 
     /**
      * Private default constructor
@@ -47,52 +70,295 @@ public final class SlotListenerManager
     }
 
     /**
-     * Notify listeners that a Slot has been created
+     * Notify listeners that a Slot has been created. The form of the slot is read from the database
      * 
      * @param nIdSlot
      *            The id of the Slot that has been created
      */
     public static void notifyListenersSlotCreation( int nIdSlot )
     {
-    	new Thread( ( ) -> {
-	        for ( ISlotListener slotListener : SpringContextService.getBeansOfType( ISlotListener.class ) )
-	        {
-	            slotListener.notifySlotCreation( nIdSlot );
-	        }
-    	}).start();
-    	
+        notifyListenersSlotCreation( findIdForm( nIdSlot ), nIdSlot );
     }
 
     /**
-     * Notify listeners that a Slot has been changed
+     * Notify listeners that a Slot has been created
+     * 
+     * @param nIdForm
+     *            the id of the form of the slot
+     * @param nIdSlot
+     *            The id of the Slot that has been created
+     */
+    public static void notifyListenersSlotCreation( int nIdForm, int nIdSlot )
+    {
+        EventDispatcher.publish( Event.RESOURCE_SLOT, nIdSlot, Event.TYPE_CREATION, String.valueOf( nIdForm ) );
+        notifyLocalListeners( listener -> listener.notifySlotChange( nIdSlot ) );
+    }
+
+    /**
+     * Notify listeners that a Slot has been changed. The form of the slot is read from the database
      * 
      * @param nIdSlot
      *            The id of the Slot that has been changed
      */
     public static void notifyListenersSlotChange( int nIdSlot )
     {
-    	new Thread( ( ) -> {
-	        for ( ISlotListener slotListener : SpringContextService.getBeansOfType( ISlotListener.class ) )
-	        {
-	            slotListener.notifySlotChange( nIdSlot );
-	        }
-    	}).start();
+        notifyListenersSlotChange( findIdForm( nIdSlot ), nIdSlot );
     }
 
     /**
-     * Notify listeners that a Slot is about to be removed
+     * Notify listeners that a Slot has been changed
+     * 
+     * @param nIdForm
+     *            the id of the form of the slot
+     * @param nIdSlot
+     *            The id of the Slot that has been changed
+     */
+    public static void notifyListenersSlotChange( int nIdForm, int nIdSlot )
+    {
+        SlotChangeBatch batch = _batch.get( );
+        if ( batch != null )
+        {
+            batch._mapIdSlotsByForm.computeIfAbsent( nIdForm, key -> new LinkedHashSet<>( ) ).add( nIdSlot );
+            return;
+        }
+        EventDispatcher.publish( Event.RESOURCE_SLOT, nIdSlot, Event.TYPE_CHANGE, String.valueOf( nIdForm ) );
+        notifyLocalListeners( listener -> listener.notifySlotChange( nIdSlot ) );
+    }
+
+    /**
+     * Notify listeners that several slots of a form have been changed. A single event is published for all the slots (or for each chunk of
+     * appointment.event.maxSlotsByEvent slots)
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param listIdSlots
+     *            the ids of the slots that have been changed
+     */
+    public static void notifyListenersSlotsChange( int nIdForm, Collection<Integer> listIdSlots )
+    {
+        int nMaxSlotsByEvent = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_SLOTS_BY_EVENT, DEFAULT_MAX_SLOTS_BY_EVENT ) );
+        List<Integer> listChunk = new ArrayList<>( nMaxSlotsByEvent );
+        for ( Integer nIdSlot : listIdSlots )
+        {
+            listChunk.add( nIdSlot );
+            if ( listChunk.size( ) == nMaxSlotsByEvent )
+            {
+                publishSlotsChange( nIdForm, listChunk );
+                listChunk.clear( );
+            }
+        }
+        if ( !listChunk.isEmpty( ) )
+        {
+            publishSlotsChange( nIdForm, listChunk );
+        }
+        List<Integer> listIdSlotsChanged = new ArrayList<>( listIdSlots );
+        notifyLocalListeners( listener -> listener.notifySlotsChange( nIdForm, listIdSlotsChanged ) );
+    }
+
+    /**
+     * Open a batch of slot changes on the current thread. Until the batch is closed, the changes of slots notified by the current thread are not
+     * published one by one: they are collected, and published as a single event by form when the batch is closed. The batches can be nested, the
+     * changes are published when the outermost batch is closed, each slot under its own form. Each call must be followed by a call to
+     * {@link #closeSlotChangeBatch()} in a finally block
+     */
+    public static void openSlotChangeBatch( )
+    {
+        SlotChangeBatch batch = _batch.get( );
+        if ( batch == null )
+        {
+            _batch.set( new SlotChangeBatch( ) );
+        }
+        else
+        {
+            batch._nDepth++;
+        }
+    }
+
+    /**
+     * Close the batch of slot changes opened by the current thread, and publish the changes collected if it is the outermost batch
+     */
+    public static void closeSlotChangeBatch( )
+    {
+        SlotChangeBatch batch = _batch.get( );
+        if ( batch == null || --batch._nDepth > 0 )
+        {
+            return;
+        }
+        _batch.remove( );
+        batch._mapIdSlotsByForm.forEach( ( nIdForm, setIdSlots ) -> {
+            if ( !setIdSlots.isEmpty( ) )
+            {
+                notifyListenersSlotsChange( nIdForm, setIdSlots );
+            }
+        } );
+    }
+
+    /**
+     * Notify listeners that a Slot is about to be removed. The form of the slot is read from the database
      * 
      * @param nIdSlot
      *            The id of the Slot that will be removed
      */
     public static void notifyListenersSlotRemoval( int nIdSlot )
     {
-    	new Thread( ( ) -> {
-	        for ( ISlotListener slotListener : SpringContextService.getBeansOfType( ISlotListener.class ) )
-	        {
-	            slotListener.notifySlotRemoval( nIdSlot );
-	        }
-    	}).start();
+        notifyListenersSlotRemoval( findIdForm( nIdSlot ), nIdSlot );
+    }
+
+    /**
+     * Notify listeners that a Slot is about to be removed
+     * 
+     * @param nIdForm
+     *            the id of the form of the slot
+     * @param nIdSlot
+     *            The id of the Slot that will be removed
+     */
+    public static void notifyListenersSlotRemoval( int nIdForm, int nIdSlot )
+    {
+        SlotChangeBatch batch = _batch.get( );
+        if ( batch != null && batch._mapIdSlotsByForm.containsKey( nIdForm ) )
+        {
+            // The listeners must not be notified of the change of a slot that does not exist anymore
+            batch._mapIdSlotsByForm.get( nIdForm ).remove( nIdSlot );
+        }
+        EventDispatcher.publish( Event.RESOURCE_SLOT, nIdSlot, Event.TYPE_REMOVAL, String.valueOf( nIdForm ) );
+        notifyLocalListeners( listener -> listener.notifySlotRemoval( nIdSlot ) );
+    }
+
+    /**
+     * Get the form of the slot of an event. The events of the slots are delivered in order by form, with the changes of several slots of their form
+     * 
+     * @param event
+     *            the event of a slot
+     * @return the id of the form, or null if the event does not give it
+     */
+    static Integer getIdForm( Event event )
+    {
+        if ( !Event.RESOURCE_SLOT.equals( event.getResourceType( ) ) || event.getData( ) == null )
+        {
+            return null;
+        }
+        try
+        {
+            return Integer.valueOf( event.getData( ).trim( ) );
+        }
+        catch( NumberFormatException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Deliver an event of a slot to the listeners
+     * 
+     * @param event
+     *            the event
+     */
+    static void deliver( Event event )
+    {
+        if ( Event.RESOURCE_SLOTS_OF_FORM.equals( event.getResourceType( ) ) )
+        {
+            List<Integer> listIdSlots = parseIdSlots( event.getData( ) );
+            EventDispatcher.deliver( ISlotListener.class, event, listener -> listener.notifySlotsChange( event.getIdResource( ), listIdSlots ) );
+            return;
+        }
+        int nIdSlot = event.getIdResource( );
+        switch( event.getEventType( ) )
+        {
+            case Event.TYPE_CREATION:
+                EventDispatcher.deliver( ISlotListener.class, event, listener -> listener.notifySlotCreation( nIdSlot ) );
+                break;
+            case Event.TYPE_CHANGE:
+                EventDispatcher.deliver( ISlotListener.class, event, listener -> listener.notifySlotChange( nIdSlot ) );
+                break;
+            case Event.TYPE_REMOVAL:
+                EventDispatcher.deliver( ISlotListener.class, event, listener -> listener.notifySlotRemoval( nIdSlot ) );
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Notify the node-local listeners, once the transaction of the current thread is committed. The failure of a listener does not prevent the others
+     * from being notified
+     * 
+     * @param notification
+     *            the notification of a listener
+     */
+    private static void notifyLocalListeners( Consumer<ILocalSlotListener> notification )
+    {
+        AfterCommitService.run( ( ) -> {
+            for ( ILocalSlotListener listener : ListenerRegistry.getListeners( ILocalSlotListener.class ) )
+            {
+                try
+                {
+                    notification.accept( listener );
+                }
+                catch( RuntimeException e )
+                {
+                    AppLogService.error( "Error while notifying the listener " + listener.getClass( ).getName( ) + " : " + e.getMessage( ), e );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Publish a single event for the changes of several slots of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param listIdSlots
+     *            the ids of the slots
+     */
+    private static void publishSlotsChange( int nIdForm, List<Integer> listIdSlots )
+    {
+        String strIdSlots = listIdSlots.stream( ).map( String::valueOf ).collect( Collectors.joining( SEPARATOR_ID_SLOTS ) );
+        EventDispatcher.publish( Event.RESOURCE_SLOTS_OF_FORM, nIdForm, Event.TYPE_CHANGE, strIdSlots );
+    }
+
+    /**
+     * Find the form of a slot
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @return the id of the form, 0 if the slot does not exist
+     */
+    private static int findIdForm( int nIdSlot )
+    {
+        Slot slot = SlotHome.findByPrimaryKey( nIdSlot );
+        return slot != null ? slot.getIdForm( ) : 0;
+    }
+
+    /**
+     * Parse the ids of the slots of an event
+     * 
+     * @param strIdSlots
+     *            the data of the event
+     * @return the ids of the slots
+     */
+    private static List<Integer> parseIdSlots( String strIdSlots )
+    {
+        List<Integer> listIdSlots = new ArrayList<>( );
+        if ( strIdSlots != null )
+        {
+            for ( String strIdSlot : strIdSlots.split( SEPARATOR_ID_SLOTS ) )
+            {
+                if ( !strIdSlot.trim( ).isEmpty( ) )
+                {
+                    listIdSlots.add( Integer.parseInt( strIdSlot.trim( ) ) );
+                }
+            }
+        }
+        return listIdSlots;
+    }
+
+    /**
+     * Changes of slots collected by a thread
+     */
+    private static final class SlotChangeBatch
+    {
+        private final Map<Integer, Set<Integer>> _mapIdSlotsByForm = new LinkedHashMap<>( );
+        private int _nDepth = 1;
     }
 
 }
@@ -33,7 +33,7 @@
  */
 package fr.paris.lutece.plugins.appointment.service.listeners;
 
-import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.plugins.appointment.business.event.Event;
 
 public final class WeekDefinitionManagerListener
 {
@@ -54,12 +54,7 @@ public final class WeekDefinitionManagerListener
      */
     public static void notifyListenersWeekDefinitionCreation( int nIdWeekDefinition )
     {
-    	new Thread( ( ) -> {
-	        for ( IWeekDefinitionListener weekDefinitionListener : SpringContextService.getBeansOfType( IWeekDefinitionListener.class ) )
-	        {
-	            weekDefinitionListener.notifyWeekDefinitionCreation( nIdWeekDefinition );
-	        }
-    	}).start();
+        EventDispatcher.publish( Event.RESOURCE_WEEK_DEFINITION, nIdWeekDefinition, Event.TYPE_CREATION );
     }
 
     /**
@@ -70,12 +65,7 @@ public final class WeekDefinitionManagerListener
      */
     public static void notifyListenersWeekDefinitionChange( int nIdWeekDefinition )
     {
-    	new Thread( ( ) -> {
-	        for ( IWeekDefinitionListener weekDefinitionListener : SpringContextService.getBeansOfType( IWeekDefinitionListener.class ) )
-	        {
-	            weekDefinitionListener.notifyWeekDefinitionChange( nIdWeekDefinition );
-	        }
-    	}).start();
+        EventDispatcher.publish( Event.RESOURCE_WEEK_DEFINITION, nIdWeekDefinition, Event.TYPE_CHANGE );
     }
 
     /**
@@ -86,12 +76,33 @@ public final class WeekDefinitionManagerListener
      */
     public static void notifyListenersWeekDefinitionRemoval( int nIdForm )
     {
-    	new Thread( ( ) -> {
-	        for ( IWeekDefinitionListener weekDefinitionListener : SpringContextService.getBeansOfType( IWeekDefinitionListener.class ) )
-	        {
-	            weekDefinitionListener.notifyWeekDefinitionRemoval( nIdForm );
-	        }
-    	}).start();
+        // The removal is notified with the id of the form
+        EventDispatcher.publish( Event.RESOURCE_FORM, nIdForm, Event.TYPE_WEEK_DEFINITION_REMOVAL );
+    }
+
+    /**
+     * Deliver an event of a week definition to the listeners
+     * 
+     * @param event
+     *            the event
+     */
+    static void deliver( Event event )
+    {
+        int nIdResource = event.getIdResource( );
+        switch( event.getEventType( ) )
+        {
+            case Event.TYPE_CREATION:
+                EventDispatcher.deliver( IWeekDefinitionListener.class, event, listener -> listener.notifyWeekDefinitionCreation( nIdResource ) );
+                break;
+            case Event.TYPE_CHANGE:
+                EventDispatcher.deliver( IWeekDefinitionListener.class, event, listener -> listener.notifyWeekDefinitionChange( nIdResource ) );
+                break;
+            case Event.TYPE_WEEK_DEFINITION_REMOVAL:
+                EventDispatcher.deliver( IWeekDefinitionListener.class, event, listener -> listener.notifyWeekDefinitionRemoval( nIdResource ) );
+                break;
+            default:
+                break;
+        }
     }
 
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.io.Serializable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hold of potential places on a slot, taken the time the user fills the form. A hold is registered in the {@link SlotHoldScheduler}, which gives the places
+ * back to the slot when the hold expires, unless it has been cancelled before (appointment saved, user left ...). The hold is stored in database: its
+ * places are given back only if its row is still unreleased, so a copy of the hold cancelled on another node (session failover) stops the original expiry
+ */
+public final class SlotHold implements Serializable
+{
+    /**
+     * UID
+     */
+    private static final long serialVersionUID = -3420783129565409734L;
+
+    private static final int STATE_ACTIVE = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    /**
+     * Id of the hold
+     */
+    private final int _nIdHold;
+
+    /**
+     * Id of the slot on which the places are held
+     */
+    private final int _nIdSlot;
+
+    /**
+     * Number of places held
+     */
+    private final int _nNbPlaces;
+
+    /**
+     * State of the hold
+     */
+    private final AtomicInteger _state = new AtomicInteger( STATE_ACTIVE );
+
+    /**
+     * The scheduled expiry of the hold (not serializable, only meaningful in the JVM that registered the hold)
+     */
+    private transient ScheduledFuture<?> _expiry;
+
+    /**
+     * Constructor
+     * 
+     * @param nIdHold
+     *            the id of the hold
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nNbPlaces
+     *            the number of places held
+     */
+    SlotHold( int nIdHold, int nIdSlot, int nNbPlaces )
+    {
+        _nIdHold = nIdHold;
+        _nIdSlot = nIdSlot;
+        _nNbPlaces = nNbPlaces;
+    }
+
+    /**
+     * Get the id of the hold
+     * 
+     * @return the id of the hold
+     */
+    public int getIdHold( )
+    {
+        return _nIdHold;
+    }
+
+    /**
+     * Get the id of the slot
+     * 
+     * @return the id of the slot
+     */
+    public int getIdSlot( )
+    {
+        return _nIdSlot;
+    }
+
+    /**
+     * Get the number of places held
+     * 
+     * @return the number of places
+     */
+    public int getNbPlaces( )
+    {
+        return _nNbPlaces;
+    }
+
+    /**
+     * Check if the hold is still active (neither cancelled nor expired) in this copy of the hold
+     * 
+     * @return true if the hold is active
+     */
+    public boolean isActive( )
+    {
+        return _state.get( ) == STATE_ACTIVE;
+    }
+
+    /**
+     * Check if the hold has been cancelled
+     * 
+     * @return true if the hold has been cancelled
+     */
+    public boolean isCancelled( )
+    {
+        return _state.get( ) == STATE_CANCELLED;
+    }
+
+    /**
+     * Mark the hold as cancelled
+     * 
+     * @return true if the hold was active, false if it had already been cancelled or had already expired
+     */
+    boolean markCancelled( )
+    {
+        return _state.compareAndSet( STATE_ACTIVE, STATE_CANCELLED );
+    }
+
+    /**
+     * Mark the hold as expired
+     * 
+     * @return true if the hold was active, false if it had already been cancelled or had already expired
+     */
+    boolean markExpired( )
+    {
+        return _state.compareAndSet( STATE_ACTIVE, STATE_EXPIRED );
+    }
+
+    /**
+     * Get the scheduled expiry of the hold
+     * 
+     * @return the scheduled expiry, null if the hold has been deserialized
+     */
+    ScheduledFuture<?> getExpiry( )
+    {
+        return _expiry;
+    }
+
+    /**
+     * Set the scheduled expiry of the hold
+     * 
+     * @param expiry
+     *            the scheduled expiry
+     */
+    void setExpiry( ScheduledFuture<?> expiry )
+    {
+        _expiry = expiry;
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Hold;
+import fr.paris.lutece.plugins.appointment.business.slot.HoldHome;
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Expiry engine of the holds taken on the slots. All the holds share the same scheduled executor (one thread by default) instead of one timer thread per
+ * hold, and a cancelled hold is removed from the queue immediately.
+ * <p>
+ * The scheduled expiry is only an optimization of the node that registered the hold: the hold is stored in database, and its places are given back only by
+ * the call that marks its row as released (conditional update). A hold cancelled on another node after a session failover is therefore never given back by
+ * the original expiry, and the holds left behind by a stopped node are given back by the periodic sweep of the other nodes
+ * </p>
+ */
+public final class SlotHoldScheduler
+{
+    private static final String PROPERTY_NB_THREADS = "appointment.slotHold.nbThreads";
+    private static final int DEFAULT_NB_THREADS = 1;
+    private static final String PROPERTY_SWEEP_DELAY = "appointment.slotHold.sweepDelay";
+    private static final int DEFAULT_SWEEP_DELAY = 60;
+    private static final String THREAD_NAME_PREFIX = "appointment-slot-hold-";
+
+    private static final AtomicInteger _nNbActiveHolds = new AtomicInteger( );
+    private static final AtomicLong _lNbActivePlaces = new AtomicLong( );
+    private static final AtomicLong _lNbHoldsRegistered = new AtomicLong( );
+    private static final AtomicLong _lNbHoldsExpired = new AtomicLong( );
+    private static final AtomicLong _lNbHoldsCancelled = new AtomicLong( );
+
+    private static final ScheduledThreadPoolExecutor _executor = createExecutor( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private SlotHoldScheduler( )
+    {
+    }
+
+    /**
+     * Register a new hold on a slot. The places will be given back to the slot when the delay is elapsed, unless the hold is cancelled before
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nNbPlaces
+     *            the number of places held
+     * @param lDelay
+     *            the delay before the hold expires
+     * @param unit
+     *            the time unit of the delay
+     * @return the hold registered
+     */
+    public static SlotHold register( int nIdSlot, int nNbPlaces, long lDelay, TimeUnit unit )
+    {
+        Hold storedHold = new Hold( );
+        storedHold.setIdSlot( nIdSlot );
+        storedHold.setNbPlaces( nNbPlaces );
+        storedHold.setDateExpiry( LocalDateTime.now( ).plus( unit.toMillis( lDelay ), ChronoUnit.MILLIS ) );
+        HoldHome.create( storedHold );
+        SlotHold hold = new SlotHold( storedHold.getIdHold( ), nIdSlot, nNbPlaces );
+        _nNbActiveHolds.incrementAndGet( );
+        _lNbActivePlaces.addAndGet( nNbPlaces );
+        _lNbHoldsRegistered.incrementAndGet( );
+        hold.setExpiry( _executor.schedule( ( ) -> expire( hold ), lDelay, unit ) );
+
+        return hold;
+    }
+
+    /**
+     * Cancel a hold. The places are not given back to the slot (the caller is in charge of the new number of places of the slot)
+     * 
+     * @param hold
+     *            the hold to cancel
+     * @return true if the hold has been cancelled, false if it was already cancelled or expired (possibly on another node)
+     */
+    public static boolean cancel( SlotHold hold )
+    {
+        if ( hold == null || !hold.markCancelled( ) )
+        {
+            return false;
+        }
+        stopExpiry( hold );
+        if ( !HoldHome.release( hold.getIdHold( ) ) )
+        {
+            return false;
+        }
+        _lNbHoldsCancelled.incrementAndGet( );
+
+        return true;
+    }
+
+    /**
+     * Release a hold before it expires : the hold is cancelled and its places are given back to the slot at once
+     * 
+     * @param hold
+     *            the hold to release
+     * @return true if the hold has been released, false if it was already cancelled or expired (possibly on another node)
+     */
+    public static boolean release( SlotHold hold )
+    {
+        if ( hold == null || !hold.markCancelled( ) )
+        {
+            return false;
+        }
+        stopExpiry( hold );
+        if ( !giveBack( hold.getIdHold( ), hold.getIdSlot( ), hold.getNbPlaces( ) ) )
+        {
+            return false;
+        }
+        _lNbHoldsCancelled.incrementAndGet( );
+
+        return true;
+    }
+
+    /**
+     * Expire a hold and give back its places to the slot
+     * 
+     * @param hold
+     *            the hold
+     */
+    private static void expire( SlotHold hold )
+    {
+        if ( !hold.markExpired( ) )
+        {
+            return;
+        }
+        unregister( hold );
+        if ( giveBack( hold.getIdHold( ), hold.getIdSlot( ), hold.getNbPlaces( ) ) )
+        {
+            _lNbHoldsExpired.incrementAndGet( );
+        }
+    }
+
+    /**
+     * Give back the places of the holds expired for more than the sweep delay. These holds have been left behind by a node that stopped before they expired
+     */
+    private static void sweep( )
+    {
+        try
+        {
+            LocalDateTime dateLimit = LocalDateTime.now( ).minusSeconds( AppPropertiesService.getPropertyInt( PROPERTY_SWEEP_DELAY, DEFAULT_SWEEP_DELAY ) );
+            for ( Hold hold : HoldHome.findNotReleasedExpiredBefore( dateLimit ) )
+            {
+                if ( giveBack( hold.getIdHold( ), hold.getIdSlot( ), hold.getNbPlaces( ) ) )
+                {
+                    _lNbHoldsExpired.incrementAndGet( );
+                }
+            }
+            HoldHome.deleteReleased( );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Error while releasing the expired slot holds", e );
+        }
+    }
+
+    /**
+     * Give back the places of a hold to its slot, in the same transaction as the release of the hold : the places are given back only if the hold was not
+     * released yet
+     * 
+     * @param nIdHold
+     *            the id of the hold
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nNbPlaces
+     *            the number of places held
+     * @return true if the places have been given back, false if the hold had already been released
+     */
+    private static boolean giveBack( int nIdHold, int nIdSlot, int nNbPlaces )
+    {
+        TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+        try
+        {
+            boolean bReleased = HoldHome.release( nIdHold );
+            if ( bReleased )
+            {
+                SlotSafeService.incrementPotentialRemainingPlaces( nNbPlaces, nIdSlot );
+            }
+            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+
+            return bReleased;
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+            AppLogService.error( "Error while releasing the hold " + nIdHold + " on the slot " + nIdSlot, e );
+
+            return false;
+        }
+    }
+
+    /**
+     * Cancel the scheduled expiry of a hold. Nothing is done for a hold that has not been registered in this JVM (deserialized after a session failover)
+     * 
+     * @param hold
+     *            the hold
+     */
+    private static void stopExpiry( SlotHold hold )
+    {
+        ScheduledFuture<?> expiry = hold.getExpiry( );
+        if ( expiry != null )
+        {
+            expiry.cancel( false );
+            unregister( hold );
+        }
+    }
+
+    /**
+     * Remove a hold from the active holds metrics of this JVM
+     * 
+     * @param hold
+     *            the hold
+     */
+    private static void unregister( SlotHold hold )
+    {
+        _nNbActiveHolds.decrementAndGet( );
+        _lNbActivePlaces.addAndGet( -hold.getNbPlaces( ) );
+    }
+
+    /**
+     * Get the number of active holds
+     * 
+     * @return the number of active holds
+     */
+    public static int getNbActiveHolds( )
+    {
+        return _nNbActiveHolds.get( );
+    }
+
+    /**
+     * Get the number of places held by the active holds
+     * 
+     * @return the number of places held
+     */
+    public static long getNbActivePlaces( )
+    {
+        return _lNbActivePlaces.get( );
+    }
+
+    /**
+     * Get the number of holds registered since the start of the application
+     * 
+     * @return the number of holds registered
+     */
+    public static long getNbHoldsRegistered( )
+    {
+        return _lNbHoldsRegistered.get( );
+    }
+
+    /**
+     * Get the number of holds expired since the start of the application
+     * 
+     * @return the number of holds expired
+     */
+    public static long getNbHoldsExpired( )
+    {
+        return _lNbHoldsExpired.get( );
+    }
+
+    /**
+     * Get the number of holds cancelled since the start of the application
+     * 
+     * @return the number of holds cancelled
+     */
+    public static long getNbHoldsCancelled( )
+    {
+        return _lNbHoldsCancelled.get( );
+    }
+
+    /**
+     * Get a summary of the metrics of the holds
+     * 
+     * @return the metrics
+     */
+    public static String getMetrics( )
+    {
+        return new StringBuilder( "Slot holds - active : " ).append( getNbActiveHolds( ) ).append( ", places held : " ).append( getNbActivePlaces( ) )
+                .append( ", registered : " ).append( getNbHoldsRegistered( ) ).append( ", expired : " ).append( getNbHoldsExpired( ) )
+                .append( ", cancelled : " ).append( getNbHoldsCancelled( ) ).toString( );
+    }
+
+    /**
+     * Stop the expiry engine. The pending holds are dropped: the holds and the potential remaining places are reset when the application is shut down
+     */
+    public static void shutdown( )
+    {
+        _executor.shutdownNow( );
+    }
+
+    /**
+     * Create the scheduled executor of the holds
+     * 
+     * @return the scheduled executor
+     */
+    private static ScheduledThreadPoolExecutor createExecutor( )
+    {
+        AtomicInteger nThreadNumber = new AtomicInteger( );
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor( AppPropertiesService.getPropertyInt( PROPERTY_NB_THREADS, DEFAULT_NB_THREADS ),
+                runnable -> {
+                    Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + nThreadNumber.incrementAndGet( ) );
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+        executor.setRemoveOnCancelPolicy( true );
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy( false );
+        long lSweepDelay = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_SWEEP_DELAY, DEFAULT_SWEEP_DELAY ) );
+        executor.scheduleWithFixedDelay( SlotHoldScheduler::sweep, lSweepDelay, lSweepDelay, TimeUnit.SECONDS );
+
+        return executor;
+    }
+}
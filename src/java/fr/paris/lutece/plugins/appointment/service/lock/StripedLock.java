@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+/**
+ * Fixed size table of locks, shared by all the keys. Two keys may share the same lock, but the memory used does not depend on the number of keys locked
+ * since the start of the application, and nothing has to be cleaned
+ */
+public final class StripedLock
+{
+    private static final int MAX_NB_STRIPES = 1 << 16;
+
+    private final Object [ ] _locks;
+    private final int _nMask;
+
+    /**
+     * Constructor
+     * 
+     * @param nNbStripes
+     *            the number of locks of the table (rounded up to a power of two)
+     */
+    public StripedLock( int nNbStripes )
+    {
+        int nNbStripesBounded = Math.max( 1, Math.min( nNbStripes, MAX_NB_STRIPES ) );
+        int nSize = Integer.highestOneBit( nNbStripesBounded );
+        if ( nSize < nNbStripesBounded )
+        {
+            nSize <<= 1;
+        }
+        _locks = new Object [ nSize];
+        for ( int i = 0; i < nSize; i++ )
+        {
+            _locks [i] = new Object( );
+        }
+        _nMask = nSize - 1;
+    }
+
+    /**
+     * Get the lock of a key. The same key always gets the same lock
+     * 
+     * @param nKey
+     *            the key
+     * @return the lock of the key
+     */
+    public Object getLock( int nKey )
+    {
+        // Spread the bits of the key, so that close keys do not fall in regular patterns of stripes
+        int nHash = nKey * 0x9E3779B9;
+        return _locks [( nHash ^ ( nHash >>> 16 ) ) & _nMask];
+    }
+
+    /**
+     * Get the number of locks of the table
+     * 
+     * @return the number of locks
+     */
+    public int getNbStripes( )
+    {
+        return _locks.length;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.stream;
+
+import java.util.Collection;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.SlotService;
+import fr.paris.lutece.plugins.appointment.service.listeners.ILocalSlotListener;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Listener that sends the remaining places of the slots changed to the calendars connected to the stream of their form. The messages are JSON arrays of
+ * deltas : the id, the starting date time and the places of each slot changed, or the id and a removal flag of a slot removed. The listener is node-local :
+ * each node sends the changes it makes to the calendars connected to it, at once after the commit, without going through the outbox of the events
+ */
+public class SlotAvailabilityStreamListener implements ILocalSlotListener
+{
+    private static final String JSON_ID_SLOT = "idSlot";
+    private static final String JSON_STARTING_DATE_TIME = "startingDateTime";
+    private static final String JSON_IS_OPEN = "isOpen";
+    private static final String JSON_MAX_CAPACITY = "maxCapacity";
+    private static final String JSON_NB_REMAINING_PLACES = "nbRemainingPlaces";
+    private static final String JSON_NB_POTENTIAL_REMAINING_PLACES = "nbPotentialRemainingPlaces";
+    private static final String JSON_REMOVED = "removed";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifySlotChange( int nIdSlot )
+    {
+        publishSlot( nIdSlot );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifySlotRemoval( int nIdSlot )
+    {
+        if ( SlotAvailabilityStreamService.hasSubscribers( ) )
+        {
+            // The slot no longer exists, its form is unknown
+            JSONObject jsonDelta = new JSONObject( );
+            jsonDelta.accumulate( JSON_ID_SLOT, nIdSlot );
+            jsonDelta.accumulate( JSON_REMOVED, true );
+            JSONArray jsonDeltas = new JSONArray( );
+            jsonDeltas.add( jsonDelta );
+            SlotAvailabilityStreamService.publishToAll( jsonDeltas.toString( ) );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifySlotsChange( int nIdForm, Collection<Integer> listIdSlots )
+    {
+        if ( SlotAvailabilityStreamService.hasSubscribers( nIdForm ) )
+        {
+            JSONArray jsonDeltas = new JSONArray( );
+            for ( Integer nIdSlot : listIdSlots )
+            {
+                Slot slot = SlotService.findSlotById( nIdSlot );
+                if ( slot != null )
+                {
+                    jsonDeltas.add( buildDelta( slot ) );
+                }
+            }
+            if ( !jsonDeltas.isEmpty( ) )
+            {
+                SlotAvailabilityStreamService.publish( nIdForm, jsonDeltas.toString( ) );
+            }
+        }
+    }
+
+    /**
+     * Send the places of a slot to the calendars connected to the stream of its form
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    private static void publishSlot( int nIdSlot )
+    {
+        if ( !SlotAvailabilityStreamService.hasSubscribers( ) )
+        {
+            return;
+        }
+        Slot slot = SlotService.findSlotById( nIdSlot );
+        if ( slot != null && SlotAvailabilityStreamService.hasSubscribers( slot.getIdForm( ) ) )
+        {
+            JSONArray jsonDeltas = new JSONArray( );
+            jsonDeltas.add( buildDelta( slot ) );
+            SlotAvailabilityStreamService.publish( slot.getIdForm( ), jsonDeltas.toString( ) );
+        }
+    }
+
+    /**
+     * Build the delta of a slot
+     * 
+     * @param slot
+     *            the slot
+     * @return the JSON delta
+     */
+    private static JSONObject buildDelta( Slot slot )
+    {
+        JSONObject jsonDelta = new JSONObject( );
+        jsonDelta.accumulate( JSON_ID_SLOT, slot.getIdSlot( ) );
+        jsonDelta.accumulate( JSON_STARTING_DATE_TIME, slot.getStartingDateTime( ).toString( ) );
+        jsonDelta.accumulate( JSON_IS_OPEN, slot.getIsOpen( ) );
+        jsonDelta.accumulate( JSON_MAX_CAPACITY, slot.getMaxCapacity( ) );
+        jsonDelta.accumulate( JSON_NB_REMAINING_PLACES, slot.getNbRemainingPlaces( ) );
+        jsonDelta.accumulate( JSON_NB_POTENTIAL_REMAINING_PLACES, slot.getNbPotentialRemainingPlaces( ) );
+        return jsonDelta;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.stream;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Fan-out of the availability changes of the slots to the calendars connected to the stream of a form. Each connection has its own bounded queue, a slow
+ * connection is dropped instead of holding the messages of the others (the calendar reconnects and reloads its slots). The subscriptions are local to the
+ * node : they receive the changes made by this node
+ */
+public final class SlotAvailabilityStreamService
+{
+    private static final String PROPERTY_QUEUE_SIZE = "appointment.stream.queueSize";
+    private static final String PROPERTY_MAX_CONNECTIONS = "appointment.stream.maxConnections";
+    private static final int DEFAULT_QUEUE_SIZE = 50;
+    private static final int DEFAULT_MAX_CONNECTIONS = 50;
+
+    private static final Map<Integer, Set<SlotAvailabilitySubscription>> _mapSubscriptions = new ConcurrentHashMap<>( );
+    private static final AtomicInteger _nNbConnections = new AtomicInteger( );
+    private static final AtomicLong _lNbMessages = new AtomicLong( );
+    private static final AtomicLong _lNbDropped = new AtomicLong( );
+    private static final AtomicLong _lNbRejected = new AtomicLong( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private SlotAvailabilityStreamService( )
+    {
+    }
+
+    /**
+     * Subscribe to the availability changes of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the subscription, or null if the maximum number of connections is reached
+     */
+    public static SlotAvailabilitySubscription subscribe( int nIdForm )
+    {
+        if ( _nNbConnections.incrementAndGet( ) > AppPropertiesService.getPropertyInt( PROPERTY_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS ) )
+        {
+            _nNbConnections.decrementAndGet( );
+            _lNbRejected.incrementAndGet( );
+            return null;
+        }
+        SlotAvailabilitySubscription subscription = new SlotAvailabilitySubscription( nIdForm, Math.max( 1,
+                AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ) ) );
+        _mapSubscriptions.computeIfAbsent( nIdForm, k -> ConcurrentHashMap.newKeySet( ) ).add( subscription );
+        return subscription;
+    }
+
+    /**
+     * Remove a subscription
+     * 
+     * @param subscription
+     *            the subscription
+     */
+    public static void unsubscribe( SlotAvailabilitySubscription subscription )
+    {
+        Set<SlotAvailabilitySubscription> setSubscriptions = _mapSubscriptions.get( subscription.getIdForm( ) );
+        if ( setSubscriptions != null && setSubscriptions.remove( subscription ) )
+        {
+            _nNbConnections.decrementAndGet( );
+        }
+    }
+
+    /**
+     * Tell whether a calendar is connected to the stream of any form
+     * 
+     * @return true if there is at least one connection
+     */
+    public static boolean hasSubscribers( )
+    {
+        return _nNbConnections.get( ) > 0;
+    }
+
+    /**
+     * Tell whether a calendar is connected to the stream of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return true if there is at least one connection for the form
+     */
+    public static boolean hasSubscribers( int nIdForm )
+    {
+        Set<SlotAvailabilitySubscription> setSubscriptions = _mapSubscriptions.get( nIdForm );
+        return setSubscriptions != null && !setSubscriptions.isEmpty( );
+    }
+
+    /**
+     * Send a message to the calendars connected to the stream of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param strMessage
+     *            the message
+     */
+    public static void publish( int nIdForm, String strMessage )
+    {
+        Set<SlotAvailabilitySubscription> setSubscriptions = _mapSubscriptions.get( nIdForm );
+        if ( setSubscriptions != null )
+        {
+            for ( SlotAvailabilitySubscription subscription : setSubscriptions )
+            {
+                if ( subscription.offer( strMessage ) )
+                {
+                    _lNbMessages.incrementAndGet( );
+                }
+                else if ( setSubscriptions.remove( subscription ) )
+                {
+                    // The connection notices the drop and ends
+                    _nNbConnections.decrementAndGet( );
+                    _lNbDropped.incrementAndGet( );
+                }
+            }
+        }
+    }
+
+    /**
+     * Send a message to all the connected calendars
+     * 
+     * @param strMessage
+     *            the message
+     */
+    public static void publishToAll( String strMessage )
+    {
+        for ( Integer nIdForm : _mapSubscriptions.keySet( ) )
+        {
+            publish( nIdForm, strMessage );
+        }
+    }
+
+    /**
+     * Get the statistics of the streams
+     * 
+     * @return the statistics of the streams
+     */
+    public static String getMetrics( )
+    {
+        return new StringBuilder( "Availability streams - connections : " ).append( _nNbConnections.get( ) ).append( ", messages : " )
+                .append( _lNbMessages.get( ) ).append( ", slow connections dropped : " ).append( _lNbDropped.get( ) ).append( ", rejected : " )
+                .append( _lNbRejected.get( ) ).toString( );
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.stream;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subscription of a connected calendar to the availability changes of a form. The messages are queued in a bounded queue until they are written to the
+ * connection : if the client does not read them fast enough and the queue is full, the subscription is dropped
+ */
+public final class SlotAvailabilitySubscription
+{
+    private final int _nIdForm;
+    private final BlockingQueue<String> _queue;
+    private volatile boolean _bDropped;
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param nQueueSize
+     *            the maximum number of messages waiting to be written
+     */
+    SlotAvailabilitySubscription( int nIdForm, int nQueueSize )
+    {
+        _nIdForm = nIdForm;
+        _queue = new ArrayBlockingQueue<>( nQueueSize );
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Queue a message for the client. The subscription is dropped if the queue is full
+     * 
+     * @param strMessage
+     *            the message
+     * @return true if the message has been queued, false if the subscription is dropped
+     */
+    boolean offer( String strMessage )
+    {
+        if ( !_bDropped && !_queue.offer( strMessage ) )
+        {
+            _bDropped = true;
+            _queue.clear( );
+        }
+        return !_bDropped;
+    }
+
+    /**
+     * Wait for the next message
+     * 
+     * @param lTimeout
+     *            the maximum time to wait, in milliseconds
+     * @return the next message, or null if there is no message after the timeout
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    public String poll( long lTimeout ) throws InterruptedException
+    {
+        return _queue.poll( lTimeout, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Tell whether the subscription has been dropped because the client was too slow
+     * 
+     * @return true if the subscription has been dropped
+     */
+    public boolean isDropped( )
+    {
+        return _bDropped;
+    }
+}
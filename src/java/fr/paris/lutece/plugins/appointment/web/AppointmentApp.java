@@ -37,6 +37,7 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.TemporalField;
 import java.time.temporal.WeekFields;
 import java.util.ArrayList;
@@ -50,6 +51,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.collections.CollectionUtils;
@@ -73,6 +75,7 @@ import fr.paris.lutece.plugins.appointment.log.LogUtilities;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResponseService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentUtilities;
+import fr.paris.lutece.plugins.appointment.service.DayAvailabilityService;
 import fr.paris.lutece.plugins.appointment.service.DisplayService;
 import fr.paris.lutece.plugins.appointment.service.EntryService;
 import fr.paris.lutece.plugins.appointment.service.FormMessageService;
@@ -84,11 +87,12 @@ import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.UserService;
 import fr.paris.lutece.plugins.appointment.service.Utilities;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningSnapshot;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
 import fr.paris.lutece.plugins.appointment.service.upload.AppointmentAsynchronousUploadHandler;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
-import fr.paris.lutece.plugins.genericattributes.business.Entry;
 import fr.paris.lutece.plugins.genericattributes.business.GenericAttributeError;
 import fr.paris.lutece.portal.service.admin.AdminUserService;
 import fr.paris.lutece.portal.service.captcha.CaptchaSecurityService;
@@ -306,37 +310,13 @@ public class AppointmentApp extends MVCApplication
             addError( ERROR_MESSAGE_NO_STARTING_VALIDITY_DATE, locale );
             bError = true;
         }
-        LocalDate startingDateOfDisplay = LocalDate.now( );
-        if ( startingValidityDate != null && startingValidityDate.isAfter( startingDateOfDisplay ) )
-        {
-            startingDateOfDisplay = startingValidityDate;
-        }
+        LocalDate startingDateOfDisplay = getStartingDateOfDisplay( form );
         Display display = DisplayService.findDisplayWithFormId( nIdForm );
-        // Get the nb weeks to display
-        int nNbWeeksToDisplay = display.getNbWeeksToDisplay( );
-        // Calculate the ending date of display with the nb weeks to display
-        // since today
-        // We calculate the number of weeks including the current week, so it
-        // will end to the (n) next sunday
-        TemporalField fieldISO = WeekFields.of( locale ).dayOfWeek( );
-        LocalDate dateOfSunday = startingDateOfDisplay.with( fieldISO, DayOfWeek.SUNDAY.getValue( ) );
-        LocalDate endingDateOfDisplay = dateOfSunday.plusWeeks( nNbWeeksToDisplay - 1 );
-        // if the ending date of display is after the ending validity date of
-        // the form
-        // assign the ending date of display with the ending validity date of
-        // the form
-        LocalDate endingValidityDate = form.getEndingValidityDate( );
-        if ( endingValidityDate != null )
+        LocalDate endingDateOfDisplay = getEndingDateOfDisplay( form, display, startingDateOfDisplay, locale );
+        if ( form.getEndingValidityDate( ) != null && startingDateOfDisplay.isAfter( endingDateOfDisplay ) )
         {
-            if ( endingDateOfDisplay.isAfter( endingValidityDate ) )
-            {
-                endingDateOfDisplay = endingValidityDate;
-            }
-            if ( startingDateOfDisplay.isAfter( endingDateOfDisplay ) )
-            {
-                addError( ERROR_MESSAGE_FORM_NO_MORE_VALID, locale );
-                bError = true;
-            }
+            addError( ERROR_MESSAGE_FORM_NO_MORE_VALID, locale );
+            bError = true;
         }
         // Get the current date of display of the calendar, if it exists
         String strDateOfDisplay = request.getParameter( PARAMETER_DATE_OF_DISPLAY );
@@ -346,13 +326,14 @@ public class AppointmentApp extends MVCApplication
             dateOfDisplay = LocalDate.parse( strDateOfDisplay );
         }
         // Get all the week definitions
-        HashMap<LocalDate, WeekDefinition> mapWeekDefinition = WeekDefinitionService.findAllWeekDefinition( nIdForm );
+        PlanningSnapshot planning = PlanningCacheService.getPlanning( nIdForm );
+        HashMap<LocalDate, WeekDefinition> mapWeekDefinition = planning.getMapWeekDefinition( );
         List<WeekDefinition> listWeekDefinition = new ArrayList<>( mapWeekDefinition.values( ) );
         // Filter on the list of weekdefinition on the starting date and the
         // ending date of display
         if ( listWeekDefinition.size( ) > 1 )
         {
-            WeekDefinition weekDefinitionClosest = WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( nIdForm, startingDateOfDisplay );
+            WeekDefinition weekDefinitionClosest = planning.getWeekDefinitionClosestToDateOfApply( startingDateOfDisplay );
             LocalDate dateOfClosestWeekDefinition = weekDefinitionClosest.getDateOfApply( );
             LocalDate maxEndingDateOfWeekDefinition = endingDateOfDisplay;
             listWeekDefinition = listWeekDefinition
@@ -373,29 +354,12 @@ public class AppointmentApp extends MVCApplication
         List<Slot> listSlots = new ArrayList<>( );
         if ( !bError )
         {
-            listSlots = SlotService.buildListSlot( nIdForm, mapWeekDefinition, startingDateOfDisplay, endingDateOfDisplay );
-            // Get the min time from now before a user can take an appointment
-            // (in hours)
-            FormRule formRule = FormRuleService.findFormRuleWithFormId( nIdForm );
-            int minTimeBeforeAppointment = formRule.getMinTimeBeforeAppointment( );
-            LocalDateTime dateTimeBeforeAppointment = LocalDateTime.now( ).plusHours( minTimeBeforeAppointment );
-            // Filter the list of slots
-            if ( CollectionUtils.isNotEmpty( listSlots ) )
-            {
-                listSlots = listSlots.stream( ).filter( s -> s.getStartingDateTime( ).isAfter( dateTimeBeforeAppointment ) ).collect( Collectors.toList( ) );
-            }
-            LocalDate firstDateOfFreeOpenSlot = null;
-            if ( CollectionUtils.isNotEmpty( listSlots ) )
-            {
-                // Need to find the first available slot from now (with time)
-                List<Slot> listAvailableSlots = listSlots.stream( ).filter( s -> ( s.getNbPotentialRemainingPlaces( ) > 0 && s.getIsOpen( ) == Boolean.TRUE ) )
-                        .collect( Collectors.toList( ) );
-                if ( CollectionUtils.isNotEmpty( listAvailableSlots ) )
-                {
-                    firstDateOfFreeOpenSlot = listAvailableSlots.stream( ).min( ( s1, s2 ) -> s1.getStartingDateTime( ).compareTo( s2.getStartingDateTime( ) ) )
-                            .get( ).getDate( );
-                }
-            }
+            LocalDateTime dateTimeBeforeAppointment = getDateTimeBeforeAppointment( nIdForm );
+            // Need to find the first available slot from now (with time)
+            // The days with free places are found in the summary of the
+            // availability of the form, only their slots are built
+            LocalDate firstDateOfFreeOpenSlot = DayAvailabilityService.findFirstDateOfFreeOpenSlot( nIdForm, dateTimeBeforeAppointment,
+                    startingDateOfDisplay, endingDateOfDisplay, locale );
             if ( firstDateOfFreeOpenSlot == null )
             {
                 addError( ERROR_MESSAGE_NO_AVAILABLE_SLOT, locale );
@@ -406,6 +370,11 @@ public class AppointmentApp extends MVCApplication
             {
                 dateOfDisplay = firstDateOfFreeOpenSlot;
             }
+            // Only the week displayed is built, the other weeks are loaded by
+            // the calendar when navigating (see getCalendarSlots)
+            listSlots = SlotService
+                    .buildListSlotOfWeeks( nIdForm, mapWeekDefinition, dateOfDisplay, 1, startingDateOfDisplay, endingDateOfDisplay, locale ).stream( )
+                    .filter( s -> s.getStartingDateTime( ).isAfter( dateTimeBeforeAppointment ) ).collect( Collectors.toList( ) );
         }
         Map<String, Object> model = getModel( );
         if ( bError )
@@ -467,14 +436,14 @@ public class AppointmentApp extends MVCApplication
                 break;
             case CalendarTemplate.FREE_SLOTS:
                 // Keep only the available slots
-                listSlots = listSlots.stream( ).filter( s -> ( ( s.getNbRemainingPlaces( ) > 0 ) && ( s.getIsOpen( ) ) ) ).collect( Collectors.toList( ) );
+                listSlots = filterFreeSlots( listSlots );
                 listHiddenDays.clear( );
                 dayView = BASIC_DAY;
                 weekView = BASIC_WEEK;
                 break;
             case CalendarTemplate.FREE_SLOTS_ON_OPEN_DAYS:
                 // Keep only the available slots
-                listSlots = listSlots.stream( ).filter( s -> ( ( s.getNbRemainingPlaces( ) > 0 ) && ( s.getIsOpen( ) ) ) ).collect( Collectors.toList( ) );
+                listSlots = filterFreeSlots( listSlots );
                 // update the list of the days to hide
                 listHiddenDays.removeAll( listStrBase0OpenDaysOfWeek );
                 dayView = BASIC_DAY;
@@ -500,6 +469,134 @@ public class AppointmentApp extends MVCApplication
         return xpage;
     }
 
+    /**
+     * Get the slots of the week of a given date, in JSON. Called by the calendar when navigating to a week that has not been built with the page
+     * 
+     * @param request
+     *            the request
+     * @param response
+     *            the response, of which the status is set to 400 if the date of display is not a valid date
+     * @return the JSON array of the slots of the week
+     */
+    public String getCalendarSlots( HttpServletRequest request, HttpServletResponse response )
+    {
+        String strIdForm = request.getParameter( PARAMETER_ID_FORM );
+        String strDateOfDisplay = request.getParameter( PARAMETER_DATE_OF_DISPLAY );
+        List<Slot> listSlots = new ArrayList<>( );
+        if ( StringUtils.isNumeric( strIdForm ) && StringUtils.isNotEmpty( strIdForm ) && StringUtils.isNotEmpty( strDateOfDisplay ) )
+        {
+            LocalDate dateOfDisplay;
+            try
+            {
+                dateOfDisplay = LocalDate.parse( strDateOfDisplay );
+            }
+            catch( DateTimeParseException e )
+            {
+                response.setStatus( HttpServletResponse.SC_BAD_REQUEST );
+                return AppointmentUtilities.buildJsonSlots( listSlots );
+            }
+            int nIdForm = Integer.parseInt( strIdForm );
+            Form form = FormService.findFormLightByPrimaryKey( nIdForm );
+            if ( form != null && form.getIsActive( ) && form.getStartingValidityDate( ) != null )
+            {
+                Locale locale = getLocale( request );
+                Display display = DisplayService.findDisplayWithFormId( nIdForm );
+                LocalDate startingDateOfDisplay = getStartingDateOfDisplay( form );
+                LocalDate endingDateOfDisplay = getEndingDateOfDisplay( form, display, startingDateOfDisplay, locale );
+                LocalDateTime dateTimeBeforeAppointment = getDateTimeBeforeAppointment( nIdForm );
+                listSlots = SlotService
+                        .buildListSlotOfWeeks( nIdForm, PlanningCacheService.getPlanning( nIdForm ).getMapWeekDefinition( ),
+                                dateOfDisplay, 1, startingDateOfDisplay, endingDateOfDisplay, locale ).stream( )
+                        .filter( s -> s.getStartingDateTime( ).isAfter( dateTimeBeforeAppointment ) ).collect( Collectors.toList( ) );
+                String strTemplateTitle = CalendarTemplateHome.findByPrimaryKey( display.getIdCalendarTemplate( ) ).getTitle( );
+                if ( CalendarTemplate.FREE_SLOTS.equals( strTemplateTitle ) || CalendarTemplate.FREE_SLOTS_ON_OPEN_DAYS.equals( strTemplateTitle ) )
+                {
+                    listSlots = filterFreeSlots( listSlots );
+                }
+            }
+        }
+        return AppointmentUtilities.buildJsonSlots( listSlots );
+    }
+
+    /**
+     * Get the starting date of display of the calendar of a form : today, or the starting validity date of the form if it is in the future
+     * 
+     * @param form
+     *            the form
+     * @return the starting date of display
+     */
+    private static LocalDate getStartingDateOfDisplay( Form form )
+    {
+        LocalDate startingDateOfDisplay = LocalDate.now( );
+        LocalDate startingValidityDate = form.getStartingValidityDate( );
+        if ( startingValidityDate != null && startingValidityDate.isAfter( startingDateOfDisplay ) )
+        {
+            startingDateOfDisplay = startingValidityDate;
+        }
+        return startingDateOfDisplay;
+    }
+
+    /**
+     * Get the ending date of display of the calendar of a form
+     * 
+     * @param form
+     *            the form
+     * @param display
+     *            the display of the form
+     * @param startingDateOfDisplay
+     *            the starting date of display
+     * @param locale
+     *            the locale
+     * @return the ending date of display
+     */
+    private static LocalDate getEndingDateOfDisplay( Form form, Display display, LocalDate startingDateOfDisplay, Locale locale )
+    {
+        // Get the nb weeks to display
+        int nNbWeeksToDisplay = display.getNbWeeksToDisplay( );
+        // Calculate the ending date of display with the nb weeks to display
+        // since today
+        // We calculate the number of weeks including the current week, so it
+        // will end to the (n) next sunday
+        TemporalField fieldISO = WeekFields.of( locale ).dayOfWeek( );
+        LocalDate dateOfSunday = startingDateOfDisplay.with( fieldISO, DayOfWeek.SUNDAY.getValue( ) );
+        LocalDate endingDateOfDisplay = dateOfSunday.plusWeeks( nNbWeeksToDisplay - 1 );
+        // if the ending date of display is after the ending validity date of
+        // the form
+        // assign the ending date of display with the ending validity date of
+        // the form
+        LocalDate endingValidityDate = form.getEndingValidityDate( );
+        if ( endingValidityDate != null && endingDateOfDisplay.isAfter( endingValidityDate ) )
+        {
+            endingDateOfDisplay = endingValidityDate;
+        }
+        return endingDateOfDisplay;
+    }
+
+    /**
+     * Get the min date time from now before a user can take an appointment
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @return the min date time of the slots that can be booked
+     */
+    private static LocalDateTime getDateTimeBeforeAppointment( int nIdForm )
+    {
+        FormRule formRule = FormRuleService.findFormRuleWithFormId( nIdForm );
+        return LocalDateTime.now( ).plusHours( formRule.getMinTimeBeforeAppointment( ) );
+    }
+
+    /**
+     * Keep only the open slots with free places
+     * 
+     * @param listSlots
+     *            the list of slots
+     * @return the slots with free places
+     */
+    private static List<Slot> filterFreeSlots( List<Slot> listSlots )
+    {
+        return listSlots.stream( ).filter( s -> ( ( s.getNbRemainingPlaces( ) > 0 ) && ( s.getIsOpen( ) ) ) ).collect( Collectors.toList( ) );
+    }
+
     /**
      * Get the form appointment view (front office)
      * 
@@ -510,7 +607,7 @@ public class AppointmentApp extends MVCApplication
      */
     @SuppressWarnings( "unchecked" )
     @View( VIEW_APPOINTMENT_FORM )
-    public synchronized XPage getViewAppointmentForm( HttpServletRequest request ) throws UserNotSignedException
+    public XPage getViewAppointmentForm( HttpServletRequest request ) throws UserNotSignedException
     {
         AppointmentFormDTO form = (AppointmentFormDTO) request.getSession( ).getAttribute( SESSION_ATTRIBUTE_APPOINTMENT_FORM );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
@@ -621,29 +718,23 @@ public class AppointmentApp extends MVCApplication
             ReservationRule reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, slot.getDate( ) );
             WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( nIdForm, slot.getDate( ) );
             form = FormService.buildAppointmentForm( nIdForm, reservationRule.getIdReservationRule( ), weekDefinition.getIdWeekDefinition( ) );
-           
-            synchronized(slot){
-            	 
-                // Need to check competitive access
-                // May be the slot is already taken at the same time
-	            if ( !bTestSecondAttempt && slot.getNbPotentialRemainingPlaces( ) == 0 )
-	            {
-	                addError( ERROR_MESSAGE_SLOT_FULL, getLocale( request ) );
-	                return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm );
-	            }
-	            
-            
-	            appointmentDTO.setSlot( slot );
-	            appointmentDTO.setIdSlot( slot.getIdSlot( ) );
-	            appointmentDTO.setDateOfTheAppointment( slot.getDate( ).format( Utilities.getFormatter( ) ) );
-	            appointmentDTO.setIdForm( nIdForm );
-	            LuteceUser user = SecurityService.getInstance( ).getRegisteredUser( request );
-	            if ( user != null )
-	            {
-	                setUserInfo( request, appointmentDTO );
-	            }        
-	            AppointmentUtilities.putTimerInSession( request, slot.getIdSlot(), appointmentDTO, form.getMaxPeoplePerAppointment( ) );
+            // Fast check, the places are really held by the atomic update of the slot done when the timer is put in session
+            if ( !bTestSecondAttempt && slot.getNbPotentialRemainingPlaces( ) == 0 )
+            {
+                addError( ERROR_MESSAGE_SLOT_FULL, getLocale( request ) );
+                return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm );
             }
+            appointmentDTO.setSlot( slot );
+            appointmentDTO.setIdSlot( slot.getIdSlot( ) );
+            appointmentDTO.setDateOfTheAppointment( slot.getDate( ).format( Utilities.getFormatter( ) ) );
+            appointmentDTO.setIdForm( nIdForm );
+            LuteceUser user = SecurityService.getInstance( ).getRegisteredUser( request );
+            if ( user != null )
+            {
+                setUserInfo( request, appointmentDTO );
+            }
+            // Only the bookings of the same slot compete here, on the potential remaining places of the slot
+            AppointmentUtilities.putTimerInSession( request, slot.getIdSlot( ), appointmentDTO, form.getMaxPeoplePerAppointment( ) );
             if ( appointmentDTO.getNbMaxPotentialBookedSeats() == 0 )
             {
                 addError( ERROR_MESSAGE_SLOT_FULL, getLocale( request ) );
@@ -668,12 +759,7 @@ public class AppointmentApp extends MVCApplication
         }
         Map<String, Object> model = getModel( );
         Locale locale = getLocale( request );
-        StringBuilder strBuffer = new StringBuilder( );
-        List<Entry> listEntryFirstLevel = EntryService.getFilter( form.getIdForm( ), true );
-        for ( Entry entry : listEntryFirstLevel )
-        {
-            EntryService.getHtmlEntry( model, entry.getIdEntry( ), strBuffer, locale, true, request );
-        }
+        String strEntries = EntryService.getHtmlEntries( model, form.getIdForm( ), locale, true, request );
         FormMessage formMessages = FormMessageService.findFormMessageByIdForm( nIdForm );
         List<GenericAttributeError> listErrors = (List<GenericAttributeError>) request.getSession( ).getAttribute( SESSION_APPOINTMENT_FORM_ERRORS );
         if ( listErrors != null )
@@ -685,7 +771,7 @@ public class AppointmentApp extends MVCApplication
         model.put( PARAMETER_DATE_OF_DISPLAY, appointmentDTO.getSlot( ).getDate( ) );
         model.put( MARK_FORM, form );
         model.put( MARK_FORM_MESSAGES, formMessages );
-        model.put( MARK_STR_ENTRY, strBuffer.toString( ) );
+        model.put( MARK_STR_ENTRY, strEntries );
         model.put( MARK_LOCALE, locale );
         model.put( MARK_PLACES, appointmentDTO.getNbMaxPotentialBookedSeats( ) );
         model.put( MARK_FORM_ERRORS, listErrors );
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+
+import fr.paris.lutece.plugins.appointment.business.export.ExportJob;
+import fr.paris.lutece.plugins.appointment.service.AppointmentResourceIdService;
+import fr.paris.lutece.plugins.appointment.service.export.ExportJobService;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.portal.service.admin.AccessDeniedException;
+import fr.paris.lutece.portal.service.rbac.RBACService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.util.mvc.admin.MVCAdminJspBean;
+import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
+import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
+import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
+import fr.paris.lutece.portal.util.mvc.utils.MVCUtils;
+import fr.paris.lutece.util.url.UrlItem;
+
+/**
+ * This class provides the user interface to request the exports run in the background and to download their files ( list, create, download, remove )
+ */
+@Controller( controllerJsp = "ManageAppointmentExports.jsp", controllerPath = "jsp/admin/plugins/appointment/", right = AppointmentFormJspBean.RIGHT_MANAGEAPPOINTMENTFORM )
+public class AppointmentExportJobJspBean extends MVCAdminJspBean
+{
+    private static final long serialVersionUID = 6403392530418226703L;
+
+    // templates
+    private static final String TEMPLATE_MANAGE_EXPORTS = "/admin/plugins/appointment/export/manage_exports.html";
+
+    // JSP
+    private static final String JSP_MANAGE_EXPORTS = "jsp/admin/plugins/appointment/ManageAppointmentExports.jsp";
+
+    // Parameters
+    private static final String PARAMETER_ID_EXPORT_JOB = "id_export_job";
+    private static final String PARAMETER_ID_FORM = "id_form";
+    private static final String PARAMETER_EXPORT_FORMAT = "export_format";
+
+    // Properties for page titles
+    private static final String PROPERTY_PAGE_TITLE_MANAGE_EXPORTS = "appointment.manageExports.pageTitle";
+
+    // Markers
+    private static final String MARK_EXPORTS_LIST = "exports_list";
+
+    // Views
+    private static final String VIEW_MANAGE_EXPORTS = "manageExports";
+
+    // Actions
+    private static final String ACTION_CREATE_APPOINTMENTS_EXPORT = "createAppointmentsExport";
+    private static final String ACTION_CREATE_FORM_EXPORT = "createFormExport";
+    private static final String ACTION_REMOVE_EXPORT = "removeExport";
+
+    // Infos
+    private static final String INFO_EXPORT_CREATED = "appointment.info.export.created";
+    private static final String INFO_EXPORT_REMOVED = "appointment.info.export.removed";
+
+    // Errors
+    private static final String ERROR_TOO_MANY_EXPORTS = "appointment.message.error.tooManyExports";
+    private static final String ERROR_EXPORT_NOT_AVAILABLE = "appointment.message.error.exportNotAvailable";
+    private static final String ERROR_EXPORT_NOT_REMOVED = "appointment.message.error.exportNotRemoved";
+
+    /**
+     * Default constructor
+     */
+    public AppointmentExportJobJspBean( )
+    {
+    }
+
+    /**
+     * Get the page listing the exports of the user
+     * 
+     * @param request
+     *            the request
+     * @return The HTML content to display
+     */
+    @View( value = VIEW_MANAGE_EXPORTS, defaultView = true )
+    public String getManageExports( HttpServletRequest request )
+    {
+        Map<String, Object> model = getModel( );
+        model.put( MARK_EXPORTS_LIST, ExportJobService.findByAdminUser( getUser( ) ) );
+        return getPage( PROPERTY_PAGE_TITLE_MANAGE_EXPORTS, TEMPLATE_MANAGE_EXPORTS, model );
+    }
+
+    /**
+     * Request the export of the appointments of a form, with the filter of the list of the appointments
+     * 
+     * @param request
+     *            the request
+     * @return The JSP URL of the process result
+     * @throws AccessDeniedException
+     *             If the user is not authorized to view the appointments of the form
+     */
+    @Action( ACTION_CREATE_APPOINTMENTS_EXPORT )
+    public String doCreateAppointmentsExport( HttpServletRequest request ) throws AccessDeniedException
+    {
+        String strIdForm = request.getParameter( PARAMETER_ID_FORM );
+        if ( StringUtils.isEmpty( strIdForm ) || !StringUtils.isNumeric( strIdForm ) )
+        {
+            return redirectView( request, VIEW_MANAGE_EXPORTS );
+        }
+        if ( !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm, AppointmentResourceIdService.PERMISSION_VIEW_APPOINTMENT, getUser( ) ) )
+        {
+            throw new AccessDeniedException( AppointmentResourceIdService.PERMISSION_VIEW_APPOINTMENT );
+        }
+        try
+        {
+            addCreationResult( ExportJobService.createAppointmentsExport( AppointmentJspBean.getFilterToExport( request, Integer.parseInt( strIdForm ) ),
+                    request.getParameter( PARAMETER_EXPORT_FORMAT ), getUser( ), getLocale( ) ) );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Error while requesting the export of the appointments of the form " + strIdForm, e );
+            addError( ERROR_EXPORT_NOT_AVAILABLE, getLocale( ) );
+        }
+        return redirectView( request, VIEW_MANAGE_EXPORTS );
+    }
+
+    /**
+     * Request the export of the definition of a form
+     * 
+     * @param request
+     *            the request
+     * @return The JSP URL of the process result
+     * @throws AccessDeniedException
+     *             If the user is not authorized to modify the form
+     */
+    @Action( ACTION_CREATE_FORM_EXPORT )
+    public String doCreateFormExport( HttpServletRequest request ) throws AccessDeniedException
+    {
+        String strIdForm = request.getParameter( PARAMETER_ID_FORM );
+        if ( StringUtils.isEmpty( strIdForm ) || !StringUtils.isNumeric( strIdForm ) )
+        {
+            return redirectView( request, VIEW_MANAGE_EXPORTS );
+        }
+        if ( !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm, AppointmentResourceIdService.PERMISSION_MODIFY_FORM, getUser( ) ) )
+        {
+            throw new AccessDeniedException( AppointmentResourceIdService.PERMISSION_MODIFY_FORM );
+        }
+        addCreationResult( ExportJobService.createFormExport( Integer.parseInt( strIdForm ), getUser( ), getLocale( ) ) );
+        return redirectView( request, VIEW_MANAGE_EXPORTS );
+    }
+
+    /**
+     * Remove an export of the user and its file
+     * 
+     * @param request
+     *            the request
+     * @return The JSP URL of the process result
+     */
+    @Action( ACTION_REMOVE_EXPORT )
+    public String doRemoveExport( HttpServletRequest request )
+    {
+        ExportJob exportJob = findExportJobOfUser( request );
+        if ( exportJob != null )
+        {
+            if ( ExportJobService.remove( exportJob ) )
+            {
+                addInfo( INFO_EXPORT_REMOVED, getLocale( ) );
+            }
+            else
+            {
+                addError( ERROR_EXPORT_NOT_REMOVED, getLocale( ) );
+            }
+        }
+        return redirectView( request, VIEW_MANAGE_EXPORTS );
+    }
+
+    /**
+     * Do download the file of an export of the user
+     * 
+     * @param request
+     *            The request
+     * @param response
+     *            The response
+     * @return nothing.
+     */
+    public String getDownloadExportFile( HttpServletRequest request, HttpServletResponse response )
+    {
+        ExportJob exportJob = findExportJobOfUser( request );
+        int nFileSize = ( exportJob != null ) ? ExportJobService.getFileSize( exportJob ) : -1;
+        if ( nFileSize < 0 )
+        {
+            addError( ERROR_EXPORT_NOT_AVAILABLE, getLocale( ) );
+            return redirect( request, getURLManageExports( request ) );
+        }
+        response.setContentType( ExportJobService.getContentType( exportJob ) );
+        response.setHeader( "Content-Disposition", ExportJobService.getContentDisposition( exportJob ) );
+        response.setHeader( "Content-Length", Integer.toString( nFileSize ) );
+        response.setHeader( "Pragma", "public" );
+        response.setHeader( "Expires", "0" );
+        response.setHeader( "Cache-Control", "must-revalidate,post-check=0,pre-check=0" );
+        try
+        {
+            OutputStream os = response.getOutputStream( );
+            ExportJobService.copyFile( exportJob, os );
+            os.close( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Error while downloading the export " + exportJob.getIdExportJob( ), e );
+        }
+        return null;
+    }
+
+    /**
+     * Get the URL to manage the exports
+     * 
+     * @param request
+     *            The request
+     * @return The URL to manage the exports
+     */
+    public static String getURLManageExports( HttpServletRequest request )
+    {
+        UrlItem urlItem = new UrlItem( AppPathService.getBaseUrl( request ) + JSP_MANAGE_EXPORTS );
+        urlItem.addParameter( MVCUtils.PARAMETER_VIEW, VIEW_MANAGE_EXPORTS );
+        return urlItem.getUrl( );
+    }
+
+    /**
+     * Add the message of the result of the request of an export
+     * 
+     * @param exportJob
+     *            the export created, or null if the user has too many exports in progress
+     */
+    private void addCreationResult( ExportJob exportJob )
+    {
+        if ( exportJob != null )
+        {
+            addInfo( INFO_EXPORT_CREATED, getLocale( ) );
+        }
+        else
+        {
+            addError( ERROR_TOO_MANY_EXPORTS, getLocale( ) );
+        }
+    }
+
+    /**
+     * Find the export of the request. The exports of the other users are not accessible
+     * 
+     * @param request
+     *            the request
+     * @return the export, or null if it does not exist or belongs to another user
+     */
+    private ExportJob findExportJobOfUser( HttpServletRequest request )
+    {
+        String strIdExportJob = request.getParameter( PARAMETER_ID_EXPORT_JOB );
+        if ( StringUtils.isEmpty( strIdExportJob ) || !StringUtils.isNumeric( strIdExportJob ) )
+        {
+            return null;
+        }
+        ExportJob exportJob = ExportJobService.findByPrimaryKey( Integer.parseInt( strIdExportJob ) );
+        if ( exportJob == null || exportJob.getIdAdminUser( ) != getUser( ).getUserId( ) )
+        {
+            return null;
+        }
+        return exportJob;
+    }
+}
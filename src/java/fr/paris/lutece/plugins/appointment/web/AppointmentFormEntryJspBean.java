@@ -46,6 +46,7 @@ import fr.paris.lutece.plugins.appointment.service.AppointmentResourceIdService;
 import fr.paris.lutece.plugins.appointment.service.EntryService;
 import fr.paris.lutece.plugins.appointment.service.EntryTypeService;
 import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.plugins.appointment.service.cache.FormEntryCacheService;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.plugins.genericattributes.business.Entry;
 import fr.paris.lutece.plugins.genericattributes.business.EntryFilter;
@@ -275,6 +276,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
                     FieldHome.create( field );
                 }
             }
+            FormEntryCacheService.invalidate( nIdForm );
             if ( request.getParameter( PARAMETER_APPLY ) != null )
             {
                 return redirect( request, VIEW_GET_MODIFY_ENTRY, PARAMETER_ID_ENTRY, entry.getIdEntry( ) );
@@ -380,6 +382,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
                         }
                     }
                 }
+                FormEntryCacheService.invalidate( entry.getIdResource( ) );
             }
             if ( request.getParameter( PARAMETER_APPLY ) != null )
             {
@@ -470,6 +473,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
             // TODO
             // OldAppointmentHome.removeResponsesByIdEntry(nIdEntry);
             EntryHome.remove( nIdEntry );
+            FormEntryCacheService.invalidate( entry.getIdResource( ) );
             if ( entry.getFieldDepend( ) != null )
             {
                 return redirect( request, AppointmentFormFieldJspBean.getUrlModifyField( request, entry.getFieldDepend( ).getIdField( ) ) );
@@ -532,6 +536,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
                     EntryHome.update( entryToMove );
                     entry.setPosition( nNewPosition );
                     EntryHome.update( entry );
+                    FormEntryCacheService.invalidate( entry.getIdResource( ) );
                 }
             }
             return redirect( request, AppointmentFormFieldJspBean.getUrlModifyField( request, entry.getFieldDepend( ).getIdField( ) ) );
@@ -578,6 +583,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
                 Entry entryParent = EntryHome.findByPrimaryKey( entry.getParent( ).getIdEntry( ) );
                 _entryService.moveUpEntryOrder( entryParent.getPosition( ) + entryParent.getChildren( ).size( ), entry );
             }
+            FormEntryCacheService.invalidate( entry.getIdResource( ) );
             if ( entry.getFieldDepend( ) != null )
             {
                 return redirect( request, AppointmentFormFieldJspBean.getUrlModifyField( request, entry.getFieldDepend( ).getIdField( ) ) );
@@ -644,6 +650,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
                 }
             }
         }
+        FormEntryCacheService.invalidate( nIdForm );
         return redirect( request, getURLModifyAppointmentForm( request, nIdForm ) );
     }
 
@@ -665,6 +672,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
             if ( entry.getParent( ) != null )
             {
                 _entryService.moveOutEntryFromGroup( entry );
+                FormEntryCacheService.invalidate( entry.getIdResource( ) );
             }
             return redirect( request, getURLModifyAppointmentForm( request, entry.getIdResource( ) ) );
         }
@@ -690,6 +698,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
             int nIdExpression = Integer.parseInt( strIdExpression );
             FieldHome.removeVerifyBy( nIdField, nIdExpression );
             Field field = FieldHome.findByPrimaryKey( nIdField );
+            FormEntryCacheService.invalidateEntry( field.getParentEntry( ).getIdEntry( ) );
             return redirect( request, VIEW_GET_MODIFY_ENTRY, PARAMETER_ID_ENTRY, field.getParentEntry( ).getIdEntry( ) );
         }
         return redirect( request, AppointmentFormJspBean.getURLManageAppointmentForms( request ) );
@@ -714,6 +723,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
             int nIdExpression = Integer.parseInt( strIdExpression );
             FieldHome.createVerifyBy( nIdField, nIdExpression );
             Field field = FieldHome.findByPrimaryKey( nIdField );
+            FormEntryCacheService.invalidateEntry( field.getParentEntry( ).getIdEntry( ) );
             return redirect( request, VIEW_GET_MODIFY_ENTRY, PARAMETER_ID_ENTRY, field.getParentEntry( ).getIdEntry( ) );
         }
         return redirect( request, AppointmentFormJspBean.getURLManageAppointmentForms( request ) );
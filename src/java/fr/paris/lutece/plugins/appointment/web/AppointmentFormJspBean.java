@@ -52,15 +52,14 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.lang3.StringUtils;
 
-import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplateHome;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.message.FormMessage;
 import fr.paris.lutece.plugins.appointment.business.message.FormMessageHome;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotImpact;
 import fr.paris.lutece.plugins.appointment.log.LogUtilities;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResourceIdService;
-import fr.paris.lutece.plugins.appointment.service.AppointmentService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentUtilities;
 import fr.paris.lutece.plugins.appointment.service.CategoryService;
 import fr.paris.lutece.plugins.appointment.service.ClosingDayService;
@@ -765,25 +764,22 @@ public class AppointmentFormJspBean extends AbstractAppointmentFormAndSlotJspBea
             }
             else
             {
-                List<Slot> listSlotsImpacted;
+                List<SlotImpact> listSlotsImpacted;
                 List<LocalDate> listDateWithError = new ArrayList<>( );
                 List<Slot> listSlotsToDelete = new ArrayList<>( );
-                List<Appointment> listAppointmentsImpacted;
                 for ( LocalDate closingDate : listDateImported )
                 {
                     if ( !listClosingDaysDb.contains( closingDate ) )
                     {
-                        listSlotsImpacted = SlotService
-                                .findSlotsByIdFormAndDateRange( nIdForm, closingDate.atStartOfDay( ), closingDate.atTime( LocalTime.MAX ) );
+                        listSlotsImpacted = SlotService.findSlotImpacts( nIdForm, closingDate.atStartOfDay( ), closingDate.atTime( LocalTime.MAX ) );
                         // Check if there is appointments on this slots
-                        listAppointmentsImpacted = AppointmentService.findListAppointmentByListSlot( listSlotsImpacted );
-                        if ( CollectionUtils.isNotEmpty( listAppointmentsImpacted ) )
+                        if ( listSlotsImpacted.stream( ).anyMatch( SlotImpact::hasAppointments ) )
                         {
                             listDateWithError.add( closingDate );
                         }
                         else
                         {
-                            listSlotsToDelete.addAll( listSlotsImpacted );
+                            listSlotsImpacted.stream( ).map( SlotImpact::getSlot ).forEach( listSlotsToDelete::add );
                             listDateToSave.add( closingDate );
                         }
                     }
@@ -39,16 +39,13 @@ import java.sql.Date;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -56,6 +53,7 @@ import javax.servlet.http.HttpSession;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
@@ -74,6 +72,7 @@ import fr.paris.lutece.plugins.appointment.service.AppointmentResourceIdService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResponseService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentUtilities;
+import fr.paris.lutece.plugins.appointment.service.AppointmentWorkflowService;
 import fr.paris.lutece.plugins.appointment.service.DisplayService;
 import fr.paris.lutece.plugins.appointment.service.EntryService;
 import fr.paris.lutece.plugins.appointment.service.FormMessageService;
@@ -83,15 +82,13 @@ import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
 import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.Utilities;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
 import fr.paris.lutece.plugins.appointment.service.addon.AppointmentAddOnManager;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
-import fr.paris.lutece.plugins.appointment.service.lock.SlotEditTask;
-import fr.paris.lutece.plugins.appointment.service.lock.TimerForLockOnSlot;
 import fr.paris.lutece.plugins.appointment.service.upload.AppointmentAsynchronousUploadHandler;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
-import fr.paris.lutece.plugins.genericattributes.business.Entry;
 import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
 import fr.paris.lutece.plugins.genericattributes.business.GenericAttributeError;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
@@ -127,7 +124,7 @@ import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
 import fr.paris.lutece.portal.util.mvc.utils.MVCUtils;
-import fr.paris.lutece.portal.web.util.LocalizedPaginator;
+import fr.paris.lutece.portal.web.util.LocalizedDelegatePaginator;
 import fr.paris.lutece.util.ReferenceList;
 import fr.paris.lutece.util.html.HtmlTemplate;
 import fr.paris.lutece.util.html.Paginator;
@@ -212,6 +209,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
     private static final String PARAMETER_NUMBER_OF_BOOKED_SEATS = "nbBookedSeats";
     private static final String PARAMETER_STATUS_CANCELLED = "status_cancelled";
     private static final String PARAMETER_MODIF_DATE = "modif_date";
+    private static final String PARAMETER_EXPORT_FORMAT = "export_format";
 
     // Markers
     private static final String MARK_TASKS_FORM = "tasks_form";
@@ -294,20 +292,12 @@ public class AppointmentJspBean extends MVCAdminJspBean
     private static final String SESSION_APPOINTMENT_FORM_ERRORS = "appointment.session.formErrors";
     private static final String SESSION_ATTRIBUTE_APPOINTMENT_FORM = "appointment.session.appointmentForm";
     private static final String SESSION_APPOINTMENT_FILTER = "appointment.session.filter";
-    private static final String SESSION_LIST_APPOINTMENTS = "appointment.session.listAppointments";
 
     // Constants
     private static final String DEFAULT_CURRENT_PAGE = "1";
     public static final String ACTIVATEWORKFLOW = AppPropertiesService.getProperty( "appointment.activate.workflow" );
     public static final String PREVIOUS_FORM = "calendar";
-    private static final String LAST_NAME = "last_name";
-    private static final String FIRST_NAME = "first_name";
-    private static final String EMAIL = "email";
-    private static final String NB_BOOKED_SEATS = "nbBookedSeats";
-    private static final String DATE_APPOINTMENT = "date_appointment";
-    private static final String ADMIN = "admin";
-    private static final String STATUS = "status";
-    private static final int MAX_NB_APPOINTMENTS_TO_EXPORT = 8000;
+    private static final int MAX_NB_APPOINTMENTS_TO_EXPORT = 500000;
     // services
     private final transient StateService _stateService = SpringContextService.getBean( StateService.BEAN_SERVICE );
     private final transient ITaskService _taskService = SpringContextService.getBean( TaskService.BEAN_SERVICE );
@@ -357,8 +347,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
             addError( ERROR_MESSAGE_NO_STARTING_VALIDITY_DATE, getLocale( ) );
             bError = true;
         }
-        Display display = DisplayService.findDisplayWithFormId( nIdForm );
-        int nNbWeeksToDisplay = AppPropertiesService.getPropertyInt( PROPERTY_NB_WEEKS_TO_DISPLAY_IN_BO, display.getNbWeeksToDisplay( ) );
+        int nNbWeeksToDisplay = getNbWeeksToDisplay( nIdForm );
         LocalDate startingDateOfDisplay = LocalDate.now( ).minusWeeks( nNbWeeksToDisplay );
         LocalDate endingDateOfDisplay = LocalDate.now( ).plusWeeks( nNbWeeksToDisplay );
         LocalDate endingValidityDate = form.getEndingValidityDate( );
@@ -381,34 +370,24 @@ public class AppointmentJspBean extends MVCAdminJspBean
             dateOfDisplay = LocalDate.parse( strDateOfDisplay );
         }
         List<Slot> listSlot = new ArrayList<>( );
-        HashMap<LocalDate, WeekDefinition> mapWeekDefinition = WeekDefinitionService.findAllWeekDefinition( nIdForm );
+        HashMap<LocalDate, WeekDefinition> mapWeekDefinition = PlanningCacheService.getPlanning( nIdForm ).getMapWeekDefinition( );
         List<WeekDefinition> listWeekDefinition = new ArrayList<WeekDefinition>( mapWeekDefinition.values( ) );
         LocalTime maxEndingTime = WeekDefinitionService.getMaxEndingTimeOfAListOfWeekDefinition( listWeekDefinition );
         LocalTime minStartingTime = WeekDefinitionService.getMinStartingTimeOfAListOfWeekDefinition( listWeekDefinition );
         List<String> listDayOfWeek = new ArrayList<>( WeekDefinitionService.getSetDaysOfWeekOfAListOfWeekDefinitionForFullCalendar( listWeekDefinition ) );
         if ( !bError )
         {
-            listSlot = SlotService.buildListSlot( nIdForm, mapWeekDefinition, startingDateOfDisplay, endingDateOfDisplay );
-            // Tag as passed the slots passed
-            List<Slot> listSlotsPassed = listSlot.stream( ).filter( s -> s.getEndingDateTime( ).isBefore( LocalDateTime.now( ) ) )
-                    .collect( Collectors.toList( ) );
-            for ( Slot slotPassed : listSlotsPassed )
-            {
-                slotPassed.setIsPassed( Boolean.TRUE );
-            }
+            // Only the week displayed is built, the other weeks are loaded by
+            // the calendar when navigating (see getCalendarSlots)
+            listSlot = buildListSlotOfWeek( nIdForm, mapWeekDefinition, dateOfDisplay, startingDateOfDisplay, endingDateOfDisplay, appointmentDTO );
         }
         Map<String, Object> model = getModel( );
         if ( bError )
         {
             model.put( MARK_FORM_CALENDAR_ERRORS, bError );
         }
-        // If we change the date of an appointment
-        // filter the list of slot with only the ones that have enough places at
-        // the moment of the edition
         if ( appointmentDTO != null )
         {
-            int nbBookedSeats = appointmentDTO.getNbBookedSeats( );
-            listSlot = listSlot.stream( ).filter( s -> s.getNbPotentialRemainingPlaces( ) >= nbBookedSeats && s.getIsOpen( ) ).collect( Collectors.toList( ) );
             request.getSession( ).setAttribute( SESSION_VALIDATED_APPOINTMENT, appointmentDTO );
             model.put( MARK_MODIFICATION_DATE_APPOINTMENT, true );
         }
@@ -432,6 +411,117 @@ public class AppointmentJspBean extends MVCAdminJspBean
         return getPage( PROPERTY_PAGE_TITLE_MANAGE_APPOINTMENTS_CALENDAR, TEMPLATE_MANAGE_APPOINTMENTS_CALENDAR, model );
     }
 
+    /**
+     * Get the slots of the week of a given date, in JSON. Called by the calendar when navigating to a week that has not been built with the page
+     * 
+     * @param request
+     *            The request
+     * @param response
+     *            the response, of which the status is set to 400 if the date of display is not a valid date
+     * @return the JSON array of the slots of the week
+     * @throws AccessDeniedException
+     */
+    public String getCalendarSlots( HttpServletRequest request, HttpServletResponse response ) throws AccessDeniedException
+    {
+        if ( !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, "0", AppointmentResourceIdService.PERMISSION_VIEW_FORM, getUser( ) ) )
+        {
+            throw new AccessDeniedException( AppointmentResourceIdService.PERMISSION_VIEW_FORM );
+        }
+        String strIdForm = request.getParameter( PARAMETER_ID_FORM );
+        String strDateOfDisplay = request.getParameter( PARAMETER_DATE_OF_DISPLAY );
+        List<Slot> listSlot = new ArrayList<>( );
+        if ( StringUtils.isNumeric( strIdForm ) && StringUtils.isNotEmpty( strIdForm ) && StringUtils.isNotEmpty( strDateOfDisplay ) )
+        {
+            LocalDate dateOfDisplay;
+            try
+            {
+                dateOfDisplay = LocalDate.parse( strDateOfDisplay );
+            }
+            catch( DateTimeParseException e )
+            {
+                response.setStatus( HttpServletResponse.SC_BAD_REQUEST );
+                return AppointmentUtilities.buildJsonSlots( listSlot );
+            }
+            int nIdForm = Integer.parseInt( strIdForm );
+            Form form = FormService.findFormLightByPrimaryKey( nIdForm );
+            if ( form != null && form.getIsActive( ) && form.getStartingValidityDate( ) != null )
+            {
+                int nNbWeeksToDisplay = getNbWeeksToDisplay( nIdForm );
+                LocalDate startingDateOfDisplay = LocalDate.now( ).minusWeeks( nNbWeeksToDisplay );
+                LocalDate endingDateOfDisplay = LocalDate.now( ).plusWeeks( nNbWeeksToDisplay );
+                if ( form.getEndingValidityDate( ) != null && endingDateOfDisplay.isAfter( form.getEndingValidityDate( ) ) )
+                {
+                    endingDateOfDisplay = form.getEndingValidityDate( );
+                }
+                // The appointment of which the date is changed is kept in
+                // session by the calendar view
+                AppointmentDTO appointmentDTO = null;
+                if ( Boolean.parseBoolean( request.getParameter( PARAMETER_MODIF_DATE ) ) )
+                {
+                    appointmentDTO = (AppointmentDTO) request.getSession( ).getAttribute( SESSION_VALIDATED_APPOINTMENT );
+                }
+                listSlot = buildListSlotOfWeek( nIdForm, PlanningCacheService.getPlanning( nIdForm ).getMapWeekDefinition( ),
+                        dateOfDisplay, startingDateOfDisplay, endingDateOfDisplay, appointmentDTO );
+            }
+        }
+        return AppointmentUtilities.buildJsonSlots( listSlot );
+    }
+
+    /**
+     * Get the number of weeks to display before and after today in the calendar of a form
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @return the number of weeks to display
+     */
+    private static int getNbWeeksToDisplay( int nIdForm )
+    {
+        Display display = DisplayService.findDisplayWithFormId( nIdForm );
+        return AppPropertiesService.getPropertyInt( PROPERTY_NB_WEEKS_TO_DISPLAY_IN_BO, display.getNbWeeksToDisplay( ) );
+    }
+
+    /**
+     * Build the slots of the week of a date for the calendar
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapWeekDefinition
+     *            the map of the week definitions of the form
+     * @param dateOfDisplay
+     *            a date of the week to build
+     * @param startingDateOfDisplay
+     *            the starting date of display of the calendar
+     * @param endingDateOfDisplay
+     *            the ending date of display of the calendar
+     * @param appointmentDTO
+     *            the appointment of which the date is changed, null otherwise
+     * @return the slots of the week
+     */
+    private List<Slot> buildListSlotOfWeek( int nIdForm, HashMap<LocalDate, WeekDefinition> mapWeekDefinition, LocalDate dateOfDisplay,
+            LocalDate startingDateOfDisplay, LocalDate endingDateOfDisplay, AppointmentDTO appointmentDTO )
+    {
+        List<Slot> listSlot = SlotService.buildListSlotOfWeeks( nIdForm, mapWeekDefinition, dateOfDisplay, 1, startingDateOfDisplay, endingDateOfDisplay,
+                getLocale( ) );
+        // Tag as passed the slots passed
+        LocalDateTime now = LocalDateTime.now( );
+        for ( Slot slot : listSlot )
+        {
+            if ( slot.getEndingDateTime( ).isBefore( now ) )
+            {
+                slot.setIsPassed( Boolean.TRUE );
+            }
+        }
+        // If we change the date of an appointment
+        // filter the list of slot with only the ones that have enough places at
+        // the moment of the edition
+        if ( appointmentDTO != null )
+        {
+            int nbBookedSeats = appointmentDTO.getNbBookedSeats( );
+            listSlot = listSlot.stream( ).filter( s -> s.getNbPotentialRemainingPlaces( ) >= nbBookedSeats && s.getIsOpen( ) ).collect( Collectors.toList( ) );
+        }
+        return listSlot;
+    }
+
     /**
      * Get the page to manage appointments
      * 
@@ -441,7 +531,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @throws AccessDeniedException
      * @throws SiteMessageException
      */
-    @SuppressWarnings( "unchecked" )
     @View( value = VIEW_MANAGE_APPOINTMENTS )
     public String getManageAppointments( HttpServletRequest request ) throws AccessDeniedException, SiteMessageException
     {
@@ -465,7 +554,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
         if ( request.getParameter( PARAMETER_RESET ) != null )
         {
             request.getSession( ).removeAttribute( SESSION_APPOINTMENT_FILTER );
-            request.getSession( ).removeAttribute( SESSION_LIST_APPOINTMENTS );
         }
         // Get the appointment filter in session
         AppointmentFilterDTO filter = (AppointmentFilterDTO) request.getSession( ).getAttribute( SESSION_APPOINTMENT_FILTER );
@@ -488,25 +576,25 @@ public class AppointmentJspBean extends MVCAdminJspBean
             }
             request.getSession( ).setAttribute( SESSION_APPOINTMENT_FILTER, filter );
         }
-        // Get the list in session
-        // If it is an order by or a navigation page, no need to search again
-        List<AppointmentDTO> listAppointmentsDTO = (List<AppointmentDTO>) request.getSession( ).getAttribute( SESSION_LIST_APPOINTMENTS );
-        if ( listAppointmentsDTO == null )
-        {
-            listAppointmentsDTO = AppointmentService.findListAppointmentsDTOByFilter( filter );
-        }
         // If it is a new search
         if ( request.getParameter( PARAMETER_SEARCH ) != null )
         {
             // Populate the filter
             populate( filter, request );
-            listAppointmentsDTO = AppointmentService.findListAppointmentsDTOByFilter( filter );
         }
-        // If it is an order by
+        // If it is an order by, the sort is kept in the filter for the
+        // navigation between the pages
         String strOrderBy = request.getParameter( PARAMETER_ORDER_BY );
-        String strOrderAsc = request.getParameter( PARAMETER_ORDER_ASC );
-        listAppointmentsDTO = orderList( listAppointmentsDTO, strOrderBy, strOrderAsc );
-        request.getSession( ).setAttribute( SESSION_LIST_APPOINTMENTS, listAppointmentsDTO );
+        if ( strOrderBy != null )
+        {
+            filter.setOrderBy( strOrderBy );
+            filter.setOrderAsc( Boolean.parseBoolean( request.getParameter( PARAMETER_ORDER_ASC ) ) );
+        }
+        else
+            if ( filter.getOrderBy( ) == null )
+            {
+                filter.setOrderBy( AppointmentFilterDTO.ORDER_BY_DATE_APPOINTMENT );
+            }
         if ( StringUtils.isNotEmpty( request.getParameter( PARAMETER_DELETE_AND_BACK ) ) )
         {
             String [ ] tabIdAppointmentToDelete = request.getParameterValues( PARAMETER_ID_APPOINTMENT_DELETE );
@@ -530,8 +618,17 @@ public class AppointmentJspBean extends MVCAdminJspBean
         url.addParameter( MVCUtils.PARAMETER_VIEW, VIEW_MANAGE_APPOINTMENTS );
         url.addParameter( PARAMETER_ID_FORM, strIdForm );
         String strUrl = url.getUrl( );
-        LocalizedPaginator<AppointmentDTO> paginator = new LocalizedPaginator<AppointmentDTO>( listAppointmentsDTO, nItemsPerPage, strUrl,
-                PARAMETER_PAGE_INDEX, strCurrentPageIndex, getLocale( ) );
+        // Only the appointments of the current page are loaded, sorted and
+        // paginated by the database
+        int nNbAppointments = AppointmentService.countAppointmentsByFilter( filter );
+        int nNbPages = Math.max( 1, ( nNbAppointments + nItemsPerPage - 1 ) / nItemsPerPage );
+        int nCurrentPageIndex = Math.min( Math.max( 1, NumberUtils.toInt( strCurrentPageIndex, 1 ) ), nNbPages );
+        strCurrentPageIndex = Integer.toString( nCurrentPageIndex );
+        request.getSession( ).setAttribute( SESSION_CURRENT_PAGE_INDEX, strCurrentPageIndex );
+        List<AppointmentDTO> listAppointmentsDTO = AppointmentService.findListAppointmentsDTOByFilter( filter, ( nCurrentPageIndex - 1 ) * nItemsPerPage,
+                nItemsPerPage );
+        LocalizedDelegatePaginator<AppointmentDTO> paginator = new LocalizedDelegatePaginator<>( listAppointmentsDTO, nItemsPerPage, strUrl,
+                PARAMETER_PAGE_INDEX, strCurrentPageIndex, nNbAppointments, getLocale( ) );
         AppointmentFormDTO form = FormService.buildAppointmentFormLight( nIdForm );
         Map<String, Object> model = getModel( );
         model.put( MARK_FORM, form );
@@ -542,19 +639,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
         model.put( MARK_ACTIVATE_WORKFLOW, ACTIVATEWORKFLOW );
         if ( ( form.getIdWorkflow( ) > 0 ) && WorkflowService.getInstance( ).isAvailable( ) )
         {
-            int nIdWorkflow = form.getIdWorkflow( );
-            StateFilter stateFilter = new StateFilter( );
-            stateFilter.setIdWorkflow( nIdWorkflow );
-            for ( AppointmentDTO appointment : paginator.getPageItems( ) )
-            {
-                State stateAppointment = _stateService.findByResource( appointment.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE, nIdWorkflow );
-                if ( stateAppointment != null )
-                {
-                    appointment.setState( stateAppointment );
-                }
-                appointment.setListWorkflowActions( WorkflowService.getInstance( ).getActions( appointment.getIdAppointment( ),
-                        Appointment.APPOINTMENT_RESOURCE_TYPE, form.getIdWorkflow( ), getUser( ) ) );
-            }
+            AppointmentWorkflowService.fillStatesAndActions( listAppointmentsDTO, form.getIdWorkflow( ), getUser( ) );
         }
         AdminUser user = getUser( );
         model.put( MARK_APPOINTMENT_LIST, paginator.getPageItems( ) );
@@ -601,9 +686,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @throws AccessDeniedException
      *             If the user is not authorized to access this feature
      */
-    @SuppressWarnings( {
-        "unchecked"
-    } )
     @Action( ACTION_REMOVE_APPOINTMENT )
     public String doRemoveAppointment( HttpServletRequest request ) throws AccessDeniedException
     {
@@ -617,13 +699,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
         AppointmentService.deleteAppointment( nIdAppointment );
         AppLogService.info( LogUtilities.buildLog( ACTION_REMOVE_APPOINTMENT, Integer.toString( nIdAppointment ), getUser( ) ) );
         addInfo( INFO_APPOINTMENT_REMOVED, getLocale( ) );
-        // Need to update the list of the appointments in session
-        List<AppointmentDTO> listAppointmentsDTO = (List<AppointmentDTO>) request.getSession( ).getAttribute( SESSION_LIST_APPOINTMENTS );
-        if ( listAppointmentsDTO != null )
-        {
-            listAppointmentsDTO = listAppointmentsDTO.stream( ).filter( a -> a.getIdAppointment( ) != nIdAppointment ).collect( Collectors.toList( ) );
-            request.getSession( ).setAttribute( SESSION_LIST_APPOINTMENTS, listAppointmentsDTO );
-        }
         return redirect( request, VIEW_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, idForm );
     }
 
@@ -653,7 +728,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @throws AccessDeniedException
      *             If the user is not authorized to access this feature
      */
-    @SuppressWarnings( "unchecked" )
     @Action( ACTION_REMOVE_MASSAPPOINTMENT )
     public String doRemoveMassAppointment( HttpServletRequest request ) throws AccessDeniedException
     {
@@ -665,7 +739,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
         {
             throw new AccessDeniedException( AppointmentResourceIdService.PERMISSION_DELETE_APPOINTMENT );
         }
-        ArrayList<String> listStringIdAppointment = new ArrayList<>( );
         if ( tabIdAppointmentToDelete != null )
         {
             for ( String strIdAppointment : tabIdAppointmentToDelete )
@@ -674,15 +747,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
                 AppLogService.info( LogUtilities.buildLog( ACTION_REMOVE_APPOINTMENT, strIdAppointment, getUser( ) ) );
             }
             addInfo( INFO_APPOINTMENT_MASSREMOVED, getLocale( ) );
-            listStringIdAppointment.addAll( Arrays.asList( tabIdAppointmentToDelete ) );
-        }
-        // Need to update the list of the appointments in session
-        List<AppointmentDTO> listAppointmentsDTO = (List<AppointmentDTO>) request.getSession( ).getAttribute( SESSION_LIST_APPOINTMENTS );
-        if ( listAppointmentsDTO != null )
-        {
-            listAppointmentsDTO = listAppointmentsDTO.stream( ).filter( a -> !listStringIdAppointment.contains( Integer.toString( a.getIdAppointment( ) ) ) )
-                    .collect( Collectors.toList( ) );
-            request.getSession( ).setAttribute( SESSION_LIST_APPOINTMENTS, listAppointmentsDTO );
         }
         return redirect( request, VIEW_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, idForm );
     }
@@ -781,7 +845,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @throws AccessDeniedException
      *             If the user is not authorized to access this feature
      */
-    @SuppressWarnings( "unchecked" )
     public String getDownloadFileAppointment( HttpServletRequest request, HttpServletResponse response ) throws AccessDeniedException
     {
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
@@ -794,8 +857,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
             throw new AccessDeniedException( AppointmentResourceIdService.PERMISSION_VIEW_APPOINTMENT );
         }
         Locale locale = getLocale( );
-        List<AppointmentDTO> listAppointmentsDTO = (List<AppointmentDTO>) request.getSession( ).getAttribute( SESSION_LIST_APPOINTMENTS );
-        if ( listAppointmentsDTO.size( ) > AppPropertiesService.getPropertyInt( PROPERTY_NB_MAX_APPOINTMENTS_TO_EXPORT, MAX_NB_APPOINTMENTS_TO_EXPORT ) )
+        AppointmentFilterDTO filter = getFilterToExport( request, Integer.parseInt( strIdForm ) );
+        if ( AppointmentService.countAppointmentsByFilter( filter ) > AppPropertiesService.getPropertyInt( PROPERTY_NB_MAX_APPOINTMENTS_TO_EXPORT,
+                MAX_NB_APPOINTMENTS_TO_EXPORT ) )
         {
             addError( ERROR_MESSAGE_NB_MAX_APPOINTMENTS_FOR_EXPORT, locale );
             UrlItem urlItem = new UrlItem( AppPathService.getBaseUrl( request ) + JSP_MANAGE_APPOINTMENTS );
@@ -805,11 +869,32 @@ public class AppointmentJspBean extends MVCAdminJspBean
         }
         else
         {
-            AppointmentUtilities.buildExcelFileWithAppointments( strIdForm, response, locale, listAppointmentsDTO, _stateService );
+            AppointmentUtilities.exportAppointments( filter, request.getParameter( PARAMETER_EXPORT_FORMAT ), response, locale );
         }
         return null;
     }
 
+    /**
+     * Get the filter of the appointments to export: the filter of the list of the appointments of the form if any, all the appointments of the form
+     * otherwise
+     * 
+     * @param request
+     *            The request
+     * @param nIdForm
+     *            The id of the form
+     * @return the filter
+     */
+    static AppointmentFilterDTO getFilterToExport( HttpServletRequest request, int nIdForm )
+    {
+        AppointmentFilterDTO filter = (AppointmentFilterDTO) request.getSession( ).getAttribute( SESSION_APPOINTMENT_FILTER );
+        if ( filter == null || filter.getIdForm( ) != nIdForm )
+        {
+            filter = new AppointmentFilterDTO( );
+            filter.setIdForm( nIdForm );
+        }
+        return filter;
+    }
+
     /**
      * Get the page to modify an appointment
      * 
@@ -820,7 +905,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      *             If the user is not authorized to access this feature
      */
     @View( VIEW_MODIFY_APPOINTMENT )
-    public synchronized String getModifyAppointment( HttpServletRequest request ) throws AccessDeniedException
+    public String getModifyAppointment( HttpServletRequest request ) throws AccessDeniedException
     {
         HttpSession session = request.getSession( );
         clearUploadFilesIfNeeded( session );
@@ -847,22 +932,18 @@ public class AppointmentJspBean extends MVCAdminJspBean
         int nbMaxPeoplePerAppointment = form.getMaxPeoplePerAppointment( );
         if ( ( nbAlreadyBookedSeats < nbMaxPeoplePerAppointment ) && ( slot.getNbPotentialRemainingPlaces( ) > 0 ) )
         {
-           
             int nbPotentialPlacesToTake = form.getMaxPeoplePerAppointment( ) - nbAlreadyBookedSeats;
-            //int nbPotentialRemainingPlaces = slot.getNbPotentialRemainingPlaces( );
-            appointmentDTO.setNbMaxPotentialBookedSeats( nbAlreadyBookedSeats + nbPotentialPlacesToTake );
-            //slot.setNbPotentialRemainingPlaces( nbPotentialRemainingPlaces - nbPotentialPlacesToTake );
-            SlotSafeService.decrementPotentialRemainingPlaces(nbPotentialPlacesToTake, slot.getIdSlot( ));
-            //  SlotService.updateSlot( slot );
-            
-            TimerForLockOnSlot timer = new TimerForLockOnSlot( );
-            SlotEditTask slotEditTask = new SlotEditTask( timer );
-            slotEditTask.setNbPlacesTaken( nbPotentialPlacesToTake );
-            slotEditTask.setIdSlot( slot.getIdSlot( ) );
-            long delay = TimeUnit.MINUTES.toMillis( AppPropertiesService
-                    .getPropertyInt( AppointmentUtilities.PROPERTY_DEFAULT_EXPIRED_TIME_EDIT_APPOINTMENT, 1 ) );
-            timer.schedule( slotEditTask, delay );
-            request.getSession( ).setAttribute( AppointmentUtilities.SESSION_TIMER_SLOT, timer );
+            // The places are checked again when the appointment is saved. Only a hold actually taken is given back when it expires or when the
+            // appointment is saved
+            if ( SlotSafeService.decrementPotentialRemainingPlaces( nbPotentialPlacesToTake, slot.getIdSlot( ) ) )
+            {
+                appointmentDTO.setNbMaxPotentialBookedSeats( nbAlreadyBookedSeats + nbPotentialPlacesToTake );
+                AppointmentUtilities.putHoldInSession( request, slot.getIdSlot( ), nbPotentialPlacesToTake );
+            }
+            else
+            {
+                appointmentDTO.setNbMaxPotentialBookedSeats( nbAlreadyBookedSeats );
+            }
         }
         else
         {
@@ -883,7 +964,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      */
     @SuppressWarnings( "unchecked" )
     @View( VIEW_CREATE_APPOINTMENT )
-    public synchronized String getViewCreateAppointment( HttpServletRequest request ) throws AccessDeniedException
+    public String getViewCreateAppointment( HttpServletRequest request ) throws AccessDeniedException
     {
         clearUploadFilesIfNeeded( request.getSession( ) );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
@@ -928,34 +1009,28 @@ public class AppointmentJspBean extends MVCAdminJspBean
                  slot = SlotService.findSlotById( nIdSlot );
                 }
                 
-                 synchronized(slot){
+                // Fast check, the places are really held by the atomic update of the slot done when the timer is put in session
+                if ( slot.getNbPotentialRemainingPlaces( ) == 0 )
+                {
+                    addInfo( ERROR_MESSAGE_SLOT_FULL, locale );
+                    return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, nIdForm );
+                }
+                appointmentDTO.setSlot( slot );
+                appointmentDTO.setIdForm( nIdForm );
+                LuteceUser user = SecurityService.getInstance( ).getRegisteredUser( request );
+                if ( user != null )
+                {
+                    Map<String, String> map = user.getUserInfos( );
+                    appointmentDTO.setEmail( map.get( PROPERTY_USER_EMAIL ) );
+                    appointmentDTO.setFirstName( map.get( PROPERTY_USER_FIRST_NAME ) );
+                    appointmentDTO.setLastName( map.get( PROPERTY_USER_LAST_NAME ) );
+                }
+                ReservationRule reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, slot.getDate( ) );
+                WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( nIdForm, slot.getDate( ) );
+                form = FormService.buildAppointmentForm( nIdForm, reservationRule.getIdReservationRule( ), weekDefinition.getIdWeekDefinition( ) );
+                // Only the bookings of the same slot compete here, on the potential remaining places of the slot
+                AppointmentUtilities.putTimerInSession( request, slot.getIdSlot( ), appointmentDTO, form.getMaxPeoplePerAppointment( ) );
                 // Need to check competitive access
-                // May be the slot is already taken at the same time
-                 
-	                if ( slot.getNbPotentialRemainingPlaces( ) == 0 )
-	                {
-	                    addInfo( ERROR_MESSAGE_SLOT_FULL, locale );
-	                    return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, nIdForm );
-	                }
-	                appointmentDTO.setSlot( slot );
-	                appointmentDTO.setIdForm( nIdForm );
-	                LuteceUser user = SecurityService.getInstance( ).getRegisteredUser( request );
-	                if ( user != null )
-	                {
-	                    Map<String, String> map = user.getUserInfos( );
-	                    appointmentDTO.setEmail( map.get( PROPERTY_USER_EMAIL ) );
-	                    appointmentDTO.setFirstName( map.get( PROPERTY_USER_FIRST_NAME ) );
-	                    appointmentDTO.setLastName( map.get( PROPERTY_USER_LAST_NAME ) );
-	                }
-	               
-	                ReservationRule reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, slot.getDate( ) );
-	                WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( nIdForm, slot.getDate( ) );
-	                form = FormService.buildAppointmentForm( nIdForm, reservationRule.getIdReservationRule( ), weekDefinition.getIdWeekDefinition( ) );
-	                
-	                
-	                AppointmentUtilities.putTimerInSession( request, slot.getIdSlot(), appointmentDTO, form.getMaxPeoplePerAppointment( ) );
-                 }
-	             // Need to check competitive access
                 // May be the slot is already taken at the same time
                 if ( appointmentDTO.getNbMaxPotentialBookedSeats( ) == 0 )
                 {
@@ -968,13 +1043,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
             }
         }
         Map<String, Object> model = getModel( );
-        List<Entry> listEntryFirstLevel = EntryService.getFilter( form.getIdForm( ), true );
-        StringBuilder strBuffer = new StringBuilder( );
-        for ( Entry entry : listEntryFirstLevel )
-        {
-            EntryService.getHtmlEntry( model, entry.getIdEntry( ), strBuffer, locale, false, request );
-        }
-        model.put( MARK_STR_ENTRY, strBuffer.toString( ) );
+        model.put( MARK_STR_ENTRY, EntryService.getHtmlEntries( model, form.getIdForm( ), locale, false, request ) );
         model.put( MARK_FORM, form );
         model.put( MARK_APPOINTMENT, appointmentDTO );
         model.put( PARAMETER_DATE_OF_DISPLAY, appointmentDTO.getSlot( ).getDate( ) );
@@ -1365,7 +1434,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
     private void cleanSession( HttpSession session )
     {
         session.removeAttribute( SESSION_APPOINTMENT_FILTER );
-        session.removeAttribute( SESSION_LIST_APPOINTMENTS );
         session.removeAttribute( SESSION_CURRENT_PAGE_INDEX );
         session.removeAttribute( SESSION_CURRENT_PAGE_INDEX );
         session.removeAttribute( SESSION_NOT_VALIDATED_APPOINTMENT );
@@ -1389,67 +1457,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
         }
     }
 
-    /**
-     * Order the list of the appointment in the result tab with the order by and order asc given
-     * 
-     * @param listAppointmentsDTO
-     *            the llist of appointments
-     * @param strOrderBy
-     *            the order by
-     * @param strOrderAsc
-     *            the order asc
-     */
-    private List<AppointmentDTO> orderList( List<AppointmentDTO> listAppointmentsDTO, String strOrderBy, String strOrderAsc )
-    {
-        List<AppointmentDTO> sortedList = new ArrayList<>( );
-        if ( CollectionUtils.isNotEmpty( listAppointmentsDTO ) )
-        {
-            sortedList.addAll( listAppointmentsDTO );
-        }
-        if ( strOrderBy == null )
-        {
-            strOrderBy = DATE_APPOINTMENT;
-        }
-        boolean bAsc = Boolean.FALSE;
-        if ( strOrderAsc != null )
-        {
-            bAsc = Boolean.parseBoolean( strOrderAsc );
-        }
-        Stream<AppointmentDTO> stream = null;
-        switch( strOrderBy )
-        {
-            case LAST_NAME:
-                stream = sortedList.stream( ).sorted( ( a1, a2 ) -> a1.getLastName( ).compareTo( a2.getLastName( ) ) );
-                break;
-            case FIRST_NAME:
-                stream = sortedList.stream( ).sorted( ( a1, a2 ) -> a1.getFirstName( ).compareTo( a2.getFirstName( ) ) );
-                break;
-            case EMAIL:
-                stream = sortedList.stream( ).sorted( ( a1, a2 ) -> a1.getEmail( ).compareTo( a2.getEmail( ) ) );
-                break;
-            case NB_BOOKED_SEATS:
-                stream = sortedList.stream( ).sorted( ( a1, a2 ) -> Integer.compare( a1.getNbBookedSeats( ), a2.getNbBookedSeats( ) ) );
-                break;
-            case DATE_APPOINTMENT:
-                stream = sortedList.stream( ).sorted( ( a1, a2 ) -> a1.getStartingDateTime( ).compareTo( a2.getStartingDateTime( ) ) );
-                break;
-            case ADMIN:
-                stream = sortedList.stream( ).sorted( ( a1, a2 ) -> a1.getAdminUser( ).compareTo( a2.getAdminUser( ) ) );
-                break;
-            case STATUS:
-                stream = sortedList.stream( ).sorted( ( a1, a2 ) -> Boolean.compare( a1.getIsCancelled( ), a2.getIsCancelled( ) ) );
-                break;
-            default:
-                stream = sortedList.stream( ).sorted( ( a1, a2 ) -> a1.getStartingDateTime( ).compareTo( a2.getStartingDateTime( ) ) );
-        }
-        sortedList = stream.collect( Collectors.toList( ) );
-        if ( !bAsc )
-        {
-            Collections.reverse( sortedList );
-        }
-        return sortedList;
-    }
-
     /**
      * Get the URL to display the form of a workflow action. If the action has no form, then the user is redirected to the page to execute the workflow action
      * 
@@ -1560,7 +1567,6 @@ public class AppointmentJspBean extends MVCAdminJspBean
                 }
                 Map<String, String> mapParams = new HashMap<String, String>( );
                 mapParams.put( PARAMETER_ID_FORM, Integer.toString( form.getIdForm( ) ) );
-                request.getSession( ).removeAttribute( SESSION_LIST_APPOINTMENTS );
                 return redirect( request, VIEW_MANAGE_APPOINTMENTS, mapParams );
             }
             return redirect( request, VIEW_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, slot.getIdForm( ) );
@@ -38,7 +38,6 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -48,7 +47,6 @@ import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 
-import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.display.Display;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.planning.ClosingDay;
@@ -58,9 +56,10 @@ import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.slot.Period;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotImpact;
+import fr.paris.lutece.plugins.appointment.exception.SlotConcurrentUpdateException;
 import fr.paris.lutece.plugins.appointment.log.LogUtilities;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResourceIdService;
-import fr.paris.lutece.plugins.appointment.service.AppointmentService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentUtilities;
 import fr.paris.lutece.plugins.appointment.service.ClosingDayService;
 import fr.paris.lutece.plugins.appointment.service.DisplayService;
@@ -71,6 +70,8 @@ import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.TimeSlotService;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
 import fr.paris.lutece.plugins.appointment.service.WorkingDayService;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
+import fr.paris.lutece.plugins.appointment.service.listeners.SlotListenerManager;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.portal.service.admin.AccessDeniedException;
 import fr.paris.lutece.portal.service.message.AdminMessage;
@@ -112,6 +113,7 @@ public class AppointmentSlotJspBean extends AbstractAppointmentFormAndSlotJspBea
     private static final String MESSAGE_SLOT_CAN_NOT_END_AFTER_DAY_OR_FORM = "appointment.message.error.slotCanNotEndAfterDayOrForm";
     private static final String MESSAGE_ERROR_APPOINTMENT_ON_SLOT = "appointment.message.error.appointmentOnSlot";
     private static final String MESSAGE_ERROR_LAST_WEEK_DEFINITION = "appointment.message.error.lastWeekDefinition";
+    private static final String MESSAGE_ERROR_SLOT_MODIFIED_CONCURRENTLY = "appointment.message.error.slotModifiedConcurrently";
     private static final String MESSAGE_INFO_SLOT_UPDATED = "appointment.modifyCalendarSlots.messageSlotUpdated";
     private static final String MESSAGE_INFO_VALIDATED_APPOINTMENTS_IMPACTED = "appointment.modifyCalendarSlots.messageValidatedAppointmentsImpacted";
     private static final String MESSAGE_INFO_SURBOOKING = "appointment.modifyCalendarSlots.messageSurbooking";
@@ -298,30 +300,33 @@ public class AppointmentSlotJspBean extends AbstractAppointmentFormAndSlotJspBea
             request.getSession( ).setAttribute( SESSION_ATTRIBUTE_APPOINTMENT_FORM, appointmentForm );
             return redirect( request, VIEW_MANAGE_TYPICAL_WEEK, PARAMETER_ID_FORM, nIdForm, PARAMETER_ERROR_MODIFICATION, 1 );
         }
-        List<Slot> listSlotsImpacted = SlotService.findSlotsByIdFormAndDateRange( nIdForm, dateOfModification.atStartOfDay( ), endingDateTimeOfSearch );
-        List<Appointment> listAppointmentsImpacted = AppointmentService.findListAppointmentByListSlot( listSlotsImpacted );
-        // if there are slots impacted
-        if ( CollectionUtils.isNotEmpty( listSlotsImpacted ) )
+        List<SlotImpact> listSlotsImpacted = SlotService.findSlotImpacts( nIdForm, dateOfModification.atStartOfDay( ), endingDateTimeOfSearch );
+        // if there are appointments impacted
+        if ( listSlotsImpacted.stream( ).anyMatch( SlotImpact::hasAppointments )
+                && !AppointmentUtilities.checkNoAppointmentsImpactedOnSlots( listSlotsImpacted, nIdForm, dateOfModification, appointmentForm ) )
         {
-            // if there are appointments impacted
-            if ( CollectionUtils.isNotEmpty( listAppointmentsImpacted ) )
-            {
-                if ( !AppointmentUtilities.checkNoAppointmentsImpacted( listAppointmentsImpacted, nIdForm, dateOfModification, appointmentForm ) )
-                {
-                    request.getSession( ).setAttribute( SESSION_ATTRIBUTE_APPOINTMENT_FORM, appointmentForm );
-                    addError( MESSAGE_ERROR_MODIFY_FORM_HAS_APPOINTMENTS_AFTER_DATE_OF_MODIFICATION, getLocale( ) );
-                    return redirect( request, VIEW_MANAGE_TYPICAL_WEEK, PARAMETER_ID_FORM, nIdForm, PARAMETER_ERROR_MODIFICATION, 1 );
-                }
-                manageTheSlotsAndAppointmentsImpacted( listAppointmentsImpacted, listSlotsImpacted, Boolean.TRUE, appointmentForm.getMaxCapacityPerSlot( ),
-                        Boolean.FALSE, Boolean.FALSE );
-            }
-            else
-            {
-                // No check, delete all the slots
-                SlotService.deleteListSlots( listSlotsImpacted );
-            }
+            request.getSession( ).setAttribute( SESSION_ATTRIBUTE_APPOINTMENT_FORM, appointmentForm );
+            addError( MESSAGE_ERROR_MODIFY_FORM_HAS_APPOINTMENTS_AFTER_DATE_OF_MODIFICATION, getLocale( ) );
+            return redirect( request, VIEW_MANAGE_TYPICAL_WEEK, PARAMETER_ID_FORM, nIdForm, PARAMETER_ERROR_MODIFICATION, 1 );
+        }
+        LocalDateTime endingDateTimeOfModification = endingDateTimeOfSearch;
+        try
+        {
+            // The slots impacted are searched again under the lock of the form : the slots materialized since the check are impacted too. The slots
+            // without appointments are deleted, the other ones are updated
+            SlotSafeService.modifyPlanning( nIdForm, ( ) -> {
+                manageTheSlotsAndAppointmentsImpacted( SlotService.findSlotImpacts( nIdForm, dateOfModification.atStartOfDay( ), endingDateTimeOfModification ),
+                        Boolean.TRUE, appointmentForm.getMaxCapacityPerSlot( ), Boolean.FALSE, Boolean.FALSE );
+                FormService.updateAdvancedParameters( appointmentForm, dateOfModification );
+            } );
+        }
+        catch( SlotConcurrentUpdateException e )
+        {
+            // Nothing has been modified
+            request.getSession( ).setAttribute( SESSION_ATTRIBUTE_APPOINTMENT_FORM, appointmentForm );
+            addError( MESSAGE_ERROR_SLOT_MODIFIED_CONCURRENTLY, getLocale( ) );
+            return redirect( request, VIEW_MANAGE_TYPICAL_WEEK, PARAMETER_ID_FORM, nIdForm, PARAMETER_ERROR_MODIFICATION, 1 );
         }
-        FormService.updateAdvancedParameters( appointmentForm, dateOfModification );
 
         AppLogService.info( LogUtilities.buildLog( ACTION_MODIFY_ADVANCED_PARAMETERS, strIdForm, getUser( ) ) );
         request.getSession( ).removeAttribute( SESSION_ATTRIBUTE_APPOINTMENT_FORM );
@@ -388,17 +393,22 @@ public class AppointmentSlotJspBean extends AbstractAppointmentFormAndSlotJspBea
         {
             endDateOfApply = nextWeekDefinition.getDateOfApply( );
         }
-        List<Slot> listSlotImpacted = SlotService.findSlotsByIdFormAndDateRange( nIdForm, beginDateOfApply.atTime( LocalTime.MIN ),
-                endDateOfApply.atTime( LocalTime.MAX ) );
-        List<Appointment> listAppointment = AppointmentService.findListAppointmentByListSlot( listSlotImpacted );
-        if ( CollectionUtils.isNotEmpty( listAppointment ) )
+        List<SlotImpact> listSlotImpacted = SlotService.findSlotImpacts( nIdForm, beginDateOfApply.atTime( LocalTime.MIN ), endDateOfApply.atTime( LocalTime.MAX ) );
+        if ( listSlotImpacted.stream( ).anyMatch( SlotImpact::hasAppointments ) )
         {
             addError( MESSAGE_ERROR_APPOINTMENT_ON_SLOT, getLocale( ) );
             return redirect( request, VIEW_MANAGE_TYPICAL_WEEK, PARAMETER_ID_FORM, nIdForm, PARAMETER_ID_WEEK_DEFINITION, nIdWeekDefinition );
         }
         ReservationRule reservationRuleToRemove = ReservationRuleService.findReservationRuleByIdFormAndDateOfApply( nIdForm, beginDateOfApply );
-        ReservationRuleService.removeReservationRule( reservationRuleToRemove );
-        WeekDefinitionService.removeWeekDefinition( nIdWeekDefinition, nIdForm );
+        LocalDate endDateOfRemoval = endDateOfApply;
+        SlotSafeService.modifyPlanning( nIdForm, ( ) -> {
+            // The slots materialized from the removed week definition are generated again from the previous one
+            SlotService.deleteListSlots( SlotService.findSlotImpacts( nIdForm, beginDateOfApply.atTime( LocalTime.MIN ), endDateOfRemoval.atTime( LocalTime.MAX ) )
+                    .stream( ).filter( slotImpact -> !slotImpact.hasAppointments( ) && !slotImpact.getSlot( ).getIsSpecific( ) ).map( SlotImpact::getSlot )
+                    .collect( Collectors.toList( ) ) );
+            ReservationRuleService.removeReservationRule( reservationRuleToRemove );
+            WeekDefinitionService.removeWeekDefinition( nIdWeekDefinition, nIdForm );
+        } );
         addInfo( INFO_PARAMETER_REMOVED, getLocale( ) );
         return redirect( request, VIEW_MANAGE_TYPICAL_WEEK, PARAMETER_ID_FORM, nIdForm );
     }
@@ -438,36 +448,26 @@ public class AppointmentSlotJspBean extends AbstractAppointmentFormAndSlotJspBea
     @Action( ACTION_DO_MODIFY_TIME_SLOT )
     public String doModifyTimeSlot( HttpServletRequest request )
     {
-        TimeSlot timeSlotFromSession = (TimeSlot) request.getSession( ).getAttribute( SESSION_ATTRIBUTE_TIME_SLOT );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
         int nIdForm = Integer.parseInt( strIdForm );
         String strIdWeekDefinition = request.getParameter( PARAMETER_ID_WEEK_DEFINITION );
         int nIdWeekDefinition = Integer.parseInt( strIdWeekDefinition );
         String strIdTimeSlot = request.getParameter( PARAMETER_ID_TIME_SLOT );
         int nIdTimeSlot = Integer.parseInt( strIdTimeSlot );
-        if ( timeSlotFromSession == null || nIdTimeSlot != timeSlotFromSession.getIdTimeSlot( ) )
-        {
-            timeSlotFromSession = TimeSlotService.findTimeSlotById( nIdTimeSlot );
-        }
+        TimeSlot timeSlotInSession = (TimeSlot) request.getSession( ).getAttribute( SESSION_ATTRIBUTE_TIME_SLOT );
+        TimeSlot timeSlotFromSession = ( timeSlotInSession == null || nIdTimeSlot != timeSlotInSession.getIdTimeSlot( ) ) ? TimeSlotService
+                .findTimeSlotById( nIdTimeSlot ) : timeSlotInSession;
         boolean bIsOpen = Boolean.parseBoolean( request.getParameter( PARAMETER_IS_OPEN ) );
-        boolean bOpeningHasChanged = false;
         int nMaxCapacity = Integer.parseInt( request.getParameter( PARAMETER_MAX_CAPACITY ) );
         LocalTime endingTime = LocalTime.parse( request.getParameter( PARAMETER_ENDING_TIME ) );
         boolean bShiftSlot = Boolean.parseBoolean( request.getParameter( PARAMETER_SHIFT_SLOT ) );
-        boolean bEndingTimeHasChanged = false;
-        boolean bMaxCapacityHasChanged = false;
-        if ( bIsOpen != timeSlotFromSession.getIsOpen( ) )
-        {
-            timeSlotFromSession.setIsOpen( bIsOpen );
-            bOpeningHasChanged = true;
-        }
-        if ( nMaxCapacity != timeSlotFromSession.getMaxCapacity( ) )
-        {
-            timeSlotFromSession.setMaxCapacity( nMaxCapacity );
-            bMaxCapacityHasChanged = true;
-        }
+        boolean bOpeningHasChanged = bIsOpen != timeSlotFromSession.getIsOpen( );
+        boolean bMaxCapacityHasChanged = nMaxCapacity != timeSlotFromSession.getMaxCapacity( );
         LocalTime previousEndingTime = timeSlotFromSession.getEndingTime( );
-        if ( !endingTime.equals( previousEndingTime ) )
+        boolean bEndingTimeHasChanged = !endingTime.equals( previousEndingTime );
+        timeSlotFromSession.setIsOpen( bIsOpen );
+        timeSlotFromSession.setMaxCapacity( nMaxCapacity );
+        if ( bEndingTimeHasChanged )
         {
             timeSlotFromSession.setEndingTime( endingTime );
             if ( !checkEndingTimeOfTimeSlot( endingTime, timeSlotFromSession ) )
@@ -479,49 +479,56 @@ public class AppointmentSlotJspBean extends AbstractAppointmentFormAndSlotJspBea
                 request.getSession( ).setAttribute( SESSION_ATTRIBUTE_TIME_SLOT, timeSlotFromSession );
                 return redirect( request, VIEW_MODIFY_TIME_SLOT, additionalParameters );
             }
-            bEndingTimeHasChanged = true;
         }
-        List<Slot> listSlotsImpacted = AppointmentUtilities.findSlotsImpactedByThisTimeSlot( timeSlotFromSession, nIdForm, nIdWeekDefinition, bShiftSlot );
-        List<Appointment> listAppointmentsImpacted = AppointmentService.findListAppointmentByListSlot( listSlotsImpacted );
-        // If there are slots impacted
-        if ( CollectionUtils.isNotEmpty( listSlotsImpacted ) )
+        List<SlotImpact> listSlotsImpacted = AppointmentUtilities.findSlotImpactsOfThisTimeSlot( timeSlotFromSession, nIdForm, nIdWeekDefinition, bShiftSlot );
+        int nNbAppointmentsImpacted = listSlotsImpacted.stream( ).mapToInt( SlotImpact::getNbAppointments ).sum( );
+        // if there are appointments impacted
+        if ( nNbAppointmentsImpacted > 0 )
         {
-            // if there are appointments impacted
-            if ( CollectionUtils.isNotEmpty( listAppointmentsImpacted ) )
+            // If the ending time of the time slot has changed or if the max
+            // capacity has decreased
+            if ( bEndingTimeHasChanged || nMaxCapacity < timeSlotFromSession.getMaxCapacity( ) )
             {
-                // If the ending time of the time slot has changed or if the max
-                // capacity has decreased
-                if ( bEndingTimeHasChanged || nMaxCapacity < timeSlotFromSession.getMaxCapacity( ) )
-                {
-                    // Error, the time slot can't be changed
-                    addError( MESSAGE_ERROR_APPOINTMENT_ON_SLOT, getLocale( ) );
-                    addError( listAppointmentsImpacted.size( ) + " rendez-vous impacté(s)" );
-                    addError( "dont un le " + SlotService.findSlotById( listAppointmentsImpacted.get( 0 ).getIdSlot( ) ).getStartingDateTime( ) );
-                    Map<String, String> additionalParameters = new HashMap<>( );
-                    additionalParameters.put( PARAMETER_ID_FORM, strIdForm );
-                    additionalParameters.put( PARAMETER_ID_WEEK_DEFINITION, strIdWeekDefinition );
-                    additionalParameters.put( PARAMETER_ID_TIME_SLOT, strIdTimeSlot );
-                    request.getSession( ).setAttribute( SESSION_ATTRIBUTE_TIME_SLOT, timeSlotFromSession );
-                    return redirect( request, VIEW_MODIFY_TIME_SLOT, additionalParameters );
-                }
-                // Get the validated appointment (the appointments that are not
-                // cancelled)
-                List<Appointment> listValidatedAppointments = listAppointmentsImpacted.stream( ).filter( appointment -> appointment.getIsCancelled( ) == false )
-                        .collect( Collectors.toList( ) );
-                if ( bOpeningHasChanged && CollectionUtils.isNotEmpty( listValidatedAppointments ) )
-                {
-                    addInfo( MESSAGE_INFO_VALIDATED_APPOINTMENTS_IMPACTED, getLocale( ) );
-                }
-                manageTheSlotsAndAppointmentsImpacted( listAppointmentsImpacted, listSlotsImpacted, bMaxCapacityHasChanged, nMaxCapacity, bOpeningHasChanged,
-                        bIsOpen );
+                // Error, the time slot can't be changed
+                addError( MESSAGE_ERROR_APPOINTMENT_ON_SLOT, getLocale( ) );
+                addError( nNbAppointmentsImpacted + " rendez-vous impacté(s)" );
+                addError( "dont un le "
+                        + listSlotsImpacted.stream( ).filter( SlotImpact::hasAppointments ).findFirst( ).get( ).getSlot( ).getStartingDateTime( ) );
+                Map<String, String> additionalParameters = new HashMap<>( );
+                additionalParameters.put( PARAMETER_ID_FORM, strIdForm );
+                additionalParameters.put( PARAMETER_ID_WEEK_DEFINITION, strIdWeekDefinition );
+                additionalParameters.put( PARAMETER_ID_TIME_SLOT, strIdTimeSlot );
+                request.getSession( ).setAttribute( SESSION_ATTRIBUTE_TIME_SLOT, timeSlotFromSession );
+                return redirect( request, VIEW_MODIFY_TIME_SLOT, additionalParameters );
             }
-            else
+            // Check if there are validated appointments (the appointments
+            // that are not cancelled)
+            if ( bOpeningHasChanged && listSlotsImpacted.stream( ).anyMatch( slotImpact -> slotImpact.getNbValidatedAppointments( ) > 0 ) )
             {
-                // no need to check appointments, delete all the slots
-                SlotService.deleteListSlots( listSlotsImpacted );
+                addInfo( MESSAGE_INFO_VALIDATED_APPOINTMENTS_IMPACTED, getLocale( ) );
             }
         }
-        TimeSlotService.updateTimeSlot( timeSlotFromSession, bEndingTimeHasChanged, previousEndingTime, bShiftSlot );
+        try
+        {
+            // The slots impacted are searched again under the lock of the form : the slots materialized since the check are impacted too. The slots
+            // without appointments are deleted, the other ones are updated
+            SlotSafeService.modifyPlanning( nIdForm, ( ) -> {
+                manageTheSlotsAndAppointmentsImpacted( AppointmentUtilities.findSlotImpactsOfThisTimeSlot( timeSlotFromSession, nIdForm, nIdWeekDefinition,
+                        bShiftSlot ), bMaxCapacityHasChanged, nMaxCapacity, bOpeningHasChanged, bIsOpen );
+                TimeSlotService.updateTimeSlot( timeSlotFromSession, bEndingTimeHasChanged, previousEndingTime, bShiftSlot );
+            } );
+        }
+        catch( SlotConcurrentUpdateException e )
+        {
+            // Nothing has been modified
+            addError( MESSAGE_ERROR_SLOT_MODIFIED_CONCURRENTLY, getLocale( ) );
+            Map<String, String> additionalParameters = new HashMap<>( );
+            additionalParameters.put( PARAMETER_ID_FORM, strIdForm );
+            additionalParameters.put( PARAMETER_ID_WEEK_DEFINITION, strIdWeekDefinition );
+            additionalParameters.put( PARAMETER_ID_TIME_SLOT, strIdTimeSlot );
+            request.getSession( ).setAttribute( SESSION_ATTRIBUTE_TIME_SLOT, timeSlotFromSession );
+            return redirect( request, VIEW_MODIFY_TIME_SLOT, additionalParameters );
+        }
 
         AppLogService.info( LogUtilities.buildLog( ACTION_DO_MODIFY_TIME_SLOT, strIdTimeSlot, getUser( ) ) );
         addInfo( MESSAGE_INFO_SLOT_UPDATED, getLocale( ) );
@@ -566,7 +573,7 @@ public class AppointmentSlotJspBean extends AbstractAppointmentFormAndSlotJspBea
             }
         }
         // Get all the week definitions
-        HashMap<LocalDate, WeekDefinition> mapWeekDefinition = WeekDefinitionService.findAllWeekDefinition( nIdForm );
+        HashMap<LocalDate, WeekDefinition> mapWeekDefinition = PlanningCacheService.getPlanning( nIdForm ).getMapWeekDefinition( );
         List<WeekDefinition> listWeekDefinition = new ArrayList<WeekDefinition>( mapWeekDefinition.values( ) );
         // Get the min time of all the week definitions
         LocalTime minStartingTime = WeekDefinitionService.getMinStartingTimeOfAListOfWeekDefinition( listWeekDefinition );
@@ -709,7 +716,20 @@ public class AppointmentSlotJspBean extends AbstractAppointmentFormAndSlotJspBea
 	            request.getSession( ).setAttribute( SESSION_ATTRIBUTE_SLOT, slotFromSessionOrFromDb );
 	            return redirect( request, VIEW_MODIFY_SLOT, PARAMETER_ID_FORM, slotFromSessionOrFromDb.getIdForm( ) );
 	        }
-	        SlotSafeService.updateSlot( slotFromSessionOrFromDb, bEndingTimeHasChanged, previousEndingTime, bShiftSlot );
+	        try
+	        {
+	            SlotSafeService.updateSlot( slotFromSessionOrFromDb, bEndingTimeHasChanged, previousEndingTime, bShiftSlot );
+	        }
+	        catch( SlotConcurrentUpdateException e )
+	        {
+	            // A booking or another administrator has modified the slot since it was read
+	            addError( MESSAGE_ERROR_SLOT_MODIFIED_CONCURRENTLY, getLocale( ) );
+	            request.getSession( ).removeAttribute( SESSION_ATTRIBUTE_SLOT );
+	            Map<String, String> additionalParameters = new HashMap<>( );
+	            additionalParameters.put( PARAMETER_ID_FORM, Integer.toString( slotFromSessionOrFromDb.getIdForm( ) ) );
+	            additionalParameters.put( PARAMETER_DATE_OF_DISPLAY, slotFromSessionOrFromDb.getDate( ).toString( ) );
+	            return redirect( request, VIEW_MANAGE_SPECIFIC_WEEK, additionalParameters );
+	        }
 		 }
 	     AppLogService.info( LogUtilities.buildLog( ACTION_DO_MODIFY_SLOT, strIdSlot, getUser( ) ) );
 	     addInfo( MESSAGE_INFO_SLOT_UPDATED, getLocale( ) );
@@ -812,9 +832,8 @@ public class AppointmentSlotJspBean extends AbstractAppointmentFormAndSlotJspBea
         {
             endingDateTime = slot.getDate( ).atTime( LocalTime.MAX );
         }
-        List<Slot> listSlotImpacted = SlotService.findSlotsByIdFormAndDateRange( slot.getIdForm( ), slot.getStartingDateTime( ), endingDateTime );
-        List<Appointment> listAppointment = AppointmentService.findListAppointmentByListSlot( listSlotImpacted );
-        if ( CollectionUtils.isNotEmpty( listAppointment ) )
+        List<SlotImpact> listSlotImpacted = SlotService.findSlotImpacts( slot.getIdForm( ), slot.getStartingDateTime( ), endingDateTime );
+        if ( listSlotImpacted.stream( ).anyMatch( SlotImpact::hasAppointments ) )
         {
             bReturn = false;
             addError( MESSAGE_ERROR_APPOINTMENT_ON_SLOT, getLocale( ) );
@@ -825,10 +844,8 @@ public class AppointmentSlotJspBean extends AbstractAppointmentFormAndSlotJspBea
     /**
      * Update the slots with appointments impacted by a modification of a typical week or a modification of a timeSlot Delete the slots with no appointments
      * 
-     * @param listAppointmentsImpacted
-     *            the appointments impacted
      * @param listSlotsImpacted
-     *            the slots impacted
+     *            the slots impacted, with the number of their appointments
      * @param bMaxCapacityHasChanged
      *            True if the capacity has changed
      * @param nMaxCapacity
@@ -838,44 +855,39 @@ public class AppointmentSlotJspBean extends AbstractAppointmentFormAndSlotJspBea
      * @param bIsOpen
      *            the new boolean opening value
      */
-    private void manageTheSlotsAndAppointmentsImpacted( List<Appointment> listAppointmentsImpacted, List<Slot> listSlotsImpacted,
-            boolean bMaxCapacityHasChanged, int nMaxCapacity, boolean bOpeningHasChanged, boolean bIsOpen )
+    private void manageTheSlotsAndAppointmentsImpacted( List<SlotImpact> listSlotsImpacted, boolean bMaxCapacityHasChanged, int nMaxCapacity,
+            boolean bOpeningHasChanged, boolean bIsOpen )
     {
         // Need to delete the slots that are impacted but with no
         // appointments
-        HashSet<Integer> setSlotsImpactedWithAppointments = new HashSet<>( );
-        for ( Appointment appointment : listAppointmentsImpacted )
-        {
-            setSlotsImpactedWithAppointments.add( appointment.getIdSlot( ) );
-        }
-        List<Slot> listSlotsImpactedWithoutAppointments = listSlotsImpacted.stream( )
-                .filter( slot -> !setSlotsImpactedWithAppointments.contains( slot.getIdSlot( ) ) ).collect( Collectors.toList( ) );
-        List<Slot> listSlotsImpactedWithAppointments = listSlotsImpacted.stream( )
-                .filter( slot -> setSlotsImpactedWithAppointments.contains( slot.getIdSlot( ) ) ).collect( Collectors.toList( ) );
+        List<Slot> listSlotsImpactedWithoutAppointments = listSlotsImpacted.stream( ).filter( slotImpact -> !slotImpact.hasAppointments( ) )
+                .map( SlotImpact::getSlot ).collect( Collectors.toList( ) );
+        List<Slot> listSlotsImpactedWithAppointments = listSlotsImpacted.stream( ).filter( SlotImpact::hasAppointments ).map( SlotImpact::getSlot )
+                .collect( Collectors.toList( ) );
 
         SlotService.deleteListSlots( listSlotsImpactedWithoutAppointments );
 
-        for ( Slot slotImpacted : listSlotsImpactedWithAppointments )
-        {
-        	Object lock = SlotSafeService.getLockOnSlot( slotImpacted.getIdSlot() );
-    		synchronized (lock) {
-	            // If the max capacity has changed,
-	            // need to update it for all the slots that already have
-	            // appointments
-	            if ( bMaxCapacityHasChanged )
-	            {
-	                slotImpacted.setMaxCapacity( nMaxCapacity );
-	                SlotSafeService.updateRemainingPlaces( slotImpacted );
-	            }
-	            // if the opening of the timeslot has changed and there are
-	            // appointments impacted,
-	            // all the corresponding slots are marked as specific
-	            if ( bOpeningHasChanged )
-	            {
-	                slotImpacted.setIsSpecific( bIsOpen );
-	            }
-	            SlotSafeService.updateSlot( slotImpacted );
-    	   }
+        if ( listSlotsImpactedWithAppointments.isEmpty( ) )
+        {
+            return;
+        }
+        // The changes of all the slots kept are notified as a single event
+        SlotListenerManager.openSlotChangeBatch( );
+        try
+        {
+            for ( Slot slotImpacted : listSlotsImpactedWithAppointments )
+            {
+                Object lock = SlotSafeService.getLockOnSlot( slotImpacted.getIdSlot( ) );
+                synchronized( lock )
+                {
+                    // The slot is read again : the bookings made since the impact query are not lost, and do not abort the modification
+                    SlotSafeService.updateImpactedSlot( slotImpacted.getIdSlot( ), bMaxCapacityHasChanged, nMaxCapacity, bOpeningHasChanged, bIsOpen );
+                }
+            }
+        }
+        finally
+        {
+            SlotListenerManager.closeSlotChangeBatch( );
         }
     }
 
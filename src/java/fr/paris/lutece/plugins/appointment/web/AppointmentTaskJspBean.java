@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.web;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang.StringUtils;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentTaskService;
+import fr.paris.lutece.portal.service.message.AdminMessage;
+import fr.paris.lutece.portal.service.message.AdminMessageService;
+import fr.paris.lutece.portal.util.mvc.admin.MVCAdminJspBean;
+import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
+import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
+import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
+import fr.paris.lutece.util.url.UrlItem;
+
+/**
+ * This class provides the user interface to manage the tasks of the appointments that failed after the commit ( list, retry, remove )
+ */
+@Controller( controllerJsp = "ManageAppointmentTasks.jsp", controllerPath = "jsp/admin/plugins/appointment/", right = AppointmentTaskJspBean.RIGHT_MANAGETASK )
+public class AppointmentTaskJspBean extends MVCAdminJspBean
+{
+    private static final long serialVersionUID = -2086251497330418612L;
+
+    /**
+     * Right to manage the appointment tasks
+     */
+    public static final String RIGHT_MANAGETASK = "APPOINTMENT_TASK_MANAGEMENT";
+
+    // templates
+    private static final String TEMPLATE_MANAGE_TASKS = "/admin/plugins/appointment/task/manage_tasks.html";
+
+    // Parameters
+    private static final String PARAMETER_ID_TASK = "id_task";
+
+    // Properties for page titles
+    private static final String PROPERTY_PAGE_TITLE_MANAGE_TASKS = "appointment.adminFeature.manageTasks.name";
+
+    // Markers
+    private static final String MARK_TASKS_LIST = "tasks_list";
+    private static final String MARK_NB_PENDING_TASKS = "nb_pending_tasks";
+
+    // Properties
+    private static final String MESSAGE_CONFIRM_REMOVE_TASK = "appointment.message.confirmRemoveTask";
+
+    // Views
+    private static final String VIEW_MANAGE_TASKS = "manageTasks";
+
+    // Actions
+    private static final String ACTION_RETRY_TASK = "retryTask";
+    private static final String ACTION_CONFIRM_REMOVE_TASK = "confirmRemoveTask";
+    private static final String ACTION_REMOVE_TASK = "removeTask";
+
+    // Infos
+    private static final String INFO_TASK_RETRIED = "appointment.info.task.retried";
+    private static final String INFO_TASK_REMOVED = "appointment.info.task.removed";
+
+    // Errors
+    private static final String ERROR_TASK_NOT_RETRIED = "appointment.message.error.taskNotRetried";
+
+    /**
+     * Default constructor
+     */
+    public AppointmentTaskJspBean( )
+    {
+    }
+
+    /**
+     * Get the page listing the failed tasks
+     * 
+     * @param request
+     *            the request
+     * @return The HTML content to display
+     */
+    @View( value = VIEW_MANAGE_TASKS, defaultView = true )
+    public String getManageTasks( HttpServletRequest request )
+    {
+        Map<String, Object> model = getModel( );
+        model.put( MARK_TASKS_LIST, AppointmentTaskService.findFailedTasks( ) );
+        model.put( MARK_NB_PENDING_TASKS, AppointmentTaskService.countPendingTasks( ) );
+        return getPage( PROPERTY_PAGE_TITLE_MANAGE_TASKS, TEMPLATE_MANAGE_TASKS, model );
+    }
+
+    /**
+     * Put a failed task back in the queue
+     * 
+     * @param request
+     *            the request
+     * @return The JSP URL of the process result
+     */
+    @Action( ACTION_RETRY_TASK )
+    public String doRetryTask( HttpServletRequest request )
+    {
+        String strIdTask = request.getParameter( PARAMETER_ID_TASK );
+        if ( StringUtils.isEmpty( strIdTask ) )
+        {
+            return redirectView( request, VIEW_MANAGE_TASKS );
+        }
+        if ( AppointmentTaskService.retryTask( Integer.parseInt( strIdTask ) ) )
+        {
+            addInfo( INFO_TASK_RETRIED, getLocale( ) );
+        }
+        else
+        {
+            addError( ERROR_TASK_NOT_RETRIED, getLocale( ) );
+        }
+        return redirectView( request, VIEW_MANAGE_TASKS );
+    }
+
+    /**
+     * Display a popup to ask the user if he really wants to delete the task he selected
+     * 
+     * @param request
+     *            the request
+     * @return the HTML code to confirm
+     */
+    @Action( ACTION_CONFIRM_REMOVE_TASK )
+    public String getConfirmRemoveTask( HttpServletRequest request )
+    {
+        String strIdTask = request.getParameter( PARAMETER_ID_TASK );
+        if ( StringUtils.isEmpty( strIdTask ) )
+        {
+            return redirectView( request, VIEW_MANAGE_TASKS );
+        }
+        UrlItem url = new UrlItem( getActionUrl( ACTION_REMOVE_TASK ) );
+        url.addParameter( PARAMETER_ID_TASK, Integer.parseInt( strIdTask ) );
+        String strMessageUrl = AdminMessageService.getMessageUrl( request, MESSAGE_CONFIRM_REMOVE_TASK, url.getUrl( ), AdminMessage.TYPE_CONFIRMATION );
+        return redirect( request, strMessageUrl );
+    }
+
+    /**
+     * Remove the task selected
+     * 
+     * @param request
+     *            the request
+     * @return The JSP URL of the process result
+     */
+    @Action( ACTION_REMOVE_TASK )
+    public String doRemoveTask( HttpServletRequest request )
+    {
+        String strIdTask = request.getParameter( PARAMETER_ID_TASK );
+        if ( StringUtils.isEmpty( strIdTask ) )
+        {
+            return redirectView( request, VIEW_MANAGE_TASKS );
+        }
+        AppointmentTaskService.removeTask( Integer.parseInt( strIdTask ) );
+        addInfo( INFO_TASK_REMOVED, getLocale( ) );
+        return redirectView( request, VIEW_MANAGE_TASKS );
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.plugins.appointment.service.stream.SlotAvailabilityStreamService;
+import fr.paris.lutece.plugins.appointment.service.stream.SlotAvailabilitySubscription;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Server-sent events stream of the availability changes of the slots of a form. The calendars connected to the stream update the slots displayed in place.
+ * A connection is closed after a maximum duration, or when the client does not read the messages fast enough : the client then reconnects and reloads its
+ * slots. The servlet is declared in the plugin descriptor, which cannot make it asynchronous : each connection holds a request thread of the container until
+ * it is closed, so the number of connections (appointment.stream.maxConnections) must stay far below the size of the pool of request threads
+ */
+public class SlotAvailabilityStreamServlet extends HttpServlet
+{
+    private static final long serialVersionUID = 6361424541306420542L;
+
+    private static final String PARAMETER_ID_FORM = "id_form";
+    private static final String PROPERTY_HEARTBEAT = "appointment.stream.heartbeat";
+    private static final String PROPERTY_MAX_DURATION = "appointment.stream.maxDuration";
+    private static final String PROPERTY_RETRY = "appointment.stream.retry";
+    private static final int DEFAULT_HEARTBEAT = 15;
+    private static final int DEFAULT_MAX_DURATION = 300;
+    private static final int DEFAULT_RETRY = 5;
+    private static final String CONTENT_TYPE_EVENT_STREAM = "text/event-stream";
+    private static final String CHARSET_UTF8 = "UTF-8";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    private static final String NO_CACHE = "no-cache";
+    private static final String END_OF_MESSAGE = "\n\n";
+    private static final long MILLISECONDS = 1000L;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        String strIdForm = request.getParameter( PARAMETER_ID_FORM );
+        if ( StringUtils.isEmpty( strIdForm ) || !StringUtils.isNumeric( strIdForm ) )
+        {
+            response.sendError( HttpServletResponse.SC_BAD_REQUEST );
+            return;
+        }
+        int nIdForm = Integer.parseInt( strIdForm );
+        Form form = FormService.findFormLightByPrimaryKey( nIdForm );
+        if ( form == null || !form.getIsActive( ) )
+        {
+            response.sendError( HttpServletResponse.SC_NOT_FOUND );
+            return;
+        }
+        int nRetry = AppPropertiesService.getPropertyInt( PROPERTY_RETRY, DEFAULT_RETRY );
+        SlotAvailabilitySubscription subscription = SlotAvailabilityStreamService.subscribe( nIdForm );
+        if ( subscription == null )
+        {
+            response.setHeader( HEADER_RETRY_AFTER, Integer.toString( nRetry ) );
+            response.sendError( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
+            return;
+        }
+        try
+        {
+            response.setContentType( CONTENT_TYPE_EVENT_STREAM );
+            response.setCharacterEncoding( CHARSET_UTF8 );
+            response.setHeader( HEADER_CACHE_CONTROL, NO_CACHE );
+            PrintWriter writer = response.getWriter( );
+            writer.write( "retry: " + nRetry * MILLISECONDS + END_OF_MESSAGE );
+            long lHeartbeat = AppPropertiesService.getPropertyInt( PROPERTY_HEARTBEAT, DEFAULT_HEARTBEAT ) * MILLISECONDS;
+            long lEndOfConnection = System.currentTimeMillis( ) + AppPropertiesService.getPropertyInt( PROPERTY_MAX_DURATION, DEFAULT_MAX_DURATION )
+                    * MILLISECONDS;
+            // checkError flushes the writer and tells whether the client is
+            // still connected
+            while ( !writer.checkError( ) && !subscription.isDropped( ) && System.currentTimeMillis( ) < lEndOfConnection )
+            {
+                String strMessage = subscription.poll( lHeartbeat );
+                if ( strMessage != null )
+                {
+                    writer.write( "data: " + strMessage + END_OF_MESSAGE );
+                }
+                else
+                {
+                    writer.write( ": keep-alive" + END_OF_MESSAGE );
+                }
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        finally
+        {
+            SlotAvailabilityStreamService.unsubscribe( subscription );
+        }
+    }
+}
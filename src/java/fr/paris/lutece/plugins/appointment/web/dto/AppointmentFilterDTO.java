@@ -46,6 +46,25 @@ public final class AppointmentFilterDTO extends User implements Serializable
      */
     private static final long serialVersionUID = -8087511361613314595L;
 
+    /**
+     * The values of the sort of the appointments
+     */
+    public static final String ORDER_BY_LAST_NAME = "last_name";
+    public static final String ORDER_BY_FIRST_NAME = "first_name";
+    public static final String ORDER_BY_EMAIL = "email";
+    public static final String ORDER_BY_NB_BOOKED_SEATS = "nbBookedSeats";
+    public static final String ORDER_BY_DATE_APPOINTMENT = "date_appointment";
+    public static final String ORDER_BY_ADMIN = "admin";
+    public static final String ORDER_BY_STATUS = "status";
+
+    /**
+     * The modes of the search on the name and the email of the user. The prefix and exact modes use the indexes of the search columns, the contains mode
+     * reads all the users of the form. In prefix mode, an email starting with @ is searched on the end of the email (the domain)
+     */
+    public static final String SEARCH_MODE_CONTAINS = "contains";
+    public static final String SEARCH_MODE_PREFIX = "prefix";
+    public static final String SEARCH_MODE_EXACT = "exact";
+
     /**
      * The form Id
      */
@@ -81,6 +100,21 @@ public final class AppointmentFilterDTO extends User implements Serializable
      */
     private int _status = -1;
 
+    /**
+     * The sort of the appointments (null if the appointments are not sorted)
+     */
+    private String _strOrderBy;
+
+    /**
+     * True if the appointments are sorted in ascending order
+     */
+    private boolean _bOrderAsc;
+
+    /**
+     * The mode of the search on the name and the email of the user (one of the SEARCH_MODE values, contains if null)
+     */
+    private String _strSearchMode;
+
     /**
      * Get the form id
      * 
@@ -257,4 +291,67 @@ public final class AppointmentFilterDTO extends User implements Serializable
         this._status = status;
     }
 
+    /**
+     * Get the sort of the appointments
+     * 
+     * @return the sort (one of the ORDER_BY values), null if the appointments are not sorted
+     */
+    public String getOrderBy( )
+    {
+        return _strOrderBy;
+    }
+
+    /**
+     * Set the sort of the appointments
+     * 
+     * @param strOrderBy
+     *            the sort (one of the ORDER_BY values)
+     */
+    public void setOrderBy( String strOrderBy )
+    {
+        this._strOrderBy = strOrderBy;
+    }
+
+    /**
+     * Get the direction of the sort of the appointments
+     * 
+     * @return true if the appointments are sorted in ascending order
+     */
+    public boolean getOrderAsc( )
+    {
+        return _bOrderAsc;
+    }
+
+    /**
+     * Set the direction of the sort of the appointments
+     * 
+     * @param bOrderAsc
+     *            true if the appointments are sorted in ascending order
+     */
+    public void setOrderAsc( boolean bOrderAsc )
+    {
+        this._bOrderAsc = bOrderAsc;
+    }
+
+    /**
+     * Get the mode of the search on the name and the email of the user
+     * 
+     * @return the mode (one of the SEARCH_MODE values), null for the default mode ( {@link #SEARCH_MODE_CONTAINS} )
+     */
+    public String getSearchMode( )
+    {
+        return _strSearchMode;
+    }
+
+    /**
+     * Set the mode of the search on the name and the email of the user
+     * 
+     * @param strSearchMode
+     *            the mode (one of the SEARCH_MODE values)
+     */
+    public void setSearchMode( String strSearchMode )
+    {
+        this._strSearchMode = strSearchMode;
+    }
+
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.web.rs;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormVersion;
+import fr.paris.lutece.plugins.appointment.service.AppointmentUtilities;
+import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.plugins.appointment.service.SlotService;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityVersionService;
+import fr.paris.lutece.plugins.appointment.service.cache.PlanningCacheService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * REST service for the availability of the slots of a form. The responses carry an ETag built from the availability version of the form, so that the
+ * clients polling the availability get a 304 (Not Modified) response as long as nothing has changed
+ */
+@Path( Constants.BASE_REST_PATH + Constants.PLUGIN_PATH + Constants.FORM_PATH )
+public class AvailabilityRest
+{
+    private static final String PROPERTY_MAX_DAYS = "appointment.rest.availability.maxDays";
+    private static final int DEFAULT_MAX_DAYS = 62;
+
+    /**
+     * Default constructor
+     */
+    public AvailabilityRest( )
+    {
+        super( );
+    }
+
+    /**
+     * Get the availability of the slots of a form on a period
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param strFrom
+     *            the starting date of the period (ISO format)
+     * @param strTo
+     *            the ending date of the period (ISO format)
+     * @param request
+     *            the request
+     * @return the JSON array of the slots of the period, or a 304 response if the client already has the current version
+     */
+    @GET
+    @Path( "{id_form}/" + Constants.AVAILABILITY_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response getAvailability( @PathParam( "id_form" ) int nIdForm, @QueryParam( "from" ) String strFrom, @QueryParam( "to" ) String strTo,
+            @Context Request request )
+    {
+        LocalDate startingDate;
+        LocalDate endingDate;
+        try
+        {
+            startingDate = LocalDate.parse( strFrom );
+            endingDate = LocalDate.parse( strTo );
+        }
+        catch( DateTimeParseException | NullPointerException e )
+        {
+            return Response.status( Status.BAD_REQUEST ).build( );
+        }
+        if ( endingDate.isBefore( startingDate )
+                || ChronoUnit.DAYS.between( startingDate, endingDate ) >= AppPropertiesService.getPropertyInt( PROPERTY_MAX_DAYS, DEFAULT_MAX_DAYS ) )
+        {
+            return Response.status( Status.BAD_REQUEST ).build( );
+        }
+        Form form = FormService.findFormLightByPrimaryKey( nIdForm );
+        if ( form == null || !form.getIsActive( ) )
+        {
+            return Response.status( Status.NOT_FOUND ).build( );
+        }
+        // The version is read before the slots are built : if the slots are
+        // modified meanwhile, the next request will not match this ETag
+        FormVersion formVersion = AvailabilityVersionService.getVersion( nIdForm );
+        EntityTag eTag = new EntityTag( nIdForm + "-" + formVersion.getAvailabilityVersion( ) + "-" + startingDate + "-" + endingDate );
+        Timestamp dateAvailabilityUpdate = formVersion.getDateAvailabilityUpdate( );
+        CacheControl cacheControl = new CacheControl( );
+        cacheControl.setNoCache( true );
+        ResponseBuilder builder = request.evaluatePreconditions( eTag );
+        if ( builder == null )
+        {
+            builder = Response.ok( AppointmentUtilities.buildJsonSlots( SlotService.buildListSlot( nIdForm, PlanningCacheService.getPlanning( nIdForm )
+                    .getMapWeekDefinition( ), startingDate, endingDate ) ) );
+        }
+        builder.tag( eTag ).cacheControl( cacheControl );
+        if ( dateAvailabilityUpdate != null )
+        {
+            builder.lastModified( new Date( dateAvailabilityUpdate.getTime( ) ) );
+        }
+        return builder.build( );
+    }
+}
@@ -35,6 +35,7 @@ package fr.paris.lutece.plugins.appointment.web.rs;
 
 public final class Constants
 {
+    public static final String AVAILABILITY_PATH = "availability/";
     public static final String BASE_REST_PATH = "rest/";
     public static final String FORM_PATH = "form/";
     public static final String IMPORT_PATH = "import/";
@@ -26,6 +26,9 @@ INSERT INTO core_portlet_type VALUES ('APPOINTMENT_FORM_LIST_PORTLET','appointme
 INSERT INTO core_dashboard(dashboard_name, dashboard_column, dashboard_order) VALUES('APPOINTMENT_FORM', 3, 2);
 
 INSERT INTO core_datastore(entity_key, entity_value) VALUES ('core.cache.status.appointment.appointmentFormCacheService.enabled', '1');
+INSERT INTO core_datastore(entity_key, entity_value) VALUES ('core.cache.status.appointment.planningCacheService.enabled', '1');
+INSERT INTO core_datastore(entity_key, entity_value) VALUES ('core.cache.status.appointment.formEntryCacheService.enabled', '1');
+INSERT INTO core_datastore(entity_key, entity_value) VALUES ('core.cache.status.appointment.adminUserNameCacheService.enabled', '1');
 
 -- 
 -- CATEGORY
@@ -33,4 +36,12 @@ INSERT INTO core_datastore(entity_key, entity_value) VALUES ('core.cache.status.
 INSERT INTO core_admin_right (id_right,name,level_right,admin_url,description,is_updatable,plugin_name,id_feature_group,icon_url,documentation_url, id_order ) VALUES 
 ('APPOINTMENT_CATEGORY_MANAGEMENT','appointment.adminFeature.manageCategories.name',1,'jsp/admin/plugins/appointment/ManageAppointmentCategory.jsp','appointment.adminFeature.manageCategories.description',0,'appointment','SYSTEM',NULL,NULL,4);
 
-INSERT INTO core_user_right (id_right,id_user) VALUES ('APPOINTMENT_CATEGORY_MANAGEMENT',1);
\ No newline at end of file
+INSERT INTO core_user_right (id_right,id_user) VALUES ('APPOINTMENT_CATEGORY_MANAGEMENT',1);
+
+-- 
+-- TASK
+--
+INSERT INTO core_admin_right (id_right,name,level_right,admin_url,description,is_updatable,plugin_name,id_feature_group,icon_url,documentation_url, id_order ) VALUES 
+('APPOINTMENT_TASK_MANAGEMENT','appointment.adminFeature.manageTasks.name',0,'jsp/admin/plugins/appointment/ManageAppointmentTasks.jsp','appointment.adminFeature.manageTasks.description',0,'appointment','SYSTEM',NULL,NULL,5);
+
+INSERT INTO core_user_right (id_right,id_user) VALUES ('APPOINTMENT_TASK_MANAGEMENT',1);
@@ -1,3 +1,10 @@
+DROP TABLE IF EXISTS appointment_export_file ;
+DROP TABLE IF EXISTS appointment_export_job ;
+DROP TABLE IF EXISTS appointment_day_availability ;
+DROP TABLE IF EXISTS appointment_task ;
+DROP TABLE IF EXISTS appointment_event_lease ;
+DROP TABLE IF EXISTS appointment_slot_hold ;
+DROP TABLE IF EXISTS appointment_event ;
 DROP TABLE IF EXISTS appointment_reservation_rule ;
 DROP TABLE IF EXISTS appointment_appointment_response ;
 DROP TABLE IF EXISTS appointment_form_message ;
@@ -13,6 +20,7 @@ DROP TABLE IF EXISTS appointment_calendar_template ;
 DROP TABLE IF EXISTS appointment_appointment ;
 DROP TABLE IF EXISTS appointment_user ;
 DROP TABLE IF EXISTS appointment_slot ;
+DROP TABLE IF EXISTS appointment_form_availability ;
 DROP TABLE IF EXISTS appointment_form ;
 DROP TABLE IF EXISTS appointment_category ;
 
@@ -38,12 +46,24 @@ CREATE TABLE IF NOT EXISTS appointment_user (
   last_name VARCHAR(255) BINARY NOT NULL,
   email VARCHAR(255) NULL,
   phone_number VARCHAR(255) NULL,
+  first_name_search VARCHAR(255) NULL,
+  last_name_search VARCHAR(255) NULL,
+  email_search VARCHAR(255) NULL,
+  email_search_reversed VARCHAR(255) NULL,
   PRIMARY KEY (id_user),
   UNIQUE KEY unique_index_email (first_name, last_name, email))
 ENGINE = InnoDB;
 
 CREATE INDEX email_idx ON appointment_user (email ASC);
 
+CREATE INDEX first_name_search_idx ON appointment_user (first_name_search ASC);
+
+CREATE INDEX last_name_search_idx ON appointment_user (last_name_search ASC);
+
+CREATE INDEX email_search_idx ON appointment_user (email_search ASC);
+
+CREATE INDEX email_search_reversed_idx ON appointment_user (email_search_reversed ASC);
+
 -- -----------------------------------------------------
 -- Table appointment_form
 -- -----------------------------------------------------
@@ -59,6 +79,8 @@ CREATE TABLE IF NOT EXISTS appointment_form (
   is_active BOOLEAN NOT NULL DEFAULT FALSE,
   id_workflow INT NULL,
   workgroup varchar(255) NULL,
+  planning_version BIGINT NOT NULL DEFAULT 0,
+  entry_version BIGINT NOT NULL DEFAULT 0,
   PRIMARY KEY (id_form),
    CONSTRAINT fk_appointment_form_appointment_category
     FOREIGN KEY (id_category)
@@ -88,6 +110,7 @@ CREATE TABLE IF NOT EXISTS appointment_slot (
   nb_potential_remaining_places INT NOT NULL DEFAULT 0,
   nb_places_taken INT NOT NULL DEFAULT 0,
   id_form INT NOT NULL,
+  version INT NOT NULL DEFAULT 0,
   PRIMARY KEY (id_slot, id_form),
   UNIQUE KEY unique_index_starting_date_time (id_form,starting_date_time),
   UNIQUE KEY unique_index_ending_date_time (id_form,ending_date_time),
@@ -104,6 +127,8 @@ CREATE INDEX starting_date_time_idx ON appointment_slot (starting_date_time ASC)
 
 CREATE INDEX ending_date_time_idx ON appointment_slot (ending_date_time ASC);
 
+CREATE INDEX id_form_starting_date_time_idx ON appointment_slot (id_form ASC, starting_date_time ASC);
+
 -- -----------------------------------------------------
 -- Table appointment_appointment
 -- -----------------------------------------------------
@@ -423,4 +448,148 @@ ENGINE = InnoDB;
 
 CREATE INDEX fk_appointment_reservation_rule_appointment_form_idx ON appointment_reservation_rule (id_form ASC);
 
-CREATE INDEX date_of_apply_idx ON appointment_reservation_rule (date_of_apply ASC);
\ No newline at end of file
+CREATE INDEX date_of_apply_idx ON appointment_reservation_rule (date_of_apply ASC);
+
+-- -----------------------------------------------------
+-- Table appointment_task
+-- -----------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS appointment_task (
+  id_task INT AUTO_INCREMENT,
+  id_appointment INT NOT NULL,
+  id_form INT NOT NULL DEFAULT 0,
+  is_new_appointment BOOLEAN NOT NULL DEFAULT FALSE,
+  is_reset_workflow BOOLEAN NOT NULL DEFAULT FALSE,
+  status INT NOT NULL DEFAULT 0,
+  nb_attempts INT NOT NULL DEFAULT 0,
+  date_creation TIMESTAMP NULL,
+  date_status TIMESTAMP NULL,
+  date_next_attempt TIMESTAMP NULL,
+  last_error VARCHAR(255) NULL,
+  PRIMARY KEY (id_task),
+  CONSTRAINT fk_appointment_task_appointment_appointment
+    FOREIGN KEY (id_appointment)
+    REFERENCES appointment_appointment (id_appointment)
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+CREATE INDEX fk_appointment_task_appointment_appointment_idx ON appointment_task (id_appointment ASC);
+
+CREATE INDEX status_date_next_attempt_idx ON appointment_task (status ASC, date_next_attempt ASC);
+
+-- -----------------------------------------------------
+-- Table appointment_event
+-- -----------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS appointment_event (
+  id_event INT AUTO_INCREMENT,
+  resource_type VARCHAR(50) NOT NULL,
+  id_resource INT NOT NULL,
+  event_type VARCHAR(50) NOT NULL,
+  id_action INT NOT NULL DEFAULT 0,
+  data TEXT NULL,
+  date_creation TIMESTAMP NULL,
+  claim_token VARCHAR(100) NULL,
+  date_claim TIMESTAMP NULL,
+  PRIMARY KEY (id_event))
+ENGINE = InnoDB;
+
+CREATE INDEX claim_token_idx ON appointment_event (claim_token ASC, id_event ASC);
+
+-- -----------------------------------------------------
+-- Table appointment_event_lease
+-- -----------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS appointment_event_lease (
+  id_lease INT NOT NULL,
+  node_id VARCHAR(100) NULL,
+  date_expiry TIMESTAMP NULL,
+  PRIMARY KEY (id_lease))
+ENGINE = InnoDB;
+
+-- -----------------------------------------------------
+-- Table appointment_slot_hold
+-- -----------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS appointment_slot_hold (
+  id_hold INT NOT NULL AUTO_INCREMENT,
+  id_slot INT NOT NULL,
+  nb_places INT NOT NULL,
+  date_expiry TIMESTAMP NULL,
+  is_released SMALLINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (id_hold))
+ENGINE = InnoDB;
+
+CREATE INDEX is_released_date_expiry_idx ON appointment_slot_hold (is_released ASC, date_expiry ASC);
+
+-- -----------------------------------------------------
+-- Table appointment_form_availability
+-- -----------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS appointment_form_availability (
+  id_form INT NOT NULL,
+  availability_version BIGINT NOT NULL DEFAULT 0,
+  date_availability_update TIMESTAMP NULL,
+  PRIMARY KEY (id_form),
+  CONSTRAINT fk_appointment_form_availability_appointment_form
+    FOREIGN KEY (id_form)
+    REFERENCES appointment_form (id_form)
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
+
+-- -----------------------------------------------------
+-- Table appointment_day_availability
+-- -----------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS appointment_day_availability (
+  id_form INT NOT NULL,
+  date_day DATE NOT NULL,
+  nb_open_places INT NOT NULL DEFAULT 0,
+  first_free_time TIME NULL,
+  date_update TIMESTAMP NULL,
+  PRIMARY KEY (id_form, date_day))
+ENGINE = InnoDB;
+
+-- -----------------------------------------------------
+-- Table appointment_export_job
+-- -----------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS appointment_export_job (
+  id_export_job INT AUTO_INCREMENT,
+  type VARCHAR(50) NOT NULL,
+  id_form INT NOT NULL DEFAULT 0,
+  format VARCHAR(10) NULL,
+  filter_json TEXT NULL,
+  id_admin_user INT NOT NULL DEFAULT 0,
+  locale VARCHAR(10) NULL,
+  status INT NOT NULL DEFAULT 0,
+  progress INT NOT NULL DEFAULT 0,
+  nb_items INT NOT NULL DEFAULT 0,
+  file_name VARCHAR(255) NULL,
+  date_creation TIMESTAMP NULL,
+  date_status TIMESTAMP NULL,
+  error VARCHAR(255) NULL,
+  PRIMARY KEY (id_export_job))
+ENGINE = InnoDB;
+
+CREATE INDEX id_admin_user_idx ON appointment_export_job (id_admin_user ASC);
+
+CREATE INDEX status_date_status_idx ON appointment_export_job (status ASC, date_status ASC);
+
+-- -----------------------------------------------------
+-- Table appointment_export_file
+-- -----------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS appointment_export_file (
+  id_export_job INT NOT NULL,
+  file_size INT NOT NULL DEFAULT 0,
+  file_content LONGBLOB NULL,
+  PRIMARY KEY (id_export_job),
+  CONSTRAINT fk_appointment_export_file_appointment_export_job
+    FOREIGN KEY (id_export_job)
+    REFERENCES appointment_export_job (id_export_job)
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION)
+ENGINE = InnoDB;
@@ -2,3 +2,4 @@ INSERT INTO appointment_calendar_template (id_calendar_template, title, descript
 INSERT INTO appointment_calendar_template (id_calendar_template, title, description, template_path) VALUES (2,'Calendrier jours ouverts','Calendrier des créneaux disponibles et indisponibles (jours ouverts)','skin/plugins/appointment/calendar/appointment_form_calendar_opendays.html' );
 INSERT INTO appointment_calendar_template (id_calendar_template, title, description, template_path) VALUES (3,'Liste des creneaux disponibles','Liste des créneaux disponibles','skin/plugins/appointment/calendar/appointment_form_list_open_slots.html' );
 INSERT INTO appointment_calendar_template (id_calendar_template, title, description, template_path) VALUES (4,'Liste des creneaux disponibles jours ouverts','Liste des créneaux disponibles (jours ouverts)','skin/plugins/appointment/calendar/appointment_form_list_open_slots_opendays.html' );
+INSERT INTO appointment_event_lease ( id_lease ) VALUES ( 1 );
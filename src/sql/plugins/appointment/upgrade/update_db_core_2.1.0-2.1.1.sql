@@ -0,0 +1,14 @@
+-- 
+-- TASK
+--
+INSERT INTO core_admin_right (id_right,name,level_right,admin_url,description,is_updatable,plugin_name,id_feature_group,icon_url,documentation_url, id_order ) VALUES 
+('APPOINTMENT_TASK_MANAGEMENT','appointment.adminFeature.manageTasks.name',0,'jsp/admin/plugins/appointment/ManageAppointmentTasks.jsp','appointment.adminFeature.manageTasks.description',0,'appointment','SYSTEM',NULL,NULL,5);
+
+INSERT INTO core_user_right (id_right,id_user) VALUES ('APPOINTMENT_TASK_MANAGEMENT',1);
+
+-- 
+-- CACHES
+--
+INSERT INTO core_datastore(entity_key, entity_value) VALUES ('core.cache.status.appointment.planningCacheService.enabled', '1');
+INSERT INTO core_datastore(entity_key, entity_value) VALUES ('core.cache.status.appointment.formEntryCacheService.enabled', '1');
+INSERT INTO core_datastore(entity_key, entity_value) VALUES ('core.cache.status.appointment.adminUserNameCacheService.enabled', '1');
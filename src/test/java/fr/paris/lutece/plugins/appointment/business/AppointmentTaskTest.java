@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business;
+
+import java.time.LocalDateTime;
+
+import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.business.task.AppointmentTask;
+import fr.paris.lutece.plugins.appointment.business.task.AppointmentTaskHome;
+import fr.paris.lutece.plugins.appointment.business.user.User;
+import fr.paris.lutece.plugins.appointment.business.user.UserHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test Class for the AppointmentTask
+ *
+ */
+public final class AppointmentTaskTest extends LuteceTestCase
+{
+
+    /**
+     * Test method for the AppointmentTask (CRUD and lock)
+     */
+    public void testAppointmentTask( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        User user = UserTest.buildUser( Constants.GUID_1, Constants.FIRST_NAME_1, Constants.LAST_NAME_1, Constants.EMAIL_1, Constants.PHONE_NUMBER_1 );
+        UserHome.create( user );
+
+        Slot slot = SlotTest.buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_1,
+                Constants.NB_REMAINING_PLACES_1, 0, Constants.NB_REMAINING_PLACES_1, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot );
+
+        Appointment appointment = new Appointment( );
+        appointment.setIdUser( user.getIdUser( ) );
+        appointment.setIdSlot( slot.getIdSlot( ) );
+        AppointmentHome.create( appointment );
+
+        // Initialize a task ready to be processed
+        LocalDateTime now = LocalDateTime.now( ).withNano( 0 );
+        AppointmentTask task = new AppointmentTask( );
+        task.setIdAppointment( appointment.getIdAppointment( ) );
+        task.setIdForm( form.getIdForm( ) );
+        task.setNewAppointment( true );
+        task.setStatus( AppointmentTask.STATUS_TO_PROCESS );
+        task.setDateCreation( now );
+        task.setDateStatus( now );
+        task.setDateNextAttempt( now );
+        AppointmentTaskHome.create( task );
+        AppointmentTask taskStored = AppointmentTaskHome.findByPrimaryKey( task.getIdTask( ) );
+        checkAsserts( taskStored, task );
+        assertTrue( AppointmentTaskHome.findIdTasksToProcess( now, 100 ).contains( task.getIdTask( ) ) );
+
+        // Only one caller can take the task
+        assertTrue( AppointmentTaskHome.lock( task.getIdTask( ), now ) );
+        assertFalse( AppointmentTaskHome.lock( task.getIdTask( ), now ) );
+        assertFalse( AppointmentTaskHome.findIdTasksToProcess( now, 100 ).contains( task.getIdTask( ) ) );
+
+        // An interrupted task is put back in the queue
+        AppointmentTaskHome.unlockTasksInProgressBefore( now.plusMinutes( 1 ) );
+        assertTrue( AppointmentTaskHome.lock( task.getIdTask( ), now ) );
+
+        // Update the task as failed
+        task.setStatus( AppointmentTask.STATUS_FAILED );
+        task.setNbAttempts( 5 );
+        task.setLastError( "error" );
+        AppointmentTaskHome.update( task );
+        taskStored = AppointmentTaskHome.findByPrimaryKey( task.getIdTask( ) );
+        checkAsserts( taskStored, task );
+        assertEquals( 1, AppointmentTaskHome.findByStatus( AppointmentTask.STATUS_FAILED ).stream( )
+                .filter( t -> t.getIdTask( ) == task.getIdTask( ) ).count( ) );
+
+        // Delete the task
+        AppointmentTaskHome.delete( task.getIdTask( ) );
+        assertNull( AppointmentTaskHome.findByPrimaryKey( task.getIdTask( ) ) );
+
+        // Clean
+        FormHome.delete( form.getIdForm( ) );
+        UserHome.delete( user.getIdUser( ) );
+    }
+
+    /**
+     * Check that all the asserts are true
+     * 
+     * @param taskStored
+     *            the task stored
+     * @param task
+     *            the task created
+     */
+    public void checkAsserts( AppointmentTask taskStored, AppointmentTask task )
+    {
+        assertEquals( taskStored.getIdAppointment( ), task.getIdAppointment( ) );
+        assertEquals( taskStored.getIdForm( ), task.getIdForm( ) );
+        assertEquals( taskStored.getNewAppointment( ), task.getNewAppointment( ) );
+        assertEquals( taskStored.getResetWorkflow( ), task.getResetWorkflow( ) );
+        assertEquals( taskStored.getStatus( ), task.getStatus( ) );
+        assertEquals( taskStored.getNbAttempts( ), task.getNbAttempts( ) );
+        assertEquals( taskStored.getDateNextAttempt( ), task.getDateNextAttempt( ) );
+        assertEquals( taskStored.getLastError( ), task.getLastError( ) );
+    }
+}
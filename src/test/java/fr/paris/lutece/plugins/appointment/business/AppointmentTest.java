@@ -45,6 +45,7 @@ import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
 import fr.paris.lutece.plugins.appointment.business.user.User;
 import fr.paris.lutece.plugins.appointment.business.user.UserHome;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 import fr.paris.lutece.test.LuteceTestCase;
 
 /**
@@ -216,6 +217,79 @@ public final class AppointmentTest extends LuteceTestCase
         UserHome.delete( user2.getIdUser( ) );
     }
 
+    /**
+     * Test the sort, the pages and the count of the findByFilter method
+     */
+    public void testFindByFilterPage( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        User user = UserTest.buildUser( Constants.GUID_1, Constants.FIRST_NAME_1, Constants.LAST_NAME_1, Constants.EMAIL_1, Constants.PHONE_NUMBER_1 );
+        UserHome.create( user );
+
+        Slot slot1 = SlotTest.buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_1,
+                Constants.NB_REMAINING_PLACES_1, 0, Constants.NB_REMAINING_PLACES_1, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot1 );
+
+        Slot slot2 = SlotTest.buildSlot( form.getIdForm( ), Constants.STARTING_DATE_2, Constants.ENDING_DATE_2, Constants.NB_REMAINING_PLACES_2,
+                Constants.NB_REMAINING_PLACES_2, 0, Constants.NB_REMAINING_PLACES_2, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot2 );
+
+        Appointment appointment1 = new Appointment( );
+        appointment1.setIdUser( user.getIdUser( ) );
+        appointment1.setIdSlot( slot1.getIdSlot( ) );
+        AppointmentHome.create( appointment1 );
+
+        Appointment appointment2 = new Appointment( );
+        appointment2.setIdUser( user.getIdUser( ) );
+        appointment2.setIdSlot( slot2.getIdSlot( ) );
+        AppointmentHome.create( appointment2 );
+
+        AppointmentFilterDTO filter = new AppointmentFilterDTO( );
+        filter.setIdForm( form.getIdForm( ) );
+        filter.setOrderBy( AppointmentFilterDTO.ORDER_BY_DATE_APPOINTMENT );
+        filter.setOrderAsc( true );
+        assertEquals( 2, AppointmentHome.countByFilter( filter ) );
+
+        // One appointment by page, sorted by date
+        List<Appointment> listFirstPage = AppointmentHome.findByFilter( filter, 0, 1 );
+        List<Appointment> listSecondPage = AppointmentHome.findByFilter( filter, 1, 1 );
+        assertEquals( 1, listFirstPage.size( ) );
+        assertEquals( 1, listSecondPage.size( ) );
+        assertEquals( appointment1.getIdAppointment( ), listFirstPage.get( 0 ).getIdAppointment( ) );
+        assertEquals( appointment2.getIdAppointment( ), listSecondPage.get( 0 ).getIdAppointment( ) );
+
+        filter.setOrderAsc( false );
+        assertEquals( appointment2.getIdAppointment( ), AppointmentHome.findByFilter( filter, 0, 1 ).get( 0 ).getIdAppointment( ) );
+        assertTrue( AppointmentHome.findByFilter( filter, 2, 1 ).isEmpty( ) );
+
+        // The ids are sorted as the pages, the appointments are loaded by ids
+        List<Integer> listIdAppointment = AppointmentHome.findListIdByFilter( filter );
+        assertEquals( 2, listIdAppointment.size( ) );
+        assertEquals( appointment2.getIdAppointment( ), listIdAppointment.get( 0 ).intValue( ) );
+        List<Appointment> listAppointment = AppointmentHome.findByListId( listIdAppointment );
+        assertEquals( 2, listAppointment.size( ) );
+        assertEquals( form.getIdForm( ), listAppointment.get( 0 ).getSlot( ).getIdForm( ) );
+        assertEquals( Constants.EMAIL_1, listAppointment.get( 0 ).getUser( ).getEmail( ) );
+
+        // The search on the user ignores the case, in all the modes
+        filter.setLastName( Constants.LAST_NAME_1.toUpperCase( ) );
+        assertEquals( 2, AppointmentHome.countByFilter( filter ) );
+        filter.setSearchMode( AppointmentFilterDTO.SEARCH_MODE_EXACT );
+        assertEquals( 2, AppointmentHome.countByFilter( filter ) );
+        filter.setLastName( Constants.LAST_NAME_1.substring( 0, 4 ) );
+        assertEquals( 0, AppointmentHome.countByFilter( filter ) );
+        filter.setSearchMode( AppointmentFilterDTO.SEARCH_MODE_PREFIX );
+        assertEquals( 2, AppointmentHome.countByFilter( filter ) );
+        filter.setLastName( Constants.LAST_NAME_1.substring( 1 ) );
+        assertEquals( 0, AppointmentHome.countByFilter( filter ) );
+
+        // Clean
+        FormHome.delete( form.getIdForm( ) );
+        UserHome.delete( user.getIdUser( ) );
+    }
+
     /**
      * Check that all the asserts are true
      * 
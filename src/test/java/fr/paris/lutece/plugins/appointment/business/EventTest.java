@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.event.Event;
+import fr.paris.lutece.plugins.appointment.business.event.EventHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test Class for the Event
+ *
+ */
+public final class EventTest extends LuteceTestCase
+{
+
+    private static final String CLAIM_TOKEN_1 = "EventTest-1";
+    private static final String CLAIM_TOKEN_2 = "EventTest-2";
+    private static final String NODE_ID_1 = "EventTest-node-1";
+    private static final String NODE_ID_2 = "EventTest-node-2";
+
+    /**
+     * Test the claim, the delivery order and the removal of the events
+     */
+    public void testClaimEvents( )
+    {
+        LocalDateTime now = LocalDateTime.now( );
+        Event eventCreation = buildEvent( Event.RESOURCE_SLOT, 1, Event.TYPE_CREATION, now );
+        EventHome.create( eventCreation );
+        Event eventChange = buildEvent( Event.RESOURCE_SLOTS_OF_FORM, 1, Event.TYPE_CHANGE, now );
+        eventChange.setData( "1,2,3" );
+        EventHome.create( eventChange );
+
+        // The events are claimed once, in the order of their creation
+        assertTrue( EventHome.claim( CLAIM_TOKEN_1, now, 1000 ) >= 2 );
+        assertEquals( 0, EventHome.claim( CLAIM_TOKEN_2, now, 1000 ) );
+        List<Event> listEvents = EventHome.findByClaimToken( CLAIM_TOKEN_1 );
+        int nIndexCreation = indexOf( listEvents, eventCreation.getIdEvent( ) );
+        int nIndexChange = indexOf( listEvents, eventChange.getIdEvent( ) );
+        assertTrue( nIndexCreation >= 0 );
+        assertTrue( nIndexCreation < nIndexChange );
+        assertEquals( Event.TYPE_CHANGE, listEvents.get( nIndexChange ).getEventType( ) );
+        assertEquals( "1,2,3", listEvents.get( nIndexChange ).getData( ) );
+
+        // An interrupted claim is released
+        EventHome.releaseClaimsBefore( now.plusMinutes( 1 ) );
+        assertTrue( EventHome.findByClaimToken( CLAIM_TOKEN_1 ).isEmpty( ) );
+        assertTrue( EventHome.claim( CLAIM_TOKEN_2, now, 1000 ) >= 2 );
+
+        // The events delivered are removed
+        EventHome.deleteByClaimToken( CLAIM_TOKEN_2 );
+        assertTrue( EventHome.findByClaimToken( CLAIM_TOKEN_2 ).isEmpty( ) );
+    }
+
+    /**
+     * Test that the lease of the dispatch is held by a single node until it expires or is released
+     */
+    public void testLease( )
+    {
+        // Far enough in the future for the lease of the running dispatcher to be expired
+        LocalDateTime now = LocalDateTime.now( ).plusYears( 100 );
+        assertTrue( EventHome.acquireLease( NODE_ID_1, now, now.plusSeconds( 30 ) ) );
+        assertFalse( EventHome.acquireLease( NODE_ID_2, now, now.plusSeconds( 30 ) ) );
+
+        // The node holding the lease renews it
+        assertTrue( EventHome.acquireLease( NODE_ID_1, now.plusSeconds( 10 ), now.plusSeconds( 40 ) ) );
+        assertFalse( EventHome.acquireLease( NODE_ID_2, now.plusSeconds( 35 ), now.plusSeconds( 65 ) ) );
+
+        // Another node takes an expired lease over
+        assertTrue( EventHome.acquireLease( NODE_ID_2, now.plusSeconds( 41 ), now.plusSeconds( 71 ) ) );
+        assertFalse( EventHome.acquireLease( NODE_ID_1, now.plusSeconds( 42 ), now.plusSeconds( 72 ) ) );
+
+        // Only the node holding the lease releases it
+        EventHome.releaseLease( NODE_ID_1 );
+        assertFalse( EventHome.acquireLease( NODE_ID_1, now.plusSeconds( 43 ), now.plusSeconds( 73 ) ) );
+        EventHome.releaseLease( NODE_ID_2 );
+        assertTrue( EventHome.acquireLease( NODE_ID_1, now.plusSeconds( 44 ), now.plusSeconds( 74 ) ) );
+        EventHome.releaseLease( NODE_ID_1 );
+    }
+
+    /**
+     * Build an Event Business Object
+     * 
+     * @param strResourceType
+     *            the type of the resource
+     * @param nIdResource
+     *            the id of the resource
+     * @param strEventType
+     *            the type of the event
+     * @param dateCreation
+     *            the date of creation
+     * @return the event
+     */
+    public static Event buildEvent( String strResourceType, int nIdResource, String strEventType, LocalDateTime dateCreation )
+    {
+        Event event = new Event( );
+        event.setResourceType( strResourceType );
+        event.setIdResource( nIdResource );
+        event.setEventType( strEventType );
+        event.setDateCreation( dateCreation );
+        return event;
+    }
+
+    /**
+     * Find the index of an event in a list
+     * 
+     * @param listEvents
+     *            the list of the events
+     * @param nIdEvent
+     *            the id of the event
+     * @return the index of the event, -1 if not found
+     */
+    private static int indexOf( List<Event> listEvents, int nIdEvent )
+    {
+        for ( int i = 0; i < listEvents.size( ); i++ )
+        {
+            if ( listEvents.get( i ).getIdEvent( ) == nIdEvent )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
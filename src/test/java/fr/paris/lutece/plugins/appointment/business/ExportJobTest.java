@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import fr.paris.lutece.plugins.appointment.business.export.ExportJob;
+import fr.paris.lutece.plugins.appointment.business.export.ExportJobHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test Class for the ExportJob
+ *
+ */
+public final class ExportJobTest extends LuteceTestCase
+{
+    private static final int ID_ADMIN_USER = 999999;
+
+    /**
+     * Test method for the ExportJob (CRUD, lock, progress and purge)
+     */
+    public void testExportJob( )
+    {
+        // Initialize an export waiting to be processed
+        LocalDateTime now = LocalDateTime.now( ).withNano( 0 );
+        ExportJob exportJob = new ExportJob( );
+        exportJob.setType( ExportJob.TYPE_APPOINTMENTS );
+        exportJob.setIdForm( 1 );
+        exportJob.setFormat( "csv" );
+        exportJob.setFilter( "{\"idForm\":1}" );
+        exportJob.setIdAdminUser( ID_ADMIN_USER );
+        exportJob.setLocale( "fr" );
+        exportJob.setStatus( ExportJob.STATUS_PENDING );
+        exportJob.setDateCreation( now );
+        exportJob.setDateStatus( now );
+        ExportJobHome.create( exportJob );
+        ExportJob exportJobStored = ExportJobHome.findByPrimaryKey( exportJob.getIdExportJob( ) );
+        checkAsserts( exportJobStored, exportJob );
+        assertTrue( ExportJobHome.findIdJobsToProcess( 100 ).contains( exportJob.getIdExportJob( ) ) );
+        assertEquals( 1, ExportJobHome.findByIdAdminUser( ID_ADMIN_USER ).size( ) );
+
+        // Only one caller can take the export
+        assertTrue( ExportJobHome.lock( exportJob.getIdExportJob( ), now ) );
+        assertFalse( ExportJobHome.lock( exportJob.getIdExportJob( ), now ) );
+        assertFalse( ExportJobHome.findIdJobsToProcess( 100 ).contains( exportJob.getIdExportJob( ) ) );
+
+        // The progress of an export in progress is stored
+        ExportJobHome.updateProgress( exportJob.getIdExportJob( ), 40, now );
+        assertEquals( 40, ExportJobHome.findByPrimaryKey( exportJob.getIdExportJob( ) ).getProgress( ) );
+
+        // An interrupted export is put back in the queue
+        ExportJobHome.unlockJobsInProgressBefore( now.plusMinutes( 1 ) );
+        assertTrue( ExportJobHome.lock( exportJob.getIdExportJob( ), now ) );
+
+        // Update the export as done
+        exportJob.setStatus( ExportJob.STATUS_DONE );
+        exportJob.setProgress( 100 );
+        exportJob.setNbItems( 10 );
+        exportJob.setFileName( "export.csv" );
+        ExportJobHome.update( exportJob );
+        exportJobStored = ExportJobHome.findByPrimaryKey( exportJob.getIdExportJob( ) );
+        checkAsserts( exportJobStored, exportJob );
+        assertTrue( exportJobStored.isFinished( ) );
+        assertTrue( ExportJobHome.findFinishedBefore( now.plusMinutes( 1 ) ).stream( )
+                .anyMatch( e -> e.getIdExportJob( ) == exportJob.getIdExportJob( ) ) );
+        assertFalse( ExportJobHome.findFinishedBefore( now.minusMinutes( 1 ) ).stream( )
+                .anyMatch( e -> e.getIdExportJob( ) == exportJob.getIdExportJob( ) ) );
+
+        // Delete the export
+        ExportJobHome.delete( exportJob.getIdExportJob( ) );
+        assertNull( ExportJobHome.findByPrimaryKey( exportJob.getIdExportJob( ) ) );
+    }
+
+    /**
+     * Test the limit of the exports waiting or in progress of a user, checked by the creation
+     */
+    public void testCreateIfBelowLimit( )
+    {
+        ExportJob exportJob1 = buildExportJob( );
+        assertTrue( ExportJobHome.createIfBelowLimit( exportJob1, 2 ) );
+        assertTrue( exportJob1.getIdExportJob( ) > 0 );
+        ExportJob exportJob2 = buildExportJob( );
+        assertTrue( ExportJobHome.createIfBelowLimit( exportJob2, 2 ) );
+        ExportJob exportJob3 = buildExportJob( );
+        assertFalse( ExportJobHome.createIfBelowLimit( exportJob3, 2 ) );
+        assertEquals( 2, ExportJobHome.findByIdAdminUser( ID_ADMIN_USER ).size( ) );
+
+        // A finished export does not count
+        exportJob1.setStatus( ExportJob.STATUS_DONE );
+        ExportJobHome.update( exportJob1 );
+        assertTrue( ExportJobHome.createIfBelowLimit( exportJob3, 2 ) );
+
+        ExportJobHome.delete( exportJob1.getIdExportJob( ) );
+        ExportJobHome.delete( exportJob2.getIdExportJob( ) );
+        ExportJobHome.delete( exportJob3.getIdExportJob( ) );
+    }
+
+    /**
+     * Test the storage of the file of an export in database
+     * 
+     * @throws IOException
+     *             if the file can not be copied
+     */
+    public void testFile( ) throws IOException
+    {
+        ExportJob exportJob = buildExportJob( );
+        ExportJobHome.create( exportJob );
+        assertEquals( -1, ExportJobHome.getFileSize( exportJob.getIdExportJob( ) ) );
+        assertFalse( ExportJobHome.copyFile( exportJob.getIdExportJob( ), new ByteArrayOutputStream( ) ) );
+
+        byte [ ] content = "id;name\n1;\"été\"".getBytes( StandardCharsets.UTF_8 );
+        ExportJobHome.storeFile( exportJob.getIdExportJob( ), new ByteArrayInputStream( content ), content.length );
+        // Storing the file again replaces it
+        ExportJobHome.storeFile( exportJob.getIdExportJob( ), new ByteArrayInputStream( content ), content.length );
+        assertEquals( content.length, ExportJobHome.getFileSize( exportJob.getIdExportJob( ) ) );
+        ByteArrayOutputStream os = new ByteArrayOutputStream( );
+        assertTrue( ExportJobHome.copyFile( exportJob.getIdExportJob( ), os ) );
+        assertTrue( Arrays.equals( content, os.toByteArray( ) ) );
+
+        // The file is deleted with the export
+        ExportJobHome.delete( exportJob.getIdExportJob( ) );
+        assertEquals( -1, ExportJobHome.getFileSize( exportJob.getIdExportJob( ) ) );
+    }
+
+    /**
+     * Build an export of appointments waiting to be processed
+     * 
+     * @return the export
+     */
+    private static ExportJob buildExportJob( )
+    {
+        LocalDateTime now = LocalDateTime.now( ).withNano( 0 );
+        ExportJob exportJob = new ExportJob( );
+        exportJob.setType( ExportJob.TYPE_APPOINTMENTS );
+        exportJob.setIdForm( 1 );
+        exportJob.setFormat( "csv" );
+        exportJob.setIdAdminUser( ID_ADMIN_USER );
+        exportJob.setLocale( "fr" );
+        exportJob.setStatus( ExportJob.STATUS_PENDING );
+        exportJob.setDateCreation( now );
+        exportJob.setDateStatus( now );
+        return exportJob;
+    }
+
+    /**
+     * Check that all the asserts are true
+     * 
+     * @param exportJobStored
+     *            the export stored
+     * @param exportJob
+     *            the export created
+     */
+    public void checkAsserts( ExportJob exportJobStored, ExportJob exportJob )
+    {
+        assertEquals( exportJobStored.getType( ), exportJob.getType( ) );
+        assertEquals( exportJobStored.getIdForm( ), exportJob.getIdForm( ) );
+        assertEquals( exportJobStored.getFormat( ), exportJob.getFormat( ) );
+        assertEquals( exportJobStored.getFilter( ), exportJob.getFilter( ) );
+        assertEquals( exportJobStored.getIdAdminUser( ), exportJob.getIdAdminUser( ) );
+        assertEquals( exportJobStored.getLocale( ), exportJob.getLocale( ) );
+        assertEquals( exportJobStored.getStatus( ), exportJob.getStatus( ) );
+        assertEquals( exportJobStored.getProgress( ), exportJob.getProgress( ) );
+        assertEquals( exportJobStored.getNbItems( ), exportJob.getNbItems( ) );
+        assertEquals( exportJobStored.getFileName( ), exportJob.getFileName( ) );
+        assertEquals( exportJobStored.getDateCreation( ), exportJob.getDateCreation( ) );
+    }
+}
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.appointment.business;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
 import fr.paris.lutece.plugins.appointment.business.form.Form;
@@ -206,6 +207,89 @@ public final class SlotTest extends LuteceTestCase
 
     }
 
+    /**
+     * Test of the updates of the places of a slot, checked against the version of the slot
+     */
+    public void testUpdatePlacesWithVersion( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        // Initialize a Slot with 1 place
+        Slot slot = buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_1,
+                Constants.NB_REMAINING_PLACES_1, 0, Constants.NB_REMAINING_PLACES_1, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot );
+
+        // Hold the potential place, a second hold is refused. The holds do not change the version
+        assertTrue( SlotHome.decrementPotentialRemainingPlaces( 1, slot.getIdSlot( ) ) );
+        assertFalse( SlotHome.decrementPotentialRemainingPlaces( 1, slot.getIdSlot( ) ) );
+        Slot slotRead1 = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        Slot slotRead2 = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( 0, slotRead1.getVersion( ) );
+
+        // Take the place, the second update of the same version is refused
+        slotRead1.setNbRemainingPlaces( 0 );
+        slotRead1.setNbPlacestaken( 1 );
+        assertTrue( SlotHome.updatePlaces( slotRead1, 0 ) );
+        assertEquals( 1, slotRead1.getVersion( ) );
+        slotRead2.setNbRemainingPlaces( 0 );
+        slotRead2.setNbPlacestaken( 1 );
+        assertFalse( SlotHome.updatePlaces( slotRead2, 0 ) );
+        assertFalse( SlotHome.update( slotRead2 ) );
+        Slot slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( 0, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( 0, slotStored.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 1, slotStored.getNbPlacesTaken( ) );
+        assertEquals( 1, slotStored.getVersion( ) );
+
+        // Release the place
+        SlotHome.releasePlaces( slot.getIdSlot( ), 1 );
+        slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( 1, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( 1, slotStored.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 0, slotStored.getNbPlacesTaken( ) );
+        assertEquals( 2, slotStored.getVersion( ) );
+        assertTrue( SlotHome.update( slotStored ) );
+
+        // Clean
+        FormHome.delete( form.getIdForm( ) );
+    }
+
+    /**
+     * Test of the batch update of slots, checked against the versions of the slots
+     */
+    public void testUpdateBatch( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        Slot slot1 = buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_1,
+                Constants.NB_REMAINING_PLACES_1, 0, Constants.NB_REMAINING_PLACES_1, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot1 );
+        Slot slot2 = buildSlot( form.getIdForm( ), Constants.STARTING_DATE_2, Constants.ENDING_DATE_2, Constants.NB_REMAINING_PLACES_2,
+                Constants.NB_REMAINING_PLACES_2, 0, Constants.NB_REMAINING_PLACES_2, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot2 );
+
+        // The second slot is modified by another request
+        assertTrue( SlotHome.update( SlotHome.findByPrimaryKey( slot2.getIdSlot( ) ) ) );
+
+        slot1.setIsOpen( Boolean.FALSE );
+        slot2.setIsOpen( Boolean.FALSE );
+        assertEquals( 1, SlotHome.updateBatch( Arrays.asList( slot1, slot2 ) ) );
+        // The versions in memory are left to the caller
+        assertEquals( 0, slot1.getVersion( ) );
+        assertEquals( 0, slot2.getVersion( ) );
+        Slot slotStored = SlotHome.findByPrimaryKey( slot1.getIdSlot( ) );
+        assertFalse( slotStored.getIsOpen( ) );
+        assertEquals( 1, slotStored.getVersion( ) );
+        slotStored = SlotHome.findByPrimaryKey( slot2.getIdSlot( ) );
+        assertTrue( slotStored.getIsOpen( ) );
+        assertEquals( 1, slotStored.getVersion( ) );
+
+        // Clean
+        FormHome.delete( form.getIdForm( ) );
+    }
+
     /**
      * Build a SLot Business Object
      * 
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the AfterCommitService
+ */
+public final class AfterCommitServiceTest extends LuteceTestCase
+{
+    private static final String ACTION_1 = "1";
+    private static final String ACTION_2 = "2";
+
+    /**
+     * Test that the actions are run at once outside of a transaction, and once the outermost transaction is committed inside
+     */
+    public void testCommit( )
+    {
+        List<String> listActionsRun = new ArrayList<>( );
+        AfterCommitService.run( ( ) -> listActionsRun.add( ACTION_1 ) );
+        assertEquals( 1, listActionsRun.size( ) );
+
+        listActionsRun.clear( );
+        AfterCommitService.begin( );
+        AfterCommitService.run( ( ) -> listActionsRun.add( ACTION_1 ) );
+        AfterCommitService.begin( );
+        AfterCommitService.run( ( ) -> listActionsRun.add( ACTION_2 ) );
+        AfterCommitService.end( true );
+        assertTrue( listActionsRun.isEmpty( ) );
+        AfterCommitService.end( true );
+        assertEquals( 2, listActionsRun.size( ) );
+        assertEquals( ACTION_1, listActionsRun.get( 0 ) );
+        assertEquals( ACTION_2, listActionsRun.get( 1 ) );
+    }
+
+    /**
+     * Test that the actions are discarded when a transaction is rolled back, even a nested one
+     */
+    public void testRollBack( )
+    {
+        List<String> listActionsRun = new ArrayList<>( );
+        AfterCommitService.begin( );
+        AfterCommitService.run( ( ) -> listActionsRun.add( ACTION_1 ) );
+        AfterCommitService.begin( );
+        AfterCommitService.end( false );
+        AfterCommitService.end( true );
+        assertTrue( listActionsRun.isEmpty( ) );
+
+        AfterCommitService.run( ( ) -> listActionsRun.add( ACTION_2 ) );
+        assertEquals( 1, listActionsRun.size( ) );
+    }
+}
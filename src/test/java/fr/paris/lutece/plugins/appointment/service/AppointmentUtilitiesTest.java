@@ -13,6 +13,7 @@ import fr.paris.lutece.plugins.appointment.business.AppointmentTest;
 import fr.paris.lutece.plugins.appointment.business.SlotTest;
 import fr.paris.lutece.plugins.appointment.business.TimeSlotTest;
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
 import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
@@ -30,6 +31,7 @@ import fr.paris.lutece.test.LuteceTestCase;
 
 public class AppointmentUtilitiesTest extends LuteceTestCase
 {
+    private static final String EMAIL = "jean.dupont@mdp.fr";
 
     /**
      * Try to get another appointment which does not match the rule of the number of days between two appointments for the same user
@@ -399,6 +401,125 @@ public class AppointmentUtilitiesTest extends LuteceTestCase
         FormService.removeForm( nIdForm );
     }
 
+    /**
+     * Check the boundaries of the delay between two appointments: an appointment exactly the number of days away breaks the rule, one day more does not
+     */
+    public void testNbDaysBetweenTwoAppointmentsBoundaries( )
+    {
+        AppointmentFormDTO appointmentForm = FormServiceTest.buildAppointmentForm( );
+        appointmentForm.setNbDaysBeforeNewAppointment( 2 );
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        appointmentForm.setIdForm( nIdForm );
+        saveAppointment( nIdForm, "2018-06-10T10:00" );
+        saveAppointment( nIdForm, "2018-06-20T10:00" );
+
+        // The search window ends at the start of the day after the period
+        assertEquals( 1, AppointmentService.findListStartingDateTimeByEmailAndForm( EMAIL, nIdForm, 0, LocalDateTime.parse( "2018-06-10T00:00" ),
+                LocalDateTime.parse( "2018-06-20T00:00" ) ).size( ) );
+
+        assertFalse( AppointmentUtilities.checkNbDaysBetweenTwoAppointments( buildAppointmentDTO( nIdForm, "2018-06-08T10:00" ), "Jean", "Dupont", EMAIL,
+                appointmentForm ) );
+        assertFalse( AppointmentUtilities.checkNbDaysBetweenTwoAppointments( buildAppointmentDTO( nIdForm, "2018-06-12T10:00" ), "Jean", "Dupont", EMAIL,
+                appointmentForm ) );
+        assertTrue( AppointmentUtilities.checkNbDaysBetweenTwoAppointments( buildAppointmentDTO( nIdForm, "2018-06-07T10:00" ), "Jean", "Dupont", EMAIL,
+                appointmentForm ) );
+        assertTrue( AppointmentUtilities.checkNbDaysBetweenTwoAppointments( buildAppointmentDTO( nIdForm, "2018-06-15T10:00" ), "Jean", "Dupont", EMAIL,
+                appointmentForm ) );
+        assertFalse( AppointmentUtilities.checkNbDaysBetweenTwoAppointments( buildAppointmentDTO( nIdForm, "2018-06-18T10:00" ), "Jean", "Dupont", EMAIL,
+                appointmentForm ) );
+
+        // No delay
+        appointmentForm.setNbDaysBeforeNewAppointment( 0 );
+        assertTrue( AppointmentUtilities.checkNbDaysBetweenTwoAppointments( buildAppointmentDTO( nIdForm, "2018-06-10T11:00" ), "Jean", "Dupont", EMAIL,
+                appointmentForm ) );
+
+        FormService.removeForm( nIdForm );
+    }
+
+    /**
+     * Check that the appointment being modified and the cancelled appointments are not taken into account by the delay between two appointments
+     */
+    public void testNbDaysBetweenTwoAppointmentsModifiedOrCancelled( )
+    {
+        AppointmentFormDTO appointmentForm = FormServiceTest.buildAppointmentForm( );
+        appointmentForm.setNbDaysBeforeNewAppointment( 2 );
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        appointmentForm.setIdForm( nIdForm );
+        int nIdAppointment = saveAppointment( nIdForm, "2018-06-10T10:00" );
+
+        // The appointment is moved to the next day
+        AppointmentDTO appointmentDTO = buildAppointmentDTO( nIdForm, "2018-06-11T10:00" );
+        appointmentDTO.setIdAppointment( nIdAppointment );
+        assertTrue( AppointmentUtilities.checkNbDaysBetweenTwoAppointments( appointmentDTO, "Jean", "Dupont", EMAIL, appointmentForm ) );
+
+        // Another appointment on the next day, allowed once the first one is cancelled
+        appointmentDTO = buildAppointmentDTO( nIdForm, "2018-06-11T11:00" );
+        assertFalse( AppointmentUtilities.checkNbDaysBetweenTwoAppointments( appointmentDTO, "Jean", "Dupont", EMAIL, appointmentForm ) );
+        cancelAppointment( nIdAppointment );
+        assertTrue( AppointmentUtilities.checkNbDaysBetweenTwoAppointments( appointmentDTO, "Jean", "Dupont", EMAIL, appointmentForm ) );
+
+        FormService.removeForm( nIdForm );
+    }
+
+    /**
+     * Check the boundaries of the period of the maximum number of appointments: two appointments exactly the number of days away are on the same period,
+     * one day more is not
+     */
+    public void testCheckNbMaxAppointmentsOnAGivenPeriodBoundaries( )
+    {
+        AppointmentFormDTO appointmentForm = FormServiceTest.buildAppointmentForm( );
+        appointmentForm.setNbMaxAppointmentsPerUser( 2 );
+        appointmentForm.setNbDaysForMaxAppointmentsPerUser( 7 );
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        appointmentForm.setIdForm( nIdForm );
+        saveAppointment( nIdForm, "2018-06-04T10:00" );
+        saveAppointment( nIdForm, "2018-06-11T10:00" );
+        saveAppointment( nIdForm, "2018-06-19T10:00" );
+
+        // 04/06 and 11/06 are exactly 7 days away: they are on the same period as the new one
+        assertFalse( AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( buildAppointmentDTO( nIdForm, "2018-06-08T10:00" ), EMAIL, appointmentForm ) );
+        // 11/06 and 19/06 are both less than 7 days away from the new one, but 8 days away from each other
+        assertTrue( AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( buildAppointmentDTO( nIdForm, "2018-06-15T10:00" ), EMAIL, appointmentForm ) );
+        // 19/06 is more than 7 days away from the new one
+        assertTrue( AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( buildAppointmentDTO( nIdForm, "2018-06-27T10:00" ), EMAIL, appointmentForm ) );
+
+        FormService.removeForm( nIdForm );
+    }
+
+    /**
+     * Check that the appointment being modified and the cancelled appointments are not counted in the maximum number of appointments, and a period of 0
+     * day
+     */
+    public void testCheckNbMaxAppointmentsOnAGivenPeriodModifiedOrCancelled( )
+    {
+        AppointmentFormDTO appointmentForm = FormServiceTest.buildAppointmentForm( );
+        appointmentForm.setNbMaxAppointmentsPerUser( 2 );
+        appointmentForm.setNbDaysForMaxAppointmentsPerUser( 7 );
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        appointmentForm.setIdForm( nIdForm );
+        saveAppointment( nIdForm, "2018-06-04T10:00" );
+        int nIdAppointment = saveAppointment( nIdForm, "2018-06-05T10:00" );
+
+        // The second appointment is moved to the next day
+        AppointmentDTO appointmentDTO = buildAppointmentDTO( nIdForm, "2018-06-06T10:00" );
+        appointmentDTO.setIdAppointment( nIdAppointment );
+        assertTrue( AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( appointmentDTO, EMAIL, appointmentForm ) );
+
+        // A third appointment, allowed once the second one is cancelled
+        appointmentDTO = buildAppointmentDTO( nIdForm, "2018-06-06T11:00" );
+        assertFalse( AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( appointmentDTO, EMAIL, appointmentForm ) );
+        cancelAppointment( nIdAppointment );
+        assertTrue( AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( appointmentDTO, EMAIL, appointmentForm ) );
+
+        // A period of 0 day only counts the appointments of the same day
+        appointmentForm.setNbDaysForMaxAppointmentsPerUser( 0 );
+        saveAppointment( nIdForm, "2018-06-04T11:00" );
+        assertFalse( AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( buildAppointmentDTO( nIdForm, "2018-06-04T12:00" ), EMAIL, appointmentForm ) );
+        assertTrue( AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( buildAppointmentDTO( nIdForm, "2018-06-05T11:00" ), EMAIL, appointmentForm ) );
+
+        FormService.removeForm( nIdForm );
+    }
+
     /**
      * Check and validate all the rules for the number of booked seats asked
      */
@@ -718,4 +839,48 @@ public class AppointmentUtilitiesTest extends LuteceTestCase
         FormService.removeForm( nIdForm );
 
     }
+
+    /**
+     * Save an appointment of 2 places for the user {@link #EMAIL} on a new slot of 30 minutes
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param strStartingDateTime
+     *            the starting date time of the slot
+     * @return the id of the appointment
+     */
+    private static int saveAppointment( int nIdForm, String strStartingDateTime )
+    {
+        return AppointmentService.saveAppointment( buildAppointmentDTO( nIdForm, strStartingDateTime ) );
+    }
+
+    /**
+     * Build an appointment of 2 places for the user {@link #EMAIL} on a new slot of 30 minutes
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param strStartingDateTime
+     *            the starting date time of the slot
+     * @return the appointment
+     */
+    private static AppointmentDTO buildAppointmentDTO( int nIdForm, String strStartingDateTime )
+    {
+        LocalDateTime startingDateTime = LocalDateTime.parse( strStartingDateTime );
+        Slot slot = SlotTest.buildSlot( nIdForm, startingDateTime, startingDateTime.plusMinutes( 30 ), 3, 3, 0, 3, Boolean.TRUE, Boolean.TRUE );
+        slot = SlotService.saveSlot( slot );
+        return AppointmentTest.buildAppointmentDTO( slot, EMAIL, "Jean", "Dupont", slot.getStartingTime( ), slot.getEndingTime( ), 2 );
+    }
+
+    /**
+     * Cancel an appointment
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     */
+    private static void cancelAppointment( int nIdAppointment )
+    {
+        Appointment appointment = AppointmentHome.findByPrimaryKey( nIdAppointment );
+        appointment.setIsCancelled( true );
+        AppointmentHome.update( appointment );
+    }
 }
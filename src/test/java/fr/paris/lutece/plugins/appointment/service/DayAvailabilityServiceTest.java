@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.DayAvailability;
+import fr.paris.lutece.plugins.appointment.business.slot.DayAvailabilityHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Period;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the DayAvailabilityService
+ */
+public final class DayAvailabilityServiceTest extends LuteceTestCase
+{
+    private static final int ID_FORM = -1;
+
+    /**
+     * Test the summary of the days built from the slots : only the open slots with remaining places are counted, and every day of the period is
+     * summarized
+     */
+    public void testBuildListDayAvailability( )
+    {
+        LocalDate monday = LocalDate.of( 2030, 1, 7 );
+        List<Slot> listSlot = new ArrayList<>( );
+        listSlot.add( buildSlot( monday.atTime( 9, 0 ), 0, true ) );
+        listSlot.add( buildSlot( monday.atTime( 10, 0 ), 2, true ) );
+        listSlot.add( buildSlot( monday.atTime( 8, 0 ), 3, false ) );
+        listSlot.add( buildSlot( monday.atTime( 11, 0 ), 1, true ) );
+        listSlot.add( buildSlot( monday.plusDays( 1 ).atTime( 9, 0 ), 0, true ) );
+
+        List<DayAvailability> listDayAvailability = DayAvailabilityService.buildListDayAvailability( ID_FORM, listSlot, monday, monday.plusDays( 2 ) );
+        assertEquals( 3, listDayAvailability.size( ) );
+
+        DayAvailability dayAvailability = listDayAvailability.get( 0 );
+        assertEquals( monday, dayAvailability.getDate( ) );
+        assertEquals( 3, dayAvailability.getNbOpenPlaces( ) );
+        assertEquals( LocalTime.of( 10, 0 ), dayAvailability.getFirstFreeTime( ) );
+
+        // A full day and a day without slots have no free time
+        for ( DayAvailability dayWithoutPlaces : listDayAvailability.subList( 1, 3 ) )
+        {
+            assertEquals( ID_FORM, dayWithoutPlaces.getIdForm( ) );
+            assertEquals( 0, dayWithoutPlaces.getNbOpenPlaces( ) );
+            assertNull( dayWithoutPlaces.getFirstFreeTime( ) );
+        }
+    }
+
+    /**
+     * Test the incremental update of a day after bookings : the open places are updated, a slot becoming free can become the first free time, and the
+     * day is removed when its first free slot becomes full
+     */
+    public void testUpdateDayOfSlot( )
+    {
+        LocalDate monday = LocalDate.of( 2030, 1, 7 );
+        DayAvailabilityHome.deleteByIdForm( ID_FORM );
+        DayAvailability day = new DayAvailability( );
+        day.setIdForm( ID_FORM );
+        day.setDate( monday );
+        day.setNbOpenPlaces( 4 );
+        day.setFirstFreeTime( LocalTime.of( 10, 0 ) );
+        DayAvailabilityHome.create( day );
+
+        // A booking on a slot that stays free
+        DayAvailabilityService.updateDayOfSlot( buildSlot( monday.atTime( 11, 0 ), 1, true ), 2 );
+        DayAvailability dayStored = DayAvailabilityHome.findByIdFormAndDateRange( ID_FORM, monday, monday ).get( 0 );
+        assertEquals( 3, dayStored.getNbOpenPlaces( ) );
+        assertEquals( LocalTime.of( 10, 0 ), dayStored.getFirstFreeTime( ) );
+
+        // A closed slot is not counted
+        DayAvailabilityService.updateDayOfSlot( buildSlot( monday.atTime( 12, 0 ), 0, false ), 3 );
+        assertEquals( 3, DayAvailabilityHome.findByIdFormAndDateRange( ID_FORM, monday, monday ).get( 0 ).getNbOpenPlaces( ) );
+
+        // Places given back on a full slot earlier than the first free time
+        DayAvailabilityService.updateDayOfSlot( buildSlot( monday.atTime( 9, 0 ), 2, true ), 0 );
+        dayStored = DayAvailabilityHome.findByIdFormAndDateRange( ID_FORM, monday, monday ).get( 0 );
+        assertEquals( 5, dayStored.getNbOpenPlaces( ) );
+        assertEquals( LocalTime.of( 9, 0 ), dayStored.getFirstFreeTime( ) );
+
+        // The first free slot becomes full : the next free slot is not known, the day is removed
+        DayAvailabilityService.updateDayOfSlot( buildSlot( monday.atTime( 9, 0 ), 0, true ), 2 );
+        assertTrue( DayAvailabilityHome.findByIdFormAndDateRange( ID_FORM, monday, monday ).isEmpty( ) );
+
+        DayAvailabilityHome.deleteByIdForm( ID_FORM );
+    }
+
+    /**
+     * Test that a day invalidated inside a transaction is only removed once the transaction is committed, and kept if it is rolled back
+     */
+    public void testInvalidateDayAfterCommit( )
+    {
+        LocalDate monday = LocalDate.of( 2030, 1, 7 );
+        DayAvailabilityHome.deleteByIdForm( ID_FORM );
+        DayAvailability day = new DayAvailability( );
+        day.setIdForm( ID_FORM );
+        day.setDate( monday );
+        day.setNbOpenPlaces( 4 );
+        day.setFirstFreeTime( LocalTime.of( 10, 0 ) );
+        DayAvailabilityHome.create( day );
+
+        AfterCommitService.begin( );
+        DayAvailabilityService.invalidateDay( ID_FORM, monday );
+        AfterCommitService.end( false );
+        assertEquals( 1, DayAvailabilityHome.findByIdFormAndDateRange( ID_FORM, monday, monday ).size( ) );
+
+        AfterCommitService.begin( );
+        DayAvailabilityService.invalidateDay( ID_FORM, monday );
+        assertEquals( 1, DayAvailabilityHome.findByIdFormAndDateRange( ID_FORM, monday, monday ).size( ) );
+        AfterCommitService.end( true );
+        assertTrue( DayAvailabilityHome.findByIdFormAndDateRange( ID_FORM, monday, monday ).isEmpty( ) );
+
+        DayAvailabilityHome.deleteByIdForm( ID_FORM );
+    }
+
+    /**
+     * Build a slot of one hour
+     * 
+     * @param startingDateTime
+     *            the starting date time
+     * @param nNbRemainingPlaces
+     *            the number of remaining places
+     * @param bIsOpen
+     *            true if the slot is open
+     * @return the slot
+     */
+    private static Slot buildSlot( LocalDateTime startingDateTime, int nNbRemainingPlaces, boolean bIsOpen )
+    {
+        return SlotService.buildSlot( ID_FORM, new Period( startingDateTime, startingDateTime.plusHours( 1 ) ), 3, nNbRemainingPlaces, nNbRemainingPlaces,
+                3 - nNbRemainingPlaces, bIsOpen, false );
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDateTime;
+
+import fr.paris.lutece.plugins.appointment.business.SlotTest;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.exception.SlotConcurrentUpdateException;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the PlanningRewriteService
+ */
+public final class PlanningRewriteServiceTest extends LuteceTestCase
+{
+    /**
+     * Test that a shift of the slots of a day is written, and that the versions of the updated slots are incremented
+     */
+    public void testApplySlotRewrite( )
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        Slot slot1 = createSlot( nIdForm, "2022-06-27T10:00", "2022-06-27T10:30" );
+        Slot slot2 = createSlot( nIdForm, "2022-06-27T10:30", "2022-06-27T11:00" );
+        Slot slot3 = createSlot( nIdForm, "2022-06-27T11:00", "2022-06-27T11:30" );
+
+        // The first slot ends at 10:45, the second one is shifted and the third one is replaced
+        PlanningRewrite<Slot> rewrite = new PlanningRewrite<>( );
+        slot1.setEndingDateTime( LocalDateTime.parse( "2022-06-27T10:45" ) );
+        rewrite.update( slot1 );
+        slot2.setStartingDateTime( LocalDateTime.parse( "2022-06-27T10:45" ) );
+        slot2.setEndingDateTime( LocalDateTime.parse( "2022-06-27T11:15" ) );
+        rewrite.update( slot2 );
+        rewrite.delete( slot3 );
+        Slot slot4 = SlotTest.buildSlot( nIdForm, LocalDateTime.parse( "2022-06-27T11:15" ), LocalDateTime.parse( "2022-06-27T11:45" ), 1, 1, 0, 1,
+                Boolean.TRUE, Boolean.FALSE );
+        rewrite.create( slot4 );
+        PlanningRewriteService.applySlotRewrite( nIdForm, rewrite );
+
+        assertEquals( 1, slot1.getVersion( ) );
+        assertEquals( 1, slot2.getVersion( ) );
+        Slot slotStored = SlotHome.findByPrimaryKey( slot1.getIdSlot( ) );
+        assertEquals( slot1.getEndingDateTime( ), slotStored.getEndingDateTime( ) );
+        assertEquals( 1, slotStored.getVersion( ) );
+        slotStored = SlotHome.findByPrimaryKey( slot2.getIdSlot( ) );
+        assertEquals( slot2.getStartingDateTime( ), slotStored.getStartingDateTime( ) );
+        assertEquals( slot2.getEndingDateTime( ), slotStored.getEndingDateTime( ) );
+        assertNull( SlotHome.findByPrimaryKey( slot3.getIdSlot( ) ) );
+        assertNotNull( SlotHome.findByPrimaryKey( slot4.getIdSlot( ) ) );
+
+        FormService.removeForm( nIdForm );
+    }
+
+    /**
+     * Test that nothing is written when one of the slots to update has been modified since it was read
+     */
+    public void testApplySlotRewriteConflict( )
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        Slot slot1 = createSlot( nIdForm, "2022-06-27T10:00", "2022-06-27T10:30" );
+        Slot slot2 = createSlot( nIdForm, "2022-06-27T10:30", "2022-06-27T11:00" );
+        Slot slot3 = createSlot( nIdForm, "2022-06-27T11:00", "2022-06-27T11:30" );
+
+        // The second slot is modified by another request
+        Slot slot2Concurrent = SlotHome.findByPrimaryKey( slot2.getIdSlot( ) );
+        slot2Concurrent.setIsOpen( Boolean.FALSE );
+        assertTrue( SlotHome.update( slot2Concurrent ) );
+
+        PlanningRewrite<Slot> rewrite = buildRewrite( nIdForm, slot1, slot2, slot3 );
+        try
+        {
+            PlanningRewriteService.applySlotRewrite( nIdForm, rewrite );
+            fail( "The concurrent update must be detected" );
+        }
+        catch( SlotConcurrentUpdateException e )
+        {
+            // Expected
+        }
+        checkNothingWritten( nIdForm, slot1, slot3 );
+
+        FormService.removeForm( nIdForm );
+    }
+
+    /**
+     * Test that the deletions and updates are rolled back when the creations fail
+     */
+    public void testApplySlotRewriteRollback( )
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        Slot slot1 = createSlot( nIdForm, "2022-06-27T10:00", "2022-06-27T10:30" );
+        Slot slot2 = createSlot( nIdForm, "2022-06-27T10:30", "2022-06-27T11:00" );
+        Slot slot3 = createSlot( nIdForm, "2022-06-27T11:00", "2022-06-27T11:30" );
+
+        PlanningRewrite<Slot> rewrite = buildRewrite( nIdForm, slot1, slot2, slot3 );
+        // This slot starts at the same time as the first one
+        rewrite.create( SlotTest.buildSlot( nIdForm, LocalDateTime.parse( "2022-06-27T10:00" ), LocalDateTime.parse( "2022-06-27T10:10" ), 1, 1, 0, 1,
+                Boolean.TRUE, Boolean.FALSE ) );
+        try
+        {
+            PlanningRewriteService.applySlotRewrite( nIdForm, rewrite );
+            fail( "The creation of the slot must fail" );
+        }
+        catch( RuntimeException e )
+        {
+            // Expected
+        }
+        checkNothingWritten( nIdForm, slot1, slot3 );
+        assertEquals( 0, slot2.getVersion( ) );
+        assertEquals( 0, SlotHome.findByPrimaryKey( slot2.getIdSlot( ) ).getVersion( ) );
+
+        FormService.removeForm( nIdForm );
+    }
+
+    /**
+     * Build a rewrite which shortens the first slot, shifts the second one, deletes the third one and creates a last one
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param slot1
+     *            the first slot
+     * @param slot2
+     *            the second slot
+     * @param slot3
+     *            the third slot
+     * @return the rewrite
+     */
+    private static PlanningRewrite<Slot> buildRewrite( int nIdForm, Slot slot1, Slot slot2, Slot slot3 )
+    {
+        PlanningRewrite<Slot> rewrite = new PlanningRewrite<>( );
+        slot1.setEndingDateTime( LocalDateTime.parse( "2022-06-27T10:20" ) );
+        rewrite.update( slot1 );
+        slot2.setStartingDateTime( LocalDateTime.parse( "2022-06-27T10:20" ) );
+        slot2.setEndingDateTime( LocalDateTime.parse( "2022-06-27T10:50" ) );
+        rewrite.update( slot2 );
+        rewrite.delete( slot3 );
+        rewrite.create( SlotTest.buildSlot( nIdForm, LocalDateTime.parse( "2022-06-27T10:50" ), LocalDateTime.parse( "2022-06-27T11:20" ), 1, 1, 0, 1,
+                Boolean.TRUE, Boolean.FALSE ) );
+        return rewrite;
+    }
+
+    /**
+     * Check that the rewrite built by {@link #buildRewrite(int, Slot, Slot, Slot)} has not been written
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param slot1
+     *            the first slot
+     * @param slot3
+     *            the third slot
+     */
+    private void checkNothingWritten( int nIdForm, Slot slot1, Slot slot3 )
+    {
+        assertEquals( 0, slot1.getVersion( ) );
+        Slot slotStored = SlotHome.findByPrimaryKey( slot1.getIdSlot( ) );
+        assertEquals( LocalDateTime.parse( "2022-06-27T10:30" ), slotStored.getEndingDateTime( ) );
+        assertEquals( 0, slotStored.getVersion( ) );
+        assertNotNull( SlotHome.findByPrimaryKey( slot3.getIdSlot( ) ) );
+        assertEquals( 3, SlotHome.findByIdFormAndDateRange( nIdForm, LocalDateTime.parse( "2022-06-27T00:00" ), LocalDateTime.parse( "2022-06-27T23:59" ) )
+                .size( ) );
+    }
+
+    /**
+     * Create a slot with one place
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param strStartingDateTime
+     *            the starting date time
+     * @param strEndingDateTime
+     *            the ending date time
+     * @return the slot created
+     */
+    private static Slot createSlot( int nIdForm, String strStartingDateTime, String strEndingDateTime )
+    {
+        Slot slot = SlotTest.buildSlot( nIdForm, LocalDateTime.parse( strStartingDateTime ), LocalDateTime.parse( strEndingDateTime ), 1, 1, 0, 1,
+                Boolean.TRUE, Boolean.FALSE );
+        SlotHome.create( slot );
+        return slot;
+    }
+}
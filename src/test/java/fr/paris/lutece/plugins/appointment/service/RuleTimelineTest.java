@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the RuleTimeline
+ */
+public final class RuleTimelineTest extends LuteceTestCase
+{
+    private static final LocalDate DATE_1 = LocalDate.parse( "2017-01-02" );
+    private static final LocalDate DATE_2 = LocalDate.parse( "2017-03-06" );
+    private static final String RULE_1 = "rule1";
+    private static final String RULE_2 = "rule2";
+
+    /**
+     * Test the search of the rule that applies at a date
+     */
+    public void testRuleTimeline( )
+    {
+        Map<LocalDate, String> mapRules = new HashMap<>( );
+        mapRules.put( DATE_2, RULE_2 );
+        mapRules.put( DATE_1, RULE_1 );
+        RuleTimeline<String> timeline = new RuleTimeline<>( mapRules );
+
+        assertEquals( DATE_1, timeline.getFirstDateOfApply( ) );
+        assertEquals( RULE_1, timeline.getInPast( DATE_1 ) );
+        assertEquals( RULE_1, timeline.getInPast( DATE_2.minusDays( 1 ) ) );
+        assertEquals( RULE_2, timeline.getInPast( DATE_2 ) );
+        assertEquals( RULE_2, timeline.getClosest( DATE_2.plusYears( 1 ) ) );
+        // Before the first date of apply, there is no rule in the past but the first rule is the closest
+        assertNull( timeline.getInPast( DATE_1.minusDays( 1 ) ) );
+        assertEquals( RULE_1, timeline.getClosest( DATE_1.minusDays( 1 ) ) );
+
+        RuleTimeline<String> emptyTimeline = new RuleTimeline<>( new HashMap<>( ) );
+        assertTrue( emptyTimeline.isEmpty( ) );
+        assertNull( emptyTimeline.getFirstDateOfApply( ) );
+        assertNull( emptyTimeline.getClosest( DATE_1 ) );
+    }
+}
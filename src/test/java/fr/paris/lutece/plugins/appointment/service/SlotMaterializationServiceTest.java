@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Period;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the SlotMaterializationService
+ */
+public final class SlotMaterializationServiceTest extends LuteceTestCase
+{
+    private static final int ID_FORM = -1;
+
+    /**
+     * Test the selection of the slots to materialize : only the open slots to come that are not in database yet are selected
+     */
+    public void testSelectSlotsToMaterialize( )
+    {
+        LocalDate monday = LocalDate.of( 2030, 1, 7 );
+        LocalDateTime now = monday.atTime( 10, 30 );
+        List<Slot> listSlot = new ArrayList<>( );
+        Slot slotPassed = buildSlot( monday.atTime( 9, 0 ), true );
+        Slot slotStarted = buildSlot( monday.atTime( 10, 0 ), true );
+        Slot slotToCome = buildSlot( monday.atTime( 11, 0 ), true );
+        Slot slotClosed = buildSlot( monday.atTime( 12, 0 ), false );
+        Slot slotInDb = buildSlot( monday.atTime( 13, 0 ), true );
+        slotInDb.setIdSlot( 1 );
+        Slot slotNextDay = buildSlot( monday.plusDays( 1 ).atTime( 9, 0 ), true );
+        listSlot.add( slotPassed );
+        listSlot.add( slotStarted );
+        listSlot.add( slotToCome );
+        listSlot.add( slotClosed );
+        listSlot.add( slotInDb );
+        listSlot.add( slotNextDay );
+
+        List<Slot> listSlotToMaterialize = SlotMaterializationService.selectSlotsToMaterialize( listSlot, now );
+        assertEquals( 2, listSlotToMaterialize.size( ) );
+        assertSame( slotToCome, listSlotToMaterialize.get( 0 ) );
+        assertSame( slotNextDay, listSlotToMaterialize.get( 1 ) );
+    }
+
+    /**
+     * Test that the slots generated by two nodes for the same period are created only once
+     */
+    public void testCreateListSlotOnce( )
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        LocalDateTime startingDateTime = LocalDate.of( 2030, 1, 7 ).atTime( 9, 0 );
+        List<Slot> listSlotNode1 = new ArrayList<>( );
+        List<Slot> listSlotNode2 = new ArrayList<>( );
+        for ( int i = 0; i < 3; i++ )
+        {
+            Period period = new Period( startingDateTime.plusHours( i ), startingDateTime.plusHours( i + 1L ) );
+            listSlotNode1.add( SlotService.buildSlot( nIdForm, period, 3, 3, 3, 0, true, false ) );
+            listSlotNode2.add( SlotService.buildSlot( nIdForm, period, 3, 3, 3, 0, true, false ) );
+        }
+
+        assertEquals( 3, SlotSafeService.createListSlot( listSlotNode1 ) );
+        assertEquals( 0, SlotSafeService.createListSlot( listSlotNode2 ) );
+        assertEquals( 3, SlotHome.findByIdFormAndDateRange( nIdForm, startingDateTime, startingDateTime.plusHours( 3 ) ).size( ) );
+
+        FormService.removeForm( nIdForm );
+    }
+
+    /**
+     * Test that the slots created during a modification of the planning are rolled back with it
+     */
+    public void testModifyPlanningRollBack( )
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        LocalDateTime startingDateTime = LocalDate.of( 2030, 1, 7 ).atTime( 9, 0 );
+        List<Slot> listSlot = new ArrayList<>( );
+        listSlot.add( SlotService.buildSlot( nIdForm, new Period( startingDateTime, startingDateTime.plusHours( 1 ) ), 3, 3, 3, 0, true, false ) );
+
+        try
+        {
+            SlotSafeService.modifyPlanning( nIdForm, ( ) -> {
+                SlotSafeService.createListSlot( listSlot );
+                throw new IllegalStateException( "Modification failed" );
+            } );
+            fail( "The modification should have failed" );
+        }
+        catch( IllegalStateException e )
+        {
+            assertTrue( SlotHome.findByIdFormAndDateRange( nIdForm, startingDateTime, startingDateTime.plusHours( 1 ) ).isEmpty( ) );
+        }
+
+        FormService.removeForm( nIdForm );
+    }
+
+    /**
+     * Build a slot of one hour, generated from the planning
+     * 
+     * @param startingDateTime
+     *            the starting date time
+     * @param bIsOpen
+     *            true if the slot is open
+     * @return the slot
+     */
+    private static Slot buildSlot( LocalDateTime startingDateTime, boolean bIsOpen )
+    {
+        return SlotService.buildSlot( ID_FORM, new Period( startingDateTime, startingDateTime.plusHours( 1 ) ), 3, 3, 3, 0, bIsOpen, false );
+    }
+}
@@ -1,15 +1,20 @@
 package fr.paris.lutece.plugins.appointment.service;
 
 import java.sql.Date;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
+import fr.paris.lutece.plugins.appointment.business.AppointmentTest;
 import fr.paris.lutece.plugins.appointment.business.SlotTest;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotImpact;
 import fr.paris.lutece.plugins.appointment.service.FormService;
 import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
@@ -117,4 +122,100 @@ public class SlotServiceTest extends LuteceTestCase
         FormService.removeForm( nIdForm );
     }
 
+    // Check that only the week of the given date is built, restricted to the
+    // bounds given
+    public void testBuildListSlotOfWeeks( )
+    {
+        // Build the form
+        AppointmentFormDTO appointmentForm = FormServiceTest.buildAppointmentForm( );
+        appointmentForm.setDateStartValidity( Date.valueOf( LocalDate.parse( "2018-12-01" ) ) );
+        appointmentForm.setDateEndValidity( Date.valueOf( LocalDate.parse( "2018-12-31" ) ) );
+
+        appointmentForm.setIsOpenMonday( Boolean.TRUE );
+        appointmentForm.setIsOpenTuesday( Boolean.TRUE );
+        appointmentForm.setIsOpenWednesday( Boolean.TRUE );
+        appointmentForm.setIsOpenThursday( Boolean.TRUE );
+        appointmentForm.setIsOpenFriday( Boolean.TRUE );
+        appointmentForm.setIsOpenSaturday( Boolean.FALSE );
+        appointmentForm.setIsOpenSunday( Boolean.FALSE );
+
+        int nIdForm = FormService.createAppointmentForm( appointmentForm );
+        HashMap<LocalDate, WeekDefinition> mapWeekDefinition = WeekDefinitionService.findAllWeekDefinition( nIdForm );
+
+        assertEquals( LocalDate.parse( "2018-12-03" ), SlotService.getFirstDayOfWeek( LocalDate.parse( "2018-12-05" ), Locale.FRANCE ) );
+
+        List<Slot> listSlots = SlotService.buildListSlotOfWeeks( nIdForm, mapWeekDefinition, LocalDate.parse( "2018-12-05" ), 1, null, null, Locale.FRANCE );
+        assertEquals( 90, listSlots.stream( ).filter( s -> s.getIsOpen( ) ).collect( Collectors.toList( ) ).size( ) );
+
+        listSlots = SlotService.buildListSlotOfWeeks( nIdForm, mapWeekDefinition, LocalDate.parse( "2018-12-05" ), 1, LocalDate.parse( "2018-12-06" ), null,
+                Locale.FRANCE );
+        assertEquals( 36, listSlots.stream( ).filter( s -> s.getIsOpen( ) ).collect( Collectors.toList( ) ).size( ) );
+
+        FormService.removeForm( nIdForm );
+    }
+
+    // Check that the slots impacted are filtered by day of week and time
+    // window, with the number of their appointments
+    public void testFindSlotImpacts( )
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+
+        Slot slot1 = SlotTest.buildSlot( nIdForm, LocalDateTime.parse( "2022-06-27T10:00" ), LocalDateTime.parse( "2022-06-27T10:30" ), 3, 3, 0, 3,
+                Boolean.TRUE, Boolean.TRUE );
+        slot1 = SlotService.saveSlot( slot1 );
+        Slot slot2 = SlotTest.buildSlot( nIdForm, LocalDateTime.parse( "2022-06-27T10:30" ), LocalDateTime.parse( "2022-06-27T11:00" ), 3, 3, 0, 3,
+                Boolean.TRUE, Boolean.TRUE );
+        SlotService.saveSlot( slot2 );
+        Slot slot3 = SlotTest.buildSlot( nIdForm, LocalDateTime.parse( "2022-06-28T10:00" ), LocalDateTime.parse( "2022-06-28T10:30" ), 3, 3, 0, 3,
+                Boolean.TRUE, Boolean.TRUE );
+        SlotService.saveSlot( slot3 );
+
+        AppointmentService.saveAppointment( AppointmentTest.buildAppointmentDTO( slot1, "jean.dupont@mdp.fr", "Jean", "Dupont", LocalTime.parse( "10:00" ),
+                LocalTime.parse( "10:30" ), 1 ) );
+
+        LocalDateTime startingDateTime = LocalDate.parse( "2022-06-27" ).atStartOfDay( );
+        LocalDateTime endingDateTime = LocalDate.parse( "2022-06-28" ).atTime( LocalTime.MAX );
+        List<SlotImpact> listSlotImpact = SlotService.findSlotImpacts( nIdForm, startingDateTime, endingDateTime );
+        assertEquals( 3, listSlotImpact.size( ) );
+        assertEquals( slot1.getIdSlot( ), listSlotImpact.get( 0 ).getSlot( ).getIdSlot( ) );
+        assertEquals( 1, listSlotImpact.get( 0 ).getNbAppointments( ) );
+        assertEquals( 1, listSlotImpact.get( 0 ).getNbValidatedAppointments( ) );
+        assertFalse( listSlotImpact.get( 1 ).hasAppointments( ) );
+
+        assertEquals( 1, SlotService.findSlotImpacts( nIdForm, startingDateTime, endingDateTime, DayOfWeek.MONDAY, LocalTime.parse( "10:00" ),
+                LocalTime.parse( "10:30" ) ).size( ) );
+        assertEquals( 2, SlotService.findSlotImpacts( nIdForm, startingDateTime, endingDateTime, DayOfWeek.MONDAY, LocalTime.parse( "10:00" ), null )
+                .size( ) );
+
+        FormService.removeForm( nIdForm );
+    }
+
+    // Check that the update of a slot impacted by a modification of the
+    // planning keeps the places booked since the slot was read
+    public void testUpdateImpactedSlot( )
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+
+        Slot slot = SlotTest.buildSlot( nIdForm, LocalDateTime.parse( "2022-06-27T10:00" ), LocalDateTime.parse( "2022-06-27T10:30" ), 3, 3, 0, 3,
+                Boolean.TRUE, Boolean.FALSE );
+        slot = SlotService.saveSlot( slot );
+        // A booking is made after the slot was read by the impact query
+        Slot slotBooked = SlotService.findSlotById( slot.getIdSlot( ) );
+        slotBooked.setNbRemainingPlaces( 2 );
+        slotBooked.setNbPotentialRemainingPlaces( 2 );
+        slotBooked.setNbPlacestaken( 1 );
+        SlotSafeService.updateSlot( slotBooked );
+
+        SlotSafeService.updateImpactedSlot( slot.getIdSlot( ), true, 5, true, true );
+        Slot slotUpdated = SlotService.findSlotById( slot.getIdSlot( ) );
+        assertEquals( 5, slotUpdated.getMaxCapacity( ) );
+        assertEquals( 4, slotUpdated.getNbRemainingPlaces( ) );
+        assertEquals( 4, slotUpdated.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 1, slotUpdated.getNbPlacesTaken( ) );
+        assertTrue( slotUpdated.getIsSpecific( ) );
+
+        assertNull( SlotSafeService.updateImpactedSlot( -1, true, 5, false, false ) );
+
+        FormService.removeForm( nIdForm );
+    }
 }
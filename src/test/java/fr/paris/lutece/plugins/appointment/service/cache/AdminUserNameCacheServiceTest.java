@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import fr.paris.lutece.portal.business.user.AdminUser;
+import fr.paris.lutece.portal.business.user.AdminUserHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the AdminUserNameCacheService
+ */
+public final class AdminUserNameCacheServiceTest extends LuteceTestCase
+{
+    private static final int ID_ADMIN_USER = 1;
+    private static final int ID_UNKNOWN_ADMIN_USER = -101;
+    private static final String LAST_NAME_RENAMED = "Renamed";
+
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+        AdminUserNameCacheService.getInstance( ).enableCache( true );
+    }
+
+    /**
+     * Test that an unknown admin user has no name and is only searched once
+     */
+    public void testUnknownAdminUser( )
+    {
+        AdminUserNameCacheService.invalidate( ID_UNKNOWN_ADMIN_USER );
+        long lNbHits = AdminUserNameCacheService.getNbHits( );
+        long lNbMisses = AdminUserNameCacheService.getNbMisses( );
+
+        assertNull( AdminUserNameCacheService.getDisplayName( ID_UNKNOWN_ADMIN_USER ) );
+        assertEquals( lNbMisses + 1, AdminUserNameCacheService.getNbMisses( ) );
+        assertNull( AdminUserNameCacheService.getDisplayName( ID_UNKNOWN_ADMIN_USER ) );
+        assertEquals( lNbHits + 1, AdminUserNameCacheService.getNbHits( ) );
+        assertEquals( lNbMisses + 1, AdminUserNameCacheService.getNbMisses( ) );
+    }
+
+    /**
+     * Test that the name of an admin user is cached until it expires or is invalidated
+     */
+    public void testDisplayName( )
+    {
+        AdminUser adminUser = AdminUserHome.findByPrimaryKey( ID_ADMIN_USER );
+        String strLastName = adminUser.getLastName( );
+        String strDisplayName = adminUser.getFirstName( ) + " " + strLastName;
+        String strDisplayNameRenamed = adminUser.getFirstName( ) + " " + LAST_NAME_RENAMED;
+        AdminUserNameCacheService.invalidate( ID_ADMIN_USER );
+        long lNow = System.currentTimeMillis( );
+        long lNbHits = AdminUserNameCacheService.getNbHits( );
+        long lNbMisses = AdminUserNameCacheService.getNbMisses( );
+
+        assertEquals( strDisplayName, AdminUserNameCacheService.getDisplayName( ID_ADMIN_USER, lNow ) );
+        assertEquals( lNbMisses + 1, AdminUserNameCacheService.getNbMisses( ) );
+
+        adminUser.setLastName( LAST_NAME_RENAMED );
+        AdminUserHome.update( adminUser );
+        try
+        {
+            // The name in cache is still used
+            assertEquals( strDisplayName, AdminUserNameCacheService.getDisplayName( ID_ADMIN_USER, lNow + 1000 ) );
+            assertEquals( lNbHits + 1, AdminUserNameCacheService.getNbHits( ) );
+
+            // The name has expired
+            assertEquals( strDisplayNameRenamed, AdminUserNameCacheService.getDisplayName( ID_ADMIN_USER, lNow + 24 * 3600 * 1000L ) );
+            assertEquals( lNbMisses + 2, AdminUserNameCacheService.getNbMisses( ) );
+
+            // The name is loaded again after an invalidation
+            AdminUserNameCacheService.invalidate( ID_ADMIN_USER );
+            assertEquals( strDisplayNameRenamed, AdminUserNameCacheService.getDisplayName( ID_ADMIN_USER, lNow ) );
+            assertEquals( lNbMisses + 3, AdminUserNameCacheService.getNbMisses( ) );
+            assertEquals( lNbHits + 1, AdminUserNameCacheService.getNbHits( ) );
+        }
+        finally
+        {
+            adminUser.setLastName( strLastName );
+            AdminUserHome.update( adminUser );
+            AdminUserNameCacheService.invalidate( ID_ADMIN_USER );
+        }
+    }
+}
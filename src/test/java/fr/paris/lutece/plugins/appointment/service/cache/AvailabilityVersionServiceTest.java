@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import fr.paris.lutece.plugins.appointment.business.FormTest;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.form.FormVersion;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the AvailabilityVersionService
+ */
+public final class AvailabilityVersionServiceTest extends LuteceTestCase
+{
+    /**
+     * Test that the version of a form, read from the database, only changes when the form or all the forms are modified
+     */
+    public void testVersion( )
+    {
+        Form form1 = FormTest.buildForm1( );
+        FormHome.create( form1 );
+        Form form2 = FormTest.buildForm1( );
+        FormHome.create( form2 );
+
+        FormVersion version1 = AvailabilityVersionService.getVersion( form1.getIdForm( ) );
+        FormVersion version2 = AvailabilityVersionService.getVersion( form2.getIdForm( ) );
+        assertEquals( 0, version1.getAvailabilityVersion( ) );
+        assertNull( version1.getDateAvailabilityUpdate( ) );
+
+        AvailabilityVersionService.increment( form1.getIdForm( ) );
+        assertEquals( version1.getAvailabilityVersion( ) + 1, AvailabilityVersionService.getVersion( form1.getIdForm( ) ).getAvailabilityVersion( ) );
+        assertNotNull( AvailabilityVersionService.getVersion( form1.getIdForm( ) ).getDateAvailabilityUpdate( ) );
+        assertEquals( version2.getAvailabilityVersion( ), AvailabilityVersionService.getVersion( form2.getIdForm( ) ).getAvailabilityVersion( ) );
+
+        AvailabilityVersionService.incrementAll( );
+        assertEquals( version1.getAvailabilityVersion( ) + 2, AvailabilityVersionService.getVersion( form1.getIdForm( ) ).getAvailabilityVersion( ) );
+        assertEquals( version2.getAvailabilityVersion( ) + 1, AvailabilityVersionService.getVersion( form2.getIdForm( ) ).getAvailabilityVersion( ) );
+
+        FormHome.delete( form1.getIdForm( ) );
+        FormHome.delete( form2.getIdForm( ) );
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import fr.paris.lutece.plugins.appointment.business.FormTest;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.form.FormVersionHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the FormEntryCacheService
+ */
+public final class FormEntryCacheServiceTest extends LuteceTestCase
+{
+    /**
+     * Test that the tree in cache is served until the entry version stored with the form changes, including when it is changed by another node
+     */
+    public void testGetFormEntryTree( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+        FormEntryCacheService.getInstance( ).enableCache( true );
+
+        FormEntryTree tree = FormEntryCacheService.getFormEntryTree( form.getIdForm( ) );
+        assertSame( tree, FormEntryCacheService.getFormEntryTree( form.getIdForm( ) ) );
+
+        // Modification made on another node: only the stored version changes
+        FormVersionHome.incrementEntryVersion( form.getIdForm( ) );
+        FormEntryTree treeReloaded = FormEntryCacheService.getFormEntryTree( form.getIdForm( ) );
+        assertNotSame( tree, treeReloaded );
+        assertEquals( tree.getVersion( ) + 1, treeReloaded.getVersion( ) );
+        assertSame( treeReloaded, FormEntryCacheService.getFormEntryTree( form.getIdForm( ) ) );
+
+        FormEntryCacheService.invalidate( form.getIdForm( ) );
+        assertEquals( treeReloaded.getVersion( ) + 1, FormEntryCacheService.getFormEntryTree( form.getIdForm( ) ).getVersion( ) );
+
+        FormHome.delete( form.getIdForm( ) );
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import fr.paris.lutece.plugins.appointment.business.FormTest;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.form.FormVersionHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the PlanningCacheService
+ */
+public final class PlanningCacheServiceTest extends LuteceTestCase
+{
+    /**
+     * Test that the planning in cache is served until the planning version stored with the form changes, including when it is changed by another node
+     */
+    public void testGetPlanning( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+        PlanningCacheService.getInstance( ).enableCache( true );
+
+        PlanningSnapshot planning = PlanningCacheService.getPlanning( form.getIdForm( ) );
+        assertSame( planning, PlanningCacheService.getPlanning( form.getIdForm( ) ) );
+
+        // Modification made on another node: only the stored version changes
+        FormVersionHome.incrementPlanningVersion( form.getIdForm( ) );
+        PlanningSnapshot planningReloaded = PlanningCacheService.getPlanning( form.getIdForm( ) );
+        assertNotSame( planning, planningReloaded );
+        assertEquals( planning.getVersion( ) + 1, planningReloaded.getVersion( ) );
+        assertSame( planningReloaded, PlanningCacheService.getPlanning( form.getIdForm( ) ) );
+
+        PlanningCacheService.invalidate( form.getIdForm( ) );
+        assertEquals( planningReloaded.getVersion( ) + 1, PlanningCacheService.getPlanning( form.getIdForm( ) ).getVersion( ) );
+
+        FormHome.delete( form.getIdForm( ) );
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the PlanningSnapshot
+ */
+public final class PlanningSnapshotTest extends LuteceTestCase
+{
+    private static final LocalDate DATE_OF_APPLY_1 = LocalDate.parse( "2017-01-02" );
+    private static final LocalDate DATE_OF_APPLY_2 = LocalDate.parse( "2017-03-06" );
+
+    /**
+     * Test the search of the week definition and of the reservation rule that apply at a date
+     */
+    public void testClosestToDateOfApply( )
+    {
+        WeekDefinition weekDefinition1 = buildWeekDefinition( 1, DATE_OF_APPLY_1 );
+        WeekDefinition weekDefinition2 = buildWeekDefinition( 2, DATE_OF_APPLY_2 );
+        ReservationRule reservationRule = new ReservationRule( );
+        reservationRule.setIdReservationRule( 1 );
+        reservationRule.setDateOfApply( DATE_OF_APPLY_2 );
+        PlanningSnapshot planning = new PlanningSnapshot( 1, Arrays.asList( weekDefinition2, weekDefinition1 ), Arrays.asList( reservationRule ) );
+
+        assertSame( weekDefinition1, planning.getWeekDefinitionClosestToDateOfApply( DATE_OF_APPLY_1 ) );
+        assertSame( weekDefinition1, planning.getWeekDefinitionClosestToDateOfApply( DATE_OF_APPLY_2.minusDays( 1 ) ) );
+        assertSame( weekDefinition2, planning.getWeekDefinitionClosestToDateOfApply( DATE_OF_APPLY_2.plusYears( 1 ) ) );
+        // Before the first date of apply, the first one applies
+        assertSame( reservationRule, planning.getReservationRuleClosestToDateOfApply( DATE_OF_APPLY_1 ) );
+        assertEquals( 2, planning.getMapWeekDefinition( ).size( ) );
+
+        PlanningSnapshot emptyPlanning = new PlanningSnapshot( 2, Collections.emptyList( ), Collections.emptyList( ) );
+        assertNull( emptyPlanning.getWeekDefinitionClosestToDateOfApply( DATE_OF_APPLY_1 ) );
+        assertNull( emptyPlanning.getReservationRuleClosestToDateOfApply( DATE_OF_APPLY_1 ) );
+    }
+
+    /**
+     * Build a week definition
+     * 
+     * @param nIdWeekDefinition
+     *            the id of the week definition
+     * @param dateOfApply
+     *            the date of apply
+     * @return the week definition
+     */
+    private static WeekDefinition buildWeekDefinition( int nIdWeekDefinition, LocalDate dateOfApply )
+    {
+        WeekDefinition weekDefinition = new WeekDefinition( );
+        weekDefinition.setIdWeekDefinition( nIdWeekDefinition );
+        weekDefinition.setIdForm( 1 );
+        weekDefinition.setDateOfApply( dateOfApply );
+        return weekDefinition;
+    }
+}
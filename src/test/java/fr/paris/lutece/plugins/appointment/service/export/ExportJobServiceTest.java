@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.export;
+
+import fr.paris.lutece.plugins.appointment.business.export.ExportJob;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the ExportJobService
+ */
+public final class ExportJobServiceTest extends LuteceTestCase
+{
+    /**
+     * Test the Content-Disposition header of the download of an export : the quotes and the non ASCII characters of the name of the file are replaced in
+     * the quoted name, and encoded in the UTF-8 name
+     */
+    public void testGetContentDisposition( )
+    {
+        ExportJob exportJob = new ExportJob( );
+        exportJob.setIdExportJob( 12 );
+        exportJob.setFormat( ExportJobService.FORMAT_JSON );
+        exportJob.setFileName( "Démarche \"été\".json" );
+        assertEquals( "attachment; filename=\"D_marche __t__.json\"; filename*=UTF-8''D%C3%A9marche%20%22%C3%A9t%C3%A9%22.json",
+                ExportJobService.getContentDisposition( exportJob ) );
+
+        // An export without name of file gets a name built from its id
+        exportJob.setFileName( null );
+        assertEquals( "attachment; filename=\"export-12.json\"; filename*=UTF-8''export-12.json", ExportJobService.getContentDisposition( exportJob ) );
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.listeners;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.appointment.business.event.Event;
+import fr.paris.lutece.plugins.appointment.business.event.EventHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the SlotListenerManager
+ */
+public final class SlotListenerManagerTest extends LuteceTestCase
+{
+    private static final int ID_FORM = -301;
+    private static final int ID_OTHER_FORM = -302;
+    private static final int ID_SLOT = -311;
+    private static final int ID_OTHER_SLOT = -312;
+    private static final String CLAIM_TOKEN = "SlotListenerManagerTest";
+
+    /**
+     * Test that the changes collected by nested batches are published under the form of each slot, and that the events of a slot are keyed by its form
+     */
+    public void testNestedBatches( )
+    {
+        SlotListenerManager.openSlotChangeBatch( );
+        try
+        {
+            SlotListenerManager.notifyListenersSlotChange( ID_FORM, ID_SLOT );
+            SlotListenerManager.openSlotChangeBatch( );
+            try
+            {
+                SlotListenerManager.notifyListenersSlotChange( ID_OTHER_FORM, ID_OTHER_SLOT );
+            }
+            finally
+            {
+                SlotListenerManager.closeSlotChangeBatch( );
+            }
+        }
+        finally
+        {
+            SlotListenerManager.closeSlotChangeBatch( );
+        }
+        SlotListenerManager.notifyListenersSlotRemoval( ID_FORM, ID_SLOT );
+
+        EventHome.claim( CLAIM_TOKEN, LocalDateTime.now( ), 1000 );
+        List<Event> listEvents = EventHome.findByClaimToken( CLAIM_TOKEN );
+        EventHome.deleteByClaimToken( CLAIM_TOKEN );
+
+        List<Event> listSlotsChanges = listEvents.stream( ).filter( event -> Event.RESOURCE_SLOTS_OF_FORM.equals( event.getResourceType( ) ) )
+                .filter( event -> event.getIdResource( ) == ID_FORM || event.getIdResource( ) == ID_OTHER_FORM ).collect( Collectors.toList( ) );
+        assertEquals( 2, listSlotsChanges.size( ) );
+        for ( Event event : listSlotsChanges )
+        {
+            assertEquals( event.getIdResource( ) == ID_FORM ? String.valueOf( ID_SLOT ) : String.valueOf( ID_OTHER_SLOT ), event.getData( ) );
+        }
+
+        Event eventRemoval = listEvents.stream( ).filter( event -> Event.RESOURCE_SLOT.equals( event.getResourceType( ) ) && event.getIdResource( ) == ID_SLOT )
+                .findFirst( ).orElse( null );
+        assertNotNull( eventRemoval );
+        assertEquals( Event.TYPE_REMOVAL, eventRemoval.getEventType( ) );
+        assertEquals( Integer.valueOf( ID_FORM ), SlotListenerManager.getIdForm( eventRemoval ) );
+        assertNull( SlotListenerManager.getIdForm( listSlotsChanges.get( 0 ) ) );
+    }
+}
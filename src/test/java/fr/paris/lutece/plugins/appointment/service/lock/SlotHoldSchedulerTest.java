@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.SerializationUtils;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the SlotHoldScheduler
+ */
+public final class SlotHoldSchedulerTest extends LuteceTestCase
+{
+
+    /**
+     * Test the registration and the cancellation of a hold
+     */
+    public void testRegisterAndCancel( )
+    {
+        int nNbActiveHolds = SlotHoldScheduler.getNbActiveHolds( );
+        long lNbHoldsCancelled = SlotHoldScheduler.getNbHoldsCancelled( );
+
+        SlotHold hold = SlotHoldScheduler.register( 1, 2, 1, TimeUnit.HOURS );
+        assertTrue( hold.isActive( ) );
+        assertEquals( 1, hold.getIdSlot( ) );
+        assertEquals( 2, hold.getNbPlaces( ) );
+        assertEquals( nNbActiveHolds + 1, SlotHoldScheduler.getNbActiveHolds( ) );
+
+        assertTrue( SlotHoldScheduler.cancel( hold ) );
+        assertTrue( hold.isCancelled( ) );
+        assertEquals( nNbActiveHolds, SlotHoldScheduler.getNbActiveHolds( ) );
+        assertEquals( lNbHoldsCancelled + 1, SlotHoldScheduler.getNbHoldsCancelled( ) );
+
+        // A hold can only be cancelled once
+        assertFalse( SlotHoldScheduler.cancel( hold ) );
+        assertEquals( lNbHoldsCancelled + 1, SlotHoldScheduler.getNbHoldsCancelled( ) );
+    }
+
+    /**
+     * Test that a hold cancelled on another node (copy of the hold deserialized after a session failover) is not released again by the original hold
+     */
+    public void testCancelOnAnotherNode( )
+    {
+        SlotHold hold = SlotHoldScheduler.register( 1, 2, 1, TimeUnit.HOURS );
+        SlotHold copy = SerializationUtils.clone( hold );
+        assertEquals( hold.getIdHold( ), copy.getIdHold( ) );
+        assertTrue( copy.isActive( ) );
+
+        assertTrue( SlotHoldScheduler.cancel( copy ) );
+        // The original hold is still active in its JVM, but its row has already been released
+        assertTrue( hold.isActive( ) );
+        assertFalse( SlotHoldScheduler.release( hold ) );
+    }
+
+}
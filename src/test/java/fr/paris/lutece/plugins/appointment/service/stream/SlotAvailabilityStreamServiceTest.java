@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2018, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.stream;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the SlotAvailabilityStreamService
+ */
+public final class SlotAvailabilityStreamServiceTest extends LuteceTestCase
+{
+    private static final int ID_FORM = -201;
+    private static final int ID_OTHER_FORM = -202;
+    private static final String MESSAGE = "[{\"idSlot\":1}]";
+
+    /**
+     * Test the fan-out of the messages to the subscriptions of a form
+     * 
+     * @throws InterruptedException
+     */
+    public void testPublish( ) throws InterruptedException
+    {
+        SlotAvailabilitySubscription subscription = SlotAvailabilityStreamService.subscribe( ID_FORM );
+        assertNotNull( subscription );
+        assertTrue( SlotAvailabilityStreamService.hasSubscribers( ID_FORM ) );
+        assertFalse( SlotAvailabilityStreamService.hasSubscribers( ID_OTHER_FORM ) );
+
+        SlotAvailabilityStreamService.publish( ID_OTHER_FORM, MESSAGE );
+        assertNull( subscription.poll( 0 ) );
+        SlotAvailabilityStreamService.publish( ID_FORM, MESSAGE );
+        assertEquals( MESSAGE, subscription.poll( 0 ) );
+
+        SlotAvailabilityStreamService.unsubscribe( subscription );
+        assertFalse( SlotAvailabilityStreamService.hasSubscribers( ID_FORM ) );
+    }
+
+    /**
+     * Test that a subscription that does not read its messages is dropped when its queue is full
+     */
+    public void testSlowSubscriptionDropped( )
+    {
+        SlotAvailabilitySubscription subscription = new SlotAvailabilitySubscription( ID_FORM, 2 );
+        assertTrue( subscription.offer( MESSAGE ) );
+        assertTrue( subscription.offer( MESSAGE ) );
+        assertFalse( subscription.offer( MESSAGE ) );
+        assertTrue( subscription.isDropped( ) );
+        assertFalse( subscription.offer( MESSAGE ) );
+    }
+}
@@ -0,0 +1,7 @@
+<%@ page errorPage="../../ErrorPage.jsp"  trimDirectiveWhitespaces="true" %>
+<%@page import="fr.paris.lutece.plugins.appointment.web.AppointmentFormJspBean"%>
+<jsp:useBean id="manageAppointmentExports" scope="session" class="fr.paris.lutece.plugins.appointment.web.AppointmentExportJobJspBean" />
+<%
+manageAppointmentExports.init( request, AppointmentFormJspBean.RIGHT_MANAGEAPPOINTMENTFORM ) ;
+manageAppointmentExports.getDownloadExportFile ( request , response );
+%>
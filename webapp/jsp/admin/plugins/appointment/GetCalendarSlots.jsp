@@ -0,0 +1,7 @@
+<%@ page errorPage="../../ErrorPage.jsp" contentType="application/json; charset=UTF-8" trimDirectiveWhitespaces="true" %>
+<%@page import="fr.paris.lutece.plugins.appointment.web.AppointmentFormJspBean"%>
+<jsp:useBean id="manageappointmentAppointment" scope="session" class="fr.paris.lutece.plugins.appointment.web.AppointmentJspBean" />
+<% 
+	manageappointmentAppointment.init( request, AppointmentFormJspBean.RIGHT_MANAGEAPPOINTMENTFORM ) ;
+%>
+<%= manageappointmentAppointment.getCalendarSlots( request, response ) %>
@@ -0,0 +1,9 @@
+<jsp:useBean id="manageAppointmentExports" scope="session" class="fr.paris.lutece.plugins.appointment.web.AppointmentExportJobJspBean" />
+<% String strContent = manageAppointmentExports.processController ( request , response ); %>
+
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:include page="../../AdminHeader.jsp" />
+
+<%= strContent %>
+
+<%@ include file="../../AdminFooter.jsp" %>
@@ -0,0 +1,9 @@
+<jsp:useBean id="manageAppointmentTasks" scope="session" class="fr.paris.lutece.plugins.appointment.web.AppointmentTaskJspBean" />
+<% String strContent = manageAppointmentTasks.processController ( request , response ); %>
+
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:include page="../../AdminHeader.jsp" />
+
+<%= strContent %>
+
+<%@ include file="../../AdminFooter.jsp" %>